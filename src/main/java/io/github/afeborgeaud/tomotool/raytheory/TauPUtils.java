@@ -64,6 +64,8 @@ public class TauPUtils {
 
         boolean majorarc = false;
         try {
+            // TauPTravelTimeTable cannot be used here: it holds only times and distances,
+            // while the pierce points, ray paths and ray parameters of each arrival are needed below.
             timetool.calculate(distance);
             List<Arrival> arrivals = timetool.getArrivals();
 
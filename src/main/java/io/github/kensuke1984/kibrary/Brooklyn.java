@@ -25,7 +25,9 @@ import io.github.kensuke1984.kibrary.util.earth.PolynomialStructureFile;
 import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTCatalogUpdate;
 import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTID;
 import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTListup;
+import io.github.kensuke1984.kibrary.util.sac.SACBundle;
 import io.github.kensuke1984.kibrary.util.sac.SACFileAccess;
+import io.github.kensuke1984.kibrary.util.spc.SPCContainer;
 import io.github.kensuke1984.kibrary.util.spc.SPCFileAccess;
 import io.github.kensuke1984.kibrary.visual.map.ColorBinInformationFile;
 import io.github.kensuke1984.kibrary.visual.map.VoxelMapper;
@@ -69,6 +71,8 @@ enum Brooklyn {
     // Synthetic  20
     SPCFileAccess(21, SPCFileAccess.class),
     SACFileAccess(22, SACFileAccess.class),
+    SPCContainer(23, SPCContainer.class),
+    SACBundle(24, SACBundle.class),
     // Filtered 30
     TimewindowDataFile(31, TimewindowDataFile.class),
     StaticCorrectionDataFile(32, StaticCorrectionDataFile.class),
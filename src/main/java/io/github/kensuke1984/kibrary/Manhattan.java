@@ -5,6 +5,7 @@ import java.util.Arrays;
 import io.github.kensuke1984.kibrary.correction.FujiStaticCorrection;
 import io.github.kensuke1984.kibrary.correction.StaticCorrectionForger;
 import io.github.kensuke1984.kibrary.correction.StaticCorrectionMerge;
+import io.github.kensuke1984.kibrary.dsmsetup.DSMJobScheduler;
 import io.github.kensuke1984.kibrary.dsmsetup.OneDPartialDSMSetup;
 import io.github.kensuke1984.kibrary.dsmsetup.SyntheticDSMSetup;
 import io.github.kensuke1984.kibrary.dsmsetup.ThreeDPartialDSMSetup;
@@ -88,6 +89,7 @@ enum Manhattan {
     SyntheticDSMSetup(20, SyntheticDSMSetup.class),
     SPC_SAC(21, SPC_SAC.class),
     SyntheticRecordSection(22, SyntheticRecordSection.class),
+    DSMJobScheduler(23, DSMJobScheduler.class),
     VirtualDatasetMaker(25, VirtualDatasetMaker.class),
     // Filtered 30
     FilterDivider(30, FilterDivider.class),
@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
@@ -19,6 +20,7 @@ import org.apache.commons.math3.util.Precision;
 
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.math.CrossCorrelation;
 import io.github.kensuke1984.kibrary.math.Trace;
 import io.github.kensuke1984.kibrary.timewindow.Timewindow;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
@@ -115,8 +117,12 @@ public class FujiStaticCorrection extends Operation {
      */
     private double searchRange;
     private boolean medianTime;
+    /**
+     * Whether to refine the shift below the sampling interval
+     */
+    private boolean subsampleShift;
 
-    private Set<TimewindowData> sourceTimewindowSet;
+    private Map<GlobalCMTID, Set<TimewindowData>> sourceTimewindowMap;
     private Set<StaticCorrectionData> staticCorrectionSet = Collections.synchronizedSet(new HashSet<>());
 
     /**
@@ -157,6 +163,8 @@ public class FujiStaticCorrection extends Operation {
             pw.println("#searchRange ");
             pw.println("##(boolean) Whether to use median time. (false)");
             pw.println("#medianTime ");
+            pw.println("##(boolean) Whether to refine time shifts below the sampling interval by interpolating the correlation peak. (false)");
+            pw.println("#subsampleShift ");
         }
         System.err.println(outPath + " is created.");
     }
@@ -182,16 +190,16 @@ public class FujiStaticCorrection extends Operation {
         threshold = property.parseDouble("threshold", "0.2");
         searchRange = property.parseDouble("searchRange", "10");
         medianTime = property.parseBoolean("medianTime", "false");
+        subsampleShift = property.parseBoolean("subsampleShift", "false");
     }
 
     @Override
     public void run() throws IOException {
         // gather all time windows to be processed
-        sourceTimewindowSet = TimewindowDataFile.read(timewindowPath)
-                .stream().filter(window -> components.contains(window.getComponent())).collect(Collectors.toSet());
+        sourceTimewindowMap = TimewindowDataFile.readByEvent(timewindowPath,
+                TimewindowDataFile.Filter.all().components(components::contains));
         // collect all events that exist in the time window set
-        Set<GlobalCMTID> eventSet = sourceTimewindowSet.stream().map(TimewindowData::getGlobalCMTID)
-                .collect(Collectors.toSet());
+        Set<GlobalCMTID> eventSet = sourceTimewindowMap.keySet();
 
         ExecutorService es = ThreadAid.createFixedThreadPool();
         // for each event, execute run() of class Worker, which is defined at the bottom of this java file
@@ -244,8 +252,7 @@ public class FujiStaticCorrection extends Operation {
     }
 
     private double[] cutSac(SACFileAccess sacData, double tStart, double tEnd) {
-        Trace t = sacData.createTrace();
-        return t.cutWindow(tStart, tEnd, sacSamplingHz).getY();
+        return sacData.cutWindow(tStart, tEnd, sacSamplingHz).getY();
     }
 
     /**
@@ -289,11 +296,11 @@ public class FujiStaticCorrection extends Operation {
      */
     private double computeP2PRatio(SACFileAccess obsSac, SACFileAccess synSac, double shift, Timewindow window) {
         // peak-to-peak amplitude of synthetic time window
-        Trace synTrace = synSac.createTrace().cutWindow(window, sacSamplingHz);
+        Trace synTrace = synSac.cutWindow(window, sacSamplingHz);
         double synP2P = synTrace.getMaxY() - synTrace.getMinY();
 
         // peak-to-peak amplitude of observed time window
-        Trace obsTrace = obsSac.createTrace().cutWindow(window.shift(-shift), sacSamplingHz);
+        Trace obsTrace = obsSac.cutWindow(window.shift(-shift), sacSamplingHz);
         double obsP2P = obsTrace.getMaxY() - obsTrace.getMinY();
 
         return obsP2P / synP2P;
@@ -337,7 +344,7 @@ public class FujiStaticCorrection extends Operation {
         double obsEndSec = endtime + searchRange;
         double[] obs = cutSac(obsSac, obsStartSec, obsEndSec);
 
-        int pointshift = getBestPoint(obs, syn, delta, searchRange);
+        double pointshift = getBestPoint(obs, syn, delta, searchRange);
         double timeshift = pointshift * delta;
         return Precision.round(timeshift, 2);
     }
@@ -364,7 +371,7 @@ public class FujiStaticCorrection extends Operation {
         double obsEndSec = endtime + searchRange;
         double[] obs = cutSac(obsSac, obsStartSec, obsEndSec);
 
-        int pointshift = getBestPoint(obs, syn, delta, searchRange);
+        double pointshift = getBestPoint(obs, syn, delta, searchRange);
         double timeshift = pointshift * delta;
         return Precision.round(timeshift, 2);
     }
@@ -373,44 +380,18 @@ public class FujiStaticCorrection extends Operation {
      * @param obs observed waveform
      * @param syn synthetic waveform
      * @return the number of points we should shift so that obs(t-shift) and
-     * syn(t) are good correlation
+     * syn(t) are good correlation. It has a fractional part only when subsampleShift is set.
      */
-    private int getBestPoint(double[] obs, double[] syn, double delta, double range) {
-        int shift = 0;
-        double cor = 0;
-
-        // double synsum = 0;
-        // for (int j = 0; j < syn.length; j++)
-        // synsum += syn[j] * syn[j];
-        // synsum = Math.sqrt(synsum);
+    private double getBestPoint(double[] obs, double[] syn, double delta, double range) {
         // searchWidthから 相関のいいshiftを探す
         int width = obs.length - syn.length; // searchWidth
-        for (int shiftI = 0; shiftI < width; shiftI++) {
-            // double variance = 0;
-            double tmpcor = 0;
-            double obssum = 0;
-            double synsum = 0;
-            for (int j = 0; j < syn.length; j++) {
-                tmpcor += syn[j] * obs[j + shiftI];
-                obssum += obs[j + shiftI] * obs[j + shiftI];
-                // variance += (syn[j] - obs[j + shiftI])
-                // * (syn[j] - obs[j + shiftI]);
-                synsum += syn[j] * syn[j];
-            }
-            obssum = Math.sqrt(obssum);
-            synsum = Math.sqrt(synsum);
-            // tmpcor /= obssum;
-            tmpcor /= synsum * obssum;
-            // variance /= obssum;
-            // System.out.println(((int) (-searchRange / delta) + shiftI) + " "
-            // + tmpcor + " " + variance);
-            if (tmpcor > cor) {
-                shift = shiftI;
-                cor = tmpcor;
-            }
-        }
-        // System.out.println(pointWidth+" "+shift);
-        return (int) (range / delta) - shift;
+        if (width <= 0) return (int) (range / delta);
+        // correlation for shifts 0, ..., width-1
+        double[] cors = CrossCorrelation.normalized(Arrays.copyOf(obs, obs.length - 1), syn);
+        int shift = CrossCorrelation.indexOfMax(cors);
+        if (shift < 0 || cors[shift] <= 0) return (int) (range / delta);
+        double fraction = subsampleShift ? CrossCorrelation.interpolatePeak(cors, shift) : 0;
+        return (int) (range / delta) - (shift + fraction);
     }
 
     /**
@@ -433,7 +414,7 @@ public class FujiStaticCorrection extends Operation {
     private class Worker extends DatasetAid.FilteredDatasetWorker {
 
         private Worker(GlobalCMTID eventID) {
-            super(eventID, obsPath, synPath, convolved, sourceTimewindowSet);
+            super(eventID, obsPath, synPath, convolved, sourceTimewindowMap.get(eventID));
         }
 
         @Override
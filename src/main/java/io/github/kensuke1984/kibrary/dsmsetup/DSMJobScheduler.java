@@ -0,0 +1,438 @@
+package io.github.kensuke1984.kibrary.dsmsetup;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.github.kensuke1984.kibrary.Operation;
+import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.util.DatasetAid;
+import io.github.kensuke1984.kibrary.util.GadgetAid;
+import io.github.kensuke1984.kibrary.util.MathAid;
+import io.github.kensuke1984.kibrary.util.ThreadAid;
+import io.github.kensuke1984.kibrary.util.spc.SPCContainer;
+import io.github.kensuke1984.kibrary.util.spc.SPCFileAid;
+import io.github.kensuke1984.kibrary.util.spc.SPCMode;
+
+/**
+ * Operation that runs DSM (tish, tipsv, shfp, psvbp, etc.) for input files created by
+ * {@link SyntheticDSMSetup}, {@link ThreeDPartialDSMSetup}, or {@link OneDPartialDSMSetup}.
+ * This can be used instead of the shellscripts written by these classes.
+ * <p>
+ * All files named "header_[SH,PSV].inf" under the DSM folder are collected as jobs.
+ * Each job is run in the folder of its input file, in the same way as the shellscripts,
+ * and its standard output and error are written in "header_[SH,PSV].log" in the same folder.
+ * A job is regarded as successful when the program exits normally and its expected output SPC files exist.
+ * The output files are those listed in the input file (for synthetics),
+ * or otherwise at least one file of the mode for each receiver in the output folder.
+ * Files packed in an {@link SPCContainer} are also counted.
+ * When a job succeeds, a file "header_[SH,PSV].inf.done" is created, and the job is skipped in later runs
+ * as long as its outputs still exist.
+ * Failed jobs are retried up to {@link #nRetry} times.
+ * <p>
+ * Jobs are run in descending order of their computation cost, estimated as
+ * (number of frequencies) * (number of receivers) * (number of radii of perturbation points),
+ * so that the longest jobs do not remain at the end.
+ * The number of jobs run simultaneously is {@link #maxCores} / {@link #nCorePerJob}.
+ * <p>
+ * The DSM programs (or "mpi-" + name of program when MPI is used) must be in PATH,
+ * unless the paths of executables are specified by {@link #programSH} and {@link #programPSV}.
+ * Any executable that reads the input file from standard input can be set, so a stub can be used for testing.
+ *
+ * @since 2026/10/18
+ */
+public class DSMJobScheduler extends Operation {
+
+    /**
+     * Suffix added to names of input files to mark jobs that have finished successfully.
+     */
+    static final String DONE_SUFFIX = ".done";
+
+    private final Property property;
+    /**
+     * Path of the work folder.
+     */
+    private Path workPath;
+    /**
+     * Path of folder containing DSM input files.
+     */
+    private Path dsmPath;
+    /**
+     * Type of DSM computation.
+     */
+    private DSMShellscript.DSMType dsmType;
+    /**
+     * Name root of input file for DSM (header_[SH,PSV].inf).
+     */
+    private String header;
+    /**
+     * The SPC modes to compute: SH, PSV, or BOTH.
+     */
+    private SPCFileAid.UsableSPCMode usableSPCMode;
+    /**
+     * Executable to use for SH. If null, it is decided by {@link #dsmType}.
+     */
+    private String programSH;
+    /**
+     * Executable to use for PSV. If null, it is decided by {@link #dsmType}.
+     */
+    private String programPSV;
+    /**
+     * Whether to use MPI-version of DSM.
+     */
+    private boolean mpi;
+    /**
+     * Number of cores to use for each job.
+     */
+    private int nCorePerJob;
+    /**
+     * Total number of cores to use.
+     */
+    private int maxCores;
+    /**
+     * Number of times to retry failed jobs.
+     */
+    private int nRetry;
+
+    private final AtomicInteger nSucceeded = new AtomicInteger();
+    private final AtomicInteger nFailed = new AtomicInteger();
+    private final AtomicInteger nRunning = new AtomicInteger();
+    private final List<Path> failedJobs = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * @param args (String[]) Arguments: none to create a property file, path of property file to run it.
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) writeDefaultPropertiesFile(null);
+        else Operation.mainFromSubclass(args);
+    }
+
+    public static void writeDefaultPropertiesFile(String tag) throws IOException {
+        String className = new Object(){}.getClass().getEnclosingClass().getSimpleName();
+        Path outPath = DatasetAid.generateOutputFilePath(Paths.get(""), className, tag, true, null, ".properties");
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(outPath, StandardOpenOption.CREATE_NEW))) {
+            pw.println("manhattan " + className);
+            pw.println("##Path of work folder. (.)");
+            pw.println("#workPath ");
+            pw.println("##Path of a folder containing DSM input files, such as synthetic*, FPpool, or BPpool. (.)");
+            pw.println("#dsmPath ");
+            pw.println("##Type of DSM computation, from {SYNTHETIC, FP, BP, I1D, TI1D}. (SYNTHETIC)");
+            pw.println("#dsmType ");
+            pw.println("##(String) Header for names of input files (as in header_[SH,PSV].inf). (PREM)");
+            pw.println("#header ");
+            pw.println("##The mode of spc files to compute, from {SH, PSV, BOTH}. (BOTH)");
+            pw.println("#usableSPCMode ");
+            pw.println("##Path of executable to use for SH. If this is unset, the program for dsmType is used.");
+            pw.println("#programSH ");
+            pw.println("##Path of executable to use for PSV. If this is unset, the program for dsmType is used.");
+            pw.println("#programPSV ");
+            pw.println("##(boolean) Whether to use MPI-version of DSM. (true)");
+            pw.println("#mpi ");
+            pw.println("##(int) Number of cores to use for each job. This is ignored when MPI is not used. (4)");
+            pw.println("#nCorePerJob ");
+            pw.println("##(int) Total number of cores to use. (number of processors)");
+            pw.println("#maxCores ");
+            pw.println("##(int) Number of times to retry failed jobs. (1)");
+            pw.println("#nRetry ");
+        }
+        System.err.println(outPath + " is created.");
+    }
+
+    public DSMJobScheduler(Property property) throws IOException {
+        this.property = (Property) property.clone();
+    }
+
+    @Override
+    public void set() throws IOException {
+        workPath = property.parsePath("workPath", ".", true, Paths.get(""));
+        dsmPath = property.parsePath("dsmPath", ".", true, workPath);
+        dsmType = DSMShellscript.DSMType.valueOf(property.parseString("dsmType", "SYNTHETIC").toUpperCase());
+        header = property.parseStringSingle("header", "PREM");
+        usableSPCMode = SPCFileAid.UsableSPCMode.valueOf(property.parseString("usableSPCMode", "BOTH").toUpperCase());
+        if (property.containsKey("programSH")) programSH = property.parseString("programSH", null);
+        if (property.containsKey("programPSV")) programPSV = property.parseString("programPSV", null);
+
+        mpi = property.parseBoolean("mpi", "true");
+        nCorePerJob = mpi ? property.parseInt("nCorePerJob", "4") : 1;
+        if (nCorePerJob <= 0) throw new IllegalArgumentException("nCorePerJob must be positive.");
+        maxCores = property.parseInt("maxCores", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        if (maxCores < nCorePerJob) throw new IllegalArgumentException("maxCores must not be smaller than nCorePerJob.");
+        nRetry = property.parseInt("nRetry", "1");
+        if (nRetry < 0) throw new IllegalArgumentException("nRetry must be non-negative.");
+    }
+
+    @Override
+    public void run() throws IOException {
+        List<DSMJob> jobs = collectJobs();
+        List<DSMJob> completedJobs = new ArrayList<>();
+        int nIncomplete = 0;
+        for (DSMJob job : jobs) {
+            if (!Files.exists(job.donePath())) continue;
+            if (job.outputsExist()) {
+                completedJobs.add(job);
+            } else {
+                // the marker is stale: the job was killed after writing it, or its outputs have been deleted
+                System.err.println("!! Outputs of " + job.infPath + " are missing; it will be run again.");
+                Files.delete(job.donePath());
+                nIncomplete++;
+            }
+        }
+        jobs.removeAll(completedJobs);
+        System.err.println(MathAid.switchSingularPlural(completedJobs.size(), "job is", "jobs are") + " already completed.");
+        if (nIncomplete > 0)
+            System.err.println(MathAid.switchSingularPlural(nIncomplete, "job was", "jobs were") + " marked done but lacked outputs.");
+        if (!DatasetAid.checkNum(jobs.size(), "job", "jobs")) return;
+
+        // longest first
+        jobs.sort(Comparator.comparingLong((DSMJob job) -> job.cost).reversed());
+
+        int nSimRun = maxCores / nCorePerJob;
+        System.err.println("Running " + nSimRun + " jobs simultaneously, with " + nCorePerJob + " cores each.");
+        long startTime = System.nanoTime();
+        ExecutorService es = Executors.newFixedThreadPool(nSimRun);
+        for (DSMJob job : jobs) es.execute(job);
+        es.shutdown();
+        while (!es.isTerminated()) {
+            printProgress(startTime, jobs.size());
+            ThreadAid.sleep(1000);
+        }
+        printProgress(startTime, jobs.size());
+        System.err.println();
+
+        if (!failedJobs.isEmpty()) {
+            Path failedListPath = DatasetAid.generateOutputFilePath(workPath, "failedDSMJobs", null, true,
+                    GadgetAid.getTemporaryString(), ".lst");
+            Files.write(failedListPath, failedJobs.stream().map(Path::toString).sorted().collect(Collectors.toList()));
+            System.err.println("!! " + MathAid.switchSingularPlural(failedJobs.size(), "job", "jobs")
+                    + " failed; see " + failedListPath);
+        }
+    }
+
+    private void printProgress(long startTime, int nJobs) {
+        double hours = (System.nanoTime() - startTime) * 1e-9 / 3600;
+        int nFinished = nSucceeded.get() + nFailed.get();
+        System.err.print("\rDSM jobs: " + nFinished + "/" + nJobs + " finished (" + nFailed.get() + " failed), "
+                + nRunning.get() + " running, " + MathAid.roundToString(nSucceeded.get() / hours, 1) + " jobs/h");
+    }
+
+    private List<DSMJob> collectJobs() throws IOException {
+        List<DSMJob> jobs = new ArrayList<>();
+        List<SPCMode> modes = new ArrayList<>();
+        if (usableSPCMode != SPCFileAid.UsableSPCMode.PSV) modes.add(SPCMode.SH);
+        if (usableSPCMode != SPCFileAid.UsableSPCMode.SH) modes.add(SPCMode.PSV);
+        // CAUTION: Files.walk() must be in try-with-resources.
+        try (Stream<Path> stream = Files.walk(dsmPath)) {
+            for (Path path : stream.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                for (SPCMode mode : modes) {
+                    if (path.getFileName().toString().equals(header + "_" + mode + ".inf"))
+                        jobs.add(new DSMJob(path, mode, InputSummary.read(path)));
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * @param mode ({@link SPCMode}) PSV or SH.
+     * @return (List of String) Command to run DSM for the mode.
+     */
+    private List<String> command(SPCMode mode) {
+        String program = (mode == SPCMode.SH) ? programSH : programPSV;
+        if (program == null) program = mpi ? "mpi-" + dsmType.programName(mode) : dsmType.programName(mode);
+        if (mpi) return Arrays.asList("mpirun", "-n", String.valueOf(nCorePerJob), program);
+        else return Arrays.asList(program);
+    }
+
+    /**
+     * Values in a DSM input file that decide the computation cost and the outputs.
+     * <p>
+     * Lines starting with "c" are comments, as in DSM.
+     * The 6th non-comment line of the header has imin and imax.
+     * The numbers of receivers and radii are read from the lines ending with "nsta" and "nr";
+     * for catalogs, which have no "nsta" line, the number of epicentral distances is computed from
+     * "thetamin thetamax dtheta" after the comment "c events and stations".
+     * The output folder is the line after the comment on the output (or write) directory,
+     * and the output files are listed after the comment "c parameter for the write file" in input files for synthetics.
+     */
+    static final class InputSummary {
+        /**
+         * Number of frequencies to compute, imax - imin + 1.
+         */
+        private final int nFrequency;
+        private final int nReceiver;
+        /**
+         * Number of radii of perturbation points. 1 for synthetics.
+         */
+        private final int nRadius;
+        /**
+         * Output folder, relative to the folder of the input file. null if not specified.
+         */
+        private final String outputFolder;
+        /**
+         * Output files listed in the input file, relative to the folder of the input file.
+         */
+        private final List<String> outputFiles;
+
+        private InputSummary(int nFrequency, int nReceiver, int nRadius, String outputFolder, List<String> outputFiles) {
+            this.nFrequency = nFrequency;
+            this.nReceiver = nReceiver;
+            this.nRadius = nRadius;
+            this.outputFolder = outputFolder;
+            this.outputFiles = outputFiles;
+        }
+
+        static InputSummary read(Path infPath) throws IOException {
+            List<String> lines = Files.readAllLines(infPath);
+            List<String> values = new ArrayList<>();
+            int nReceiver = -1;
+            int nRadius = 1;
+            String outputFolder = null;
+            List<String> outputFiles = new ArrayList<>();
+            String lastComment = "";
+            for (String rawLine : lines) {
+                String line = rawLine.trim();
+                if (line.isEmpty()) continue;
+                if (line.startsWith("c")) {
+                    lastComment = line;
+                    continue;
+                }
+                if (line.equals("end")) break;
+                values.add(line);
+                String[] parts = line.split("\\s+");
+                String lastPart = parts[parts.length - 1];
+                if (lastPart.equals("nsta")) nReceiver = Integer.parseInt(parts[0]);
+                else if (lastPart.equals("nr")) nRadius = Integer.parseInt(parts[0]);
+                else if (lastComment.contains("directory") && outputFolder == null) outputFolder = line;
+                else if (lastComment.equals("c parameter for the write file")) outputFiles.add(line);
+                else if (lastComment.equals("c events and stations") && nReceiver < 0 && parts.length == 3) {
+                    // catalog: thetamin thetamax dtheta
+                    double thetamin = Double.parseDouble(parts[0]);
+                    double thetamax = Double.parseDouble(parts[1]);
+                    double dtheta = Double.parseDouble(parts[2]);
+                    nReceiver = (int) Math.round((thetamax - thetamin) / dtheta) + 1;
+                }
+            }
+            if (values.size() < 6) throw new IllegalArgumentException(infPath + " is too short for a DSM input file.");
+            String[] iRange = values.get(5).split("\\s+");
+            int nFrequency = Integer.parseInt(iRange[1]) - Integer.parseInt(iRange[0]) + 1;
+            if (nReceiver < 0) throw new IllegalArgumentException("Number of receivers is not found in " + infPath);
+            return new InputSummary(nFrequency, nReceiver, nRadius, outputFolder, outputFiles);
+        }
+
+        /**
+         * @return (long) Estimate of the computation cost.
+         */
+        long cost() {
+            return (long) nFrequency * nReceiver * nRadius;
+        }
+    }
+
+    /**
+     * A single run of DSM for one input file.
+     */
+    private class DSMJob implements Runnable {
+        private final Path infPath;
+        private final SPCMode mode;
+        private final InputSummary input;
+        /**
+         * Estimate of computation cost.
+         */
+        private final long cost;
+
+        private DSMJob(Path infPath, SPCMode mode, InputSummary input) {
+            this.infPath = infPath.toAbsolutePath();
+            this.mode = mode;
+            this.input = input;
+            this.cost = input.cost();
+        }
+
+        private Path donePath() {
+            return infPath.resolveSibling(infPath.getFileName() + DONE_SUFFIX);
+        }
+
+        /**
+         * @return (boolean) Whether the expected output SPC files exist, either as files or in containers.
+         */
+        private boolean outputsExist() {
+            try {
+                Path folder = infPath.getParent();
+                if (!input.outputFiles.isEmpty()) {
+                    for (String outputFile : input.outputFiles) {
+                        Path outputPath = folder.resolve(outputFile);
+                        if (Files.exists(outputPath)) continue;
+                        SPCContainer container = SPCContainer.of(outputPath.getParent());
+                        if (container == null || !container.contains(outputPath.getFileName().toString())) return false;
+                    }
+                    return true;
+                }
+                if (input.outputFolder == null) return true;
+                Path outputPath = folder.resolve(input.outputFolder);
+                if (!Files.isDirectory(outputPath)) return false;
+                String suffix = mode + ".spc";
+                Set<String> names = new HashSet<>();
+                // CAUTION: Files.list() must be in try-with-resources.
+                try (Stream<Path> stream = Files.list(outputPath)) {
+                    stream.map(path -> path.getFileName().toString()).filter(name -> name.endsWith(suffix)).forEach(names::add);
+                }
+                SPCContainer container = SPCContainer.of(outputPath);
+                if (container != null)
+                    container.entryNames().stream().filter(name -> name.endsWith(suffix)).forEach(names::add);
+                return input.nReceiver <= names.size();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void run() {
+            String infName = infPath.getFileName().toString();
+            Path logPath = infPath.resolveSibling(infName.substring(0, infName.length() - ".inf".length()) + ".log");
+            nRunning.incrementAndGet();
+            try {
+                for (int i = 0; i <= nRetry; i++) {
+                    try {
+                        int exit = new ProcessBuilder(command(mode)).directory(infPath.getParent().toFile())
+                                .redirectInput(infPath.toFile()).redirectErrorStream(true)
+                                .redirectOutput(logPath.toFile()).start().waitFor();
+                        if (exit == 0 && outputsExist()) {
+                            Files.write(donePath(), Arrays.asList(LocalDateTime.now().toString()));
+                            nSucceeded.incrementAndGet();
+                            return;
+                        }
+                        System.err.println();
+                        if (exit == 0) System.err.println("!! " + infPath + " finished without its outputs (try " + (i + 1) + ")");
+                        else System.err.println("!! " + infPath + " exited with " + exit + " (try " + (i + 1) + ")");
+                    } catch (IOException e) {
+                        System.err.println();
+                        System.err.println("!! " + infPath + " could not be run (try " + (i + 1) + "): " + e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                nFailed.incrementAndGet();
+                failedJobs.add(infPath);
+            } finally {
+                nRunning.decrementAndGet();
+            }
+        }
+    }
+
+}
@@ -89,33 +89,28 @@ class DSMShellscript {
     void write(DSMType type, SPCMode mode, String listFileName, Path outputPath) throws IOException {
         String enterFolder;
         String exitFolder;
-        String programName;
+        String programName = type.programName(mode);
 
         switch (type) {
         case SYNTHETIC:
             enterFolder = "./";
             exitFolder = "../";
-            programName = (mode == SPCMode.PSV ? "tipsv" : "tish");
             break;
         case FP:
             enterFolder = "./FPpool/";
             exitFolder = "../../";
-            programName = (mode == SPCMode.PSV ? "psvfp" : "shfp");
             break;
         case BP:
             enterFolder = "./BPpool/";
             exitFolder = "../../";
-            programName = (mode == SPCMode.PSV ? "psvbp" : "shbp");
             break;
         case I1D:
             enterFolder = "./";
             exitFolder = "../";
-            programName = (mode == SPCMode.PSV ? "sshpsvi" : "sshshi");
             break;
         case TI1D:
             enterFolder = "./";
             exitFolder = "../";
-            programName = (mode == SPCMode.PSV ? "sshpsv" : "sshsh");
             break;
         default:
             throw new IllegalArgumentException("This SPCType is not supported yet.");
@@ -162,6 +157,27 @@ class DSMShellscript {
     static enum DSMType {
         SYNTHETIC,
         FP, BP,
-        I1D, TI1D
+        I1D, TI1D;
+
+        /**
+         * @param mode ({@link SPCMode}) PSV or SH.
+         * @return (String) Name of DSM program (without "mpi-") to use for this type and mode.
+         */
+        String programName(SPCMode mode) {
+            switch (this) {
+            case SYNTHETIC:
+                return (mode == SPCMode.PSV ? "tipsv" : "tish");
+            case FP:
+                return (mode == SPCMode.PSV ? "psvfp" : "shfp");
+            case BP:
+                return (mode == SPCMode.PSV ? "psvbp" : "shbp");
+            case I1D:
+                return (mode == SPCMode.PSV ? "sshpsvi" : "sshshi");
+            case TI1D:
+                return (mode == SPCMode.PSV ? "sshpsv" : "sshsh");
+            default:
+                throw new IllegalArgumentException("This SPCType is not supported yet.");
+            }
+        }
     }
 }
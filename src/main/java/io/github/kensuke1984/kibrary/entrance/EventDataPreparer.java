@@ -14,7 +14,6 @@ import java.time.temporal.ChronoUnit;
 import java.util.Map;
 
 import io.github.kensuke1984.kibrary.external.ExternalProcess;
-import io.github.kensuke1984.kibrary.external.SAC;
 import io.github.kensuke1984.kibrary.util.EventFolder;
 import io.github.kensuke1984.kibrary.util.MathAid;
 import io.github.kensuke1984.kibrary.util.earth.FullPosition;
@@ -31,10 +30,8 @@ import io.github.kensuke1984.kibrary.util.sac.SACUtil;
  * <li> MSEED style: "IU.MAJO.00.BH2.M.2014.202.14.44.00.000.SAC" </li>
  * </ul>
  * <p>
- * This class requires that mseed2sac (or rdseed in case of full seed files) exists in your PATH.
- * The software
- * <a href=https://ds.iris.edu/ds/nodes/dmc/software/downloads/mseed2sac/>mseed2sac</a>
- * can be found at IRIS.
+ * Mseed files are opened by {@link MiniSeedReader}.
+ * In case of full seed files, rdseed is required in your PATH.
  * <p>
  * Additionally, xml2resp (which is included in the evalresp package) may also be needed in your PATH.
  * <p>
@@ -138,8 +135,8 @@ class EventDataPreparer {
     }
 
     /**
-     * Opens all mseed files under "mseed" using mseed2sac.
-     * @return (boolean) true if success; false if mseed2sac failed or if no mseed files are found.
+     * Opens all mseed files under "mseed" using {@link MiniSeedReader}.
+     * @return (boolean) true if success; false if reading failed or if no mseed files are found.
      * @throws IOException
      */
     boolean openMseeds() throws IOException {
@@ -161,7 +158,7 @@ class EventDataPreparer {
                     System.err.println(" ~ Opening " + mseedPath + " ...");
                     // expand mseed file
                     if (!mseed2sac(mseedPath.getFileName().toString())) {
-                        System.err.println("!!! mseed2sac for "+ mseedPath + " failed.");
+                        System.err.println("!!! opening "+ mseedPath + " failed.");
                         return false;
                     }
                 }
@@ -177,16 +174,23 @@ class EventDataPreparer {
     }
 
     /**
-     * Runs mseed2sac to extract SAC files from mseed: "mseed2sac [mseedfile]".
+     * Extracts SAC files from mseed, in the same way as "mseed2sac [mseedfile]".
      * The mseed file must be placed under "eventDir/mseed".
+     * Contiguous records are merged in memory, and each continuous segment is written in a SAC file.
      * @param mseedFileName (String) Name of mseedFile
-     * @return (boolean) true if mseed2sac succeeds
+     * @return (boolean) true if the mseed file is successfully read
      * @throws IOException
      */
     private boolean mseed2sac(String mseedFileName) throws IOException {
-        String command = "mseed2sac " + mseedFileName;
-        ExternalProcess xProcess = ExternalProcess.launch(command, mseedSetPath);
-        return xProcess.waitFor() == 0;
+        try {
+            MiniSeedReader reader = new MiniSeedReader(mseedSetPath.resolve(mseedFileName));
+            reader.writeSACs(mseedSetPath);
+            return true;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // a broken file is skipped so that the other files of the event are still read
+            e.printStackTrace();
+            return false;
+        }
     }
 
     /**
@@ -520,25 +524,14 @@ class EventDataPreparer {
         }
     }
 
-    /** TODO: this need not be here if we can calculate manually.
+    /**
      * Interpolates SAC file with DELTA (which is currently 0.05 sec thus 20 Hz).
-     * Automatic calculations of DIST, GCARC, AZ, and BAZ will be stimulated here.
+     * DIST, GCARC, AZ, and BAZ are also computed here, since LCALDA is set true.
      * @param sacPath (Path) Path of SAC file to be treated.
      * @throws IOException
      */
     private void fixDelta(Path sacPath) throws IOException {
-
-        try (SAC sacD = SAC.createProcess()) {
-            String cwd = sacPath.getParent().toString();
-
-            // set current directory
-            sacD.inputCMD("cd " + cwd);
-            // read
-            sacD.inputCMD("r " + sacPath.getFileName());
-
-            sacD.inputCMD("interpolate delta " + DELTA);
-            sacD.inputCMD("w over");
-        }
+        SACUtil.interpolate(sacPath, DELTA);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,797 @@
+package io.github.kensuke1984.kibrary.entrance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Instrument response of a channel in a certain epoch, built from a RESP file or a StationXML file.
+ * This can be used instead of running evalresp with the options "-s lin -r cs -u vel".
+ * <p>
+ * The response is the product of the responses of all stages multiplied by their stage gains, as in evalresp.
+ * The following stages are supported:
+ * <ul>
+ * <li> poles and zeros (blockette 53, PolesZeros), in Laplace transform [rad/s] or [Hz], or digital </li>
+ * <li> digital coefficients (blockette 54, Coefficients), including IIR filters </li>
+ * <li> FIR filters (blockette 61, FIR), with any symmetry </li>
+ * <li> gain-only stages </li>
+ * </ul>
+ * Sum of coefficients of a FIR filter is normalized to 1, if it differs by more than 2%.
+ * The delay correction applied by the datalogger (Correction in Decimation) is compensated.
+ * The response is converted to that for velocity input in [m/s], based on the input units of the first stage.
+ * <p>
+ * Stages that are not supported (polynomials and response lists) make only the channel epochs they belong to unusable.
+ * <p>
+ * Parsed files are kept for recently read files, and are read again when they are modified.
+ * The response of each channel epoch is built once for each file,
+ * and evaluated spectra are kept for recent channel epochs,
+ * so a file shared by many channels or events is parsed only once.
+ *
+ * @since 2026/10/18
+ * @see <a href=http://docs.fdsn.org/projects/stationxml/en/latest/response.html>StationXML response</a>
+ */
+public final class InstrumentResponse {
+
+    /**
+     * Maximum number of parsed files to keep.
+     */
+    private static final int MAX_FILES = 256;
+    /**
+     * Maximum number of evaluated spectra to keep.
+     */
+    private static final int MAX_SPECTRA = 256;
+    /**
+     * Tolerance for the sum of FIR coefficients to be regarded as 1.
+     */
+    private static final double FIR_NORMALIZATION_TOLERANCE = 0.02;
+
+    /**
+     * Recently parsed files, with absolute normalized paths as keys.
+     */
+    private static final Map<Path, ParsedFile> FILES = Collections.synchronizedMap(
+            new LinkedHashMap<Path, ParsedFile>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, ParsedFile> eldest) {
+                    return size() > MAX_FILES;
+                }
+            });
+    /**
+     * Recently evaluated spectra, for each channel epoch and frequency sampling.
+     */
+    private static final Map<String, double[][]> SPECTRA = Collections.synchronizedMap(
+            new LinkedHashMap<String, double[][]>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, double[][]> eldest) {
+                    return size() > MAX_SPECTRA;
+                }
+            });
+
+    /**
+     * file|lastModified|network.station.location.channel|start|end
+     */
+    private final String epochKey;
+    private final List<Stage> stages;
+    /**
+     * The response is multiplied by (i&omega;)<sup>velocityPower</sup> to convert it to that for velocity input.
+     */
+    private final int velocityPower;
+    /**
+     * Input units [m] per unit of the first stage.
+     */
+    private final double unitScale;
+
+    private InstrumentResponse(String epochKey, List<Stage> stages, String inputUnits) {
+        this.epochKey = epochKey;
+        this.stages = stages;
+        String unit = inputUnits.trim().toUpperCase();
+        // RESP files write "M/S - Velocity in Meters Per Second"
+        int index = unit.indexOf(" - ");
+        if (index >= 0) unit = unit.substring(0, index).trim();
+        unit = unit.replace("/SEC", "/S").replace("/S/S", "/S**2").replace("/S2", "/S**2");
+        if (unit.endsWith("/S**2")) velocityPower = 1;
+        else if (unit.endsWith("/S")) velocityPower = 0;
+        else velocityPower = -1;
+        String length = unit.replaceAll("/S.*$", "");
+        switch (length) {
+            case "M": unitScale = 1; break;
+            case "CM": unitScale = 1e-2; break;
+            case "MM": unitScale = 1e-3; break;
+            case "UM": case "MICRON": case "MICRONS": unitScale = 1e-6; break;
+            case "NM": unitScale = 1e-9; break;
+            default:
+                throw new IllegalArgumentException("Unsupported input units: " + inputUnits);
+        }
+    }
+
+    /**
+     * Reads the response of a channel at a certain time from a RESP file.
+     *
+     * @param respPath (Path) RESP file.
+     * @param network (String) Network code.
+     * @param station (String) Station code.
+     * @param location (String) Location code. Set "" if blank.
+     * @param channel (String) Channel code.
+     * @param time (LocalDateTime) Time to get the response for.
+     * @return ({@link InstrumentResponse}) Response of the channel epoch including the time.
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if no epoch is found or the response has unsupported stages
+     */
+    public static InstrumentResponse fromRespFile(Path respPath, String network, String station, String location,
+            String channel, LocalDateTime time) throws IOException {
+        return parse(respPath, InstrumentResponse::readRespFile).select(network, station, location, channel, time);
+    }
+
+    private static List<EpochBuilder> readRespFile(Path respPath) throws IOException {
+        List<EpochBuilder> epochs = new ArrayList<>();
+        EpochBuilder epoch = null;
+        StageBuilder stage = null;
+        for (String line : Files.readAllLines(respPath)) {
+            if (!line.startsWith("B0")) continue;
+            String field = line.substring(0, Math.min(line.length(), 7));
+            String[] parts = line.trim().split("\\s+");
+            switch (field) {
+                case "B050F03":
+                    epoch = new EpochBuilder();
+                    epochs.add(epoch);
+                    epoch.station = value(line);
+                    break;
+                case "B050F16":
+                    epoch.network = value(line);
+                    break;
+                case "B052F03":
+                    epoch.location = value(line).replace("?", "").replace("-", "");
+                    break;
+                case "B052F04":
+                    epoch.channel = value(line);
+                    break;
+                case "B052F22":
+                    epoch.start = parseRespTime(value(line));
+                    break;
+                case "B052F23":
+                    epoch.end = parseRespTime(value(line));
+                    break;
+                case "B053F03":
+                case "B054F03":
+                    stage = new StageBuilder();
+                    stage.transferFunctionType = value(line).charAt(0);
+                    stage.filter = field.startsWith("B053") ? StageBuilder.POLE_ZERO : StageBuilder.COEFFICIENT;
+                    break;
+                case "B053F04":
+                case "B054F04":
+                case "B061F03":
+                    if (field.equals("B061F03")) {
+                        stage = new StageBuilder();
+                        stage.filter = StageBuilder.COEFFICIENT;
+                        stage.transferFunctionType = 'D';
+                    }
+                    epoch.addStage(Integer.parseInt(value(line)), stage);
+                    break;
+                case "B053F05":
+                case "B054F05":
+                case "B061F06":
+                    stage.inputUnits = value(line);
+                    break;
+                case "B053F07":
+                    stage.a0 = Double.parseDouble(value(line));
+                    break;
+                case "B053F10":
+                    stage.zeros.add(new double[] {Double.parseDouble(parts[2]), Double.parseDouble(parts[3])});
+                    break;
+                case "B053F15":
+                    stage.poles.add(new double[] {Double.parseDouble(parts[2]), Double.parseDouble(parts[3])});
+                    break;
+                case "B054F08":
+                    stage.numerators.add(Double.parseDouble(parts[2]));
+                    break;
+                case "B054F11":
+                    stage.denominators.add(Double.parseDouble(parts[2]));
+                    break;
+                case "B061F05":
+                    stage.symmetry = value(line).charAt(0);
+                    break;
+                case "B061F09":
+                    stage.numerators.add(Double.parseDouble(parts[parts.length - 1]));
+                    break;
+                case "B055F03":
+                case "B056F03":
+                case "B062F03":
+                    // this matters only if the epoch is used
+                    if (epoch.unsupported == null) epoch.unsupported = "blockette " + field.substring(0, 4);
+                    stage = null;
+                    break;
+                case "B057F03":
+                case "B058F03":
+                    stage = epoch.stage(Integer.parseInt(value(line)));
+                    break;
+                case "B057F04":
+                    if (stage != null) stage.samplingHz = Double.parseDouble(value(line));
+                    break;
+                case "B057F08":
+                    if (stage != null) stage.correction = Double.parseDouble(value(line));
+                    break;
+                case "B058F04":
+                    if (stage != null) stage.gain = Double.parseDouble(value(line));
+                    break;
+                default:
+            }
+        }
+        return epochs;
+    }
+
+    /**
+     * Reads the response of a channel at a certain time from a StationXML file downloaded with level=response.
+     *
+     * @param xmlPath (Path) StationXML file.
+     * @param network (String) Network code.
+     * @param station (String) Station code.
+     * @param location (String) Location code. Set "" if blank.
+     * @param channel (String) Channel code.
+     * @param time (LocalDateTime) Time to get the response for.
+     * @return ({@link InstrumentResponse}) Response of the channel epoch including the time.
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if no epoch is found or the response has unsupported stages
+     */
+    public static InstrumentResponse fromStationXml(Path xmlPath, String network, String station, String location,
+            String channel, LocalDateTime time) throws IOException {
+        return parse(xmlPath, InstrumentResponse::readStationXml).select(network, station, location, channel, time);
+    }
+
+    private static List<EpochBuilder> readStationXml(Path xmlPath) throws IOException {
+        ResponseXmlHandler handler = new ResponseXmlHandler();
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(xmlPath.toFile(), handler);
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new IOException("Failed to read " + xmlPath, e);
+        }
+        return handler.epochs;
+    }
+
+    private interface EpochReader {
+        List<EpochBuilder> read(Path path) throws IOException;
+    }
+
+    /**
+     * Returns the parsed file, parsing it only if it has not been parsed or has been modified since.
+     */
+    private static ParsedFile parse(Path path, EpochReader reader) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        ParsedFile parsed = FILES.get(key);
+        if (parsed != null && parsed.lastModified == lastModified && parsed.size == attributes.size()) return parsed;
+        parsed = new ParsedFile(key, lastModified, attributes.size(), reader.read(key));
+        FILES.put(key, parsed);
+        return parsed;
+    }
+
+    private static String value(String line) {
+        int index = line.indexOf(':');
+        return index < 0 ? "" : line.substring(index + 1).trim();
+    }
+
+    /**
+     * @param value (String) Time in the form "2002,323,21:07:00.0000", or "No Ending Time".
+     * @return (LocalDateTime) Time, or null if not specified.
+     */
+    private static LocalDateTime parseRespTime(String value) {
+        String[] parts = value.split(",");
+        if (parts.length < 2) return null;
+        LocalDate date = LocalDate.ofYearDay(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        if (parts.length < 3 || parts[2].trim().isEmpty()) return date.atStartOfDay();
+        String[] hms = parts[2].trim().split(":");
+        int hour = Integer.parseInt(hms[0]);
+        int minute = hms.length > 1 ? Integer.parseInt(hms[1]) : 0;
+        double second = hms.length > 2 ? Double.parseDouble(hms[2]) : 0;
+        return date.atTime(LocalTime.of(hour, minute)).plusNanos(Math.round(second * 1e9));
+    }
+
+    /**
+     * @param value (String) Time in ISO format, such as "2002-11-19T21:07:00.0000Z".
+     * @return (LocalDateTime) Time, or null if not specified.
+     */
+    private static LocalDateTime parseXmlTime(String value) {
+        if (value == null || value.isEmpty()) return null;
+        if (value.endsWith("Z")) value = value.substring(0, value.length() - 1);
+        return value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+    }
+
+    /**
+     * Evaluates the response for velocity input [counts/(m/s)] at given frequencies.
+     *
+     * @param frequencies (double[]) Frequencies [Hz].
+     * @param real (double[]) Array to write real parts in. Must have the same length as frequencies.
+     * @param imag (double[]) Array to write imaginary parts in. Must have the same length as frequencies.
+     */
+    public void evaluateVelocityResponse(double[] frequencies, double[] real, double[] imag) {
+        double[] value = new double[2];
+        for (int i = 0; i < frequencies.length; i++) {
+            double f = frequencies[i];
+            value[0] = 1 / unitScale;
+            value[1] = 0;
+            for (Stage stage : stages) stage.multiply(f, value);
+            // multiply (iω)^velocityPower
+            double omega = 2 * Math.PI * f;
+            if (velocityPower == 1) multiply(value, 0, omega);
+            else if (velocityPower == -1) multiply(value, 0, -1 / omega);
+            real[i] = value[0];
+            imag[i] = value[1];
+        }
+    }
+
+    /**
+     * Response for velocity input [counts/(m/s)] at frequencies (i+1)*samplingHz/npts for i=[0, npts/2],
+     * which are the frequencies that "evalresp ... minFreq=samplingHz/npts maxFreq=samplingHz npts -s lin" outputs in its first lines.
+     * The result is cached, so the returned arrays must not be modified.
+     *
+     * @param npts (int) Number of points in time domain.
+     * @param samplingHz (double) Sampling frequency [Hz].
+     * @return (double[][]) {real parts, imaginary parts}, each of length npts/2+1.
+     */
+    public double[][] computeVelocityResponse(int npts, double samplingHz) {
+        String key = epochKey + "|" + npts + "|" + samplingHz;
+        double[][] spectrum = SPECTRA.get(key);
+        if (spectrum == null) {
+            int n = npts / 2 + 1;
+            double[] frequencies = new double[n];
+            for (int i = 0; i < n; i++) frequencies[i] = (i + 1) * samplingHz / npts;
+            spectrum = new double[2][n];
+            evaluateVelocityResponse(frequencies, spectrum[0], spectrum[1]);
+            SPECTRA.put(key, spectrum);
+        }
+        return spectrum;
+    }
+
+    /**
+     * value *= (re + i im)
+     */
+    private static void multiply(double[] value, double re, double im) {
+        double r = value[0] * re - value[1] * im;
+        value[1] = value[0] * im + value[1] * re;
+        value[0] = r;
+    }
+
+    /**
+     * value /= (re + i im)
+     */
+    private static void divide(double[] value, double re, double im) {
+        double norm = re * re + im * im;
+        multiply(value, re / norm, -im / norm);
+    }
+
+    private abstract static class Stage {
+        /**
+         * Multiplies the response of this stage at frequency f [Hz] to value.
+         */
+        abstract void multiply(double f, double[] value);
+    }
+
+    private static final class GainStage extends Stage {
+        private final double gain;
+
+        private GainStage(double gain) {
+            this.gain = gain;
+        }
+
+        @Override
+        void multiply(double f, double[] value) {
+            value[0] *= gain;
+            value[1] *= gain;
+        }
+    }
+
+    /**
+     * H = gain * A0 * &Pi;(s-z<sub>k</sub>) / &Pi;(s-p<sub>k</sub>),
+     * where s = 2&pi;if (Laplace [rad/s]), if (Laplace [Hz]), or exp(2&pi;if/samplingHz) (digital).
+     */
+    private static final class PoleZeroStage extends Stage {
+        private final char type;
+        private final double factor;
+        private final double[][] zeros;
+        private final double[][] poles;
+        private final double samplingHz;
+
+        private PoleZeroStage(char type, double factor, double[][] zeros, double[][] poles, double samplingHz) {
+            this.type = type;
+            this.factor = factor;
+            this.zeros = zeros;
+            this.poles = poles;
+            this.samplingHz = samplingHz;
+        }
+
+        @Override
+        void multiply(double f, double[] value) {
+            double sRe;
+            double sIm;
+            if (type == 'A') {
+                sRe = 0;
+                sIm = 2 * Math.PI * f;
+            } else if (type == 'B') {
+                sRe = 0;
+                sIm = f;
+            } else {
+                double omegaT = 2 * Math.PI * f / samplingHz;
+                sRe = Math.cos(omegaT);
+                sIm = Math.sin(omegaT);
+            }
+            value[0] *= factor;
+            value[1] *= factor;
+            for (double[] zero : zeros) InstrumentResponse.multiply(value, sRe - zero[0], sIm - zero[1]);
+            for (double[] pole : poles) InstrumentResponse.divide(value, sRe - pole[0], sIm - pole[1]);
+        }
+    }
+
+    /**
+     * H = gain * &Sigma;b<sub>k</sub>z<sup>-k</sup> / &Sigma;a<sub>k</sub>z<sup>-k</sup> * exp(i&omega;correction),
+     * where z = exp(2&pi;if/samplingHz).
+     */
+    private static final class CoefficientStage extends Stage {
+        private final double gain;
+        private final double[] numerators;
+        private final double[] denominators;
+        private final double samplingHz;
+        private final double correction;
+
+        private CoefficientStage(double gain, double[] numerators, double[] denominators, double samplingHz, double correction) {
+            this.gain = gain;
+            this.numerators = numerators;
+            this.denominators = denominators;
+            this.samplingHz = samplingHz;
+            this.correction = correction;
+        }
+
+        @Override
+        void multiply(double f, double[] value) {
+            double omegaT = 2 * Math.PI * f / samplingHz;
+            double numRe = 0;
+            double numIm = 0;
+            for (int k = 0; k < numerators.length; k++) {
+                numRe += numerators[k] * Math.cos(k * omegaT);
+                numIm -= numerators[k] * Math.sin(k * omegaT);
+            }
+            value[0] *= gain;
+            value[1] *= gain;
+            InstrumentResponse.multiply(value, numRe, numIm);
+            if (denominators.length > 0) {
+                double denRe = 0;
+                double denIm = 0;
+                for (int k = 0; k < denominators.length; k++) {
+                    denRe += denominators[k] * Math.cos(k * omegaT);
+                    denIm -= denominators[k] * Math.sin(k * omegaT);
+                }
+                InstrumentResponse.divide(value, denRe, denIm);
+            }
+            if (correction != 0) {
+                double phase = 2 * Math.PI * f * correction;
+                InstrumentResponse.multiply(value, Math.cos(phase), Math.sin(phase));
+            }
+        }
+    }
+
+    /**
+     * Values of a stage collected while reading a file.
+     */
+    private static final class StageBuilder {
+        private static final int GAIN_ONLY = 0;
+        private static final int POLE_ZERO = 1;
+        private static final int COEFFICIENT = 2;
+
+        private int filter = GAIN_ONLY;
+        private char transferFunctionType = 'D';
+        private String inputUnits;
+        private double a0 = 1;
+        private final List<double[]> zeros = new ArrayList<>();
+        private final List<double[]> poles = new ArrayList<>();
+        private final List<Double> numerators = new ArrayList<>();
+        private final List<Double> denominators = new ArrayList<>();
+        /**
+         * A: none, B: odd, C: even
+         */
+        private char symmetry = 'A';
+        private double samplingHz = Double.NaN;
+        private double correction;
+        private double gain = 1;
+
+        private Stage build() {
+            switch (filter) {
+                case POLE_ZERO:
+                    if (transferFunctionType == 'D' && Double.isNaN(samplingHz))
+                        throw new IllegalArgumentException("Sampling rate is not set for digital stage.");
+                    return new PoleZeroStage(transferFunctionType, gain * a0, zeros.toArray(new double[0][]),
+                            poles.toArray(new double[0][]), samplingHz);
+                case COEFFICIENT:
+                    double[] coefficients = expandSymmetry();
+                    if (coefficients.length == 0 && denominators.isEmpty()) return new GainStage(gain);
+                    if (transferFunctionType != 'D')
+                        throw new IllegalArgumentException("Unsupported transfer function type of coefficients: " + transferFunctionType);
+                    if (Double.isNaN(samplingHz))
+                        throw new IllegalArgumentException("Sampling rate is not set for digital stage.");
+                    if (denominators.isEmpty()) {
+                        double sum = 0;
+                        for (double coefficient : coefficients) sum += coefficient;
+                        if (sum != 0 && Math.abs(sum - 1) > FIR_NORMALIZATION_TOLERANCE)
+                            for (int i = 0; i < coefficients.length; i++) coefficients[i] /= sum;
+                    }
+                    return new CoefficientStage(gain, coefficients,
+                            denominators.stream().mapToDouble(Double::doubleValue).toArray(), samplingHz, correction);
+                default:
+                    return new GainStage(gain);
+            }
+        }
+
+        private double[] expandSymmetry() {
+            int n = numerators.size();
+            double[] coefficients;
+            switch (symmetry) {
+                case 'B':
+                    coefficients = new double[2 * n - 1];
+                    break;
+                case 'C':
+                    coefficients = new double[2 * n];
+                    break;
+                default:
+                    return numerators.stream().mapToDouble(Double::doubleValue).toArray();
+            }
+            for (int i = 0; i < n; i++) {
+                coefficients[i] = numerators.get(i);
+                coefficients[coefficients.length - 1 - i] = numerators.get(i);
+            }
+            return coefficients;
+        }
+    }
+
+    /**
+     * Channel epochs read from a file.
+     */
+    private static final class ParsedFile {
+        private final Path path;
+        private final long lastModified;
+        private final long size;
+        private final List<EpochBuilder> epochs;
+
+        private ParsedFile(Path path, long lastModified, long size, List<EpochBuilder> epochs) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.epochs = epochs;
+        }
+
+        private InstrumentResponse select(String network, String station, String location, String channel, LocalDateTime time) {
+            for (EpochBuilder epoch : epochs) {
+                if (!epoch.network.equals(network) || !epoch.station.equals(station)
+                        || !epoch.location.equals(location) || !epoch.channel.equals(channel)) continue;
+                if (epoch.start != null && time.isBefore(epoch.start)) continue;
+                if (epoch.end != null && !time.isBefore(epoch.end)) continue;
+                if (epoch.unsupported != null)
+                    throw new IllegalArgumentException("Unsupported stage " + epoch.unsupported + " in " + path);
+                return epoch.response(path + "|" + lastModified + "|" + String.join(".", network, station, location, channel)
+                        + "|" + epoch.start + "|" + epoch.end);
+            }
+            throw new IllegalArgumentException("No response for " + String.join(".", network, station, location, channel)
+                    + " at " + time + " in " + path);
+        }
+    }
+
+    /**
+     * Values of a channel epoch collected while reading a file.
+     */
+    private static final class EpochBuilder {
+        private String network = "";
+        private String station = "";
+        private String location = "";
+        private String channel = "";
+        private LocalDateTime start;
+        private LocalDateTime end;
+        /**
+         * Stages other than stage 0 (total sensitivity), in the order of stage sequence number.
+         */
+        private final Map<Integer, StageBuilder> stages = new TreeMap<>();
+        /**
+         * Name of an unsupported stage, if there is any.
+         */
+        private String unsupported;
+        /**
+         * Response built from the stages, once it is used.
+         */
+        private InstrumentResponse response;
+
+        private void addStage(int number, StageBuilder stage) {
+            StageBuilder existing = stages.get(number);
+            // decimation or gain may have been read before the filter
+            if (existing != null) {
+                stage.samplingHz = existing.samplingHz;
+                stage.correction = existing.correction;
+                stage.gain = existing.gain;
+            }
+            stages.put(number, stage);
+        }
+
+        /**
+         * @return stage of the number, or null for stage 0
+         */
+        private StageBuilder stage(int number) {
+            if (number == 0) return null;
+            return stages.computeIfAbsent(number, n -> new StageBuilder());
+        }
+
+        private synchronized InstrumentResponse response(String key) {
+            if (response == null) response = build(key);
+            return response;
+        }
+
+        private InstrumentResponse build(String key) {
+            List<Stage> list = new ArrayList<>();
+            String inputUnits = null;
+            for (StageBuilder stage : stages.values()) {
+                if (inputUnits == null && stage.inputUnits != null) inputUnits = stage.inputUnits;
+                list.add(stage.build());
+            }
+            if (inputUnits == null) throw new IllegalArgumentException("Input units are not set for " + key);
+            return new InstrumentResponse(key, list, inputUnits);
+        }
+    }
+
+    /**
+     * Collects channel epochs and their stages from a StationXML file.
+     */
+    private static final class ResponseXmlHandler extends DefaultHandler {
+        private final List<EpochBuilder> epochs = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private String network = "";
+        private String station = "";
+        private EpochBuilder epoch;
+        private StageBuilder stage;
+        private double[] complex;
+        private String parent = "";
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            text.setLength(0);
+            switch (qName) {
+                case "Network":
+                    network = attributes.getValue("code");
+                    break;
+                case "Station":
+                    station = attributes.getValue("code");
+                    break;
+                case "Channel":
+                    epoch = new EpochBuilder();
+                    epoch.network = network;
+                    epoch.station = station;
+                    epoch.location = attributes.getValue("locationCode") == null ? "" : attributes.getValue("locationCode").trim();
+                    epoch.channel = attributes.getValue("code");
+                    epoch.start = parseXmlTime(attributes.getValue("startDate"));
+                    epoch.end = parseXmlTime(attributes.getValue("endDate"));
+                    epochs.add(epoch);
+                    break;
+                case "Stage":
+                    if (epoch != null) stage = epoch.stage(Integer.parseInt(attributes.getValue("number")));
+                    break;
+                case "PolesZeros":
+                    if (stage != null) stage.filter = StageBuilder.POLE_ZERO;
+                    parent = qName;
+                    break;
+                case "Coefficients":
+                case "FIR":
+                    if (stage != null) {
+                        stage.filter = StageBuilder.COEFFICIENT;
+                        stage.transferFunctionType = 'D';
+                    }
+                    parent = qName;
+                    break;
+                case "Polynomial":
+                case "ResponseList":
+                    if (stage != null && epoch.unsupported == null) epoch.unsupported = qName;
+                    parent = qName;
+                    break;
+                case "InputUnits":
+                case "Decimation":
+                case "StageGain":
+                    parent = qName;
+                    break;
+                case "Zero":
+                case "Pole":
+                    complex = new double[2];
+                    break;
+                default:
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            String value = text.toString().trim();
+            text.setLength(0);
+            if (qName.equals("Channel")) {
+                epoch = null;
+                stage = null;
+                return;
+            }
+            if (qName.equals("Stage")) {
+                stage = null;
+                return;
+            }
+            if (stage == null) return;
+            switch (qName) {
+                case "Name":
+                    if (parent.equals("InputUnits") && stage.inputUnits == null) stage.inputUnits = value;
+                    break;
+                case "PzTransferFunctionType":
+                    stage.transferFunctionType = value.startsWith("LAPLACE (RADIANS") ? 'A'
+                            : value.startsWith("LAPLACE (HERTZ") ? 'B' : 'D';
+                    break;
+                case "CfTransferFunctionType":
+                    stage.transferFunctionType = value.startsWith("DIGITAL") ? 'D' : 'A';
+                    break;
+                case "NormalizationFactor":
+                    stage.a0 = Double.parseDouble(value);
+                    break;
+                case "Real":
+                    if (complex != null) complex[0] = Double.parseDouble(value);
+                    break;
+                case "Imaginary":
+                    if (complex != null) complex[1] = Double.parseDouble(value);
+                    break;
+                case "Zero":
+                    stage.zeros.add(complex);
+                    complex = null;
+                    break;
+                case "Pole":
+                    stage.poles.add(complex);
+                    complex = null;
+                    break;
+                case "Numerator":
+                case "NumeratorCoefficient":
+                    stage.numerators.add(Double.parseDouble(value));
+                    break;
+                case "Denominator":
+                    stage.denominators.add(Double.parseDouble(value));
+                    break;
+                case "Symmetry":
+                    stage.symmetry = value.equals("ODD") ? 'B' : value.equals("EVEN") ? 'C' : 'A';
+                    break;
+                case "InputSampleRate":
+                    stage.samplingHz = Double.parseDouble(value);
+                    break;
+                case "Correction":
+                    if (parent.equals("Decimation")) stage.correction = Double.parseDouble(value);
+                    break;
+                case "Value":
+                    if (parent.equals("StageGain")) stage.gain = Double.parseDouble(value);
+                    break;
+                case "InputUnits":
+                case "PolesZeros":
+                case "Coefficients":
+                case "FIR":
+                case "Decimation":
+                case "StageGain":
+                    parent = "";
+                    break;
+                default:
+            }
+        }
+    }
+
+}
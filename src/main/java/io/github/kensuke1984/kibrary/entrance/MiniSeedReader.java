@@ -0,0 +1,598 @@
+package io.github.kensuke1984.kibrary.entrance;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import io.github.kensuke1984.kibrary.util.sac.SACHeaderEnum;
+import io.github.kensuke1984.kibrary.util.sac.SACUtil;
+
+/**
+ * Reader of miniSEED files (SEED 2.4 data records), which can be used in place of mseed2sac.
+ * <p>
+ * Records are read from the file, and those of the same channel are decoded and merged into {@link Segment}s.
+ * Contiguous records, and overlapping records whose samples are aligned, are merged into one segment;
+ * a new segment starts at gaps larger than half a sample.
+ * Each segment can be written in a SAC file with a name in the same convention as mseed2sac:
+ * "NET.STA.LOC.CHA.Q.YEAR.JDAY.HHMMSS.SAC".
+ * <p>
+ * Supported data encodings are 16-bit integers, 32-bit integers, IEEE floats, IEEE doubles, Steim-1, and Steim-2.
+ * Records of other encodings or without samples are ignored.
+ * Records without blockette 1000 are skipped and reported, since their encodings are unknown;
+ * their lengths are found by searching for the header of the next record.
+ *
+ * @since 2026/10/18
+ * @see <a href=http://www.fdsn.org/pdf/SEEDManual_V2.4.pdf>SEED manual</a>
+ */
+class MiniSeedReader {
+
+    /**
+     * Size of the fixed section of data header [byte].
+     */
+    private static final int FIXED_HEADER_SIZE = 48;
+    /**
+     * Minimum length of a data record [byte]. Records start at multiples of this from the start of the file.
+     */
+    private static final int MIN_RECORD_LENGTH = 256;
+    /**
+     * Size of a Steim frame [byte].
+     */
+    private static final int FRAME_SIZE = 64;
+
+    private static final int INT16 = 1;
+    private static final int INT32 = 3;
+    private static final int FLOAT32 = 4;
+    private static final int FLOAT64 = 5;
+    private static final int STEIM1 = 10;
+    private static final int STEIM2 = 11;
+
+    private final Path mseedPath;
+    /**
+     * Records for each channel, in the order of appearance.
+     */
+    private final Map<String, List<Record>> recordMap = new LinkedHashMap<>();
+    /**
+     * Number of records skipped because they do not have blockette 1000.
+     */
+    private int nSkipped;
+
+    /**
+     * Reads headers of all records in a miniSEED file.
+     *
+     * @param mseedPath (Path) miniSEED file.
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the file is not a valid miniSEED file
+     */
+    MiniSeedReader(Path mseedPath) throws IOException {
+        this.mseedPath = mseedPath;
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(mseedPath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IllegalArgumentException(mseedPath + " is too large.");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int position = 0;
+        while (position + FIXED_HEADER_SIZE <= buffer.limit()) {
+            ByteBuffer recordBuffer = buffer.duplicate();
+            recordBuffer.position(position);
+            Record record = new Record(recordBuffer.slice());
+            if (!record.hasBlockette1000) {
+                if (nSkipped == 0) System.err.println("!! record " + record.readString(0, 6) + " of " + record.id
+                        + " in " + mseedPath + " does not have blockette 1000; skipped.");
+                nSkipped++;
+            } else if (record.isWaveform())
+                recordMap.computeIfAbsent(record.id, id -> new ArrayList<>()).add(record);
+            position += record.recordLength;
+        }
+        if (nSkipped > 1)
+            System.err.println("!! " + nSkipped + " records without blockette 1000 are skipped in " + mseedPath);
+    }
+
+    /**
+     * Decodes the records and merges them into segments.
+     * Channels are handled in parallel.
+     *
+     * @return (List of {@link Segment}) Segments in all channels.
+     */
+    List<Segment> readSegments() {
+        return recordMap.values().parallelStream().map(MiniSeedReader::merge).flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes all segments in SAC files.
+     *
+     * @param outPath (Path) Directory to write SAC files in.
+     * @return (int) Number of SAC files written.
+     * @throws IOException if an I/O error occurs
+     */
+    int writeSACs(Path outPath) throws IOException {
+        List<Segment> segments = readSegments();
+        for (Segment segment : segments) segment.writeSAC(outPath);
+        return segments.size();
+    }
+
+    /**
+     * @return (int) Number of records skipped because they do not have blockette 1000.
+     */
+    int getNumSkippedRecords() {
+        return nSkipped;
+    }
+
+    /**
+     * @return (Path) miniSEED file read by this reader.
+     */
+    Path getMseedPath() {
+        return mseedPath;
+    }
+
+    /**
+     * Merges records of a channel into segments.
+     *
+     * @param records (List of {@link Record}) Records of a single channel.
+     * @return (List of {@link Segment}) Segments of the channel.
+     */
+    private static List<Segment> merge(List<Record> records) {
+        records.sort(Comparator.comparingLong(record -> record.startMicros));
+        List<Segment> segments = new ArrayList<>();
+        Segment current = null;
+        for (Record record : records) {
+            double[] data = record.decode();
+            if (current == null || !current.append(record, data)) {
+                current = new Segment(record, data);
+                segments.add(current);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * A data record in a miniSEED file.
+     */
+    private static final class Record {
+        /**
+         * NET.STA.LOC.CHA.Q
+         */
+        private final String id;
+        private final String network;
+        private final String station;
+        private final String location;
+        private final String channel;
+        private final char quality;
+        /**
+         * Start time of the record [&mu;s from 1970-01-01T00:00:00]
+         */
+        private final long startMicros;
+        private final int nSamples;
+        private final double samplingHz;
+        private final int encoding;
+        private final ByteOrder dataOrder;
+        private final int recordLength;
+        /**
+         * Whether this record has blockette 1000. If not, the encoding is unknown and this record cannot be decoded.
+         */
+        private final boolean hasBlockette1000;
+        private final ByteBuffer buffer;
+        private final int dataOffset;
+
+        private Record(ByteBuffer buffer) {
+            this.buffer = buffer;
+            // SEED headers are big endian, but check the year to see if the record is little endian
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            int year = Short.toUnsignedInt(buffer.getShort(20));
+            if (!isValidYear(year)) buffer.order(ByteOrder.LITTLE_ENDIAN);
+            year = Short.toUnsignedInt(buffer.getShort(20));
+            if (!isValidYear(year)) throw new IllegalArgumentException("Invalid record header.");
+
+            quality = (char) buffer.get(6);
+            station = readString(8, 5);
+            location = readString(13, 2);
+            channel = readString(15, 3);
+            network = readString(18, 2);
+            // codes are used in names of SAC files
+            if (!(network + station + location + channel).chars().allMatch(c -> c < 128 && (Character.isLetterOrDigit(c) || c == '-' || c == '_')))
+                throw new IllegalArgumentException("Invalid codes in record " + readString(0, 6));
+            id = network + "." + station + "." + location + "." + channel + "." + quality;
+
+            int day = Short.toUnsignedInt(buffer.getShort(22));
+            int hour = Byte.toUnsignedInt(buffer.get(24));
+            int minute = Byte.toUnsignedInt(buffer.get(25));
+            // leap seconds have second=60
+            int second = Byte.toUnsignedInt(buffer.get(26));
+            int fraction = Short.toUnsignedInt(buffer.getShort(28));
+            if (day < 1 || Year.of(year).length() < day || 23 < hour || 59 < minute || 60 < second || 9999 < fraction)
+                throw new IllegalArgumentException("Invalid start time in record " + readString(0, 6));
+            nSamples = Short.toUnsignedInt(buffer.getShort(30));
+            samplingHz = computeSamplingHz(buffer.getShort(32), buffer.getShort(34));
+            int activityFlags = buffer.get(36);
+            int nBlockettes = Byte.toUnsignedInt(buffer.get(39));
+            int timeCorrection = buffer.getInt(40);
+            dataOffset = Short.toUnsignedInt(buffer.getShort(44));
+
+            int encoding = -1;
+            ByteOrder dataOrder = ByteOrder.BIG_ENDIAN;
+            int recordLength = -1;
+            int microseconds = 0;
+            int blockette = Short.toUnsignedInt(buffer.getShort(46));
+            for (int i = 0; i < nBlockettes && blockette != 0; i++) {
+                // blockettes 1000 and 1001 are 8 bytes; others are read only for their type and the next blockette
+                if (buffer.limit() < blockette + 4) throw new IllegalArgumentException("Truncated blockette in record " + readString(0, 6));
+                int type = Short.toUnsignedInt(buffer.getShort(blockette));
+                if ((type == 1000 || type == 1001) && buffer.limit() < blockette + 8)
+                    throw new IllegalArgumentException("Truncated blockette " + type + " in record " + readString(0, 6));
+                if (type == 1000) {
+                    encoding = buffer.get(blockette + 4);
+                    dataOrder = buffer.get(blockette + 5) == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+                    recordLength = 1 << buffer.get(blockette + 6);
+                } else if (type == 1001) {
+                    microseconds = buffer.get(blockette + 5);
+                }
+                blockette = Short.toUnsignedInt(buffer.getShort(blockette + 2));
+            }
+            hasBlockette1000 = FIXED_HEADER_SIZE <= recordLength;
+            if (!hasBlockette1000) recordLength = findNextRecord();
+            this.encoding = encoding;
+            this.dataOrder = dataOrder;
+            this.recordLength = recordLength;
+
+            long micros = LocalDate.ofYearDay(year, day).atStartOfDay().toEpochSecond(ZoneOffset.UTC) * 1000000
+                    + (hour * 3600L + minute * 60L + second) * 1000000 + fraction * 100L + microseconds;
+            // bit 1 of activity flags tells whether the time correction is already applied
+            if ((activityFlags & 0x02) == 0) micros += timeCorrection * 100L;
+            startMicros = micros;
+        }
+
+        private static boolean isValidYear(int year) {
+            return 1900 <= year && year <= 2100;
+        }
+
+        /**
+         * Searches for the start of the next record, for records whose length is unknown.
+         *
+         * @return (int) Offset of the next record from the start of this record, or the remaining size if there is none.
+         */
+        private int findNextRecord() {
+            for (int offset = MIN_RECORD_LENGTH; offset + FIXED_HEADER_SIZE <= buffer.limit(); offset += MIN_RECORD_LENGTH) {
+                // sequence number of 6 digits (or spaces) followed by a data quality indicator
+                boolean isHeader = true;
+                for (int i = 0; i < 6 && isHeader; i++) {
+                    byte b = buffer.get(offset + i);
+                    isHeader = (b >= '0' && b <= '9') || b == ' ';
+                }
+                if (!isHeader || "DRQM".indexOf(buffer.get(offset + 6)) < 0) continue;
+                if (isValidYear(Short.toUnsignedInt(buffer.getShort(offset + 20)))
+                        || isValidYear(Short.toUnsignedInt(Short.reverseBytes(buffer.getShort(offset + 20)))))
+                    return offset;
+            }
+            return buffer.limit();
+        }
+
+        private String readString(int offset, int length) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) bytes[i] = buffer.get(offset + i);
+            return new String(bytes).trim();
+        }
+
+        private static double computeSamplingHz(int factor, int multiplier) {
+            if (factor == 0) return 0;
+            if (multiplier == 0) multiplier = 1;
+            if (factor > 0) return multiplier > 0 ? (double) factor * multiplier : -(double) factor / multiplier;
+            else return multiplier > 0 ? -(double) multiplier / factor : 1.0 / ((double) factor * multiplier);
+        }
+
+        /**
+         * @return whether this record has waveform samples that can be decoded
+         */
+        private boolean isWaveform() {
+            if (nSamples == 0 || samplingHz <= 0) return false;
+            switch (encoding) {
+                case INT16: case INT32: case FLOAT32: case FLOAT64: case STEIM1: case STEIM2:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * @return time of the sample next to the last one in this record [&mu;s]
+         */
+        private long getEndMicros() {
+            return startMicros + Math.round(nSamples * 1e6 / samplingHz);
+        }
+
+        private double[] decode() {
+            if (buffer.limit() < recordLength || recordLength < dataOffset)
+                throw new IllegalArgumentException("Truncated record " + readString(0, 6) + " of " + id);
+            ByteBuffer data = buffer.duplicate().order(dataOrder);
+            data.limit(recordLength);
+            data.position(dataOffset);
+            data = data.slice().order(dataOrder);
+            int sampleSize = encoding == INT16 ? 2 : encoding == FLOAT64 ? 8 : 4;
+            if (encoding != STEIM1 && encoding != STEIM2 && data.limit() < nSamples * sampleSize)
+                throw new IllegalArgumentException("Too few samples in record " + readString(0, 6) + " of " + id);
+            double[] samples = new double[nSamples];
+            switch (encoding) {
+                case INT16:
+                    for (int i = 0; i < nSamples; i++) samples[i] = data.getShort(2 * i);
+                    break;
+                case INT32:
+                    for (int i = 0; i < nSamples; i++) samples[i] = data.getInt(4 * i);
+                    break;
+                case FLOAT32:
+                    for (int i = 0; i < nSamples; i++) samples[i] = data.getFloat(4 * i);
+                    break;
+                case FLOAT64:
+                    for (int i = 0; i < nSamples; i++) samples[i] = data.getDouble(8 * i);
+                    break;
+                case STEIM1:
+                case STEIM2:
+                    decodeSteim(data, encoding == STEIM2, samples);
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported encoding " + encoding);
+            }
+            return samples;
+        }
+
+        /**
+         * Decodes Steim-1 or Steim-2 compressed data.
+         *
+         * @param data (ByteBuffer) Data section of the record.
+         * @param steim2 (boolean) true for Steim-2, false for Steim-1.
+         * @param samples (double[]) Array to write the samples in.
+         */
+        private void decodeSteim(ByteBuffer data, boolean steim2, double[] samples) {
+            int[] differences = new int[nSamples + 7];
+            int nDifferences = 0;
+            int forwardConstant = 0;
+            int reverseConstant = 0;
+            int nFrames = data.limit() / FRAME_SIZE;
+            for (int frame = 0; frame < nFrames && nDifferences < nSamples; frame++) {
+                int offset = frame * FRAME_SIZE;
+                int nibbles = data.getInt(offset);
+                for (int w = 1; w < 16 && nDifferences < nSamples; w++) {
+                    int word = data.getInt(offset + 4 * w);
+                    if (frame == 0 && w == 1) {
+                        forwardConstant = word;
+                        continue;
+                    }
+                    if (frame == 0 && w == 2) {
+                        reverseConstant = word;
+                        continue;
+                    }
+                    int nibble = (nibbles >>> (30 - 2 * w)) & 0x03;
+                    int dnib = word >>> 30;
+                    switch (nibble) {
+                        case 0:
+                            break;
+                        case 1:
+                            for (int k = 0; k < 4; k++) differences[nDifferences++] = (word << (8 * k)) >> 24;
+                            break;
+                        case 2:
+                            if (!steim2) {
+                                differences[nDifferences++] = word >> 16;
+                                differences[nDifferences++] = (word << 16) >> 16;
+                            } else if (dnib == 1) {
+                                differences[nDifferences++] = (word << 2) >> 2;
+                            } else if (dnib == 2) {
+                                for (int k = 0; k < 2; k++) differences[nDifferences++] = (word << (2 + 15 * k)) >> 17;
+                            } else if (dnib == 3) {
+                                for (int k = 0; k < 3; k++) differences[nDifferences++] = (word << (2 + 10 * k)) >> 22;
+                            } else {
+                                throw new IllegalArgumentException("Invalid Steim-2 data in " + id);
+                            }
+                            break;
+                        case 3:
+                            if (!steim2) {
+                                differences[nDifferences++] = word;
+                            } else if (dnib == 0) {
+                                for (int k = 0; k < 5; k++) differences[nDifferences++] = (word << (2 + 6 * k)) >> 26;
+                            } else if (dnib == 1) {
+                                for (int k = 0; k < 6; k++) differences[nDifferences++] = (word << (2 + 5 * k)) >> 27;
+                            } else if (dnib == 2) {
+                                for (int k = 0; k < 7; k++) differences[nDifferences++] = (word << (4 + 4 * k)) >> 28;
+                            } else {
+                                throw new IllegalArgumentException("Invalid Steim-2 data in " + id);
+                            }
+                            break;
+                        default:
+                    }
+                }
+            }
+            if (nDifferences < nSamples)
+                throw new IllegalArgumentException("Too few samples in record " + readString(0, 6) + " of " + id);
+            // the first difference is that from the last sample of the previous record, so it is not used
+            int value = forwardConstant;
+            samples[0] = value;
+            for (int i = 1; i < nSamples; i++) {
+                value += differences[i];
+                samples[i] = value;
+            }
+            if (value != reverseConstant)
+                System.err.println("!! last sample " + value + " does not match reverse integration constant "
+                        + reverseConstant + " in record " + readString(0, 6) + " of " + id);
+        }
+    }
+
+    /**
+     * Continuous waveform of a channel, composed of one or more records.
+     */
+    static final class Segment {
+        private final String network;
+        private final String station;
+        private final String location;
+        private final String channel;
+        private final char quality;
+        private final long startMicros;
+        private final double samplingHz;
+        private double[] data;
+        private int npts;
+        /**
+         * Time of the sample next to the last one [&mu;s]
+         */
+        private long endMicros;
+
+        private Segment(Record record, double[] data) {
+            network = record.network;
+            station = record.station;
+            location = record.location;
+            channel = record.channel;
+            quality = record.quality;
+            startMicros = record.startMicros;
+            samplingHz = record.samplingHz;
+            this.data = data;
+            npts = data.length;
+            endMicros = record.getEndMicros();
+        }
+
+        /**
+         * Appends a record if it follows this segment within half a sample.
+         * Samples that overlap with this segment are dropped.
+         *
+         * @param record ({@link Record}) Record to append.
+         * @param recordData (double[]) Decoded samples of the record.
+         * @return (boolean) Whether the record was appended (or was totally included in this segment).
+         */
+        private boolean append(Record record, double[] recordData) {
+            if (Math.abs(record.samplingHz - samplingHz) > 1e-4 * samplingHz) return false;
+            double period = 1e6 / samplingHz;
+            long difference = record.startMicros - endMicros;
+            int skip = 0;
+            if (difference < -period / 2) {
+                // overlap; accept only when the samples are aligned
+                skip = (int) Math.round(-difference / period);
+                if (Math.abs(-difference - skip * period) > period / 2) return false;
+                if (skip >= recordData.length) return record.getEndMicros() <= endMicros;
+            } else if (difference > period / 2) {
+                return false;
+            }
+            int n = recordData.length - skip;
+            if (data.length < npts + n) data = Arrays.copyOf(data, Math.max(npts + n, 2 * data.length));
+            System.arraycopy(recordData, skip, data, npts, n);
+            npts += n;
+            endMicros = startMicros + Math.round(npts * period);
+            return true;
+        }
+
+        /**
+         * @return (LocalDateTime) Time of the first sample.
+         */
+        LocalDateTime getStartTime() {
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(startMicros, 1000000),
+                    (int) (Math.floorMod(startMicros, 1000000L) * 1000), ZoneOffset.UTC);
+        }
+
+        /**
+         * @return (double) Sampling frequency [Hz].
+         */
+        double getSamplingHz() {
+            return samplingHz;
+        }
+
+        /**
+         * @return (double[]) Samples in this segment.
+         */
+        double[] getData() {
+            return Arrays.copyOf(data, npts);
+        }
+
+        /**
+         * @return (String) SAC file name "NET.STA.LOC.CHA.Q.YEAR.JDAY.HHMMSS.SAC", the same as that of mseed2sac.
+         */
+        String getSacFileName() {
+            LocalDateTime start = getStartTime();
+            return String.format("%s.%s.%s.%s.%c.%04d.%03d.%02d%02d%02d.SAC", network, station, location, channel,
+                    quality, start.getYear(), start.getDayOfYear(), start.getHour(), start.getMinute(), start.getSecond());
+        }
+
+        /**
+         * Writes this segment in a SAC file.
+         * The reference time is the start time truncated to milliseconds, and B is the remaining fraction.
+         *
+         * @param outPath (Path) Directory to write the SAC file in.
+         * @return (Path) Written SAC file.
+         * @throws IOException if an I/O error occurs
+         */
+        Path writeSAC(Path outPath) throws IOException {
+            double[] sacData = getData();
+            LocalDateTime start = getStartTime();
+            LocalDateTime reference = start.truncatedTo(ChronoUnit.MILLIS);
+            double b = ChronoUnit.MICROS.between(reference, start) * 1e-6;
+            double delta = 1 / samplingHz;
+
+            Map<SACHeaderEnum, String> headerMap = createInitialHeader();
+            headerMap.put(SACHeaderEnum.DELTA, String.valueOf(delta));
+            headerMap.put(SACHeaderEnum.B, String.valueOf(b));
+            headerMap.put(SACHeaderEnum.E, String.valueOf(b + (npts - 1) * delta));
+            headerMap.put(SACHeaderEnum.NPTS, String.valueOf(npts));
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            double sum = 0;
+            for (double d : sacData) {
+                min = Math.min(min, d);
+                max = Math.max(max, d);
+                sum += d;
+            }
+            headerMap.put(SACHeaderEnum.DEPMIN, String.valueOf(min));
+            headerMap.put(SACHeaderEnum.DEPMAX, String.valueOf(max));
+            headerMap.put(SACHeaderEnum.DEPMEN, String.valueOf(sum / npts));
+            headerMap.put(SACHeaderEnum.NZYEAR, String.valueOf(reference.getYear()));
+            headerMap.put(SACHeaderEnum.NZJDAY, String.valueOf(reference.getDayOfYear()));
+            headerMap.put(SACHeaderEnum.NZHOUR, String.valueOf(reference.getHour()));
+            headerMap.put(SACHeaderEnum.NZMIN, String.valueOf(reference.getMinute()));
+            headerMap.put(SACHeaderEnum.NZSEC, String.valueOf(reference.getSecond()));
+            headerMap.put(SACHeaderEnum.NZMSEC, String.valueOf(reference.getNano() / 1000000));
+            headerMap.put(SACHeaderEnum.KSTNM, station);
+            headerMap.put(SACHeaderEnum.KNETWK, network);
+            headerMap.put(SACHeaderEnum.KHOLE, location);
+            headerMap.put(SACHeaderEnum.KCMPNM, channel);
+
+            Path sacPath = outPath.resolve(getSacFileName());
+            SACUtil.writeSAC(sacPath, headerMap, sacData);
+            return sacPath;
+        }
+    }
+
+    /**
+     * @return (Map of {@link SACHeaderEnum}, String) Header with all values undefined, except for those required for time series.
+     */
+    private static Map<SACHeaderEnum, String> createInitialHeader() {
+        Map<SACHeaderEnum, String> headerMap = new EnumMap<>(SACHeaderEnum.class);
+        for (SACHeaderEnum value : SACHeaderEnum.values()) {
+            // words 0-69 are floats, 70-104 are integers, 105-109 are logicals, and the rest are strings
+            int ordinal = value.ordinal();
+            if (ordinal < SACHeaderEnum.NZYEAR.ordinal()) headerMap.put(value, "-12345.0");
+            else if (ordinal < SACHeaderEnum.LEVEN.ordinal()) headerMap.put(value, "-12345");
+            else if (ordinal <= SACHeaderEnum.num109.ordinal()) headerMap.put(value, "false");
+            else headerMap.put(value, "-12345");
+        }
+        headerMap.put(SACHeaderEnum.NVHDR, "6");
+        // ITIME
+        headerMap.put(SACHeaderEnum.IFTYPE, "1");
+        // IUNKN
+        headerMap.put(SACHeaderEnum.IDEP, "5");
+        // IB
+        headerMap.put(SACHeaderEnum.IZTYPE, "9");
+        headerMap.put(SACHeaderEnum.LEVEN, "true");
+        headerMap.put(SACHeaderEnum.LPSPOL, "true");
+        headerMap.put(SACHeaderEnum.LOVROK, "true");
+        headerMap.put(SACHeaderEnum.LCALDA, "true");
+        return headerMap;
+    }
+
+}
@@ -0,0 +1,429 @@
+package io.github.kensuke1984.kibrary.external;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+import edu.sc.seis.TauP.Arrival;
+import edu.sc.seis.TauP.TauModelException;
+import edu.sc.seis.TauP.TauP_Time;
+
+/**
+ * Table of travel times computed by TauP on a grid of source depth and epicentral distance.
+ * <p>
+ * {@link TauP_Time} has to redo depth corrections whenever the source depth changes, and then traces rays for each distance.
+ * This table does both once for each grid node, and afterwards gives travel times
+ * by cubic interpolation in depth and distance over the 4&times;4 nodes around the query point.
+ * Travel times have kinks in source depth at discontinuities of the structure,
+ * so the discontinuities are added to the depth nodes, and the interpolation in depth never crosses them
+ * (in thin layers with fewer than 4 nodes, the order of interpolation is lowered).
+ * <p>
+ * At each node, the arrivals are sorted into branches by phase name, arc
+ * (0 for the minor arc, 1 for the major arc, 2 for the minor arc plus a full circle, ...),
+ * and order of ray parameter within the phase and arc, so triplications are kept as separate branches.
+ * Where the branches of the 16 nodes do not match
+ * (near the ends of triplications, shadow zones, or outside the grid),
+ * the interpolation is not reliable and {@link #arrivals(double, double)} returns null;
+ * callers should then use TauP directly.
+ * <p>
+ * Tables can be written to a file and read back, so that they are built only once for each structure and set of phases.
+ * This class is immutable and thread-safe.
+ *
+ * @since 2026/10/18
+ */
+public final class TauPTravelTimeTable {
+
+    private static final String MAGIC = "KIBTTT01";
+    /**
+     * Default interval of source depth nodes [km].
+     */
+    public static final double DEFAULT_DEPTH_STEP = 10;
+    /**
+     * Default interval of distance nodes [deg].
+     */
+    public static final double DEFAULT_DISTANCE_STEP = 0.5;
+    /**
+     * Number of arcs distinguished in keys.
+     */
+    private static final int ARC_LIMIT = 16;
+
+    private final String structureName;
+    /**
+     * Names of phases given to TauP.
+     */
+    private final String[] phaseNames;
+    /**
+     * Names of phases of arrivals, which may differ from {@link #phaseNames} (such as for "ttp").
+     */
+    private final String[] arrivalNames;
+    /**
+     * Source depths of nodes [km], in ascending order.
+     */
+    private final double[] depths;
+    /**
+     * Depths of discontinuities of the structure [km], in ascending order.
+     */
+    private final double[] discontinuities;
+    private final int nDepth;
+    private final double distanceStep;
+    private final int nDistance;
+    /**
+     * Branch keys (index in {@link #arrivalNames} * ARC_LIMIT + arc) of arrivals at each node [iDepth * nDistance + iDistance],
+     * sorted so that keys of the same branch come in the same position at nodes with the same set of branches.
+     */
+    private final int[][] keys;
+    /**
+     * Travel times [s] of arrivals at each node, in the order of {@link #keys}.
+     */
+    private final double[][] times;
+
+    private TauPTravelTimeTable(String structureName, String[] phaseNames, String[] arrivalNames, double[] depths,
+            double[] discontinuities, double distanceStep, int nDistance, int[][] keys, double[][] times) {
+        this.structureName = structureName;
+        this.phaseNames = phaseNames;
+        this.arrivalNames = arrivalNames;
+        this.depths = depths;
+        this.discontinuities = discontinuities;
+        this.nDepth = depths.length;
+        this.distanceStep = distanceStep;
+        this.nDistance = nDistance;
+        this.keys = keys;
+        this.times = times;
+    }
+
+    /**
+     * Reads a table from a file if it is for the same structure and set of phases and covers the requested depth range,
+     * or else builds one and writes it to the file.
+     * A table for more phases is not reused, since {@link #arrivals(double, double)} gives arrivals of all phases in the table.
+     *
+     * @param path (Path) Table file. If null, the table is built and not written.
+     * @param structureName (String) Name of structure for TauP.
+     * @param phaseNames (String[]) Names of phases for TauP.
+     * @param minDepth (double) Minimum source depth to cover [km].
+     * @param maxDepth (double) Maximum source depth to cover [km].
+     * @return ({@link TauPTravelTimeTable}) Table.
+     * @throws IOException if an I/O error occurs
+     * @throws TauModelException if the structure cannot be loaded
+     */
+    public static TauPTravelTimeTable prepare(Path path, String structureName, String[] phaseNames, double minDepth, double maxDepth)
+            throws IOException, TauModelException {
+        if (path != null && Files.exists(path)) {
+            TauPTravelTimeTable table = read(path);
+            if (table.covers(structureName, Arrays.asList(phaseNames), minDepth, maxDepth)) return table;
+            System.err.println("Travel time table " + path + " does not cover the request; building it again.");
+        }
+        TauPTravelTimeTable table = build(structureName, phaseNames, minDepth, maxDepth, DEFAULT_DEPTH_STEP, DEFAULT_DISTANCE_STEP);
+        if (path != null) table.write(path);
+        return table;
+    }
+
+    /**
+     * Builds a table. Nodes at different depths are computed in parallel.
+     * The depth range is extended by one node on each side (but not above the surface)
+     * so that the interpolation stencil stays centered.
+     * Discontinuities of the structure in the depth range are added as nodes.
+     *
+     * @param structureName (String) Name of structure for TauP.
+     * @param phaseNames (String[]) Names of phases for TauP.
+     * @param minDepth (double) Minimum source depth to cover [km].
+     * @param maxDepth (double) Maximum source depth to cover [km].
+     * @param depthStep (double) Interval of depth nodes [km].
+     * @param distanceStep (double) Maximum interval of distance nodes [deg]. Nodes are placed from 0 to 180 deg.
+     * @return ({@link TauPTravelTimeTable}) Table.
+     * @throws TauModelException if the structure cannot be loaded
+     */
+    public static TauPTravelTimeTable build(String structureName, String[] phaseNames, double minDepth, double maxDepth,
+            double depthStep, double distanceStep) throws TauModelException {
+        if (maxDepth < minDepth || !(0 < depthStep) || !(0 < distanceStep))
+            throw new IllegalArgumentException("Invalid grid: depth " + minDepth + "-" + maxDepth + " every " + depthStep
+                    + ", distance every " + distanceStep);
+        double firstDepth = Math.max(0, (Math.floor(minDepth / depthStep) - 1) * depthStep);
+        int nUniform = Math.max(4, (int) Math.ceil((maxDepth - firstDepth) / depthStep) + 2);
+        double lastDepth = firstDepth + (nUniform - 1) * depthStep;
+        // the interval is adjusted so that the last node is at 180 deg
+        int nDistance = (int) Math.ceil(180 / distanceStep - 1e-9) + 1;
+        double interval = 180. / (nDistance - 1);
+        String[] names = phaseNames.clone();
+        double[] discontinuities = new TauP_Time(structureName).getTauModel().getVelocityModel().getDisconDepths().clone();
+        Arrays.sort(discontinuities);
+        double[] depths = IntStream.range(0, nUniform).mapToDouble(i -> firstDepth + i * depthStep).toArray();
+        for (double discontinuity : discontinuities)
+            if (firstDepth < discontinuity && discontinuity < lastDepth && !containsDepth(depths, discontinuity)) {
+                depths = Arrays.copyOf(depths, depths.length + 1);
+                depths[depths.length - 1] = discontinuity;
+            }
+        Arrays.sort(depths);
+        double[] nodeDepths = depths;
+        int nDepth = depths.length;
+
+        int[][] keys = new int[nDepth * nDistance][];
+        double[][] times = new double[nDepth * nDistance][];
+        // indices of arrival names are given in the order they appear
+        Map<String, Integer> arrivalNameIndices = new HashMap<>();
+        ToIntFunction<Arrival> keyOf = arrival -> {
+            int index;
+            synchronized (arrivalNameIndices) {
+                index = arrivalNameIndices.computeIfAbsent(arrival.getPhase().getName(), name -> arrivalNameIndices.size());
+            }
+            return ARC_LIMIT * index + arcOf(arrival.getDistDeg());
+        };
+        ThreadLocal<TauP_Time> tools = ThreadLocal.withInitial(() -> {
+            try {
+                TauP_Time timeTool = new TauP_Time(structureName);
+                timeTool.setPhaseNames(names);
+                return timeTool;
+            } catch (TauModelException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        IntStream.range(0, nDepth).parallel().forEach(iDepth -> {
+            TauP_Time timeTool = tools.get();
+            try {
+                // depth correction is done once for all distances
+                timeTool.setSourceDepth(nodeDepths[iDepth]);
+                for (int iDistance = 0; iDistance < nDistance; iDistance++) {
+                    double distance = iDistance * interval;
+                    timeTool.calculate(distance);
+                    int node = iDepth * nDistance + iDistance;
+                    List<Arrival> arrivals = new ArrayList<>(timeTool.getArrivals());
+                    arrivals.removeIf(arrival -> ARC_LIMIT <= arcOf(arrival.getDistDeg()));
+                    // branches of a triplication cross each other in time, but not in ray parameter
+                    arrivals.sort(Comparator.comparingInt(keyOf).thenComparingDouble(arrival -> -arrival.getRayParam()));
+                    keys[node] = arrivals.stream().mapToInt(keyOf).toArray();
+                    times[node] = arrivals.stream().mapToDouble(Arrival::getTime).toArray();
+                }
+            } catch (TauModelException e) {
+                throw new IllegalStateException("Failed to compute travel times at depth " + nodeDepths[iDepth], e);
+            }
+        });
+        String[] arrivalNames = new String[arrivalNameIndices.size()];
+        arrivalNameIndices.forEach((name, index) -> arrivalNames[index] = name);
+        return new TauPTravelTimeTable(structureName, names, arrivalNames, depths, discontinuities, interval, nDistance, keys, times);
+    }
+
+    private static boolean containsDepth(double[] depths, double depth) {
+        for (double d : depths)
+            if (Math.abs(d - depth) < 1e-6) return true;
+        return false;
+    }
+
+    private static int arcOf(double distDeg) {
+        return (int) Math.floor(distDeg / 180);
+    }
+
+    /**
+     * @param structureName (String) Name of structure.
+     * @param phaseNames (Collection of String) Names of phases.
+     * @param minDepth (double) Minimum source depth [km].
+     * @param maxDepth (double) Maximum source depth [km].
+     * @return (boolean) Whether this table is for the structure and exactly the set of phases,
+     * and can interpolate in the whole depth range.
+     */
+    public boolean covers(String structureName, Collection<String> phaseNames, double minDepth, double maxDepth) {
+        return this.structureName.equals(structureName) && new HashSet<>(Arrays.asList(this.phaseNames)).equals(new HashSet<>(phaseNames))
+                && depths[0] <= minDepth && maxDepth <= depths[nDepth - 1];
+    }
+
+    /**
+     * Arrivals at a point, interpolated from the table.
+     *
+     * @param depth (double) Source depth [km].
+     * @param distanceDeg (double) Epicentral distance [deg], in [0, 180].
+     * @return (List of {@link TravelTime}) Arrivals of all phases in the table, in the order of time.
+     * null if the point is outside the table or the branches change around it, in which case TauP should be used instead.
+     */
+    public List<TravelTime> arrivals(double depth, double distanceDeg) {
+        if (depth < depths[0] || depths[nDepth - 1] < depth || distanceDeg < 0 || 180 < distanceDeg) return null;
+        // nodes in the layer of the structure containing the source
+        double top = 0;
+        double bottom = Double.POSITIVE_INFINITY;
+        for (double discontinuity : discontinuities) {
+            if (discontinuity <= depth) top = discontinuity;
+            else {
+                bottom = discontinuity;
+                break;
+            }
+        }
+        int lo = 0;
+        while (depths[lo] < top - 1e-6) lo++;
+        int hi = nDepth - 1;
+        while (bottom + 1e-6 < depths[hi]) hi--;
+        int nDepthStencil = Math.min(4, hi - lo + 1);
+        if (nDepthStencil < 2) return null;
+        int below = lo;
+        while (below < hi && depths[below + 1] <= depth) below++;
+        int iDepth = Math.max(lo, Math.min(hi - nDepthStencil + 1, below - 1));
+        double[] depthWeights = lagrangeWeights(Arrays.copyOfRange(depths, iDepth, iDepth + nDepthStencil), depth);
+
+        double distancePosition = distanceDeg / distanceStep;
+        int iDistance = Math.max(0, Math.min(nDistance - 4, (int) Math.floor(distancePosition) - 1));
+        double[] distanceWeights = lagrangeWeights(new double[] {iDistance, iDistance + 1, iDistance + 2, iDistance + 3}, distancePosition);
+
+        int[] branches = keys[iDepth * nDistance + iDistance];
+        for (int i = 0; i < nDepthStencil; i++)
+            for (int j = 0; j < 4; j++)
+                if (!Arrays.equals(branches, keys[(iDepth + i) * nDistance + iDistance + j])) return null;
+
+        List<TravelTime> arrivals = new ArrayList<>(branches.length);
+        for (int k = 0; k < branches.length; k++) {
+            double time = 0;
+            for (int i = 0; i < nDepthStencil; i++)
+                for (int j = 0; j < 4; j++)
+                    time += depthWeights[i] * distanceWeights[j] * times[(iDepth + i) * nDistance + iDistance + j][k];
+            int arc = branches[k] % ARC_LIMIT;
+            double distDeg = arc % 2 == 0 ? 180 * arc + distanceDeg : 180 * (arc + 1) - distanceDeg;
+            arrivals.add(new TravelTime(arrivalNames[branches[k] / ARC_LIMIT], time, distDeg));
+        }
+        arrivals.sort(Comparator.comparingDouble(TravelTime::getTime));
+        return arrivals;
+    }
+
+    /**
+     * @param nodes (double[]) Positions of nodes, all different.
+     * @param x (double) Position to interpolate at.
+     * @return (double[]) Lagrange weights of the nodes at x.
+     */
+    private static double[] lagrangeWeights(double[] nodes, double x) {
+        double[] weights = new double[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            double weight = 1;
+            for (int j = 0; j < nodes.length; j++)
+                if (j != i) weight *= (x - nodes[j]) / (nodes[i] - nodes[j]);
+            weights[i] = weight;
+        }
+        return weights;
+    }
+
+    /**
+     * Writes this table. The file is replaced atomically.
+     *
+     * @param path (Path) Output file.
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Path path) throws IOException {
+        Path tmpPath = Files.createTempFile(path.toAbsolutePath().getParent(), "travelTimeTable", ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+            dos.writeBytes(MAGIC);
+            dos.writeUTF(structureName);
+            dos.writeInt(phaseNames.length);
+            for (String phaseName : phaseNames) dos.writeUTF(phaseName);
+            dos.writeInt(arrivalNames.length);
+            for (String arrivalName : arrivalNames) dos.writeUTF(arrivalName);
+            dos.writeInt(nDepth);
+            for (double depth : depths) dos.writeDouble(depth);
+            dos.writeInt(discontinuities.length);
+            for (double discontinuity : discontinuities) dos.writeDouble(discontinuity);
+            dos.writeDouble(distanceStep);
+            dos.writeInt(nDistance);
+            for (int node = 0; node < keys.length; node++) {
+                dos.writeInt(keys[node].length);
+                for (int k = 0; k < keys[node].length; k++) {
+                    dos.writeInt(keys[node][k]);
+                    dos.writeDouble(times[node][k]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmpPath);
+            throw e;
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param path (Path) Table file written by {@link #write(Path)}.
+     * @return ({@link TauPTravelTimeTable}) Table read from the file.
+     * @throws IOException if an I/O error occurs, or the file is not a travel time table
+     */
+    public static TauPTravelTimeTable read(Path path) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte[] magic = new byte[MAGIC.length()];
+            dis.readFully(magic);
+            if (!MAGIC.equals(new String(magic, "US-ASCII"))) throw new IOException(path + " is not a travel time table.");
+            String structureName = dis.readUTF();
+            String[] phaseNames = new String[dis.readInt()];
+            for (int i = 0; i < phaseNames.length; i++) phaseNames[i] = dis.readUTF();
+            String[] arrivalNames = new String[dis.readInt()];
+            for (int i = 0; i < arrivalNames.length; i++) arrivalNames[i] = dis.readUTF();
+            double[] depths = new double[dis.readInt()];
+            for (int i = 0; i < depths.length; i++) depths[i] = dis.readDouble();
+            double[] discontinuities = new double[dis.readInt()];
+            for (int i = 0; i < discontinuities.length; i++) discontinuities[i] = dis.readDouble();
+            int nDepth = depths.length;
+            double distanceStep = dis.readDouble();
+            int nDistance = dis.readInt();
+            int[][] keys = new int[nDepth * nDistance][];
+            double[][] times = new double[nDepth * nDistance][];
+            for (int node = 0; node < keys.length; node++) {
+                int n = dis.readInt();
+                keys[node] = new int[n];
+                times[node] = new double[n];
+                for (int k = 0; k < n; k++) {
+                    keys[node][k] = dis.readInt();
+                    times[node][k] = dis.readDouble();
+                }
+            }
+            return new TauPTravelTimeTable(structureName, phaseNames, arrivalNames, depths, discontinuities, distanceStep, nDistance, keys, times);
+        }
+    }
+
+    /**
+     * Travel time of one branch of a phase, interpolated from {@link TauPTravelTimeTable} or taken from an {@link Arrival}.
+     */
+    public static final class TravelTime {
+        private final String phaseName;
+        private final double time;
+        private final double distDeg;
+
+        private TravelTime(String phaseName, double time, double distDeg) {
+            this.phaseName = phaseName;
+            this.time = time;
+            this.distDeg = distDeg;
+        }
+
+        /**
+         * @param arrival (Arrival) Arrival computed by TauP.
+         * @return ({@link TravelTime}) Travel time of the arrival.
+         */
+        public static TravelTime of(Arrival arrival) {
+            return new TravelTime(arrival.getPhase().getName(), arrival.getTime(), arrival.getDistDeg());
+        }
+
+        /**
+         * @return (String) Name of phase, as given by {@link Arrival#getPhase()}.
+         */
+        public String getPhaseName() {
+            return phaseName;
+        }
+
+        /**
+         * @return (double) Travel time [s].
+         */
+        public double getTime() {
+            return time;
+        }
+
+        /**
+         * @return (double) Distance travelled along the surface [deg], as given by {@link Arrival#getDistDeg()}.
+         * This is 180 or more for the major arc.
+         */
+        public double getDistDeg() {
+            return distDeg;
+        }
+    }
+
+}
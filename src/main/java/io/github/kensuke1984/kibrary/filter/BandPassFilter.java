@@ -314,6 +314,30 @@ public class BandPassFilter extends ButterworthFilter {
         return backward ? Complex.valueOf(response.abs() * response.abs()) : response;
     }
 
+    @Override
+    Complex computeCausalResponse(Complex omega) {
+        Complex cos = omega.cos();
+        Complex sin = omega.sin();
+        Complex response = Complex.valueOf(g);
+        Complex numerator = sin.multiply(Complex.valueOf(0, 2));
+        // all n sections have the same form, see getFrequencyResponse(double)
+        for (int j = 0; j < n; j++) {
+            Complex denominator = cos.multiply(b2[j] + 1).add(b1[j]).subtract(sin.multiply(Complex.valueOf(0, b2[j] - 1)));
+            response = response.multiply(numerator).divide(denominator);
+        }
+        return response;
+    }
+
+    @Override
+    double getA1(int j) {
+        return 0;
+    }
+
+    @Override
+    double getA2(int j) {
+        return -1;
+    }
+
     @Override
     public Complex[] applyFilter(Complex[] data) {
         Complex[] y = new Complex[data.length];
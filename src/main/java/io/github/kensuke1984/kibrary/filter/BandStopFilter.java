@@ -270,6 +270,37 @@ public class BandStopFilter extends ButterworthFilter {
         return response;
     }
 
+    @Override
+    Complex computeCausalResponse(Complex omega) {
+        Complex cos = omega.cos();
+        Complex sin = omega.sin();
+        Complex response = Complex.valueOf(g);
+        Complex numerator = cos.multiply(2).add(a1);
+        // all n sections have the same form, see getFrequencyResponse(double)
+        for (int j = 0; j < n; j++) {
+            Complex denominator = cos.multiply(b2[j] + 1).add(b1[j]).subtract(sin.multiply(Complex.valueOf(0, b2[j] - 1)));
+            response = response.multiply(numerator).divide(denominator);
+        }
+        return response;
+    }
+
+    @Override
+    double getA1(int j) {
+        return a1;
+    }
+
+    @Override
+    double getA2(int j) {
+        return 1;
+    }
+
+    @Override
+    public void applyFilterInPlace(double[] data) {
+        // the same as in applyFilter(Complex[])
+        backward = false;
+        super.applyFilterInPlace(data);
+    }
+
     @Override
     public Complex[] applyFilter(Complex[] data) {
         Complex[] y = new Complex[data.length];
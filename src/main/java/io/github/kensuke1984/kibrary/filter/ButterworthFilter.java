@@ -1,5 +1,9 @@
 package io.github.kensuke1984.kibrary.filter;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.commons.math3.complex.Complex;
 import org.apache.commons.math3.util.FastMath;
 
@@ -49,6 +53,15 @@ public abstract class ButterworthFilter {
     boolean backward = true;
     double[] b1;
     double[] b2;
+    /**
+     * Frequency responses already computed by {@link #getFrequencyResponseTable(int, double, double, double)}.
+     */
+    private final Map<ResponseTableKey, Complex[]> responseTables = new ConcurrentHashMap<>();
+    /**
+     * Coefficients {a<sub>1</sub>, a<sub>2</sub>, b<sub>1</sub>, b<sub>2</sub>} of each section, packed in one array.
+     * Created by {@link #getSections()} at the first use.
+     */
+    private volatile double[] sections;
 
     ButterworthFilter() {
     }
@@ -66,6 +79,61 @@ public abstract class ButterworthFilter {
      */
     public abstract Complex getFrequencyResponse(double omega);
 
+    /**
+     * Compute the frequency response of the causal (forward only) filter for a complex angular frequency.
+     * This is the analytic continuation of Saito 1.7, obtained by evaluating the cosines and sines for a complex argument.
+     *
+     * @param omega ({@link Complex}) &omega;: 2&pi;f&Delta;t, may have an imaginary part
+     * @return ({@link Complex}) frequency response of the causal filter
+     */
+    abstract Complex computeCausalResponse(Complex omega);
+
+    /**
+     * Compute the frequency response for a complex angular frequency &omega; - i&omega;<sub>I</sub>&Delta;t.
+     * <p>
+     * Multiplying this response on a spectrum computed with artificial damping (&omega; = &omega;<sub>R</sub> - i&omega;<sub>I</sub>),
+     * and then applying the inverse FFT and the growing exponential exp(&omega;<sub>I</sub>t),
+     * gives the same waveform as applying {@link #applyFilter(double[])} on the resulting time series.
+     * When the filter is zero-phase, H(&omega;)H(-&omega;) is returned,
+     * which equals |H(&omega;)|<sup>2</sup> of {@link #getFrequencyResponse(double)} for real &omega;.
+     * In this case, the result differs from that in time domain near the end of the time series,
+     * since the acausal part of the filtered waveform wraps around in the FFT.
+     *
+     * @param omega (double) &omega;: 2&pi;f&Delta;t
+     * @param omegaI (double) &omega;<sub>I</sub>&Delta;t, the artificial damping per sample. Set 0 when there is no damping.
+     * @return ({@link Complex}) frequency response
+     */
+    public Complex getFrequencyResponse(double omega, double omegaI) {
+        Complex complexOmega = new Complex(omega, -omegaI);
+        Complex response = computeCausalResponse(complexOmega);
+        return backward ? response.multiply(computeCausalResponse(complexOmega.negate())) : response;
+    }
+
+    /**
+     * Frequency response for each step in frequency domain, to be multiplied to spectra before they are converted to time domain.
+     * The result is cached, so the table is computed only once for each set of parameters.
+     * <p>
+     * The filter must be designed for the same sampling frequency as the one given here.
+     * The returned array is shared, so it must not be modified.
+     *
+     * @param np (int) Number of steps in frequency domain.
+     * @param tlen (double) Time length [s].
+     * @param samplingHz (double) Sampling frequency [Hz].
+     * @param omegaI (double) &omega;<sub>i</sub> [1/s].
+     * @return (Complex[]) Frequency response for ip=[0, np]. The length is np+1.
+     */
+    public Complex[] getFrequencyResponseTable(int np, double tlen, double samplingHz, double omegaI) {
+        return responseTables.computeIfAbsent(new ResponseTableKey(np, tlen, samplingHz, omegaI, backward), key -> {
+            // ω = 2πfΔt, where f = ip/tlen and Δt = 1/samplingHz
+            double deltaOmega = 2 * Math.PI / tlen / samplingHz;
+            double omegaIPerSample = omegaI / samplingHz;
+            Complex[] table = new Complex[np + 1];
+            for (int ip = 0; ip <= np; ip++)
+                table[ip] = getFrequencyResponse(ip * deltaOmega, omegaIPerSample);
+            return table;
+        });
+    }
+
     public double getAp() {
         return ap;
     }
@@ -85,19 +153,90 @@ public abstract class ButterworthFilter {
      * @return arrays after applied the filter
      */
     public double[] applyFilter(double[] data) {
-        Complex[] cdata = new Complex[data.length];
-        for (int i = 0; i < cdata.length; i++)
-            cdata[i] = Complex.valueOf(data[i]);
+        double[] newData = data.clone();
+        applyFilterInPlace(newData);
+        return newData;
+    }
 
-        cdata = applyFilter(cdata);
+    /**
+     * Applies the filter on real data, overwriting the input array.
+     * The result is the same as {@link #applyFilter(Complex[])},
+     * but the recursion of each section is computed on primitive values without creating any object.
+     * When the filter is zero-phase, the backward pass runs from the end of the array, so the data is not reversed.
+     *
+     * @param data (double[]) data to be applied the filter. It is overwritten by the result.
+     */
+    public void applyFilterInPlace(double[] data) {
+        double[] coefficients = getSections();
+        computeSections(coefficients, data, false);
+        if (backward) computeSections(coefficients, data, true);
+    }
 
-        double[] newData = new double[data.length];
-        for (int i = 0; i < data.length; i++)
-            newData[i] = cdata[i].getReal();
+    /**
+     * Cascades the sections over data, and then multiplies G<sub>0</sub>.
+     * Each section is y[t]=x[t]+a<sub>1</sub>x[t-1]+a<sub>2</sub>x[t-2]-b<sub>1</sub>y[t-1]-b<sub>2</sub>y[t-2]
+     * with x and y before the first sample set to 0.
+     *
+     * @param coefficients (double[]) packed coefficients of sections
+     * @param data (double[]) data to be overwritten
+     * @param reverse (boolean) whether to run from the end of data
+     */
+    private void computeSections(double[] coefficients, double[] data, boolean reverse) {
+        int length = data.length;
+        int first = reverse ? length - 1 : 0;
+        int step = reverse ? -1 : 1;
+        for (int s = 0; s < coefficients.length; s += 4) {
+            double a1 = coefficients[s];
+            double a2 = coefficients[s + 1];
+            double b1 = coefficients[s + 2];
+            double b2 = coefficients[s + 3];
+            double x1 = 0, x2 = 0, y1 = 0, y2 = 0;
+            for (int k = 0, i = first; k < length; k++, i += step) {
+                double x = data[i];
+                double y = x + a1 * x1 + a2 * x2 - b1 * y1 - b2 * y2;
+                x2 = x1;
+                x1 = x;
+                y2 = y1;
+                y1 = y;
+                data[i] = y;
+            }
+        }
+        for (int i = 0; i < length; i++)
+            data[i] *= g;
+    }
 
-        return newData;
+    private double[] getSections() {
+        double[] coefficients = sections;
+        if (coefficients == null) {
+            coefficients = new double[4 * b1.length];
+            for (int j = 0; j < b1.length; j++) {
+                coefficients[4 * j] = getA1(j);
+                coefficients[4 * j + 1] = getA2(j);
+                coefficients[4 * j + 2] = b1[j];
+                coefficients[4 * j + 3] = b2[j];
+            }
+            sections = coefficients;
+        }
+        return coefficients;
     }
 
+    /**
+     * a<sub>1</sub> of the j-th section in {@link #applyFilter(Complex[])}, where a<sub>0</sub> = 1.
+     *
+     * @param j (int) index of section, which is also the index in {@link #b1} and {@link #b2}
+     * @return (double) a<sub>1</sub>
+     */
+    abstract double getA1(int j);
+
+    /**
+     * a<sub>2</sub> of the j-th section in {@link #applyFilter(Complex[])}, where a<sub>0</sub> = 1.
+     * For a first-order section, this and b<sub>2</sub> are 0.
+     *
+     * @param j (int) index of section, which is also the index in {@link #b1} and {@link #b2}
+     * @return (double) a<sub>2</sub>
+     */
+    abstract double getA2(int j);
+
     /**
      * true: zero phase, false: causal
      * @param backward if true, backword filtering is done
@@ -131,4 +270,38 @@ public abstract class ButterworthFilter {
         // double n = Math.log(as/ap)/Math.log(sigmaSvsSigmaP);
     }
 
+    /**
+     * Parameters that a frequency response table depends on.
+     */
+    private static final class ResponseTableKey {
+        private final int np;
+        private final double tlen;
+        private final double samplingHz;
+        private final double omegaI;
+        private final boolean backward;
+
+        private ResponseTableKey(int np, double tlen, double samplingHz, double omegaI, boolean backward) {
+            this.np = np;
+            this.tlen = tlen;
+            this.samplingHz = samplingHz;
+            this.omegaI = omegaI;
+            this.backward = backward;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(np, tlen, samplingHz, omegaI, backward);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            ResponseTableKey other = (ResponseTableKey) obj;
+            return np == other.np && Double.compare(tlen, other.tlen) == 0
+                    && Double.compare(samplingHz, other.samplingHz) == 0
+                    && Double.compare(omegaI, other.omegaI) == 0 && backward == other.backward;
+        }
+    }
+
 }
@@ -13,10 +13,10 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
-import io.github.kensuke1984.kibrary.external.SAC;
 import io.github.kensuke1984.kibrary.util.DatasetAid;
 import io.github.kensuke1984.kibrary.util.EventFolder;
 import io.github.kensuke1984.kibrary.util.MathAid;
@@ -42,6 +42,11 @@ import io.github.kensuke1984.kibrary.util.sac.SACHeaderEnum;
  * If both obsDir and synDir are empty for a certain event, the corresponding event folder will not be created.
  * <p>
  * The lower and upper period limits of the filter will be written in headers USER0 and USER1 of resulting SAC files.
+ * <p>
+ * Several frequency bands can be specified by listing multiple values for lowFreq and highFreq.
+ * In this case, each SAC file is read only once, and the filters for all bands are applied on the same waveform in parallel.
+ * The results for each band are placed under a subfolder of outDir named after the band (e.g. 0.005-0.08),
+ * which has the same structure as outDir when a single band is specified.
  *
  * @author Kensuke Konishi
  * @since a long time ago
@@ -80,7 +85,14 @@ public class FilterDivider extends Operation {
      */
     private Path synPath;
 
-    private ButterworthFilter filter;
+    /**
+     * Filters to apply, one for each band.
+     */
+    private ButterworthFilter[] filters;
+    /**
+     * Output folders, one for each band.
+     */
+    private Path[] bandPaths;
     /**
      * Sampling frequency of input SAC files [Hz].
      */
@@ -94,13 +106,13 @@ public class FilterDivider extends Operation {
      */
     private String filterType;
     /**
-     * Lower cut-off frequency [Hz].
+     * Lower cut-off frequency [Hz] of each band.
      */
-    private double lowFreq;
+    private double[] lowFreqs;
     /**
-     * Upper cut-off frequency [Hz].
+     * Upper cut-off frequency [Hz] of each band.
      */
-    private double highFreq;
+    private double[] highFreqs;
     /**
      * see Saito, n
      */
@@ -153,8 +165,9 @@ public class FilterDivider extends Operation {
             pw.println("##Filter type to be applied, from {lowpass, highpass, bandpass, bandstop}. (bandpass)");
             pw.println("#filterType ");
             pw.println("##Lower limit of the frequency band [Hz]. (0.005)");
+            pw.println("##  To produce several bands in one pass, list one value for each band using spaces.");
             pw.println("#lowFreq ");
-            pw.println("##Higher limit of the frequency band [Hz]. (0.08)");
+            pw.println("##Higher limit of the frequency band [Hz], listed in the same order as lowFreq. (0.08)");
             pw.println("#highFreq ");
             pw.println("##(int) The value of NP for the filter. (4)");
             pw.println("#filterNp ");
@@ -188,8 +201,10 @@ public class FilterDivider extends Operation {
         }
 
         filterType = property.parseString("filterType", "bandpass");
-        lowFreq = property.parseDouble("lowFreq", "0.005");
-        highFreq = property.parseDouble("highFreq", "0.08");
+        lowFreqs = property.parseDoubleArray("lowFreq", "0.005");
+        highFreqs = property.parseDoubleArray("highFreq", "0.08");
+        if (lowFreqs.length != highFreqs.length)
+            throw new IllegalArgumentException("Numbers of lowFreq and highFreq values are different.");
         filterNp = property.parseInt("filterNp", "4");
         causal = property.parseBoolean("causal", "false");
         npts = property.parseInt("npts", String.valueOf(Integer.highestOneBit(Integer.MAX_VALUE)));
@@ -198,7 +213,8 @@ public class FilterDivider extends Operation {
 
     @Override
     public void run() throws IOException {
-        setFilter();
+        filters = new ButterworthFilter[lowFreqs.length];
+        for (int i = 0; i < filters.length; i++) filters[i] = designFilter(lowFreqs[i], highFreqs[i]);
 
         if (dataEntryPath != null) entrySet = DataEntryListFile.readAsSet(dataEntryPath);
 
@@ -216,6 +232,10 @@ public class FilterDivider extends Operation {
 
         outPath = DatasetAid.createOutputFolder(workPath, "filtered", folderTag, appendFolderDate, null);
         property.write(outPath.resolve("_" + this.getClass().getSimpleName() + ".properties"));
+        bandPaths = new Path[filters.length];
+        if (filters.length == 1) bandPaths[0] = outPath;
+        else for (int i = 0; i < filters.length; i++)
+            bandPaths[i] = outPath.resolve(MathAid.simplestString(lowFreqs[i]) + "-" + MathAid.simplestString(highFreqs[i]));
 
         ExecutorService es = ThreadAid.createFixedThreadPool();
         eventDirs.stream().map(this::process).forEach(es::execute);
@@ -232,15 +252,21 @@ public class FilterDivider extends Operation {
         return () -> {
             try {
                 Set<SACFileName> sacNameSet = eventDir.sacFileSet();
-                sacNameSet.removeIf(s -> !judgeSAC(s));
+                sacNameSet.removeIf(s -> !components.contains(s.getComponent()));
 
-                // escape if the event folder was blank. The 'finally' will be executed, so count will be incremented.
-                if(sacNameSet.size() == 0) {
-                    return;
+                // each SAC file is read only once, and then filtered for all bands
+                boolean created = false;
+                for (SACFileName sacName : sacNameSet) {
+                    SACFileAccess sacFile = readSAC(sacName);
+                    if (sacFile == null) continue;
+                    // create event folders only when there is a SAC file to write
+                    if (!created) {
+                        for (Path bandPath : bandPaths) Files.createDirectories(bandPath.resolve(eventDir.getName()));
+                        created = true;
+                    }
+                    if (filters.length == 1) filterAndout(sacName, sacFile, 0);
+                    else IntStream.range(0, filters.length).parallel().forEach(i -> filterAndout(sacName, sacFile, i));
                 }
-
-                Files.createDirectories(outPath.resolve(eventDir.getName()));
-                sacNameSet.forEach(this::filterAndout);
             } catch (Exception e) {
                 // if an exception is thrown, ignore that event folder and finish up the rest
                 System.err.println("Error on " + eventDir);
@@ -251,26 +277,33 @@ public class FilterDivider extends Operation {
         };
     }
 
-    private boolean judgeSAC(SACFileName sacName) {
-        if (!components.contains(sacName.getComponent())) return false;
+    /**
+     * Reads a SAC file, if it should be filtered.
+     *
+     * @param sacName (SACFileName) Name of a SAC file to read.
+     * @return ({@link SACFileAccess}) The SAC file, or null if it should be skipped.
+     */
+    private SACFileAccess readSAC(SACFileName sacName) {
         try {
+            // check with the header before decoding the waveform
             SACHeaderAccess sacHeader = sacName.readHeader();
-            if (entrySet != null && entrySet.contains(sacHeader.toDataEntry()) == false) return false;
+            if (entrySet != null && entrySet.contains(sacHeader.toDataEntry()) == false) return null;
             double delta = MathAid.roundForPrecision(1.0 / sacSamplingHz);
             if (sacHeader.getValue(SACHeaderEnum.DELTA) != delta) {
                 System.err.println("! Sampling frequency is not " + sacSamplingHz + ", skipping: " + sacName.toString());
-                return false;
+                return null;
             }
-            return true;
+            return sacName.read();
         } catch (IOException e) {
-            System.err.println("!! Failed to read header of " + sacName.toString() + ", skipping.");
-            return false;
+            System.err.println("!! Failed to read " + sacName.toString() + ", skipping.");
+            return null;
         }
     }
 
-    private void setFilter() {
+    private ButterworthFilter designFilter(double lowFreq, double highFreq) {
         double omegaH = highFreq * 2 * Math.PI / sacSamplingHz;
         double omegaL = lowFreq * 2 * Math.PI / sacSamplingHz;
+        ButterworthFilter filter;
         switch (filterType) {
             case "lowpass":
                 System.err.println("Designing filter. - " + highFreq);
@@ -292,20 +325,24 @@ public class FilterDivider extends Operation {
                 throw new IllegalArgumentException("No such filter as " + filterType);
         }
         filter.setCausal(causal);
+        return filter;
     }
 
     /**
-     * Apply the filter on the sacFile and write in the outDir
+     * Apply the filter of a band on the sacFile and write in the output folder of that band.
+     * The input sacFile is not modified, so it can be shared among bands.
      *
      * @param name a name of a SAC file to be filtered
+     * @param sacFile the SAC file read from name
+     * @param iBand index of band
      */
-    private void filterAndout(SACFileName name) {
+    private void filterAndout(SACFileName name, SACFileAccess sacFile, int iBand) {
         try {
-            SACFileAccess sacFile = name.read().applyButterworthFilter(filter);
-            Path out = outPath.resolve(name.getGlobalCMTID().toString()).resolve(name.getName());
+            SACFileAccess filteredFile = sacFile.applyButterworthFilter(filters[iBand]);
+            if (npts < filteredFile.getInt(SACHeaderEnum.NPTS)) filteredFile = filteredFile.cut(npts);
+            Path out = bandPaths[iBand].resolve(name.getGlobalCMTID().toString()).resolve(name.getName());
             // write SAC file. If there are SAC files with the same name, this throws an exception
-            sacFile.writeSAC(out, StandardOpenOption.CREATE_NEW);
-            if (npts < sacFile.getInt(SACHeaderEnum.NPTS)) slim(out);
+            filteredFile.writeSAC(out, StandardOpenOption.CREATE_NEW);
         } catch (Exception e) {
             // if an exception is thrown, move on to the next SAC file
             System.err.println("Error on " + name.getPath());
@@ -313,12 +350,4 @@ public class FilterDivider extends Operation {
         }
     }
 
-    private void slim(Path path) throws IOException {
-        try (SAC sac = SAC.createProcess()) {
-            sac.inputCMD("cut b n " + npts);
-            sac.inputCMD("r " + path.toAbsolutePath());
-            sac.inputCMD("w over");
-        }
-    }
-
 }
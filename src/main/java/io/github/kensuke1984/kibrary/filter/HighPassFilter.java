@@ -210,6 +210,35 @@ public class HighPassFilter extends ButterworthFilter {
         return response;
     }
 
+    @Override
+    Complex computeCausalResponse(Complex omega) {
+        Complex cos = omega.cos();
+        Complex sin = omega.sin();
+        Complex response = Complex.valueOf(g);
+        for (int j = 0; j < n / 2; j++) {
+            Complex numerator = cos.multiply(2).subtract(2);
+            Complex denominator = cos.multiply(b2[j] + 1).add(b1[j]).subtract(sin.multiply(Complex.valueOf(0, b2[j] - 1)));
+            response = response.multiply(numerator).divide(denominator);
+        }
+        if (n % 2 == 1) {
+            int j = n / 2;
+            Complex numerator = cos.subtract(1).add(sin.multiply(Complex.I));
+            Complex denominator = cos.add(b1[j]).add(sin.multiply(Complex.I));
+            response = response.multiply(numerator).divide(denominator);
+        }
+        return response;
+    }
+
+    @Override
+    double getA1(int j) {
+        return j < n / 2 ? -2 : -1;
+    }
+
+    @Override
+    double getA2(int j) {
+        return j < n / 2 ? 1 : 0;
+    }
+
     @Override
     public Complex[] applyFilter(Complex[] data) {
         // data length
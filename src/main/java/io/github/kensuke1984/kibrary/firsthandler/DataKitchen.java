@@ -74,6 +74,10 @@ public class DataKitchen extends Operation {
      * Sampling frequency [Hz] of SAC files to produce.
      */
     private double samplingHz;
+    /**
+     * Whether to evaluate instrument responses in process instead of running evalresp.
+     */
+    private boolean inProcessResponse;
     /**
      * Whether to remove intermediate files.
      */
@@ -122,6 +126,9 @@ public class DataKitchen extends Operation {
             pw.println("#maxTlen ");
             pw.println("##(double) Sampling frequency [Hz]. Its reciprocal must be a terminating decimal. (20)");
             pw.println("#samplingHz ");
+            pw.println("##(boolean) Whether to evaluate instrument responses in process instead of running evalresp. (true)");
+            pw.println("##  If this is true, StationXML files in \"station\" folders are used for channels without RESP files.");
+            pw.println("#inProcessResponse ");
             pw.println("##(boolean) Whether to remove intermediate files. (true)");
             pw.println("#removeIntermediateFile ");
         }
@@ -171,6 +178,7 @@ public class DataKitchen extends Operation {
         samplingHz = property.parseDouble("samplingHz", "20");
         if (!MathAid.isTerminatingDecimal(1.0 / samplingHz))
             throw new IllegalArgumentException("Reciprocal of samplingHz must be a terminating decimal.");
+        inProcessResponse = property.parseBoolean("inProcessResponse", "true");
         removeIntermediateFile = property.parseBoolean("removeIntermediateFile", "true");
     }
 
@@ -201,7 +209,8 @@ public class DataKitchen extends Operation {
         }).filter(Objects::nonNull).collect(Collectors.toSet());
 
         // set parameters
-        eps.forEach(p -> p.setParameters(distanceRange, latitudeRange, longitudeRange, coordinateGrid, maxTlen, samplingHz, removeIntermediateFile));
+        eps.forEach(p -> p.setParameters(distanceRange, latitudeRange, longitudeRange, coordinateGrid, maxTlen, samplingHz,
+                inProcessResponse, removeIntermediateFile));
 
         ExecutorService es = ThreadAid.createFixedThreadPool();
         eps.forEach(es::execute);
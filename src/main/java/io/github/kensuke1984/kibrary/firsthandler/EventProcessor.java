@@ -6,9 +6,12 @@ import java.io.PrintWriter;
 import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -16,9 +19,9 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.math3.util.Precision;
 
+import io.github.kensuke1984.kibrary.entrance.InstrumentResponse;
 import io.github.kensuke1984.kibrary.entrance.RespDataFile;
 import io.github.kensuke1984.kibrary.external.ExternalProcess;
-import io.github.kensuke1984.kibrary.external.SAC;
 import io.github.kensuke1984.kibrary.math.CircularRange;
 import io.github.kensuke1984.kibrary.math.LinearRange;
 import io.github.kensuke1984.kibrary.util.EventFolder;
@@ -34,17 +37,15 @@ import io.github.kensuke1984.kibrary.util.sac.SACUtil;
 /**
  * Class for creating a dataset, for one event, that can be used in the inversion process.
  * An event directory with a "sac" folder containing SAC files and a "resp" folder containing RESP files must be given as input.
+ * When instrument responses are evaluated in process, StationXML files in a "station" folder are used for channels without RESP files.
  * Input SAC file names must be formatted (ex. "IU.MAJO.00.BH2.M.2014.202.14.44.00.000.SAC").
  * <p>
  * SAC files will be deconvolved of instrumental response, and rotated to gain radial and transverse components.
  * Selection for the station coordinate and epicentral distance will be done based on the user's specifications.
  * <p>
- * This class requires that evalresp and sac exists in your PATH.
- * The software
- * <a href=https://ds.iris.edu/ds/nodes/dmc/software/downloads/evalresp/>evalresp</a> and
- * <a href=https://ds.iris.edu/ds/nodes/dmc/software/downloads/sac/>SAC</a> can be found at IRIS.
- * <p>
- * TODO: The sac "cut b n" command in SacModifier fails if the sac version is too new (102.0 and later?).
+ * Instrument responses are evaluated in process by {@link InstrumentResponse} by default.
+ * Only when they are to be evaluated by evalresp instead, evalresp must exist in your PATH.
+ * The software <a href=https://ds.iris.edu/ds/nodes/dmc/software/downloads/evalresp/>evalresp</a> can be found at IRIS.
  *
  * @author otsuru
  * @since 2021/09/14
@@ -59,6 +60,10 @@ class EventProcessor implements Runnable {
      * Path of the input folder containing RESP files.
      */
     private final Path inputRespSetPath;
+    /**
+     * Path of the input folder containing StationXML files.
+     */
+    private final Path inputStationSetPath;
     /**
      * Path of the output event folder.
      */
@@ -100,6 +105,10 @@ class EventProcessor implements Runnable {
      * Sampling frequency [Hz] of SAC files to produce. SAC files with a different frequency will be interpolated or downsampled.
      */
     private double samplingHz = 20;
+    /**
+     * true: evaluate instrument responses by {@link InstrumentResponse} (default), false: run evalresp
+     */
+    private boolean inProcessResponse = true;
 
     /**
      * Whether to remove intermediate files.
@@ -130,6 +139,7 @@ class EventProcessor implements Runnable {
     EventProcessor(EventFolder eventDir, Path outPath) {
         inputSacSetPath = eventDir.toPath().resolve("sac");
         inputRespSetPath = eventDir.toPath().resolve("resp");
+        inputStationSetPath = eventDir.toPath().resolve("station");
         outputPath = outPath.resolve(eventDir.getName());
 
         event = eventDir.getGlobalCMTID().getEventData();
@@ -162,16 +172,18 @@ class EventProcessor implements Runnable {
      * @param coordinateGrid (double) Threshold to judge which stations are in the same position [deg].
      * @param maxTlen (double) The maximum length of output time series [s].
      * @param samplingHz (double) The frequency to sample the waveforms [Hz].
+     * @param inProcessResponse (boolean) If this is true, instrument responses are evaluated in process instead of running evalresp.
      * @param remove (boolean) If this is true, then all intermediate files will be removed at the end.
      */
     void setParameters(LinearRange distanceRange, LinearRange latitudeRange, CircularRange longitudeRange, double coordinateGrid,
-            double maxTlen, double samplingHz, boolean remove) {
+            double maxTlen, double samplingHz, boolean inProcessResponse, boolean remove) {
         this.distanceRange = distanceRange;
         this.latitudeRange = latitudeRange;
         this.longitudeRange = longitudeRange;
         this.coordinateGrid = coordinateGrid;
         this.maxTlen = maxTlen;
         this.samplingHz = samplingHz;
+        this.inProcessResponse = inProcessResponse;
         this.removeIntermediateFiles = remove;
     }
 
@@ -367,19 +379,8 @@ class EventProcessor implements Runnable {
      * @throws IOException
      */
     private void fixDelta(Path sacPath) throws IOException {
-
-        try (SAC sacD = SAC.createProcess()) {
-            String cwd = sacPath.getParent().toString();
-
-            // set current directory
-            sacD.inputCMD("cd " + cwd);
-            // read
-            sacD.inputCMD("r " + sacPath.getFileName());
-
-            double delta = MathAid.roundForPrecision(1.0 / samplingHz);
-            sacD.inputCMD("interpolate delta " + delta);
-            sacD.inputCMD("w over");
-        }
+        double delta = MathAid.roundForPrecision(1.0 / samplingHz);
+        SACUtil.interpolate(sacPath, delta);
     }
 
     /**
@@ -497,56 +498,71 @@ class EventProcessor implements Runnable {
                     }
                 }
 
-                // run evalresp
-                // If it fails, throw MOD files to trash
-                try {
-                    if (!runEvalresp(headerMap, respPath)) {
+                int npts = Integer.parseInt(headerMap.get(SACHeaderEnum.NPTS));
+                double[][] response;
+                if (inProcessResponse) {
+                    // evaluate instrument response
+                    // If it fails, throw MOD files to trash
+                    try {
+                        response = readResponse(modFile, respPath).computeVelocityResponse(npts, samplingHz);
+                    } catch (IOException | RuntimeException e) {
+                        GadgetAid.dualPrintln(eliminatedWriter, "!! response evaluation failed : " + event.getGlobalCMTID() + " - " + afterName);
+                        e.printStackTrace();
+                        // throw MOD.* files which cannot produce response to trash
+                        FileAid.moveToDirectory(modPath, invalidRespPath, true);
+                        continue;
+                    }
+                } else {
+                    // run evalresp
+                    // If it fails, throw MOD files to trash
+                    try {
+                        if (!runEvalresp(headerMap, respPath)) {
+                            GadgetAid.dualPrintln(eliminatedWriter, "!! evalresp failed : " + event.getGlobalCMTID() + " - " + afterName);
+                            // throw MOD.* files which cannot produce SPECTRA to trash
+                            FileAid.moveToDirectory(modPath, invalidRespPath, true);
+                            continue;
+                        }
+                    } catch (IOException e) {
                         GadgetAid.dualPrintln(eliminatedWriter, "!! evalresp failed : " + event.getGlobalCMTID() + " - " + afterName);
+                        e.printStackTrace();
                         // throw MOD.* files which cannot produce SPECTRA to trash
                         FileAid.moveToDirectory(modPath, invalidRespPath, true);
                         continue;
                     }
-                } catch (IOException e) {
-                    GadgetAid.dualPrintln(eliminatedWriter, "!! evalresp failed : " + event.getGlobalCMTID() + " - " + afterName);
-                    e.printStackTrace();
-                    // throw MOD.* files which cannot produce SPECTRA to trash
-                    FileAid.moveToDirectory(modPath, invalidRespPath, true);
-                    continue;
-                }
-                // spectra file should be created by evalresp; if not, throw away the MOD file
-                if(!Files.exists(spectraPath)) {
-                    GadgetAid.dualPrintln(eliminatedWriter, "!! spectra file not created : " + event.getGlobalCMTID() + " - " + afterName);
-                    // throw MOD.* files which cannot produce SPECTRA to trash
-                    FileAid.moveToDirectory(modPath, invalidRespPath, true);
-                    continue;
+                    // spectra file should be created by evalresp; if not, throw away the MOD file
+                    if(!Files.exists(spectraPath)) {
+                        GadgetAid.dualPrintln(eliminatedWriter, "!! spectra file not created : " + event.getGlobalCMTID() + " - " + afterName);
+                        // throw MOD.* files which cannot produce SPECTRA to trash
+                        FileAid.moveToDirectory(modPath, invalidRespPath, true);
+                        continue;
+                    }
+                    response = SacDeconvolution.readSpectraFile(spectraPath, npts);
                 }
 
-                int npts = Integer.parseInt(headerMap.get(SACHeaderEnum.NPTS));
-
-                SacDeconvolution sd = new SacDeconvolution(modPath, spectraPath, afterPath, samplingHz / npts, samplingHz);
+                SacDeconvolution sd = new SacDeconvolution(modPath, response, afterPath, samplingHz / npts, samplingHz);
 
                 // execute deconvolution
                 try {
                     sd.compute();
-                } catch (IOException e) {
+                } catch (IOException | RuntimeException e) {
                     GadgetAid.dualPrintln(eliminatedWriter, "!! deconvolution failed : " + event.getGlobalCMTID() + " - " + afterName);
                     e.printStackTrace();
                     // throw *.MOD files to trash
                     FileAid.moveToDirectory(modPath, invalidRespPath, true);
                     // throw SPECTRA files to trash
-                    FileAid.moveToDirectory(spectraPath, invalidRespPath, true);
+                    if (!inProcessResponse) FileAid.moveToDirectory(spectraPath, invalidRespPath, true);
                     continue;
                 }
 
                 if(sd.isNaN()) {
-                    GadgetAid.dualPrintln(eliminatedWriter, "!! spectra file is NaN or empty : " + event.getGlobalCMTID() + " - " + afterName);
+                    GadgetAid.dualPrintln(eliminatedWriter, "!! response is NaN or empty : " + event.getGlobalCMTID() + " - " + afterName);
                     FileAid.moveToDirectory(modPath, invalidRespPath, true);
-                    FileAid.moveToDirectory(spectraPath, invalidRespPath, true);
+                    if (!inProcessResponse) FileAid.moveToDirectory(spectraPath, invalidRespPath, true);
                     continue;
                 }
 
                 // move processed SPECTRA files to archive
-                FileAid.moveToDirectory(spectraPath, doneDeconvolvePath, true);
+                if (!inProcessResponse) FileAid.moveToDirectory(spectraPath, doneDeconvolvePath, true);
 
                 // move processed MOD files to archive
                 FileAid.moveToDirectory(modPath, doneDeconvolvePath, true);
@@ -587,6 +603,32 @@ class EventProcessor implements Runnable {
         return xProcess.waitFor() == 0;
     }
 
+    /**
+     * Reads the instrument response of a channel at the event time, to be used instead of running evalresp.
+     * The RESP file in "resp" is used if it exists; otherwise, the StationXML file in "station" is used.
+     * <p>
+     * The response gives that from velocity(input) to counts(output),
+     * no matter what the actual physical input of the instrument was,
+     * in the same way as "evalresp ... -s lin -r cs -u vel".
+     *
+     * @param modFile ({@link SacFileName}) Name of SAC file to get the response for.
+     * @param respPath (Path) Path of RESP file of the channel.
+     * @return ({@link InstrumentResponse}) Instrument response.
+     * @throws IOException
+     */
+    private InstrumentResponse readResponse(SacFileName modFile, Path respPath) throws IOException {
+        String network = modFile.getNetwork();
+        String station = modFile.getStation();
+        String location = modFile.getLocation();
+        String channel = modFile.getChannel();
+        if (Files.exists(respPath))
+            return InstrumentResponse.fromRespFile(respPath, network, station, location, channel, event.getCMTTime());
+        Path xmlPath = inputStationSetPath.resolve("station." + network + "." + station + "." + location + "." + channel + ".xml");
+        if (Files.exists(xmlPath))
+            return InstrumentResponse.fromStationXml(xmlPath, network, station, location, channel, event.getCMTTime());
+        throw new NoSuchFileException(respPath.toString());
+    }
+
     /**
      * Converts/rotates all files with (.X, .Y) to (.R, .T).
      * Successful files are put in "doneRotate" the others in "unRotated".
@@ -594,6 +636,10 @@ class EventProcessor implements Runnable {
      */
     private void rotate() throws IOException {
 
+        // collect pairs
+        List<SacFileName> xFiles = new ArrayList<>();
+        List<Path[]> inputPairs = new ArrayList<>();
+        List<Path[]> outputPairs = new ArrayList<>();
         try (DirectoryStream<Path> xStream = Files.newDirectoryStream(outputPath, "*.X")) {
             for (Path xPath : xStream) {
                 SacFileName xFile = new SacFileName(xPath.getFileName().toString());
@@ -607,15 +653,24 @@ class EventProcessor implements Runnable {
                     FileAid.moveToDirectory(xPath, unRotatedPath, true);
                     continue;
                 }
-                boolean rotated = SACUtil.rotate(xPath, yPath, rPath, tPath);
-                if (rotated) {
-                    FileAid.moveToDirectory(xPath, doneRotatePath, true);
-                    FileAid.moveToDirectory(yPath, doneRotatePath, true);
-                } else {
-                    GadgetAid.dualPrintln(eliminatedWriter, "!! rotate failed : " + event.getGlobalCMTID() + " - " + xFile.toString());
-                    FileAid.moveToDirectory(xPath, unRotatedPath, true);
-                    FileAid.moveToDirectory(yPath, unRotatedPath, true);
-                }
+                xFiles.add(xFile);
+                inputPairs.add(new Path[] {xPath, yPath});
+                outputPairs.add(new Path[] {rPath, tPath});
+            }
+        }
+
+        // rotate all pairs at once
+        boolean[] rotated = SACUtil.rotate(inputPairs, outputPairs);
+        for (int i = 0; i < rotated.length; i++) {
+            Path xPath = inputPairs.get(i)[0];
+            Path yPath = inputPairs.get(i)[1];
+            if (rotated[i]) {
+                FileAid.moveToDirectory(xPath, doneRotatePath, true);
+                FileAid.moveToDirectory(yPath, doneRotatePath, true);
+            } else {
+                GadgetAid.dualPrintln(eliminatedWriter, "!! rotate failed : " + event.getGlobalCMTID() + " - " + xFiles.get(i).toString());
+                FileAid.moveToDirectory(xPath, unRotatedPath, true);
+                FileAid.moveToDirectory(yPath, unRotatedPath, true);
             }
         }
 
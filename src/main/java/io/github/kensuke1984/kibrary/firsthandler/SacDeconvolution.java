@@ -13,6 +13,7 @@ import org.apache.commons.math3.transform.DftNormalization;
 import org.apache.commons.math3.transform.FastFourierTransformer;
 import org.apache.commons.math3.transform.TransformType;
 
+import io.github.kensuke1984.kibrary.entrance.InstrumentResponse;
 import io.github.kensuke1984.kibrary.util.sac.SACHeaderEnum;
 import io.github.kensuke1984.kibrary.util.sac.SACUtil;
 
@@ -32,14 +33,21 @@ import io.github.kensuke1984.kibrary.util.sac.SACUtil;
 class SacDeconvolution {
 
     private final Path sourcePath;
-    private final Path spectraPath;
     private final Path outputPath;
+    /**
+     * Real parts of the response at frequencies (i+1)*maxFreq/npts
+     */
+    private final double[] respReal;
+    /**
+     * Imaginary parts of the response at frequencies (i+1)*maxFreq/npts
+     */
+    private final double[] respImag;
 
     private final double minFreq;
     private final double maxFreq;
 
     /**
-     * true: sretraFile contain NaN, false: spectraFile in NOT contain NaN
+     * true: response contains NaN, false: response does NOT contain NaN
      */
     private boolean isNaN = false;
 
@@ -64,14 +72,17 @@ class SacDeconvolution {
 
     /**
      * @param sourcePath 元になるSacFile
-     * @param spectraPath   evalrespにより作成したスペクトルファイル
+     * @param response   velocity response {real parts, imaginary parts} at frequencies (i+1)*maxFreq/npts for i=[0, npts/2],
+     *                   such as that computed by {@link InstrumentResponse#computeVelocityResponse(int, double)}
+     *                   or read from a spectra file of evalresp by {@link #readSpectraFile(Path, int)}
      * @param outputPath 装置関数を外したSacFile
      * @param minFreq       minimum frequency
      * @param maxFreq       maximum frequency
      */
-    SacDeconvolution(Path sourceSacPath, Path spectraPath, Path outputSacPath, double minFreq, double maxFreq) {
+    SacDeconvolution(Path sourceSacPath, double[][] response, Path outputSacPath, double minFreq, double maxFreq) {
         sourcePath = sourceSacPath;
-        this.spectraPath = spectraPath;
+        respReal = response[0];
+        respImag = response[1];
         outputPath = outputSacPath;
         this.minFreq = minFreq;
         this.maxFreq = maxFreq;
@@ -83,6 +94,19 @@ class SacDeconvolution {
         double[] wavedata = SACUtil.readSACData(sourcePath);
 
         int npts = Integer.parseInt(sacHeader.get(SACHeaderEnum.NPTS));
+        if (respReal.length < npts / 2 + 1 || respImag.length < npts / 2 + 1)
+            throw new IllegalArgumentException("Response is too short for " + sourcePath);
+
+        Complex[] resp = new Complex[npts / 2 + 1];
+        double[] freq = new double[npts / 2 + 1];
+        for (int i = 0; i < resp.length; i++) {
+            freq[i] = (i + 1) * maxFreq / npts;
+            resp[i] = new Complex(respReal[i], respImag[i]);
+            if (resp[i].isNaN()) {
+                isNaN = true;
+                return;
+            }
+        }
 
         // 読み込んだwavedataにテーパーをかける
         if (taperAreaRatio != 0) taperInTimeDomain(wavedata);
@@ -91,17 +115,9 @@ class SacDeconvolution {
         // フーリエ変換 波形を周波数空間へ
         complexWave = fft.transform(complexWave, TransformType.FORWARD);
 
-        Complex[] resp = new Complex[npts];
-        double[] freq = new double[npts];
-        readResponseFile(spectraPath, freq, resp);
-
-        if (isNaN) {
-            return;
-        }
-
         // cut frequencyセット
         double cutfreq = 0.01;
-        for (int i = 0; i < npts; i++)
+        for (int i = 0; i < freq.length; i++)
             if (0.005 <= freq[i]) break;
             else if (0 < resp[i].getReal()) cutfreq = 1 / 360.0;
 
@@ -177,39 +193,34 @@ class SacDeconvolution {
 
     /**
      * スペクトルファイルを読み込む
+     * <p>
+     * Entries that cannot be read, or that are missing because the file is short or empty, are set to NaN.
      *
-     * @param spectorPath path for the file
-     * @param freq        frequency data
-     * @param resp        response data
-     * @param isNaN       file contains NaN or file is empty
+     * @param spectraPath (Path) Spectra file created by evalresp with "-s lin -r cs", for frequencies from maxFreq/npts to maxFreq
+     * @param npts (int) Number of points in time domain
+     * @return (double[][]) {real parts, imaginary parts} at frequencies (i+1)*maxFreq/npts for i=[0, npts/2]
+     * @throws IOException
      */
-    private void readResponseFile(Path spectorPath, double[] freq, Complex[] resp) throws IOException {
-        List<String> lines = Files.readAllLines(spectorPath);
-
-        if (lines.size() <= 0) {
-            isNaN = true;
-        }
-
-        for (int i = 0; i < lines.size(); i++) {
-            String[] parts = lines.get(i).split("\\s+");
-
+    static double[][] readSpectraFile(Path spectraPath, int npts) throws IOException {
+        List<String> lines = Files.readAllLines(spectraPath);
+        double[][] response = new double[2][npts / 2 + 1];
+        Arrays.fill(response[0], Double.NaN);
+        Arrays.fill(response[1], Double.NaN);
+
+        for (int i = 0; i < Math.min(lines.size(), npts / 2 + 1); i++) {
+            String[] parts = lines.get(i).trim().split("\\s+");
             try {
-                freq[i] = Double.parseDouble(parts[0]);
-                resp[i] = new Complex(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
-            } catch (NumberFormatException e) {
-                isNaN = true;
-                break;
-            }
-
-            if (resp[i] == null || resp[i].isNaN()) {
-                isNaN = true;
+                response[0][i] = Double.parseDouble(parts[1]);
+                response[1][i] = Double.parseDouble(parts[2]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
                 break;
             }
         }
+        return response;
     }
 
     /*
-     * @return (boolean) spectra file contain NaN
+     * @return (boolean) response contains NaN
      */
     boolean isNaN() {
         return isNaN;
@@ -9,7 +9,6 @@ import java.util.Map;
 import org.apache.commons.math3.linear.ArrayRealVector;
 import org.apache.commons.math3.linear.RealVector;
 
-import io.github.kensuke1984.kibrary.external.SAC;
 import io.github.kensuke1984.kibrary.util.MathAid;
 import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTAccess;
 import io.github.kensuke1984.kibrary.util.sac.SACHeaderEnum;
@@ -121,19 +120,11 @@ class SacModifier {
     }
 
     /**
-     * Operates rtrend and rmean in SAC. The output is written to a new SAC file with the name ??.MOD
+     * Operates rtrend and rmean as in SAC. The output is written to a new SAC file with the name ??.MOD
      * @throws IOException
      */
     void removeTrend() throws IOException {
-        try (SAC sacProcess = SAC.createProcess()) {
-            String cwd = sacPath.getParent().toString();
-            sacProcess.inputCMD("cd " + cwd);
-            sacProcess.inputCMD("r " + sacPath.getFileName());
-            sacProcess.inputCMD("ch lovrok true");
-            sacProcess.inputCMD("rtrend");
-            sacProcess.inputCMD("rmean");
-            sacProcess.inputCMD("w " + modifiedPath.getFileName());
-        }
+        SACUtil.removeTrend(sacPath, modifiedPath);
     }
 
     /**
@@ -248,21 +239,8 @@ class SacModifier {
         if (npts > maxNpts) npts = maxNpts;
         int newNpts = Integer.highestOneBit(npts);
         // cut SAC file to start at 0 (event time) and end at new npts
-        String cwd = sacPath.getParent().toString();
-        try (SAC sacP1 = SAC.createProcess()) {
-            sacP1.inputCMD("cd " + cwd);
-            sacP1.inputCMD("r " + modifiedPath.getFileName());
-            sacP1.inputCMD("interpolate b 0");
-            sacP1.inputCMD("w over");
-        }
-        try (SAC sacP2 = SAC.createProcess()) {
-            // current directoryをうつす
-            sacP2.inputCMD("cd " + cwd);
-            // TODO: "cut b n" does not work in new SAC versions (102.0 and later?)
-            sacP2.inputCMD("cut b n " + newNpts);
-            sacP2.inputCMD("r " + modifiedPath.getFileName());
-            sacP2.inputCMD("w over");
-        }
+        SACUtil.interpolate(modifiedPath, 0, delta);
+        SACUtil.cut(modifiedPath, newNpts);
         // ヘッダーの更新
         this.headerMap = SACUtil.readHeader(modifiedPath);
     }
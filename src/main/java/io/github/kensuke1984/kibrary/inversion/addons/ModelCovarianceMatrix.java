@@ -17,6 +17,7 @@ import org.apache.commons.math3.util.Precision;
 
 import io.github.kensuke1984.kibrary.elastic.VariableType;
 import io.github.kensuke1984.kibrary.util.earth.FullPosition;
+import io.github.kensuke1984.kibrary.util.earth.HorizontalPositionArray;
 import io.github.kensuke1984.kibrary.voxel.Physical3DParameter;
 import io.github.kensuke1984.kibrary.voxel.UnknownParameter;
 
@@ -304,13 +305,20 @@ public class ModelCovarianceMatrix {
         List<List<Integer>> tmpIndexes = new ArrayList<>();
         List<List<Double>> tmpValues = new ArrayList<>();
 
+        FullPosition[] positions = new FullPosition[n];
+        for (int i = 0; i < n; i++)
+            positions[i] = parameters.get(i).getPosition();
+        HorizontalPositionArray positionArray = new HorizontalPositionArray(positions);
+        double[] distances = new double[n];
+
         for (int i = 0; i < n; i++) {
             List<Integer> tmpI = new ArrayList<>();
             List<Double> tmpV = new ArrayList<>();
+            FullPosition loci = positions[i];
+            positionArray.computeEpicentralDistanceRad(loci, distances);
             for (int j = 0; j < n ; j++) {
-                FullPosition loci = parameters.get(i).getPosition();
-                FullPosition locj = parameters.get(j).getPosition();
-                double delta = Math.toDegrees(loci.computeEpicentralDistanceRad(locj));
+                FullPosition locj = positions[j];
+                double delta = Math.toDegrees(distances[j]);
                 double dr = Math.abs(loci.getR() - locj.getR());
                 double cmH = 0;
                 double cmV = 0;
@@ -0,0 +1,188 @@
+package io.github.kensuke1984.kibrary.math;
+
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+
+/**
+ * Correlation of a short waveform slid along a longer one.
+ * <p>
+ * For each lag k = 0, ..., nL-nS (nL and nS are the lengths of the longer and shorter arrays),
+ * the correlation coefficient
+ * c[k] = &Sigma;<sub>j</sub> longer[k+j] shorter[j] / (|longer[k, k+nS)| |shorter|)
+ * is computed.
+ * The dot products are computed by FFT (or directly when that is cheaper),
+ * and the norms of the sliding windows are taken from a cumulative sum,
+ * so no array is allocated for each lag.
+ * <p>
+ * For windows of the longer array whose energy is negligible compared to that of the whole array,
+ * the rounding errors of the FFT and of the cumulative sum can be larger than the values themselves,
+ * so the dot products and norms of such windows are computed directly.
+ * The results are thus those of the direct computation for every lag, within rounding errors.
+ * Lags where either window has no energy are given NaN (0/0), as in the direct computation;
+ * use {@link #indexOfMax(double[])} to skip them.
+ *
+ * @since 2026/10/18
+ */
+public final class CrossCorrelation {
+
+    /**
+     * Windows with energy below this ratio to the total energy are regarded as silent, and computed directly.
+     */
+    private static final double SILENT_RATIO = 1e-12;
+
+    private CrossCorrelation() {
+    }
+
+    /**
+     * Dot products of the shorter array and each window of the longer array.
+     *
+     * @param longer (double[]) Array to slide along.
+     * @param shorter (double[]) Array to slide. Must not be longer than longer.
+     * @return (double[]) Dot products for lags 0, ..., longer.length-shorter.length.
+     */
+    public static double[] slidingDotProducts(double[] longer, double[] shorter) {
+        int nL = longer.length;
+        int nS = shorter.length;
+        if (nS == 0 || nL < nS)
+            throw new IllegalArgumentException("Invalid lengths: " + nL + " and " + nS + ".");
+        int nLag = nL - nS + 1;
+        int nFFT = Integer.highestOneBit(nL) == nL ? nL : Integer.highestOneBit(nL) * 2;
+        // roughly, 3 transforms of nFFT points cost 15 nFFT log2(nFFT) operations
+        if ((long) nLag * nS <= 15L * nFFT * Integer.numberOfTrailingZeros(nFFT))
+            return directDotProducts(longer, shorter, nLag);
+
+        // circular correlation of nFFT points has no wrap-around for lags 0, ..., nL-nS
+        double[][] l = new double[2][nFFT];
+        double[][] s = new double[2][nFFT];
+        System.arraycopy(longer, 0, l[0], 0, nL);
+        System.arraycopy(shorter, 0, s[0], 0, nS);
+        FastFourierTransformer.transformInPlace(l, DftNormalization.STANDARD, TransformType.FORWARD);
+        FastFourierTransformer.transformInPlace(s, DftNormalization.STANDARD, TransformType.FORWARD);
+        // L * conj(S)
+        for (int i = 0; i < nFFT; i++) {
+            double re = l[0][i] * s[0][i] + l[1][i] * s[1][i];
+            double im = l[1][i] * s[0][i] - l[0][i] * s[1][i];
+            l[0][i] = re;
+            l[1][i] = im;
+        }
+        FastFourierTransformer.transformInPlace(l, DftNormalization.STANDARD, TransformType.INVERSE);
+        double[] products = new double[nLag];
+        System.arraycopy(l[0], 0, products, 0, nLag);
+        return products;
+    }
+
+    private static double[] directDotProducts(double[] longer, double[] shorter, int nLag) {
+        double[] products = new double[nLag];
+        for (int k = 0; k < nLag; k++) {
+            double sum = 0;
+            for (int j = 0; j < shorter.length; j++)
+                sum += longer[k + j] * shorter[j];
+            products[k] = sum;
+        }
+        return products;
+    }
+
+    /**
+     * L2 norms of all windows of an array, in O(1) for each window except silent ones.
+     *
+     * @param data (double[]) Array to slide along.
+     * @param window (int) Length of the windows.
+     * @return (double[]) Norms of data[k, k+window) for k = 0, ..., data.length-window.
+     */
+    public static double[] slidingNorms(double[] data, int window) {
+        double[] norms = slidingEnergies(data, window, null);
+        for (int k = 0; k < norms.length; k++)
+            norms[k] = Math.sqrt(norms[k]);
+        return norms;
+    }
+
+    /**
+     * @param data (double[]) Array to slide along.
+     * @param window (int) Length of the windows.
+     * @param silent (boolean[]) Array to mark silent windows in, or null.
+     * @return (double[]) Energies of data[k, k+window) for k = 0, ..., data.length-window.
+     */
+    private static double[] slidingEnergies(double[] data, int window, boolean[] silent) {
+        if (window <= 0 || data.length < window)
+            throw new IllegalArgumentException("Invalid window " + window + " for " + data.length + " points.");
+        double[] cumulative = new double[data.length + 1];
+        for (int i = 0; i < data.length; i++)
+            cumulative[i + 1] = cumulative[i] + data[i] * data[i];
+        double threshold = cumulative[data.length] * SILENT_RATIO;
+        double[] energies = new double[data.length - window + 1];
+        for (int k = 0; k < energies.length; k++) {
+            double energy = cumulative[k + window] - cumulative[k];
+            if (energy <= threshold) {
+                energy = 0;
+                for (int j = k; j < k + window; j++)
+                    energy += data[j] * data[j];
+                if (silent != null) silent[k] = true;
+            }
+            energies[k] = energy;
+        }
+        return energies;
+    }
+
+    /**
+     * Correlation coefficients of the shorter array and each window of the longer array.
+     *
+     * @param longer (double[]) Array to slide along.
+     * @param shorter (double[]) Array to slide. Must not be longer than longer.
+     * @return (double[]) Correlation coefficients for lags 0, ..., longer.length-shorter.length.
+     * NaN for lags where either window has no energy.
+     */
+    public static double[] normalized(double[] longer, double[] shorter) {
+        double[] correlations = slidingDotProducts(longer, shorter);
+        boolean[] silent = new boolean[correlations.length];
+        double[] energies = slidingEnergies(longer, shorter.length, silent);
+        double shorterEnergy = 0;
+        for (double value : shorter)
+            shorterEnergy += value * value;
+        double shorterNorm = Math.sqrt(shorterEnergy);
+        for (int k = 0; k < correlations.length; k++) {
+            if (silent[k]) {
+                // the rounding error of the FFT may exceed the dot product itself
+                double sum = 0;
+                for (int j = 0; j < shorter.length; j++)
+                    sum += longer[k + j] * shorter[j];
+                correlations[k] = sum;
+            }
+            correlations[k] /= Math.sqrt(energies[k]) * shorterNorm;
+        }
+        return correlations;
+    }
+
+    /**
+     * @param values (double[]) Values to search.
+     * @return (int) Index of the first maximum, ignoring NaN. -1 if all values are NaN.
+     */
+    public static int indexOfMax(double[] values) {
+        int index = -1;
+        for (int i = 0; i < values.length; i++)
+            if (!Double.isNaN(values[i]) && (index < 0 || values[index] < values[i])) index = i;
+        return index;
+    }
+
+    /**
+     * Position of a peak below the sampling interval,
+     * from the vertex of the parabola through the peak and its neighbours.
+     *
+     * @param values (double[]) Values, such as correlation coefficients for each lag.
+     * @param index (int) Index of the peak, such as one given by {@link #indexOfMax(double[])}.
+     * @return (double) Offset of the vertex from index, in [-0.5, 0.5].
+     * 0 if the peak is at either end or a neighbour is NaN.
+     */
+    public static double interpolatePeak(double[] values, int index) {
+        if (index <= 0 || values.length - 1 <= index) return 0;
+        double before = values[index - 1];
+        double peak = values[index];
+        double after = values[index + 1];
+        double curvature = before - 2 * peak + after;
+        // NaN fails this check too
+        if (!(curvature < 0)) return 0;
+        double offset = 0.5 * (before - after) / curvature;
+        return Math.max(-0.5, Math.min(0.5, offset));
+    }
+
+}
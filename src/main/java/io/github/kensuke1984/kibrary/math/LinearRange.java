@@ -121,4 +121,18 @@ public class LinearRange {
         // otherwise
         return false;
     }
+
+    /**
+     * @return (double) Lower limit of the range.
+     */
+    public double getLowerLimit() {
+        return lowerLimit;
+    }
+
+    /**
+     * @return (double) Upper limit of the range.
+     */
+    public double getUpperLimit() {
+        return upperLimit;
+    }
 }
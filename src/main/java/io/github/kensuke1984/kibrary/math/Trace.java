@@ -27,6 +27,9 @@ import io.github.kensuke1984.kibrary.util.MathAid;
  * Utility for a function y = f(x).
  * <p>
  * This class is <b>IMMUTABLE</b>.
+ * Traces derived from another trace share the arrays that are not changed,
+ * and the indices of extrema are computed only when they are first asked for.
+ * For windows, resampling and in-place arithmetic in hot loops, see {@link TraceView} and {@link TraceBuffer}.
  * </p>
  * TODO sorted
  *
@@ -45,21 +48,21 @@ public final class Trace {
      * Upward convex is defined as
      * 0 &lt; (y(x[i])-y(x[i-1]))*(y(x[i])-y(x[i+1])) and y[i-1] &lt; y[i]
      */
-    private final int[] indexOfUpwardConvex;
+    private volatile int[] indexOfUpwardConvex;
     /**
      * Index of downward convex, ordered by the absolute values of the convex.
      * <p>
      * Downward convex is defined as
      * 0 &lt; (y(x[i])-y(x[i-1])) * (y(x[i]) - y(x[i+1])) and y[i] &lt; y[i-1]
      */
-    private final int[] indexOfDownwardConvex;
+    private volatile int[] indexOfDownwardConvex;
     /**
      * Index of a peak, ordered by the absolute values of the convex.
      * <p>
      * Peak is defined as
      * 0 &lt; (y(x[i])-y(x[i-1]))*(y(x[i])-y(x[i+1]))
      */
-    private final int[] indexOfPeak;
+    private volatile int[] indexOfPeak;
 
     /**
      * Create trace from arrays of x and y by deep copy.
@@ -67,19 +70,30 @@ public final class Trace {
      * @param y (double[]) Array for y.
      */
     public Trace(double[] x, double[] y) {
+        this(x, y, true);
+    }
+
+    /**
+     * @param x (double[]) Array for x.
+     * @param y (double[]) Array for y.
+     * @param copy (boolean) Whether to copy the arrays. If false, the arrays must not be changed afterwards.
+     */
+    private Trace(double[] x, double[] y, boolean copy) {
         if (x.length != y.length) throw new IllegalArgumentException("Input arrays have different lengths");
-        xArray = x.clone();
-        yArray = y.clone();
-        xVector = new ArrayRealVector(x, false);
-        yVector = new ArrayRealVector(y, false);
-        indexOfDownwardConvex = IntStream.range(1, xArray.length - 1)
-                .filter(i -> yArray[i] < yArray[i - 1] && 0 < (yArray[i + 1] - yArray[i]) * (yArray[i - 1] - yArray[i])).boxed()
-                .sorted(Comparator.comparingDouble(o -> -yArray[o] * yArray[o])).mapToInt(i -> i).toArray();
-        indexOfUpwardConvex = IntStream.range(1, xArray.length - 1)
-                .filter(i -> yArray[i - 1] < yArray[i] && 0 < (yArray[i + 1] - yArray[i]) * (yArray[i - 1] - yArray[i])).boxed()
-                .sorted(Comparator.comparingDouble(o -> -yArray[o] * yArray[o])).mapToInt(i -> i).toArray();
-        indexOfPeak = IntStream.range(1, xArray.length - 1).filter(i -> 0 < (yArray[i + 1] - yArray[i]) * (yArray[i - 1] - yArray[i])).boxed()
-                .sorted(Comparator.comparingDouble(o -> -yArray[o] * yArray[o])).mapToInt(i -> i).toArray();
+        xArray = copy ? x.clone() : x;
+        yArray = copy ? y.clone() : y;
+        xVector = new ArrayRealVector(xArray, false);
+        yVector = new ArrayRealVector(yArray, false);
+    }
+
+    /**
+     * Create trace from arrays without copying them. Only for arrays that are not referred to by anyone else.
+     * @param x (double[]) Array for x.
+     * @param y (double[]) Array for y.
+     * @return ({@link Trace}) Trace holding the arrays.
+     */
+    static Trace wrap(double[] x, double[] y) {
+        return new Trace(x, y, false);
     }
 
     /**
@@ -101,7 +115,7 @@ public final class Trace {
             x[i] = Double.parseDouble(parts[xColumn]);
             y[i] = Double.parseDouble(parts[yColumn]);
         }
-        return new Trace(x, y);
+        return wrap(x, y);
     }
 
     /**
@@ -133,6 +147,7 @@ public final class Trace {
 
     /**
      * 最も相関の高い位置を探す 探し方は、短い方をずらしていく 同じ長さだと探さない。
+     * Correlation for all shifts is computed at once by {@link CrossCorrelation}.
      *
      * @param base    array
      * @param compare array
@@ -149,53 +164,23 @@ public final class Trace {
             shorter = compare;
             longer = base;
         }
-        int gap = longer.length - shorter.length;
-        int bestShift = 0;
-        double bestCorrelation = 0;
-        for (int shift = 0; shift < gap + 1; shift++) {
-            double[] partY = new double[shorter.length];
-            System.arraycopy(longer, shift, partY, 0, shorter.length);
-            RealVector partYVec = new ArrayRealVector(partY);
-            RealVector shorterVec = new ArrayRealVector(shorter);
-            double correlation = partYVec.dotProduct(shorterVec) / partYVec.getNorm() / shorterVec.getNorm();
-            if (bestCorrelation < correlation) {
-                bestCorrelation = correlation;
-                bestShift = shift;
-            }
-            // System.out.println(correlation);
-        }
-
+        double[] correlations = CrossCorrelation.normalized(longer, shorter);
+        int bestShift = CrossCorrelation.indexOfMax(correlations);
+        // only positive correlation is accepted
+        if (bestShift < 0 || correlations[bestShift] <= 0) bestShift = 0;
         return compare.length < base.length ? bestShift : -bestShift;
     }
 
+    /**
+     * Same as {@link #findBestShift(double[], double[])}.
+     * The FFT in {@link CrossCorrelation} makes a parallel loop over shifts unnecessary.
+     *
+     * @param base    array
+     * @param compare array
+     * @return compareを何ポイントずらすか 0だと先頭から
+     */
     public static int findBestShiftParallel(double[] base, double[] compare) {
-        double[] shorter;
-        double[] longer;
-        if (base.length == compare.length) return 0;
-        if (base.length < compare.length) {
-            shorter = base;
-            longer = compare;
-        } else {
-            shorter = compare;
-            longer = base;
-        }
-        int gap = longer.length - shorter.length;
-        int bestShift = 0;
-        double bestCorrelation = 0;
-//        IntStream.range(0, gap + 1).parallel()
-        for (int shift = 0; shift < gap + 1; shift++) {
-            double[] partY = new double[shorter.length];
-            System.arraycopy(longer, shift, partY, 0, shorter.length);
-            RealVector partYVec = new ArrayRealVector(partY);
-            RealVector shorterVec = new ArrayRealVector(shorter);
-            double correlation = partYVec.dotProduct(shorterVec) / partYVec.getNorm() / shorterVec.getNorm();
-            if (bestCorrelation < correlation) {
-                bestCorrelation = correlation;
-                bestShift = shift;
-            }
-        }
-
-        return compare.length < base.length ? bestShift : -bestShift;
+        return findBestShift(base, compare);
     }
 
     /**
@@ -208,28 +193,13 @@ public final class Trace {
     public double findBestShift(Trace trace) {
         int gapLength = xArray.length - trace.getLength();
         if (gapLength <= 0) throw new IllegalArgumentException("Input trace must be shorter.");
-        double corMax = -1;
-        double compY2 = trace.yVector.getNorm();
-        double shift = 0;
-        for (int i = 0; i <= gapLength; i++) {
-            double cor = 0;
-            double y2 = 0;
-            for (int j = 0; j < trace.getLength(); j++) {
-                cor += yArray[i + j] * trace.yArray[j];
-                y2 += yArray[i + j] * yArray[i + j];
-            }
-//            cor /= y2 * compY2;
-            cor /= Math.sqrt(y2) * compY2;
-            if (corMax < cor) {
-                shift = xArray[i] - trace.xArray[0];
-                corMax = cor;
-            }
-        }
-        return shift;
+        int i = CrossCorrelation.indexOfMax(CrossCorrelation.normalized(yArray, trace.yArray));
+        return i < 0 ? 0 : xArray[i] - trace.xArray[0];
     }
 
     /**
      * Assume the interval of x is same as that of this.
+     * Among shifts with the same correlation, the last one is chosen.
      *
      * @param trace which length must be shorter than this.
      * @return the shift value x0 in x direction for best correlation.
@@ -237,21 +207,11 @@ public final class Trace {
     public double findBestShiftParallel(Trace trace) {
         int gapLength = xArray.length - trace.getLength();
         if (gapLength <= 0) throw new IllegalArgumentException("Input trace must be shorter.");
-        double compY2 = trace.yVector.getNorm();
-        double[] shifts = new double[gapLength + 1];
-        double[] cors = new double[gapLength + 1];
-        IntStream.range(0, gapLength + 1).parallel().forEach(i -> {
-            double cor = 0;
-            double y2 = 0;
-            for (int j = 0; j < trace.getLength(); j++) {
-                cor += yArray[i + j] * trace.yArray[j];
-                y2 += yArray[i + j] * yArray[i + j];
-            }
-            cor /= Math.sqrt(y2) * compY2;
-            shifts[i] = xArray[i] - trace.xArray[0];
-            cors[i] = cor;
-        });
-        return shifts[new ArrayRealVector(cors).getMaxIndex()];
+        double[] cors = CrossCorrelation.normalized(yArray, trace.yArray);
+        int best = -1;
+        for (int i = 0; i < cors.length; i++)
+            if (!Double.isNaN(cors[i]) && (best < 0 || cors[best] <= cors[i])) best = i;
+        return best < 0 ? xArray[0] - trace.xArray[0] : xArray[best] - trace.xArray[0];
     }
 
     public double findBestShiftConsiderAmplitude(Trace trace) {
@@ -311,10 +271,14 @@ public final class Trace {
      * then the value 'shift' should be -3
      *
      * @param shift (double) Value of shift
-     * @return ({@link Trace}) f (x - shift), the values in y are deep copied.
+     * @return ({@link Trace}) f (x - shift). The values in y are shared with this trace.
      */
     public Trace shiftX(double shift) {
-        return new Trace(Arrays.stream(xArray).map(d -> d + shift).toArray(), yArray);
+        double[] shiftedX = new double[xArray.length];
+        for (int i = 0; i < xArray.length; i++)
+            shiftedX[i] = xArray[i] + shift;
+        // y is shared as both are immutable
+        return wrap(shiftedX, yArray);
     }
 
     /**
@@ -325,7 +289,7 @@ public final class Trace {
      * @author otsuru
      */
     public Trace withXAs(double[] xNew) {
-        return new Trace(xNew, yArray);
+        return wrap(xNew.clone(), yArray);
     }
 
     /**
@@ -338,7 +302,7 @@ public final class Trace {
      * @since 2023/3/11
      */
     public Trace subTrace(int iStart, int iEnd) {
-        return new Trace(Arrays.copyOfRange(xArray, iStart, iEnd), Arrays.copyOfRange(yArray, iStart, iEnd));
+        return wrap(Arrays.copyOfRange(xArray, iStart, iEnd), Arrays.copyOfRange(yArray, iStart, iEnd));
     }
 
     /**
@@ -352,9 +316,13 @@ public final class Trace {
      * @since 2023/3/19
      */
     public Trace resampleByStep(int iStart, int step, int npts) {
-        double[] sampledX = IntStream.range(0, npts).parallel().mapToDouble(i -> xArray[iStart + i * step]).toArray();
-        double[] sampledY = IntStream.range(0, npts).parallel().mapToDouble(i -> yArray[iStart + i * step]).toArray();
-        return new Trace(sampledX, sampledY);
+        double[] sampledX = new double[npts];
+        double[] sampledY = new double[npts];
+        for (int i = 0; i < npts; i++) {
+            sampledX[i] = xArray[iStart + i * step];
+            sampledY[i] = yArray[iStart + i * step];
+        }
+        return wrap(sampledX, sampledY);
     }
 
     /**
@@ -478,7 +446,7 @@ public final class Trace {
      * @return ({@link Trace}) New trace that is truncated (deep copy).
      */
     public Trace truncateToLength(int length) {
-        return new Trace(Arrays.copyOfRange(xArray, 0, length), Arrays.copyOfRange(yArray, 0, length));
+        return wrap(Arrays.copyOfRange(xArray, 0, length), Arrays.copyOfRange(yArray, 0, length));
     }
 
     /**
@@ -489,7 +457,10 @@ public final class Trace {
      */
     public Trace add(Trace trace) {
         if (!Arrays.equals(xArray, trace.xArray)) throw new IllegalArgumentException("Trace to be added has different X axis.");
-        return new Trace(xArray, yVector.add(trace.yVector).toArray());
+        double[] sum = new double[yArray.length];
+        for (int i = 0; i < sum.length; i++)
+            sum[i] = yArray[i] + trace.yArray[i];
+        return wrap(xArray, sum);
     }
     /**
      * Compute subtracttion of another trace from this trace.
@@ -499,7 +470,10 @@ public final class Trace {
      */
     public Trace subtract(Trace trace) {
         if (!Arrays.equals(xArray, trace.xArray)) throw new IllegalArgumentException("Trace to be added has different X axis.");
-        return new Trace(xArray, yVector.subtract(trace.yVector).toArray());
+        double[] difference = new double[yArray.length];
+        for (int i = 0; i < difference.length; i++)
+            difference[i] = yArray[i] - trace.yArray[i];
+        return wrap(xArray, difference);
     }
 
     /**
@@ -509,7 +483,10 @@ public final class Trace {
      * @return ({@link Trace}) New trace after multiplication.
      */
     public Trace multiply(double d) {
-        return new Trace(xArray, yVector.mapMultiply(d).toArray());
+        double[] product = new double[yArray.length];
+        for (int i = 0; i < product.length; i++)
+            product[i] = yArray[i] * d;
+        return wrap(xArray, product);
     }
 
     public double correlation(Trace trace) {
@@ -538,7 +515,7 @@ public final class Trace {
         for (double y : yArray)
             mean += y;
         mean /= yArray.length;
-        return new Trace(xArray, yVector.mapSubtract(mean).toArray());
+        return wrap(xArray, yVector.mapSubtract(mean).toArray());
     }
 
     /**
@@ -735,21 +712,42 @@ public final class Trace {
      * @return index of maximal and minimal points. The order follows the absolute values of the points.
      */
     public int[] getIndexOfPeak() {
-        return indexOfPeak.clone();
+        int[] index = indexOfPeak;
+        if (index == null)
+            indexOfPeak = index = sortByAbsoluteY(IntStream.range(1, xArray.length - 1)
+                    .filter(i -> 0 < (yArray[i + 1] - yArray[i]) * (yArray[i - 1] - yArray[i])));
+        return index.clone();
     }
 
     /**
      * @return index of minimal points. The order follows the absolute values of the points.
      */
     public int[] getIndexOfDownwardConvex() {
-        return indexOfDownwardConvex.clone();
+        int[] index = indexOfDownwardConvex;
+        if (index == null)
+            indexOfDownwardConvex = index = sortByAbsoluteY(IntStream.range(1, xArray.length - 1)
+                    .filter(i -> yArray[i] < yArray[i - 1] && 0 < (yArray[i + 1] - yArray[i]) * (yArray[i - 1] - yArray[i])));
+        return index.clone();
     }
 
     /**
      * @return index of maximal points. The order follows the absolute values of the points.
      */
     public int[] getIndexOfUpwardConvex() {
-        return indexOfUpwardConvex.clone();
+        int[] index = indexOfUpwardConvex;
+        if (index == null)
+            indexOfUpwardConvex = index = sortByAbsoluteY(IntStream.range(1, xArray.length - 1)
+                    .filter(i -> yArray[i - 1] < yArray[i] && 0 < (yArray[i + 1] - yArray[i]) * (yArray[i - 1] - yArray[i])));
+        return index.clone();
+    }
+
+    /**
+     * Computed at most a few times even if called from several threads at once, always with the same result.
+     * @param indices (IntStream) Indices to sort.
+     * @return (int[]) Indices in the descending order of |y|.
+     */
+    private int[] sortByAbsoluteY(IntStream indices) {
+        return indices.boxed().sorted(Comparator.comparingDouble(o -> -yArray[o] * yArray[o])).mapToInt(i -> i).toArray();
     }
 
     /**
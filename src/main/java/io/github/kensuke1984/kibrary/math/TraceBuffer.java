@@ -0,0 +1,190 @@
+package io.github.kensuke1984.kibrary.math;
+
+import java.util.Arrays;
+
+/**
+ * Mutable, uniformly sampled function y = f(x), changed in place.
+ * <p>
+ * This is for hot loops such as stacking and adding noise,
+ * where {@link Trace} would allocate new arrays for every operation.
+ * The x value of point i is x0 + i*dx.
+ * Use {@link #view()} or {@link #toTrace()} to pass the result on.
+ * <p>
+ * This class is NOT thread-safe.
+ *
+ * @since 2026/10/18
+ */
+public final class TraceBuffer {
+
+    private double[] y;
+    private int length;
+    private double x0;
+    private final double dx;
+
+    /**
+     * Buffer of zeros.
+     * @param length (int) Number of points.
+     * @param x0 (double) x of the first point.
+     * @param dx (double) Interval of x. Must be positive.
+     */
+    public TraceBuffer(int length, double x0, double dx) {
+        if (length < 0) throw new IllegalArgumentException("length must not be negative: " + length);
+        if (!(0 < dx)) throw new IllegalArgumentException("dx must be positive: " + dx);
+        this.y = new double[length];
+        this.length = length;
+        this.x0 = x0;
+        this.dx = dx;
+    }
+
+    /**
+     * @param view ({@link TraceView}) Initial content, copied.
+     * @return ({@link TraceBuffer}) Buffer with the same points as the view.
+     */
+    public static TraceBuffer copyOf(TraceView view) {
+        TraceBuffer buffer = new TraceBuffer(view.getLength(), view.getMinX(), view.getDx());
+        view.addTo(1, buffer.y, 0);
+        return buffer;
+    }
+
+    /**
+     * @return (int) Number of points.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @param i (int) Index of point.
+     * @return (double) x of the point.
+     */
+    public double getXAt(int i) {
+        return x0 + i * dx;
+    }
+
+    /**
+     * @param i (int) Index of point.
+     * @return (double) y of the point.
+     */
+    public double getYAt(int i) {
+        if (i < 0 || length <= i) throw new IndexOutOfBoundsException("Index " + i + " out of " + length + " points.");
+        return y[i];
+    }
+
+    /**
+     * @param i (int) Index of point.
+     * @param value (double) New y of the point.
+     */
+    public void setYAt(int i, double value) {
+        if (i < 0 || length <= i) throw new IndexOutOfBoundsException("Index " + i + " out of " + length + " points.");
+        y[i] = value;
+    }
+
+    /**
+     * Adds a view with the same x axis, in place.
+     * @param view ({@link TraceView}) Values to add.
+     * @return ({@link TraceBuffer}) This buffer.
+     */
+    public TraceBuffer add(TraceView view) {
+        return addScaled(1, view);
+    }
+
+    /**
+     * Subtracts a view with the same x axis, in place.
+     * @param view ({@link TraceView}) Values to subtract.
+     * @return ({@link TraceBuffer}) This buffer.
+     */
+    public TraceBuffer subtract(TraceView view) {
+        return addScaled(-1, view);
+    }
+
+    /**
+     * y += factor * view, in place.
+     * @param factor (double) Factor to multiply the view.
+     * @param view ({@link TraceView}) Values to add. The x axis must be the same as this buffer.
+     * @return ({@link TraceBuffer}) This buffer.
+     */
+    public TraceBuffer addScaled(double factor, TraceView view) {
+        if (view.getLength() != length || !sameGrid(view) || indexOf(view.getMinX()) != 0)
+            throw new IllegalArgumentException("Trace to be added has different X axis.");
+        view.addTo(factor, y, 0);
+        return this;
+    }
+
+    /**
+     * Multiplies y by a factor, in place.
+     * @param factor (double) Factor to multiply.
+     * @return ({@link TraceBuffer}) This buffer.
+     */
+    public TraceBuffer multiply(double factor) {
+        for (int i = 0; i < length; i++)
+            y[i] *= factor;
+        return this;
+    }
+
+    /**
+     * Shifts x, in place.
+     * @param shift (double) Value of shift. The buffer becomes f (x - shift).
+     * @return ({@link TraceBuffer}) This buffer.
+     */
+    public TraceBuffer shiftX(double shift) {
+        x0 += shift;
+        return this;
+    }
+
+    /**
+     * Adds a view onto the points of this buffer closest in x, extending the buffer with zeros when the view sticks out.
+     * The interval of x must be the same; x of the view does not have to be on the grid of this buffer.
+     * @param view ({@link TraceView}) Values to stack.
+     * @return ({@link TraceBuffer}) This buffer.
+     */
+    public TraceBuffer stack(TraceView view) {
+        if (!sameGrid(view)) throw new IllegalArgumentException("Trace to be stacked has different X interval.");
+        if (view.getLength() == 0) return this;
+        int from = indexOf(view.getMinX());
+        int to = from + view.getLength();
+        int head = Math.max(0, -from);
+        int newLength = Math.max(to, length) + head;
+        if (head > 0 || y.length < newLength) {
+            double[] grown = new double[Math.max(newLength, y.length + y.length / 2)];
+            System.arraycopy(y, 0, grown, head, length);
+            y = grown;
+            x0 -= head * dx;
+        }
+        length = newLength;
+        view.addTo(1, y, from + head);
+        return this;
+    }
+
+    /**
+     * Sets all values to 0, keeping the x axis.
+     * @return ({@link TraceBuffer}) This buffer.
+     */
+    public TraceBuffer clear() {
+        Arrays.fill(y, 0, length, 0);
+        return this;
+    }
+
+    /**
+     * @return ({@link TraceView}) View of the current values (no copy). Later changes to this buffer appear in the view,
+     * except when the buffer is extended by {@link #stack(TraceView)}.
+     */
+    public TraceView view() {
+        return TraceView.of(y, 0, 1, length, x0, dx);
+    }
+
+    /**
+     * @return ({@link Trace}) Trace of the current values (deep copy).
+     */
+    public Trace toTrace() {
+        return view().toTrace();
+    }
+
+    private boolean sameGrid(TraceView view) {
+        return Math.abs(view.getDx() - dx) <= dx * 1e-9;
+    }
+
+    private int indexOf(double x) {
+        return (int) Math.round((x - x0) / dx);
+    }
+
+}
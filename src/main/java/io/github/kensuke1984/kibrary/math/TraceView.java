@@ -0,0 +1,268 @@
+package io.github.kensuke1984.kibrary.math;
+
+import java.util.Arrays;
+
+import io.github.kensuke1984.kibrary.timewindow.Timewindow;
+import io.github.kensuke1984.kibrary.util.MathAid;
+
+/**
+ * Read-only view of a uniformly sampled function y = f(x), without copying the data.
+ * <p>
+ * The values are points offset, offset+stride, ..., offset+(length-1)*stride of a backing array,
+ * and the x value of point i is x0 + i*dx, which is computed instead of being stored.
+ * Cutting windows, resampling by a step and shifting x therefore only create a new view,
+ * in contrast to {@link Trace}, which copies its arrays each time.
+ * <p>
+ * This class is <b>IMMUTABLE</b> as long as the backing array is not changed.
+ * Views of a {@link TraceBuffer} follow the changes of the buffer.
+ *
+ * @since 2026/10/18
+ */
+public final class TraceView {
+
+    private final double[] y;
+    private final int offset;
+    private final int stride;
+    private final int length;
+    private final double x0;
+    private final double dx;
+
+    private TraceView(double[] y, int offset, int stride, int length, double x0, double dx) {
+        this.y = y;
+        this.offset = offset;
+        this.stride = stride;
+        this.length = length;
+        this.x0 = x0;
+        this.dx = dx;
+    }
+
+    /**
+     * View of a whole array.
+     * @param y (double[]) Backing array. Not copied.
+     * @param x0 (double) x of the first point.
+     * @param dx (double) Interval of x. Must be positive.
+     * @return ({@link TraceView}) View of the array.
+     */
+    public static TraceView of(double[] y, double x0, double dx) {
+        return of(y, 0, 1, y.length, x0, dx);
+    }
+
+    /**
+     * View of a part of an array.
+     * @param y (double[]) Backing array. Not copied.
+     * @param offset (int) Index of the first point in the backing array.
+     * @param stride (int) Step between points in the backing array. Must be positive.
+     * @param length (int) Number of points.
+     * @param x0 (double) x of the first point.
+     * @param dx (double) Interval of x between points of the view. Must be positive.
+     * @return ({@link TraceView}) View of the array.
+     */
+    public static TraceView of(double[] y, int offset, int stride, int length, double x0, double dx) {
+        if (stride <= 0 || length < 0 || offset < 0 || (0 < length && y.length <= offset + (long) (length - 1) * stride))
+            throw new IndexOutOfBoundsException("Invalid view (offset " + offset + ", stride " + stride + ", length " + length
+                    + ") of " + y.length + " points.");
+        if (!(0 < dx)) throw new IllegalArgumentException("dx must be positive: " + dx);
+        return new TraceView(y, offset, stride, length, x0, dx);
+    }
+
+    /**
+     * @return (int) Number of points.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return (double) Interval of x.
+     */
+    public double getDx() {
+        return dx;
+    }
+
+    /**
+     * @param i (int) Index of point.
+     * @return (double) x of the point.
+     */
+    public double getXAt(int i) {
+        return x0 + i * dx;
+    }
+
+    /**
+     * @param i (int) Index of point.
+     * @return (double) y of the point.
+     */
+    public double getYAt(int i) {
+        if (i < 0 || length <= i) throw new IndexOutOfBoundsException("Index " + i + " out of " + length + " points.");
+        return y[offset + i * stride];
+    }
+
+    /**
+     * @return (double) x of the first point.
+     */
+    public double getMinX() {
+        return x0;
+    }
+
+    /**
+     * @return (double) x of the last point.
+     */
+    public double getMaxX() {
+        return getXAt(length - 1);
+    }
+
+    /**
+     * @param target (double) x to look for.
+     * @return (int) Index of the point whose x is closest to target.
+     */
+    public int findNearestXIndex(double target) {
+        if (length <= 0) throw new IllegalArgumentException("n is invalid");
+        long i = Math.round((target - x0) / dx);
+        return (int) Math.max(0, Math.min(length - 1, i));
+    }
+
+    /**
+     * @param from (int) Start index, inclusive.
+     * @param to (int) End index, EXCLUSIVE.
+     * @return ({@link TraceView}) View of points from to to-1 (no copy).
+     */
+    public TraceView subView(int from, int to) {
+        if (from < 0 || to < from || length < to)
+            throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to + ") for " + length + " points.");
+        return new TraceView(y, offset + from * stride, stride, to - from, getXAt(from), dx);
+    }
+
+    /**
+     * Same as {@link Trace#resampleByStep(int, int, int)}, without copy.
+     * @param iStart (int) Start index of the range, inclusive.
+     * @param step (int) Interval in which to resample.
+     * @param npts (int) Number of points that the resampled view should include.
+     * @return ({@link TraceView}) Resampled view.
+     */
+    public TraceView resampleByStep(int iStart, int step, int npts) {
+        if (step <= 0) throw new IllegalArgumentException("step must be positive: " + step);
+        if (iStart < 0 || npts < 0 || (0 < npts && length <= iStart + (long) (npts - 1) * step))
+            throw new IndexOutOfBoundsException("Resampling exceeds " + length + " points.");
+        return new TraceView(y, offset + iStart * stride, stride * step, npts, getXAt(iStart), dx * step);
+    }
+
+    /**
+     * Same as {@link Trace#cutWindow(double, double, double)}, without copy.
+     * @param xStart (double) Start x of window (closest point will be chosen).
+     * @param xEnd (double) End x of window (used to decide number of points).
+     * @param samplingHz (double) Sampling rate of this view (used to decide number of points).
+     * @return ({@link TraceView}) View of the window.
+     */
+    public TraceView cutWindow(double xStart, double xEnd, double samplingHz) {
+        if (xStart < getMinX() || getMaxX() < xEnd)
+            throw new IllegalArgumentException("Specified time range exceeds x range.");
+        int iStart = findNearestXIndex(xStart);
+        int npts = (int) Math.round((xEnd - xStart) * samplingHz) + 1;
+        return subView(iStart, iStart + npts);
+    }
+
+    /**
+     * Same as {@link Trace#cutWindow(Timewindow, double)}, without copy.
+     * @param timewindow ({@link Timewindow}) Time window of cut range.
+     * @param samplingHz (double) Sampling rate of this view (used to decide number of points).
+     * @return ({@link TraceView}) View of the window.
+     */
+    public TraceView cutWindow(Timewindow timewindow, double samplingHz) {
+        return cutWindow(timewindow.getStartTime(), timewindow.getEndTime(), samplingHz);
+    }
+
+    /**
+     * Same as {@link Trace#resampleInWindow(double, double, double, double)}, without copy.
+     * @param xStart (double) Start x of window (closest point will be chosen).
+     * @param xEnd (double) End x of window (used to decide number of points).
+     * @param originalSamplingHz (double) Sampling rate of this view.
+     * @param finalSamplingHz (double) Sampling rate to resample. This must be able to divide originalSamplingHz.
+     * @return ({@link TraceView}) Resampled view of the window.
+     */
+    public TraceView resampleInWindow(double xStart, double xEnd, double originalSamplingHz, double finalSamplingHz) {
+        if (xStart < getMinX() || getMaxX() < xEnd)
+            throw new IllegalArgumentException("Specified time range exceeds x range.");
+        if (!MathAid.isInteger(originalSamplingHz / finalSamplingHz))
+            throw new IllegalArgumentException("originalSamplingHz/finalSamplingHz must be integer: " + originalSamplingHz + ", " + finalSamplingHz);
+        int iStart = findNearestXIndex(xStart);
+        int npts = (int) MathAid.floor((xEnd - xStart) * finalSamplingHz) + 1;
+        int step = (int) Math.round(originalSamplingHz / finalSamplingHz);
+        return resampleByStep(iStart, step, npts);
+    }
+
+    /**
+     * @param shift (double) Value of shift.
+     * @return ({@link TraceView}) f (x - shift), sharing the values with this view.
+     */
+    public TraceView shiftX(double shift) {
+        return new TraceView(y, offset, stride, length, x0 + shift, dx);
+    }
+
+    /**
+     * @param other ({@link TraceView}) View with the same number of points. x is not checked.
+     * @return (double) Dot product of the values.
+     */
+    public double dotProduct(TraceView other) {
+        if (length != other.length) throw new IllegalArgumentException("Views have different lengths: " + length + ", " + other.length);
+        double sum = 0;
+        for (int i = 0, j = offset, k = other.offset; i < length; i++, j += stride, k += other.stride)
+            sum += y[j] * other.y[k];
+        return sum;
+    }
+
+    /**
+     * @return (double) L2 norm of the values.
+     */
+    public double getNorm() {
+        return Math.sqrt(dotProduct(this));
+    }
+
+    /**
+     * @return (double) Maximum of the absolute values.
+     */
+    public double getLInfNorm() {
+        double max = 0;
+        for (int i = 0, j = offset; i < length; i++, j += stride)
+            max = Math.max(max, Math.abs(y[j]));
+        return max;
+    }
+
+    /**
+     * @return (double[]) Copy of the values.
+     */
+    public double[] toArray() {
+        if (stride == 1) return Arrays.copyOfRange(y, offset, offset + length);
+        double[] values = new double[length];
+        for (int i = 0, j = offset; i < length; i++, j += stride)
+            values[i] = y[j];
+        return values;
+    }
+
+    /**
+     * @return (double[]) x of all points.
+     */
+    public double[] getX() {
+        double[] x = new double[length];
+        for (int i = 0; i < length; i++)
+            x[i] = getXAt(i);
+        return x;
+    }
+
+    /**
+     * @return ({@link Trace}) Trace with the same points (deep copy).
+     */
+    public Trace toTrace() {
+        return Trace.wrap(getX(), toArray());
+    }
+
+    /**
+     * Adds the values of this view, multiplied by a factor, to a part of an array.
+     * @param factor (double) Factor to multiply.
+     * @param dest (double[]) Array to add to.
+     * @param destPos (int) Index in dest for the first point.
+     */
+    void addTo(double factor, double[] dest, int destPos) {
+        for (int i = 0, j = offset; i < length; i++, j += stride)
+            dest[destPos + i] += factor * y[j];
+    }
+
+}
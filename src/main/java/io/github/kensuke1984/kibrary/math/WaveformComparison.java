@@ -0,0 +1,184 @@
+package io.github.kensuke1984.kibrary.math;
+
+/**
+ * Quantities comparing observed and synthetic waveforms, accumulated in a single pass over primitive arrays.
+ * <p>
+ * For each pair of points (obs, syn), the energies of obs, syn, and the residual obs-syn, the cross term obs*syn,
+ * and the maximum, minimum, and maximum absolute values of obs and syn are updated at once.
+ * The normalized variance, correlation coefficient, and amplitude ratios are computed from these when requested.
+ * Compared to computing each of them through {@link org.apache.commons.math3.linear.RealVector} operations,
+ * no temporary vectors are created and the waveforms are read only once.
+ * The sums are taken in the same order as those operations, so the results are the same.
+ * <p>
+ * Several windows can be accumulated into one instance to obtain the values for the whole dataset.
+ * <p>
+ * This class is NOT thread-safe.
+ *
+ * @since 2026/10/18
+ */
+public final class WaveformComparison {
+
+    private int npts;
+    private double obsEnergy;
+    private double synEnergy;
+    private double crossEnergy;
+    private double residualEnergy;
+    private double obsMax = Double.NEGATIVE_INFINITY;
+    private double obsMin = Double.POSITIVE_INFINITY;
+    private double synMax = Double.NEGATIVE_INFINITY;
+    private double synMin = Double.POSITIVE_INFINITY;
+    private double obsAbsMax;
+    private double synAbsMax;
+
+    /**
+     * @param obs (double[]) Observed waveform.
+     * @param syn (double[]) Synthetic waveform. Must have the same length as obs.
+     * @return ({@link WaveformComparison}) Comparison of the waveforms.
+     */
+    public static WaveformComparison of(double[] obs, double[] syn) {
+        if (obs.length != syn.length)
+            throw new IllegalArgumentException("Waveforms have different lengths: " + obs.length + ", " + syn.length);
+        return new WaveformComparison().add(obs, 0, syn, 0, obs.length);
+    }
+
+    /**
+     * Adds a pair of waveform segments.
+     * @param obs (double[]) Observed waveform.
+     * @param obsFrom (int) Index of the first point to use in obs.
+     * @param syn (double[]) Synthetic waveform.
+     * @param synFrom (int) Index of the first point to use in syn.
+     * @param length (int) Number of points to use.
+     * @return ({@link WaveformComparison}) This instance.
+     */
+    public WaveformComparison add(double[] obs, int obsFrom, double[] syn, int synFrom, int length) {
+        checkRange(obs, obsFrom, length);
+        checkRange(syn, synFrom, length);
+        for (int i = 0; i < length; i++)
+            accumulate(obs[obsFrom + i], syn[synFrom + i]);
+        npts += length;
+        return this;
+    }
+
+    /**
+     * Adds a pair of waveforms, both multiplied by a weighting at each point.
+     * @param obs (double[]) Observed waveform.
+     * @param syn (double[]) Synthetic waveform. Must have the same length as obs.
+     * @param weighting (double[]) Weighting for each point. Must have the same length as obs.
+     * @return ({@link WaveformComparison}) This instance.
+     */
+    public WaveformComparison addWeighted(double[] obs, double[] syn, double[] weighting) {
+        if (obs.length != syn.length || obs.length != weighting.length)
+            throw new IllegalArgumentException("Lengths differ: obs " + obs.length + ", syn " + syn.length
+                    + ", weighting " + weighting.length);
+        for (int i = 0; i < obs.length; i++) {
+            double w = weighting[i];
+            // the residual is weighted after subtraction, as in (obs - syn) * W
+            double residual = (obs[i] - syn[i]) * w;
+            residualEnergy += residual * residual;
+            double o = obs[i] * w;
+            double s = syn[i] * w;
+            obsEnergy += o * o;
+            synEnergy += s * s;
+            crossEnergy += o * s;
+            updateExtremes(o, s);
+        }
+        npts += obs.length;
+        return this;
+    }
+
+    private void accumulate(double o, double s) {
+        double residual = o - s;
+        residualEnergy += residual * residual;
+        obsEnergy += o * o;
+        synEnergy += s * s;
+        crossEnergy += o * s;
+        updateExtremes(o, s);
+    }
+
+    private void updateExtremes(double o, double s) {
+        if (obsMax < o) obsMax = o;
+        if (o < obsMin) obsMin = o;
+        if (synMax < s) synMax = s;
+        if (s < synMin) synMin = s;
+        double absO = Math.abs(o);
+        double absS = Math.abs(s);
+        if (obsAbsMax < absO) obsAbsMax = absO;
+        if (synAbsMax < absS) synAbsMax = absS;
+    }
+
+    private static void checkRange(double[] data, int from, int length) {
+        if (from < 0 || length < 0 || data.length < from + length)
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + (from + length) + ") exceeds " + data.length + " points.");
+    }
+
+    /**
+     * @return (int) Number of points added.
+     */
+    public int getNpts() {
+        return npts;
+    }
+
+    /**
+     * @return (double) |obs-syn|<sup>2</sup> / |obs|<sup>2</sup>. MAY BE INFINITY or NaN!!
+     */
+    public double getVariance() {
+        return residualEnergy / obsEnergy;
+    }
+
+    /**
+     * @return (double) Correlation coefficient of obs and syn. MAY BE INFINITY or NaN!!
+     */
+    public double getCorrelation() {
+        return crossEnergy / (Math.sqrt(synEnergy) * Math.sqrt(obsEnergy));
+    }
+
+    /**
+     * @return (double) syn/obs ratio of maximum values. MAY BE NEGATIVE, INFINITY, or NaN!!
+     */
+    public double getPosSideRatio() {
+        return synMax / obsMax;
+    }
+
+    /**
+     * @return (double) syn/obs ratio of minimum values. MAY BE NEGATIVE, INFINITY, or NaN!!
+     */
+    public double getNegSideRatio() {
+        return synMin / obsMin;
+    }
+
+    /**
+     * @return (double) syn/obs ratio of maximum absolute values. MAY BE INFINITY or NaN!!
+     */
+    public double getAbsRatio() {
+        return synAbsMax / obsAbsMax;
+    }
+
+    /**
+     * @return (double) L2 norm of obs.
+     */
+    public double getObsNorm() {
+        return Math.sqrt(obsEnergy);
+    }
+
+    /**
+     * @return (double) L2 norm of syn.
+     */
+    public double getSynNorm() {
+        return Math.sqrt(synEnergy);
+    }
+
+    /**
+     * @param data (double[]) Waveform.
+     * @param from (int) Start index, inclusive.
+     * @param to (int) End index, exclusive.
+     * @return (double) L2 norm of data[from, to).
+     */
+    public static double norm(double[] data, int from, int to) {
+        checkRange(data, from, to - from);
+        double energy = 0;
+        for (int i = from; i < to; i++)
+            energy += data[i] * data[i];
+        return Math.sqrt(energy);
+    }
+
+}
@@ -3,6 +3,7 @@ package io.github.kensuke1984.kibrary.selection;
 import org.apache.commons.math3.linear.RealVector;
 import org.apache.commons.math3.util.Precision;
 
+import io.github.kensuke1984.kibrary.math.WaveformComparison;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
 
 /**
@@ -50,26 +51,47 @@ public class DataFeature {
     }
 
     public static DataFeature create(TimewindowData timewindow, RealVector obsU, RealVector synU, double snRatio, boolean selected) {
-        if (obsU.getDimension() < synU.getDimension())
-            synU = synU.getSubVector(0, obsU.getDimension() - 1);
-        else if (synU.getDimension() < obsU.getDimension())
-            obsU = obsU.getSubVector(0, synU.getDimension() - 1);
+        return create(timewindow, obsU.toArray(), synU.toArray(), snRatio, selected);
+    }
 
+    /**
+     * @param timewindow ({@link TimewindowData}) Time window of the waveforms.
+     * @param obs (double[]) Observed waveform.
+     * @param syn (double[]) Synthetic waveform.
+     * @param snRatio (double) Signal-to-noise ratio.
+     * @param selected (boolean) Whether the time window is selected.
+     * @return ({@link DataFeature}) Features of the waveforms, computed in one pass by {@link WaveformComparison}.
+     *
+     * @since 2026/10/18
+     */
+    public static DataFeature create(TimewindowData timewindow, double[] obs, double[] syn, double snRatio, boolean selected) {
+        // when the lengths differ, the longer one is cut to the length of the other
+        int npts = Math.min(obs.length, syn.length);
+        return create(timewindow, new WaveformComparison().add(obs, 0, syn, 0, npts), snRatio, selected);
+    }
+
+    /**
+     * @param timewindow ({@link TimewindowData}) Time window of the waveforms.
+     * @param comparison ({@link WaveformComparison}) Comparison of observed and synthetic waveforms.
+     * @param snRatio (double) Signal-to-noise ratio.
+     * @param selected (boolean) Whether the time window is selected.
+     * @return ({@link DataFeature}) Features of the waveforms.
+     *
+     * @since 2026/10/18
+     */
+    public static DataFeature create(TimewindowData timewindow, WaveformComparison comparison, double snRatio, boolean selected) {
         // variance
-        RealVector resid = obsU.subtract(synU);
-        double var = resid.dotProduct(resid) / obsU.dotProduct(obsU);
         // "Math.abs()" is to exclude -Infinity.
-        double variance = Math.abs(Precision.round(var, DECIMALS));
+        double variance = Math.abs(Precision.round(comparison.getVariance(), DECIMALS));
 
         // ratio
-        double posSideRatio = Precision.round(synU.getMaxValue() / obsU.getMaxValue(), DECIMALS);
-        double negSideRatio = Precision.round(synU.getMinValue() / obsU.getMinValue(), DECIMALS);
+        double posSideRatio = Precision.round(comparison.getPosSideRatio(), DECIMALS);
+        double negSideRatio = Precision.round(comparison.getNegSideRatio(), DECIMALS);
         // "Math.abs()" is to exclude -Infinity.
-        double absRatio = Math.abs(Precision.round(synU.getLInfNorm() / obsU.getLInfNorm(), DECIMALS));
+        double absRatio = Math.abs(Precision.round(comparison.getAbsRatio(), DECIMALS));
 
         // correlation
-        double cor = obsU.dotProduct(synU) / (synU.getNorm() * obsU.getNorm());
-        double correlation = Precision.round(cor, DECIMALS);
+        double correlation = Precision.round(comparison.getCorrelation(), DECIMALS);
 
         return new DataFeature(timewindow, variance, correlation, posSideRatio, negSideRatio, absRatio, snRatio, selected);
     }
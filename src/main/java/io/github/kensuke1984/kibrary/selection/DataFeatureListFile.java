@@ -1,17 +1,29 @@
 package io.github.kensuke1984.kibrary.selection;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
 import io.github.kensuke1984.anisotime.Phase;
+import io.github.kensuke1984.kibrary.math.LinearRange;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
 import io.github.kensuke1984.kibrary.util.InformationFileReader;
 import io.github.kensuke1984.kibrary.util.MathAid;
@@ -22,7 +34,7 @@ import io.github.kensuke1984.kibrary.util.sac.SACComponent;
 
 
 /**
- * File containing information of data features. Ascii-format.
+ * File containing information of data features. Ascii-format or binary-format.
  * <p>
  * The following values are output for each timewindow.
  * <ul>
@@ -33,6 +45,21 @@ import io.github.kensuke1984.kibrary.util.sac.SACComponent;
  * <li> correlation coefficient of observed and synthetic waveforms </li>
  * <li> S/N ratio </li>
  * </ul>
+ * <p>
+ * In the binary format, written by {@link #writeBinary(Collection, Path, OpenOption...)}, the values are stored in columns:
+ * <ul>
+ * <li> int magic number {@value #MAGIC}, int number of time windows, int number of time windows in a block </li>
+ * <li> dictionaries of observers (int size; UTF station, UTF network, double latitude, double longitude each),
+ * events (int size; UTF ID each), phases (int size; UTF name each),
+ * and sets of phases (int size; short number of phases and int index of each phase, each) </li>
+ * <li> columns for all time windows: int observer index, int event index, byte component number, int index of phase set,
+ * double start time, double end time, then double columns of the features in the order of {@link #FEATURE_NAMES},
+ * and byte selected (1 or 0) </li>
+ * <li> for each feature column and each block, double minimum and double maximum (NaN values excluded) </li>
+ * </ul>
+ * Threshold selections can be done on a {@link Table} read from this file,
+ * where blocks whose minimum and maximum do not overlap the thresholds are skipped.
+ * {@link #read(Path)} reads either format.
  *
  * @author ?
  * @since a long time ago
@@ -41,6 +68,19 @@ import io.github.kensuke1984.kibrary.util.sac.SACComponent;
 public class DataFeatureListFile {
     private DataFeatureListFile() {}
 
+    /**
+     * Magic number at the beginning of a binary-format file ("DFL1"). Ascii files never start with this.
+     */
+    public static final int MAGIC = 0x44464c31;
+    /**
+     * Names of the feature columns, in the order they are stored.
+     */
+    public static final String[] FEATURE_NAMES = {"posSideRatio", "negSideRatio", "absRatio", "variance", "correlation", "S/N"};
+    /**
+     * Number of time windows in a block for which minimum and maximum values are stored.
+     */
+    private static final int BLOCK_SIZE = 4096;
+
     public static void write(Set<DataFeature> featureSet, Path outputPath, OpenOption... options) throws IOException {
         System.err.println("Outputting data feature values for "
                 + MathAid.switchSingularPlural(featureSet.size(), "timewindow", "timewindows")
@@ -53,7 +93,68 @@ public class DataFeatureListFile {
         }
     }
 
+    /**
+     * Writes data features in binary format.
+     * @param features (Collection of {@link DataFeature}) Data features to write.
+     * @param outputPath (Path) Output file.
+     * @param options (OpenOption...) Options for writing.
+     * @throws IOException if an I/O error occurs
+     *
+     * @since 2026/10/18
+     */
+    public static void writeBinary(Collection<DataFeature> features, Path outputPath, OpenOption... options) throws IOException {
+        System.err.println("Outputting data feature values for "
+                + MathAid.switchSingularPlural(features.size(), "timewindow", "timewindows")
+                + " in " + outputPath + " (binary)");
+        Table table = new Table(features);
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputPath, options)))) {
+            table.write(dos);
+        }
+    }
+
+    /**
+     * Reads data features from a file in either ascii or binary format.
+     * @param inputPath (Path) The {@link DataFeatureListFile} to read.
+     * @return (Set of {@link DataFeature}) Data features that are read.
+     * @throws IOException if an I/O error occurs
+     */
     public static Set<DataFeature> read(Path inputPath) throws IOException {
+        if (!isBinary(inputPath)) return readAscii(inputPath);
+        Set<DataFeature> featureSet = readTable(inputPath).toFeatureSet();
+        System.err.println("Data feature values for "
+                + MathAid.switchSingularPlural(featureSet.size(), "timewindow is", "timewindows are") + " read.");
+        return featureSet;
+    }
+
+    /**
+     * Reads data features in columns from a file in either ascii or binary format.
+     * @param inputPath (Path) The {@link DataFeatureListFile} to read.
+     * @return ({@link Table}) Data features that are read.
+     * @throws IOException if an I/O error occurs
+     *
+     * @since 2026/10/18
+     */
+    public static Table readTable(Path inputPath) throws IOException {
+        if (!isBinary(inputPath)) return new Table(readAscii(inputPath));
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(inputPath)))) {
+            return Table.read(dis, inputPath);
+        }
+    }
+
+    private static boolean isBinary(Path inputPath) throws IOException {
+        try (InputStream is = Files.newInputStream(inputPath)) {
+            byte[] bytes = new byte[Integer.BYTES];
+            int n = 0;
+            while (n < bytes.length) {
+                int read = is.read(bytes, n, bytes.length - n);
+                if (read < 0) return false;
+                n += read;
+            }
+            return ((bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff)) == MAGIC;
+        }
+    }
+
+    private static Set<DataFeature> readAscii(Path inputPath) throws IOException {
         Set<DataFeature> featureSet = new HashSet<>();
 
         InformationFileReader reader = new InformationFileReader(inputPath, true);
@@ -77,6 +178,308 @@ public class DataFeatureListFile {
         return featureSet;
     }
 
+    /**
+     * Data features stored in columns of primitive arrays, with observers, events, and sets of phases encoded by dictionaries.
+     * Minimum and maximum values of each feature are kept for each block of {@value DataFeatureListFile#BLOCK_SIZE} time windows,
+     * so that selections by thresholds can skip blocks in which no time window can satisfy them.
+     * <p>
+     * This class is IMMUTABLE.
+     *
+     * @since 2026/10/18
+     */
+    public static final class Table {
+        private final Observer[] observers;
+        private final GlobalCMTID[] events;
+        private final Phase[] phases;
+        private final int[][] phaseSets;
+        private final int[] observerIndex;
+        private final int[] eventIndex;
+        private final byte[] components;
+        private final int[] phaseSetIndex;
+        private final double[] startTimes;
+        private final double[] endTimes;
+        /**
+         * Feature values, in the order of {@link DataFeatureListFile#FEATURE_NAMES}.
+         */
+        private final double[][] features;
+        private final boolean[] selected;
+        /**
+         * [feature][2 * block] minimum and [feature][2 * block + 1] maximum of each block.
+         */
+        private final double[][] blockRanges;
+
+        private Table(Collection<DataFeature> featureCollection) {
+            List<DataFeature> featureList = new ArrayList<>(featureCollection);
+            featureList.sort(Comparator.comparing(DataFeature::getTimewindow));
+            int n = featureList.size();
+            Map<Observer, Integer> observerMap = new HashMap<>();
+            Map<GlobalCMTID, Integer> eventMap = new HashMap<>();
+            Map<Phase, Integer> phaseMap = new HashMap<>();
+            Map<List<Integer>, Integer> phaseSetMap = new HashMap<>();
+            List<int[]> phaseSetList = new ArrayList<>();
+            observerIndex = new int[n];
+            eventIndex = new int[n];
+            components = new byte[n];
+            phaseSetIndex = new int[n];
+            startTimes = new double[n];
+            endTimes = new double[n];
+            features = new double[FEATURE_NAMES.length][n];
+            selected = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                DataFeature feature = featureList.get(i);
+                TimewindowData timewindow = feature.getTimewindow();
+                observerIndex[i] = observerMap.computeIfAbsent(timewindow.getObserver(), key -> observerMap.size());
+                eventIndex[i] = eventMap.computeIfAbsent(timewindow.getGlobalCMTID(), key -> eventMap.size());
+                components[i] = (byte) timewindow.getComponent().getNumber();
+                List<Integer> phaseSet = new ArrayList<>();
+                for (Phase phase : timewindow.getPhases())
+                    phaseSet.add(phaseMap.computeIfAbsent(phase, key -> phaseMap.size()));
+                phaseSetIndex[i] = phaseSetMap.computeIfAbsent(phaseSet, key -> {
+                    phaseSetList.add(key.stream().mapToInt(Integer::intValue).toArray());
+                    return phaseSetList.size() - 1;
+                });
+                startTimes[i] = timewindow.getStartTime();
+                endTimes[i] = timewindow.getEndTime();
+                features[0][i] = feature.getPosSideRatio();
+                features[1][i] = feature.getNegSideRatio();
+                features[2][i] = feature.getAbsRatio();
+                features[3][i] = feature.getVariance();
+                features[4][i] = feature.getCorrelation();
+                features[5][i] = feature.getSNRatio();
+                selected[i] = feature.isSelected();
+            }
+            observers = new Observer[observerMap.size()];
+            observerMap.forEach((observer, index) -> observers[index] = observer);
+            events = new GlobalCMTID[eventMap.size()];
+            eventMap.forEach((event, index) -> events[index] = event);
+            phases = new Phase[phaseMap.size()];
+            phaseMap.forEach((phase, index) -> phases[index] = phase);
+            phaseSets = phaseSetList.toArray(new int[0][]);
+            blockRanges = computeBlockRanges(features);
+        }
+
+        private Table(Observer[] observers, GlobalCMTID[] events, Phase[] phases, int[][] phaseSets, int[] observerIndex,
+                int[] eventIndex, byte[] components, int[] phaseSetIndex, double[] startTimes, double[] endTimes,
+                double[][] features, boolean[] selected, double[][] blockRanges) {
+            this.observers = observers;
+            this.events = events;
+            this.phases = phases;
+            this.phaseSets = phaseSets;
+            this.observerIndex = observerIndex;
+            this.eventIndex = eventIndex;
+            this.components = components;
+            this.phaseSetIndex = phaseSetIndex;
+            this.startTimes = startTimes;
+            this.endTimes = endTimes;
+            this.features = features;
+            this.selected = selected;
+            this.blockRanges = blockRanges;
+        }
+
+        private static double[][] computeBlockRanges(double[][] features) {
+            int n = features[0].length;
+            int nBlock = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            double[][] ranges = new double[features.length][2 * nBlock];
+            for (int k = 0; k < features.length; k++) {
+                for (int b = 0; b < nBlock; b++) {
+                    double min = Double.POSITIVE_INFINITY;
+                    double max = Double.NEGATIVE_INFINITY;
+                    for (int i = b * BLOCK_SIZE; i < Math.min(n, (b + 1) * BLOCK_SIZE); i++) {
+                        double value = features[k][i];
+                        // comparisons with NaN are false, so NaN values are excluded
+                        if (value < min) min = value;
+                        if (max < value) max = value;
+                    }
+                    ranges[k][2 * b] = min;
+                    ranges[k][2 * b + 1] = max;
+                }
+            }
+            return ranges;
+        }
+
+        private void write(DataOutputStream dos) throws IOException {
+            int n = size();
+            dos.writeInt(MAGIC);
+            dos.writeInt(n);
+            dos.writeInt(BLOCK_SIZE);
+            dos.writeInt(observers.length);
+            for (Observer observer : observers) {
+                dos.writeUTF(observer.getStation());
+                dos.writeUTF(observer.getNetwork());
+                dos.writeDouble(observer.getPosition().getLatitude());
+                dos.writeDouble(observer.getPosition().getLongitude());
+            }
+            dos.writeInt(events.length);
+            for (GlobalCMTID event : events)
+                dos.writeUTF(event.toString());
+            dos.writeInt(phases.length);
+            for (Phase phase : phases)
+                dos.writeUTF(phase.toString());
+            dos.writeInt(phaseSets.length);
+            for (int[] phaseSet : phaseSets) {
+                dos.writeShort(phaseSet.length);
+                for (int index : phaseSet)
+                    dos.writeInt(index);
+            }
+            for (int i = 0; i < n; i++)
+                dos.writeInt(observerIndex[i]);
+            for (int i = 0; i < n; i++)
+                dos.writeInt(eventIndex[i]);
+            dos.write(components);
+            for (int i = 0; i < n; i++)
+                dos.writeInt(phaseSetIndex[i]);
+            for (int i = 0; i < n; i++)
+                dos.writeDouble(startTimes[i]);
+            for (int i = 0; i < n; i++)
+                dos.writeDouble(endTimes[i]);
+            for (double[] column : features)
+                for (int i = 0; i < n; i++)
+                    dos.writeDouble(column[i]);
+            for (int i = 0; i < n; i++)
+                dos.writeByte(selected[i] ? 1 : 0);
+            for (double[] ranges : blockRanges)
+                for (double value : ranges)
+                    dos.writeDouble(value);
+        }
+
+        private static Table read(DataInputStream dis, Path inputPath) throws IOException {
+            if (dis.readInt() != MAGIC) throw new IllegalStateException(inputPath + " is not a binary data feature file.");
+            int n = dis.readInt();
+            if (dis.readInt() != BLOCK_SIZE)
+                throw new IllegalStateException(inputPath + " has a different block size from " + BLOCK_SIZE + ".");
+            Observer[] observers = new Observer[dis.readInt()];
+            for (int i = 0; i < observers.length; i++) {
+                String station = dis.readUTF();
+                String network = dis.readUTF();
+                observers[i] = new Observer(station, network, new HorizontalPosition(dis.readDouble(), dis.readDouble()));
+            }
+            GlobalCMTID[] events = new GlobalCMTID[dis.readInt()];
+            for (int i = 0; i < events.length; i++)
+                events[i] = new GlobalCMTID(dis.readUTF());
+            Phase[] phases = new Phase[dis.readInt()];
+            for (int i = 0; i < phases.length; i++)
+                phases[i] = Phase.create(dis.readUTF());
+            int[][] phaseSets = new int[dis.readInt()][];
+            for (int i = 0; i < phaseSets.length; i++) {
+                phaseSets[i] = new int[dis.readShort()];
+                for (int j = 0; j < phaseSets[i].length; j++)
+                    phaseSets[i][j] = dis.readInt();
+            }
+            int[] observerIndex = readIntColumn(dis, n);
+            int[] eventIndex = readIntColumn(dis, n);
+            byte[] components = new byte[n];
+            dis.readFully(components);
+            int[] phaseSetIndex = readIntColumn(dis, n);
+            double[] startTimes = readDoubleColumn(dis, n);
+            double[] endTimes = readDoubleColumn(dis, n);
+            double[][] features = new double[FEATURE_NAMES.length][];
+            for (int k = 0; k < features.length; k++)
+                features[k] = readDoubleColumn(dis, n);
+            boolean[] selected = new boolean[n];
+            for (int i = 0; i < n; i++)
+                selected[i] = dis.readByte() != 0;
+            double[][] blockRanges = new double[FEATURE_NAMES.length][];
+            for (int k = 0; k < blockRanges.length; k++)
+                blockRanges[k] = readDoubleColumn(dis, 2 * ((n + BLOCK_SIZE - 1) / BLOCK_SIZE));
+            return new Table(observers, events, phases, phaseSets, observerIndex, eventIndex, components, phaseSetIndex,
+                    startTimes, endTimes, features, selected, blockRanges);
+        }
+
+        private static int[] readIntColumn(DataInputStream dis, int n) throws IOException {
+            int[] column = new int[n];
+            for (int i = 0; i < n; i++)
+                column[i] = dis.readInt();
+            return column;
+        }
+
+        private static double[] readDoubleColumn(DataInputStream dis, int n) throws IOException {
+            double[] column = new double[n];
+            for (int i = 0; i < n; i++)
+                column[i] = dis.readDouble();
+            return column;
+        }
+
+        /**
+         * @return (int) Number of time windows.
+         */
+        public int size() {
+            return selected.length;
+        }
+
+        /**
+         * @param index (int) Index of time window.
+         * @return ({@link DataFeature}) Data feature of the time window.
+         */
+        public DataFeature get(int index) {
+            return get(index, selected[index]);
+        }
+
+        private DataFeature get(int index, boolean isSelected) {
+            Phase[] windowPhases = Arrays.stream(phaseSets[phaseSetIndex[index]]).mapToObj(i -> phases[i]).toArray(Phase[]::new);
+            TimewindowData timewindow = new TimewindowData(startTimes[index], endTimes[index], observers[observerIndex[index]],
+                    events[eventIndex[index]], SACComponent.ofNumber(components[index]), windowPhases);
+            return new DataFeature(timewindow, features[3][index], features[4][index], features[0][index], features[1][index],
+                    features[2][index], features[5][index], isSelected);
+        }
+
+        /**
+         * @return (Set of {@link DataFeature}) All data features, as they are stored.
+         */
+        public Set<DataFeature> toFeatureSet() {
+            return toFeatureSet(selected);
+        }
+
+        /**
+         * @param selection (boolean[]) Whether each time window is selected, such as the result of
+         * {@link #select(LinearRange, LinearRange, LinearRange, double)}.
+         * @return (Set of {@link DataFeature}) All data features, with {@link DataFeature#isSelected()} set from the selection.
+         */
+        public Set<DataFeature> toFeatureSet(boolean[] selection) {
+            if (selection.length != size())
+                throw new IllegalArgumentException("Selection has " + selection.length + " elements, but there are " + size() + " time windows.");
+            Set<DataFeature> featureSet = new HashSet<>();
+            for (int i = 0; i < size(); i++)
+                featureSet.add(get(i, selection[i]));
+            return featureSet;
+        }
+
+        /**
+         * Selects time windows by thresholds of features, with the same criteria as {@link DataSelection}:
+         * all of the 3 amplitude ratios within ratioRange, correlation within correlationRange,
+         * normalized variance within varianceRange, and S/N ratio at least lowerSNRatio.
+         * Blocks in which the minimum or maximum of a feature shows that no value is in range are skipped.
+         * @param ratioRange ({@link LinearRange}) Range of amplitude ratios.
+         * @param correlationRange ({@link LinearRange}) Range of correlation.
+         * @param varianceRange ({@link LinearRange}) Range of normalized variance.
+         * @param lowerSNRatio (double) Lower threshold of S/N ratio, inclusive.
+         * @return (boolean[]) Whether each time window satisfies the criteria.
+         */
+        public boolean[] select(LinearRange ratioRange, LinearRange correlationRange, LinearRange varianceRange, double lowerSNRatio) {
+            LinearRange[] ranges = {ratioRange, ratioRange, ratioRange, varianceRange, correlationRange};
+            int n = size();
+            boolean[] selection = new boolean[n];
+            for (int b = 0; b * BLOCK_SIZE < n; b++) {
+                if (!mayContain(b, ranges, lowerSNRatio)) continue;
+                for (int i = b * BLOCK_SIZE; i < Math.min(n, (b + 1) * BLOCK_SIZE); i++) {
+                    boolean isok = lowerSNRatio <= features[5][i];
+                    for (int k = 0; isok && k < ranges.length; k++)
+                        isok = ranges[k].check(features[k][i]);
+                    selection[i] = isok;
+                }
+            }
+            return selection;
+        }
+
+        private boolean mayContain(int block, LinearRange[] ranges, double lowerSNRatio) {
+            for (int k = 0; k < ranges.length; k++) {
+                // the upper limit may be inclusive, so only values above it are excluded
+                if (blockRanges[k][2 * block + 1] < ranges[k].getLowerLimit()
+                        || ranges[k].getUpperLimit() < blockRanges[k][2 * block]) return false;
+            }
+            return lowerSNRatio <= blockRanges[5][2 * block + 1];
+        }
+    }
+
     public static void main(String[] args) throws IOException {
         Path infoPath = Paths.get(args[0]);
         read(infoPath).stream().forEach(info -> {
@@ -11,12 +11,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
-import org.apache.commons.math3.linear.RealVector;
-
 import edu.sc.seis.TauP.TauModelException;
 import edu.sc.seis.TauP.TauP_Time;
 import io.github.kensuke1984.kibrary.Operation;
@@ -25,6 +24,7 @@ import io.github.kensuke1984.kibrary.correction.StaticCorrectionData;
 import io.github.kensuke1984.kibrary.correction.StaticCorrectionDataFile;
 import io.github.kensuke1984.kibrary.math.LinearRange;
 import io.github.kensuke1984.kibrary.math.Trace;
+import io.github.kensuke1984.kibrary.math.WaveformComparison;
 import io.github.kensuke1984.kibrary.timewindow.Timewindow;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowDataFile;
@@ -56,9 +56,13 @@ import io.github.kensuke1984.kibrary.util.sac.SACHeaderEnum;
  * Selected time windows will be written in binary format in "selectedTimewindow*.dat".
  * See {@link TimewindowDataFile}.
  * <p>
- * Information of data features used in data selection will be written in ascii format in "dataFeature*.lst".
+ * Information of data features used in data selection will be written in ascii format in "dataFeature*.lst",
+ * or in binary format in "dataFeature*.dat" when binaryFeatureFile is true.
  * See {@link DataFeatureListFile}.
  * <p>
+ * When a {@link DataFeatureListFile} from a previous run is given as dataFeaturePath,
+ * the time windows in it are re-selected with the thresholds, without reading SAC files.
+ * <p>
  * Time windows with no phases will be written in standard output.
  *
  * @author Kensuke Konishi
@@ -88,6 +92,10 @@ public class DataSelection extends Operation {
      * Path of the input time window file.
      */
     private Path timewindowPath;
+    /**
+     * Path of a data feature file to re-select from, instead of computing features from SAC files.
+     */
+    private Path dataFeaturePath;
     /**
      * Folder containing observed data.
      */
@@ -128,8 +136,12 @@ public class DataSelection extends Operation {
     private double lowerSNratio;
     private boolean requirePhase;
     private boolean excludeSurfaceWave;
+    /**
+     * Whether to write data features in binary format.
+     */
+    private boolean binaryFeatureFile;
 
-    private Set<TimewindowData> sourceTimewindowSet;
+    private Map<GlobalCMTID, Set<TimewindowData>> sourceTimewindowMap;
     private Set<StaticCorrectionData> staticCorrectionSet;
     private Set<DataFeature> dataFeatureSet = Collections.synchronizedSet(new HashSet<>());
     private Set<TimewindowData> goodTimewindowSet = Collections.synchronizedSet(new HashSet<>());
@@ -156,8 +168,11 @@ public class DataSelection extends Operation {
             pw.println("#appendFileDate false");
             pw.println("##Sac components to be used, listed using spaces. (Z R T)");
             pw.println("#components ");
-            pw.println("##Path of a time window file, must be set.");
+            pw.println("##Path of a time window file, must be set unless dataFeaturePath is set.");
             pw.println("#timewindowPath timewindow.dat");
+            pw.println("##Path of a data feature file from a previous run, to re-select its time windows with the thresholds below");
+            pw.println("##  without reading SAC files. If this is set, time windows are not computed from SAC files.");
+            pw.println("#dataFeaturePath dataFeature.dat");
             pw.println("##Path of a root folder containing observed dataset. (.)");
             pw.println("#obsPath ");
             pw.println("##Path of a root folder containing synthetic dataset. (.)");
@@ -188,6 +203,8 @@ public class DataSelection extends Operation {
             pw.println("#requirePhase ");
             pw.println("##(boolean) Whether to exclude surface wave. (false)");
             pw.println("#excludeSurfaceWave ");
+            pw.println("##(boolean) Whether to write data features in binary format (dataFeature*.dat) instead of ascii. (false)");
+            pw.println("#binaryFeatureFile ");
         }
         System.err.println(outPath + " is created.");
     }
@@ -204,7 +221,11 @@ public class DataSelection extends Operation {
         components = Arrays.stream(property.parseStringArray("components", "Z R T"))
                 .map(SACComponent::valueOf).collect(Collectors.toSet());
 
-        timewindowPath = property.parsePath("timewindowPath", null, true, workPath);
+        if (property.containsKey("dataFeaturePath")) {
+            dataFeaturePath = property.parsePath("dataFeaturePath", null, true, workPath);
+        } else {
+            timewindowPath = property.parsePath("timewindowPath", null, true, workPath);
+        }
         obsPath = property.parsePath("obsPath", ".", true, workPath);
         synPath = property.parsePath("synPath", ".", true, workPath);
         convolved = property.parseBoolean("convolved", "true");
@@ -230,16 +251,48 @@ public class DataSelection extends Operation {
             throw new IllegalArgumentException("S/N ratio threshold " + lowerSNratio + " is invalid, must be >= 0.");
         requirePhase = property.parseBoolean("requirePhase", "true");
         excludeSurfaceWave = property.parseBoolean("excludeSurfaceWave", "false");
+        binaryFeatureFile = property.parseBoolean("binaryFeatureFile", "false");
     }
 
     @Override
     public void run() throws IOException {
+        if (dataFeaturePath != null) reselect();
+        else selectFromWaveforms();
+
+        System.err.println(MathAid.switchSingularPlural(goodTimewindowSet.size(), "time window is", "time windows are") + " selected.");
+
+        // output
+        String dateString = GadgetAid.getTemporaryString();
+        Path outputFeaturePath = DatasetAid.generateOutputFilePath(workPath, "dataFeature", fileTag, appendFileDate, dateString,
+                binaryFeatureFile ? ".dat" : ".lst");
+        Path outputSelectedPath = DatasetAid.generateOutputFilePath(workPath, "selectedTimewindow", fileTag, appendFileDate, dateString, ".dat");
+        if (goodTimewindowSet.size() > 0) TimewindowDataFile.write(goodTimewindowSet, outputSelectedPath);
+        if (dataFeatureSet.size() > 0) {
+            if (binaryFeatureFile) DataFeatureListFile.writeBinary(dataFeatureSet, outputFeaturePath);
+            else DataFeatureListFile.write(dataFeatureSet, outputFeaturePath);
+        }
+    }
+
+    /**
+     * Selects time windows in the data feature file by the thresholds, using only the feature values in the file.
+     * @throws IOException if an I/O error occurs
+     */
+    private void reselect() throws IOException {
+        DataFeatureListFile.Table table = DataFeatureListFile.readTable(dataFeaturePath);
+        boolean[] selection = table.select(ratioRange, correlationRange, varianceRange, lowerSNratio);
+        for (DataFeature feature : table.toFeatureSet(selection)) {
+            if (!components.contains(feature.getTimewindow().getComponent())) continue;
+            if (feature.isSelected()) goodTimewindowSet.add(feature.getTimewindow());
+            dataFeatureSet.add(feature);
+        }
+    }
+
+    private void selectFromWaveforms() throws IOException {
         // gather all time windows to be processed
-        sourceTimewindowSet = TimewindowDataFile.read(timewindowPath)
-                .stream().filter(window -> components.contains(window.getComponent())).collect(Collectors.toSet());
+        sourceTimewindowMap = TimewindowDataFile.readByEvent(timewindowPath,
+                TimewindowDataFile.Filter.all().components(components::contains));
         // collect all events that exist in the time window set
-        Set<GlobalCMTID> eventSet = sourceTimewindowSet.stream().map(TimewindowData::getGlobalCMTID)
-                .collect(Collectors.toSet());
+        Set<GlobalCMTID> eventSet = sourceTimewindowMap.keySet();
 
         // read static corrections
         staticCorrectionSet = (staticCorrectionPath == null ? Collections.emptySet()
@@ -254,25 +307,15 @@ public class DataSelection extends Operation {
         }
         // this println() is for starting new line after writing "."s
         System.err.println();
-
-        System.err.println(MathAid.switchSingularPlural(goodTimewindowSet.size(), "time window is", "time windows are") + " selected.");
-
-        // output
-        String dateString = GadgetAid.getTemporaryString();
-        Path outputFeaturePath = DatasetAid.generateOutputFilePath(workPath, "dataFeature", fileTag, appendFileDate, dateString, ".lst");
-        Path outputSelectedPath = DatasetAid.generateOutputFilePath(workPath, "selectedTimewindow", fileTag, appendFileDate, dateString, ".dat");
-        if (goodTimewindowSet.size() > 0) TimewindowDataFile.write(goodTimewindowSet, outputSelectedPath);
-        if (dataFeatureSet.size() > 0) DataFeatureListFile.write(dataFeatureSet, outputFeaturePath);
     }
 
     /**
      * @param sac        {@link SACFileAccess} to cut
      * @param timeWindow time window
-     * @return new Trace for the timewindow [tStart:tEnd]
+     * @return waveform in the timewindow [tStart:tEnd]
      */
-    private RealVector cutSAC(SACFileAccess sac, Timewindow timewindow) {
-        Trace trace = sac.createTrace();
-        return trace.cutWindow(timewindow, sacSamplingHz).getYVector();
+    private double[] cutSAC(SACFileAccess sac, Timewindow timewindow) {
+        return sac.cutWindowData(timewindow, sacSamplingHz);
     }
 
     private StaticCorrectionData getStaticCorrection(TimewindowData window) {
@@ -339,13 +382,15 @@ public class DataSelection extends Operation {
             e.printStackTrace();
         }
 
-        return sac.createTrace().cutWindow(firstArrivalTime - 20 - len, firstArrivalTime - 20).getYVector().getNorm() / len;
+        int iStart = sac.findNearestIndex(firstArrivalTime - 20 - len);
+        int iEnd = sac.findNearestIndex(firstArrivalTime - 20);
+        return WaveformComparison.norm(sac.getData(iStart, iEnd + 1), 0, iEnd + 1 - iStart) / len;
     }
 
     private class Worker extends DatasetAid.FilteredDatasetWorker {
 
         private Worker(GlobalCMTID eventID) {
-            super(eventID, obsPath, synPath, convolved, sourceTimewindowSet);
+            super(eventID, obsPath, synPath, convolved, sourceTimewindowMap.get(eventID));
         }
 
         @Override
@@ -421,16 +466,18 @@ public class DataSelection extends Operation {
                         , timewindow.getGlobalCMTID(), timewindow.getComponent(), timewindow.getPhases());
 
                 // cut out waveforms
-                RealVector synU = cutSAC(synSac, timewindow);
-                RealVector obsU = cutSAC(obsSac, shiftedWindow);
+                double[] synU = cutSAC(synSac, timewindow);
+                double[] obsU = cutSAC(obsSac, shiftedWindow);
+                // all features are computed in one pass
+                WaveformComparison comparison = new WaveformComparison().add(obsU, 0, synU, 0, Math.min(obsU.length, synU.length));
 
                 // signal-to-noise ratio
                 double noise = noisePerSecond(obsSac, component);
-                double signal = obsU.getNorm() / (timewindow.getEndTime() - timewindow.getStartTime());
+                double signal = comparison.getObsNorm() / (timewindow.getEndTime() - timewindow.getStartTime());
                 double snRatio = signal / noise;
 
                 // select by features
-                DataFeature feature = DataFeature.create(timewindow, obsU, synU, snRatio, false);
+                DataFeature feature = DataFeature.create(timewindow, comparison, snRatio, false);
                 if (check(feature)) {
                     feature.setSelected(true);
                     goodTimewindowSet.add(timewindow);
@@ -222,7 +222,7 @@ public class PhaseEnvelope {
     }
 
     public void run() throws Exception {
-        Set<TimewindowData> infoset = new HashSet<>();
+        Set<TimewindowData> infoset = Collections.synchronizedSet(new HashSet<>());
         ThreadAid.runEventProcess(obsPath, obsEventDir -> {
             try {
                 obsEventDir.sacFileSet().stream().filter(sfn -> sfn.isOBS() && components.contains(sfn.getComponent()))
@@ -343,8 +343,6 @@ public class PhaseEnvelope {
         phaseEnvelope[0] = new double[n][];
         phaseEnvelope[1] = new double[n][];
         phaseEnvelope[2] = new double[n][];
-        double[][] obsSpcmemo = new double[n][];
-        double[][] synSpcmemo = new double[n][];
 //		double[] freqIntegratedPhaseMisfit = new double[n];
 //		double[] freqIntegratedEnvelope = new double[n];
 
@@ -393,127 +391,9 @@ public class PhaseEnvelope {
 
                 int nnp = (int) (np * nnpow2 * samplingHz / npts);
     //			System.out.println(nnp + " " + frequencyIncrement);
-                for (int i = 0; i < n; i++) {
-                    phaseEnvelope[0][i] = new double[nnp];
-                    phaseEnvelope[1][i] = new double[nnp];
-                    phaseEnvelope[2][i] = new double[nnp];
-                    obsSpcmemo[i] = new double[nnp];
-                    synSpcmemo[i] = new double[nnp];
-                }
-
-                double[] obsdata = new double[nnpow2];
-                double[] syndata = new double[nnpow2];
                 double[] gaborWindow = gaborWindow(sigma, 2*nn+1, dt*samplingHz);
-
-                double spcMax = Double.MIN_VALUE;
-                for (int i = 0; i < n; i++) {
-                    int nlow = i - nn < 0 ? 0 : i - nn;
-                    int nnlow = i - nn < 0 ? nn - i : 0;
-                    int k = 0;
-                    for (int j = nlow; j <= i+nn; j++) {
-                        obsdata[nnlow + k] = tmpobsdata[j * (int) samplingHz] * gaborWindow[2*nn - k];
-                        syndata[nnlow + k] = tmpsyndata[j * (int) samplingHz] * gaborWindow[2*nn - k];
-                        k++;
-                    }
-                    Arrays.fill(obsdata, 2*nn+1, nnpow2, 0.);
-                    Arrays.fill(syndata, 2*nn+1, nnpow2, 0.);
-                    Arrays.fill(obsdata, 0, nnlow, 0.);
-                    Arrays.fill(syndata, 0, nnlow, 0.);
-
-    //				if (i==1200) {
-    //					for (k = 0; k < syndata.length; k++)
-    //					System.out.println(syndata[k]);
-    //				}
-
-                    syndata = rmean(syndata);
-                    obsdata = rmean(obsdata);
-
-                    Complex[] synSpc = fft.transform(syndata, TransformType.FORWARD);
-                    Complex[] obsSpc = fft.transform(obsdata, TransformType.FORWARD);
-
-                    for (int j = 0; j < nnp; j++) {
-                        if (synSpc[j].abs() > 0 && obsSpc[j].abs() > 0) {
-    //						 double sin = (obsSpc[j].getReal()*synSpc[j].getImaginary() - obsSpc[j].getImaginary()*synSpc[j].getReal())
-    //							/ (obsSpc[j].abs() * synSpc[j].abs());
-    //						 if (sin < -1.)
-    //							 sin = -1.;
-    //						 else if (sin > 1.)
-    //							 sin = 1.;
-//							Complex obsunit = obsSpc[j].divide(obsSpc[j].abs());
-//							Complex synunit = synSpc[j].divide(synSpc[j].abs());
-//							Complex misfit = obsunit.divide(synunit).
-                            Complex c = obsSpc[j].multiply(synSpc[j].conjugate());
-                            Complex deltaPhi = c.divide(c.abs()).log();
-                            if (Math.abs(deltaPhi.getReal() / deltaPhi.getImaginary()) > 1e-5)
-                                throw new IllegalArgumentException("Imaginary part of deltaPhi > 0 ("
-                            + -1*deltaPhi.getImaginary() + ", " + -1*deltaPhi.getReal() + ")");
-                            phaseEnvelope[0][i][j] = deltaPhi.getImaginary() * 180 / Math.PI;
-                        }
-                        else
-                            phaseEnvelope[0][i][j] = Double.NaN;
-    //					if (synSpc[j].abs() != 0)
-    //						phaseEnvelope[1][i][j] = obsSpc[j].abs() / synSpc[j].abs();
-    //					else
-    //						phaseEnvelope[1][i][j] = Double.NaN;
-                        phaseEnvelope[1][i][j] = (obsSpc[j].abs() - synSpc[j].abs()) * (obsSpc[j].abs() - synSpc[j].abs());
-
-    //					if (i == 1200)
-    //						System.out.println(obsSpc[j].abs() + " " + synSpc[j].abs() + " " + obsSpc[j].getArgument() *180/ Math.PI + " " + synSpc[j].getArgument() *180/ Math.PI+ " " + phaseEnvelope[0][i][j]);
-                        phaseEnvelope[2][i][j] = j * frequencyIncrement;
-
-                        if (synSpc[j].abs() > spcMax)
-                            spcMax = synSpc[j].abs();
-                        obsSpcmemo[i][j] = obsSpc[j].abs();
-                        synSpcmemo[i][j] = synSpc[j].abs();
-                    }
-                }
-
-                double wSum = 0;
-                for (int i = 0; i < n; i ++) {
-                    for (int j = 0; j < nnp; j++) {
-                        double w = Math.log(1. + synSpcmemo[i][j]) / Math.log(1. + spcMax);
-                        wSum += w;
-                    }
-                }
-    //			wSum /= nnp*n;
-    //			System.out.println(wSum);
-
-                for (int i = 0; i < n; i++) {
-                    double obsSpcAbsInt = 0;
-                    for (int j = 0; j < nnp; j++) {
-    //					if (obsSpcmemo[i][j] < spcMax / 40) {
-    //						phaseEnvelope[1][i][j] = Double.NaN;
-    //						phaseEnvelope[0][i][j] = Double.NaN;
-    //					}
-                        obsSpcAbsInt += obsSpcmemo[i][j];
-                    }
-    //				double spcFreqMax = Double.MIN_VALUE;
-    //				for (int j = 0; j < nnp; j++) {
-    //					if (spcFreqMax < obsSpcmemo[i][j])
-    //						spcFreqMax = obsSpcmemo[i][j];
-    //				}
-                    for (int j = 0; j < nnp; j++) {
-                        double w = Math.log(1. + synSpcmemo[i][j]) / Math.log(1. + spcMax) / wSum; //Eq. (12) of Fichtner et al. (2008) modified using spcFreqMax instead of spcMax
-    //					if (w == 0) {
-    //						phaseEnvelope[0][i][j] = Double.NaN;
-    //						phaseEnvelope[1][i][j] = Double.NaN;
-    //					}
-                        if (w > 0)
-                            phaseEnvelope[1][i][j] = Math.sqrt(phaseEnvelope[1][i][j] / (obsSpcAbsInt * obsSpcAbsInt)) / w;
-                        else
-                            phaseEnvelope[1][i][j] = Double.MAX_VALUE;
-
-                        phaseEnvelope[0][i][j] /=  w;
-
-                        if (phaseEnvelope[1][i][j] > 5e3)
-                            phaseEnvelope[1][i][j] = 5e3;
-                        if (phaseEnvelope[0][i][j] > 5e3)
-                            phaseEnvelope[0][i][j] = 5e3;
-
-    //					System.out.println(w + " " + phaseEnvelope[0][i][j]);
-                        // TO DO: normalize each time points by the frequency-integrated weighting factor !!
-                    }
-                }
+                computeMisfitSpectra(tmpobsdata, tmpsyndata, (int) samplingHz, n, nn, nnpow2, nnp, gaborWindow, frequencyIncrement,
+                        phaseEnvelope);
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -524,6 +404,136 @@ public class PhaseEnvelope {
         return phaseEnvelope;
     }
 
+    /**
+     * Computes the phase misfit and the envelope misfit (Fichtner et al., 2008) on the Gabor transforms of obs and syn.
+     * <p>
+     * The time points are processed in blocks of {@link #BLOCK_SIZE} in parallel.
+     * Each block transforms its segments in place in its own primitive buffers,
+     * so no {@link Complex} objects are created in the n &times; nnpow2 loop.
+     * The misfits and the amplitude integrated over frequency are obtained in the same pass,
+     * and the weights in Eq. (12) need only one more pass over the spectra.
+     *
+     * @param tmpobsdata (double[]) Observed waveform from time 0.
+     * @param tmpsyndata (double[]) Synthetic waveform from time 0.
+     * @param step (int) Number of samples in 1 s.
+     * @param n (int) Number of time points, resampled at 1 Hz.
+     * @param nn (int) Half width of the Gabor window.
+     * @param nnpow2 (int) Number of points for the FFT. Must be a power of 2.
+     * @param nnp (int) Number of frequency points to compute.
+     * @param gaborWindow (double[]) Gabor window of 2*nn+1 points.
+     * @param frequencyIncrement (double) Frequency interval of the spectra.
+     * @param phaseEnvelope (double[][][]) Output; rows [0] phase misfit, [1] envelope misfit, [2] frequency, each with n elements.
+     */
+    private static void computeMisfitSpectra(double[] tmpobsdata, double[] tmpsyndata, int step, int n, int nn, int nnpow2,
+            int nnp, double[] gaborWindow, double frequencyIncrement, double[][][] phaseEnvelope) {
+        double[][] synSpcmemo = new double[n][];
+        double[] obsSpcAbsInt = new double[n];
+
+        IntStream.range(0, (n + BLOCK_SIZE - 1) / BLOCK_SIZE).parallel().forEach(block -> {
+            double[][] obsdata = new double[2][nnpow2];
+            double[][] syndata = new double[2][nnpow2];
+            for (int i = block * BLOCK_SIZE; i < Math.min(n, (block + 1) * BLOCK_SIZE); i++) {
+                setGaborSegment(tmpobsdata, i, step, nn, gaborWindow, obsdata);
+                setGaborSegment(tmpsyndata, i, step, nn, gaborWindow, syndata);
+                FastFourierTransformer.transformInPlace(obsdata, DftNormalization.STANDARD, TransformType.FORWARD);
+                FastFourierTransformer.transformInPlace(syndata, DftNormalization.STANDARD, TransformType.FORWARD);
+
+                double[] phaseMisfit = new double[nnp];
+                double[] envelopeMisfit = new double[nnp];
+                double[] frequency = new double[nnp];
+                double[] synSpcAbs = new double[nnp];
+                double spcAbsInt = 0;
+                for (int j = 0; j < nnp; j++) {
+                    double obsRe = obsdata[0][j];
+                    double obsIm = obsdata[1][j];
+                    double synRe = syndata[0][j];
+                    double synIm = syndata[1][j];
+                    double obsAbs = Math.sqrt(obsRe * obsRe + obsIm * obsIm);
+                    double synAbs = Math.sqrt(synRe * synRe + synIm * synIm);
+                    // argument of obs * conjugate(syn)
+                    if (synAbs > 0 && obsAbs > 0)
+                        phaseMisfit[j] = Math.atan2(obsIm * synRe - obsRe * synIm, obsRe * synRe + obsIm * synIm) * 180 / Math.PI;
+                    else
+                        phaseMisfit[j] = Double.NaN;
+                    envelopeMisfit[j] = (obsAbs - synAbs) * (obsAbs - synAbs);
+                    frequency[j] = j * frequencyIncrement;
+                    synSpcAbs[j] = synAbs;
+                    spcAbsInt += obsAbs;
+                }
+                phaseEnvelope[0][i] = phaseMisfit;
+                phaseEnvelope[1][i] = envelopeMisfit;
+                phaseEnvelope[2][i] = frequency;
+                synSpcmemo[i] = synSpcAbs;
+                obsSpcAbsInt[i] = spcAbsInt;
+            }
+        });
+
+        double spcMax = Double.MIN_VALUE;
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < nnp; j++)
+                if (synSpcmemo[i][j] > spcMax)
+                    spcMax = synSpcmemo[i][j];
+        double logSpcMax = Math.log(1. + spcMax);
+
+        // weights before normalization
+        double wSum = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < nnp; j++) {
+                synSpcmemo[i][j] = Math.log(1. + synSpcmemo[i][j]) / logSpcMax;
+                wSum += synSpcmemo[i][j];
+            }
+        }
+
+        double wSumFinal = wSum;
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = 0; j < nnp; j++) {
+                double w = synSpcmemo[i][j] / wSumFinal; //Eq. (12) of Fichtner et al. (2008)
+                if (w > 0)
+                    phaseEnvelope[1][i][j] = Math.sqrt(phaseEnvelope[1][i][j] / (obsSpcAbsInt[i] * obsSpcAbsInt[i])) / w;
+                else
+                    phaseEnvelope[1][i][j] = Double.MAX_VALUE;
+
+                phaseEnvelope[0][i][j] /= w;
+
+                if (phaseEnvelope[1][i][j] > 5e3)
+                    phaseEnvelope[1][i][j] = 5e3;
+                if (phaseEnvelope[0][i][j] > 5e3)
+                    phaseEnvelope[0][i][j] = 5e3;
+            }
+        });
+    }
+
+    /**
+     * Sets the segment of data around time point i, resampled at 1 Hz and multiplied by the Gabor window,
+     * with its mean removed, to a buffer to be transformed in place.
+     * The result is the same as filling a zero-padded array and applying {@link #rmean(double[])}.
+     *
+     * @param data (double[]) Waveform from time 0.
+     * @param i (int) Time point at the center of the segment.
+     * @param step (int) Number of samples in 1 s.
+     * @param nn (int) Half width of the Gabor window.
+     * @param gaborWindow (double[]) Gabor window of 2*nn+1 points.
+     * @param buffer (double[][]) Output; real parts in [0] and imaginary parts (set to 0) in [1].
+     */
+    private static void setGaborSegment(double[] data, int i, int step, int nn, double[] gaborWindow, double[][] buffer) {
+        double[] re = buffer[0];
+        Arrays.fill(re, 0.);
+        Arrays.fill(buffer[1], 0.);
+        int nlow = i - nn < 0 ? 0 : i - nn;
+        int nnlow = i - nn < 0 ? nn - i : 0;
+        int k = 0;
+        double mean = 0;
+        for (int j = nlow; j <= i + nn; j++) {
+            re[nnlow + k] = data[j * step] * gaborWindow[2*nn - k];
+            mean += re[nnlow + k];
+            k++;
+        }
+        // the other entries are 0, so the sum is the same as that over the whole array
+        mean /= re.length;
+        for (int j = 0; j < re.length; j++)
+            re[j] -= mean;
+    }
+
     private double[][] freqIntegrated(double[][][] phaseEnvelope, double maxFreq) {
         double[][] frequInt = new double[][] {new double [phaseEnvelope[0].length]
                 , new double [phaseEnvelope[0].length]};
@@ -1054,6 +1064,11 @@ public class PhaseEnvelope {
 
     protected final FastFourierTransformer fft = new FastFourierTransformer(DftNormalization.STANDARD);
 
+    /**
+     * Number of time points of the Gabor transform computed in each parallel task
+     */
+    private static final int BLOCK_SIZE = 64;
+
      private static class XYZArrayDataset extends AbstractXYZDataset {
           double[][] data;
           int rowCount = 0;
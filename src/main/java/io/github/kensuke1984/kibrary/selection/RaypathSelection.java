@@ -7,7 +7,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -22,6 +24,7 @@ import io.github.kensuke1984.kibrary.util.data.DataEntry;
 import io.github.kensuke1984.kibrary.util.data.DataEntryListFile;
 import io.github.kensuke1984.kibrary.util.earth.FullPosition;
 import io.github.kensuke1984.kibrary.util.earth.HorizontalPosition;
+import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTID;
 import io.github.kensuke1984.kibrary.util.sac.SACComponent;
 
 /**
@@ -270,6 +273,12 @@ public class RaypathSelection extends Operation {
             }
         }
 
+        // observer positions are checked once for each position
+        Set<HorizontalPosition> observersInRange = entrySet.stream().map(entry -> entry.getObserver().getPosition()).distinct()
+                .filter(position -> position.isInRange(observerLatitudeRange, observerLongitudeRange)).collect(Collectors.toSet());
+        // events are checked once for each event
+        Map<GlobalCMTID, Boolean> eventCheckMap = new HashMap<>();
+
         for (DataEntry entry : entrySet) {
             // components are checked regardless of mode (extraction or elimination)
             if (!components.contains(entry.getComponent())) continue;
@@ -279,8 +288,7 @@ public class RaypathSelection extends Operation {
 
             // observer position
             HorizontalPosition observerPosition = entry.getObserver().getPosition();
-            if (observerPosition.isInRange(observerLatitudeRange, observerLongitudeRange)
-                    == false) {
+            if (observersInRange.contains(observerPosition) == false) {
                 if (eliminationMode) {
                     selectedEntrySet.add(entry);
                 }
@@ -288,12 +296,14 @@ public class RaypathSelection extends Operation {
             }
 
             // event magnitude and position
-            double eventMw = entry.getEvent().getEventData().getCmt().getMw();
-            boolean magnitudeCheck = eventMwRange.check(eventMw);
             FullPosition eventPosition = entry.getEvent().getEventData().getCmtPosition();
-            boolean horizontalCheck = eventPosition.isInRange(eventLatitudeRange, eventLongitudeRange);
-            boolean verticalCheck = eventDepthRange.check(eventPosition.getDepth());
-            if ((magnitudeCheck && horizontalCheck && verticalCheck) == false) {
+            boolean eventCheck = eventCheckMap.computeIfAbsent(entry.getEvent(), event -> {
+                boolean magnitudeCheck = eventMwRange.check(event.getEventData().getCmt().getMw());
+                boolean horizontalCheck = eventPosition.isInRange(eventLatitudeRange, eventLongitudeRange);
+                boolean verticalCheck = eventDepthRange.check(eventPosition.getDepth());
+                return magnitudeCheck && horizontalCheck && verticalCheck;
+            });
+            if (eventCheck == false) {
                 if (eliminationMode) {
                     selectedEntrySet.add(entry);
                 }
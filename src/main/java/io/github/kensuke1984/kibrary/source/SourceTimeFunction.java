@@ -8,6 +8,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.IntStream;
 
 import org.apache.commons.math3.complex.Complex;
@@ -15,6 +16,10 @@ import org.apache.commons.math3.transform.DftNormalization;
 import org.apache.commons.math3.transform.FastFourierTransformer;
 
 import io.github.kensuke1984.kibrary.math.Trace;
+import io.github.kensuke1984.kibrary.util.sac.SACComponent;
+import io.github.kensuke1984.kibrary.util.spc.SPCBody;
+import io.github.kensuke1984.kibrary.util.spc.SPCElement;
+import io.github.kensuke1984.kibrary.util.spc.SPCFileAccess;
 import io.github.kensuke1984.kibrary.util.spc.SPCFileAid;
 
 /**
@@ -224,8 +229,45 @@ public class SourceTimeFunction {
             return IntStream.range(0, np + 1).parallel()
                     .mapToObj(i -> i == 0 ? data[i] : data[i].multiply(sourceTimeFunction[i - 1])).toArray(Complex[]::new);
         } else {
-            return IntStream.range(0, np + 1)
-                    .mapToObj(i -> i == 0 ? data[i] : data[i].multiply(sourceTimeFunction[i - 1])).toArray(Complex[]::new);
+            Complex[] convolved = data.clone();
+            convolveInPlace(convolved);
+            return convolved;
+        }
+    }
+
+    /**
+     * Operates convolution for data in <b>frequency</b> domain, overwriting the input array.
+     * @param data (Complex[]) Data to be convolved in <b>frequency</b> domain. Length must be {@link #np} + 1.
+     */
+    public final void convolveInPlace(Complex[] data) {
+        if (data.length != np + 1)
+            throw new IllegalArgumentException("Input data length is invalid: " + data.length + " " + (np + 1));
+        for (int i = 1; i <= np; i++)
+            data[i] = data[i].multiply(sourceTimeFunction[i - 1]);
+    }
+
+    /**
+     * Operates convolution for all elements of all bodies in an SPC file at once, overwriting their spectra.
+     * @param spcFile ({@link SPCFileAccess}) SPC file to be convolved. Its np must be the same as {@link #np}.
+     */
+    public final void convolveInPlace(SPCFileAccess spcFile) {
+        convolveInPlace(spcFile, null);
+    }
+
+    /**
+     * Operates convolution for specified components of all bodies in an SPC file at once, overwriting their spectra.
+     * @param spcFile ({@link SPCFileAccess}) SPC file to be convolved. Its np must be the same as {@link #np}.
+     * @param components (Set of {@link SACComponent}) Components to be convolved. If null, all elements are convolved.
+     */
+    public final void convolveInPlace(SPCFileAccess spcFile, Set<SACComponent> components) {
+        if (spcFile.np() != np) throw new IllegalArgumentException("np of " + spcFile.getSpcFileName() + " is invalid: "
+                + spcFile.np() + " " + np);
+        for (SPCBody body : spcFile.getSpcBodyList()) {
+            if (components == null) {
+                for (SPCElement element : body.getSpcElements()) convolveInPlace(element.getValueInFrequencyDomain());
+            } else {
+                for (SACComponent component : components) convolveInPlace(body.getSpcElement(component).getValueInFrequencyDomain());
+            }
         }
     }
 
@@ -249,6 +291,13 @@ public class SourceTimeFunction {
         return new Trace(time, stfInTime);
     }
 
+    /**
+     * @return (Complex[]) Source time function in frequency domain for ip=[1, np]. The array is not copied.
+     */
+    public Complex[] getSourceTimeFunctionInFrequencyDomain() {
+        return sourceTimeFunction;
+    }
+
     public void setSourceTimeFunction(Complex[] function) {
         this.sourceTimeFunction = function;
     }
@@ -4,7 +4,9 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import io.github.kensuke1984.kibrary.util.InformationFileReader;
 import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTID;
@@ -21,7 +23,11 @@ public class SourceTimeFunctionHandler {
     private final Path catalogPath;
     private Set<GlobalCMTID> events;
     private Map<GlobalCMTID, SourceTimeFunction> userSourceTimeFunctions;
-    private Map<GlobalCMTID, String> sourceTimeFunctionCatalog;
+    private Map<GlobalCMTID, String> sourceTimeFunctionCatalog = new HashMap<>();
+    /**
+     * Source time functions that have been computed, shared among events with the same settings.
+     */
+    private final Map<STFKey, SourceTimeFunction> sourceTimeFunctionCache = new ConcurrentHashMap<>();
 
     public SourceTimeFunctionHandler(SourceTimeFunctionType type, Path catalogPath, Path userSTFPath, Set<GlobalCMTID> events) throws IOException {
         this.type = type;
@@ -68,6 +74,16 @@ public class SourceTimeFunctionHandler {
         }
     }
 
+    /**
+     * Creates a source time function for an event.
+     * Source time functions with the same type, np, tlen, samplingHz, and half durations are computed only once,
+     * and the same instance is returned for all events sharing them.
+     * @param np (int) Number of steps in frequency domain.
+     * @param tlen (double) Time length [s].
+     * @param samplingHz (double) Sampling frequency [Hz].
+     * @param event ({@link GlobalCMTID}) Event to create source time function for.
+     * @return ({@link SourceTimeFunction}) Source time function. null if type is NONE.
+     */
     public SourceTimeFunction createSourceTimeFunction(int np, double tlen, double samplingHz, GlobalCMTID event) {
         double halfDuration = event.getEventData().getHalfDuration();
 
@@ -75,7 +91,7 @@ public class SourceTimeFunctionHandler {
             SourceTimeFunction tmp = userSourceTimeFunctions.get(event);
             if (tmp == null) {
                 System.err.println("! Source time function for " + event + " not found, using triangular instead.");
-                tmp = SourceTimeFunction.triangleSourceTimeFunction(np, tlen, samplingHz, halfDuration);
+                tmp = cachedSourceTimeFunction(SourceTimeFunctionType.TRIANGLE, np, tlen, samplingHz, halfDuration, halfDuration);
             }
             return tmp;
 
@@ -91,26 +107,21 @@ public class SourceTimeFunctionHandler {
             case NONE:
                 return null;
             case BOXCAR:
-                if (catalogPath != null && sourceTimeFunctionCatalog.containsKey(event)) {
-                    String[] ss = sourceTimeFunctionCatalog.get(event).split("\\s+");
-                    halfDuration = Double.parseDouble(ss[1]);
-                }
-                return SourceTimeFunction.boxcarSourceTimeFunction(np, tlen, samplingHz, halfDuration);
             case TRIANGLE:
                 if (catalogPath != null && sourceTimeFunctionCatalog.containsKey(event)) {
                     String[] ss = sourceTimeFunctionCatalog.get(event).split("\\s+");
                     halfDuration = Double.parseDouble(ss[1]);
                 }
-                return SourceTimeFunction.triangleSourceTimeFunction(np, tlen, samplingHz, halfDuration);
+                return cachedSourceTimeFunction(individualType, np, tlen, samplingHz, halfDuration, halfDuration);
             case ASYMMETRIC_TRIANGLE:
                 if (catalogPath != null && sourceTimeFunctionCatalog.containsKey(event)) {
                     String[] ss = sourceTimeFunctionCatalog.get(event).split("\\s+");
                     double halfDuration1 = Double.parseDouble(ss[1]);
                     double halfDuration2 = Double.parseDouble(ss[2]);
-                    return SourceTimeFunction.asymmetricTriangleSourceTimeFunction(np, tlen, samplingHz, halfDuration1, halfDuration2);
+                    return cachedSourceTimeFunction(individualType, np, tlen, samplingHz, halfDuration1, halfDuration2);
                 } else {
                     System.err.println("! Catalog data for " + event + " not found, using triangular instead.");
-                    return SourceTimeFunction.triangleSourceTimeFunction(np, tlen, samplingHz, halfDuration);
+                    return cachedSourceTimeFunction(SourceTimeFunctionType.TRIANGLE, np, tlen, samplingHz, halfDuration, halfDuration);
                 }
             default:
                 throw new RuntimeException("Invalid source time function type.");
@@ -118,5 +129,58 @@ public class SourceTimeFunctionHandler {
         }
     }
 
+    private SourceTimeFunction cachedSourceTimeFunction(SourceTimeFunctionType type, int np, double tlen, double samplingHz,
+            double halfDuration1, double halfDuration2) {
+        STFKey key = new STFKey(type, np, tlen, samplingHz, halfDuration1, halfDuration2);
+        return sourceTimeFunctionCache.computeIfAbsent(key, k -> {
+            switch (type) {
+            case BOXCAR:
+                return SourceTimeFunction.boxcarSourceTimeFunction(np, tlen, samplingHz, halfDuration1);
+            case TRIANGLE:
+                return SourceTimeFunction.triangleSourceTimeFunction(np, tlen, samplingHz, halfDuration1);
+            case ASYMMETRIC_TRIANGLE:
+                return SourceTimeFunction.asymmetricTriangleSourceTimeFunction(np, tlen, samplingHz, halfDuration1, halfDuration2);
+            default:
+                throw new RuntimeException("Invalid source time function type.");
+            }
+        });
+    }
+
+    /**
+     * Key of {@link #sourceTimeFunctionCache}.
+     */
+    private static final class STFKey {
+        private final SourceTimeFunctionType type;
+        private final int np;
+        private final double tlen;
+        private final double samplingHz;
+        private final double halfDuration1;
+        private final double halfDuration2;
+
+        private STFKey(SourceTimeFunctionType type, int np, double tlen, double samplingHz, double halfDuration1, double halfDuration2) {
+            this.type = type;
+            this.np = np;
+            this.tlen = tlen;
+            this.samplingHz = samplingHz;
+            this.halfDuration1 = halfDuration1;
+            this.halfDuration2 = halfDuration2;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, np, tlen, samplingHz, halfDuration1, halfDuration2);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof STFKey)) return false;
+            STFKey other = (STFKey) obj;
+            return type == other.type && np == other.np && Double.compare(tlen, other.tlen) == 0
+                    && Double.compare(samplingHz, other.samplingHz) == 0
+                    && Double.compare(halfDuration1, other.halfDuration1) == 0
+                    && Double.compare(halfDuration2, other.halfDuration2) == 0;
+        }
+    }
 
 }
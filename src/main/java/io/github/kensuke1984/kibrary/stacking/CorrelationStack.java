@@ -111,19 +111,14 @@ public class CorrelationStack implements Stack {
             shiftMap.put(key, shift);
         }
         // 基準波形の相関をあわせる時刻(ここに比較波形部分のスタートを持ってこないといけない)
-        double standartStarttime = standardTrace.getX()[shift];
+        double standartStarttime = standardTrace.getXAt(shift);
         // 相関をあわせる比較波形部分のスタート時刻
         double compareStartTime = window.getStartTime();
         // これらの差
         double timeshift = standartStarttime - compareStartTime;
 
-        double[] x = new double[trace.getLength()]; // 返す時間軸
-        double[] y = new double[trace.getLength()]; // 返す波形
-        for (int i = 0; i < trace.getLength(); i++) {
-            x[i] = trace.getX()[i] + timeshift; // 基準の時間窓のコピーに先ほどの差を考慮
-            y[i] = trace.getY()[i]; // コピー
-        }
-        return new Trace(x, y);
+        // 基準の時間窓に先ほどの差を考慮 波形は共有される
+        return trace.shiftX(timeshift);
     }
 
     private class Key {
@@ -25,7 +25,7 @@ public class SimpleStack implements Stack {
         for (int i = 0; i < t.length; i++)
             t[i] = i;
 
-        return new Trace(t, trace.getY());
+        return trace.withXAs(t);
     }
 
 
@@ -0,0 +1,630 @@
+package io.github.kensuke1984.kibrary.timewindow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import io.github.kensuke1984.anisotime.Phase;
+import io.github.kensuke1984.kibrary.util.DatasetAid;
+import io.github.kensuke1984.kibrary.util.data.Observer;
+import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTID;
+
+/**
+ * Set operations of time windows, done for each (event, observer, component) data entry.
+ * <p>
+ * Time windows are sorted in the order of {@link TimewindowData#compareTo(Timewindow)},
+ * that is, by observer, event, component, and then start time,
+ * so that windows of the same entry are next to each other.
+ * The sorted inputs are then scanned together, one entry at a time,
+ * which takes O(n log n) time in total instead of comparing every pair of windows.
+ * <p>
+ * The operations on time ranges are:
+ * <ul>
+ * <li>intersection: parts of the time ranges covered by windows of both inputs.</li>
+ * <li>subtraction: parts of the windows of the first input not covered by windows of the second input.</li>
+ * <li>union: windows of all inputs, identical ones counted once, with overlapping windows merged if specified.</li>
+ * </ul>
+ * The phases of windows created by intersection and subtraction are those of the windows of the first input.
+ * Parts shorter than 1/100 s (the precision of {@link Timewindow}) are dropped.
+ * <p>
+ * Each operation can be done either on collections in memory,
+ * or on {@link TimewindowDataFile}s, reading and writing windows one by one.
+ * In the latter case, input files larger than {@value #CHUNK_WINDOWS} windows are sorted
+ * through temporary files, so the files do not have to fit in memory.
+ *
+ * @since 2026/10/18
+ */
+public final class TimewindowAlgebra {
+
+    /**
+     * Maximum number of time windows to sort in memory at once when reading files.
+     */
+    static final int CHUNK_WINDOWS = 1 << 19;
+
+    private TimewindowAlgebra() {
+    }
+
+    /**
+     * Parts of the time ranges covered by windows of both inputs.
+     * @param windows1 (Collection of {@link TimewindowData}) Time windows.
+     * @param windows2 (Collection of {@link TimewindowData}) Time windows to intersect with.
+     * @return (<b>unmodifiable</b> Set of {@link TimewindowData}) Intersection, in sorted order.
+     */
+    public static Set<TimewindowData> intersect(Collection<TimewindowData> windows1, Collection<TimewindowData> windows2) {
+        return apply(TimewindowAlgebra::intersectEntry, Arrays.asList(windows1, windows2));
+    }
+
+    /**
+     * Parts of the windows of the first input that are not covered by windows of the second input.
+     * @param windows1 (Collection of {@link TimewindowData}) Time windows.
+     * @param windows2 (Collection of {@link TimewindowData}) Time windows to subtract.
+     * @return (<b>unmodifiable</b> Set of {@link TimewindowData}) Remaining windows, in sorted order.
+     */
+    public static Set<TimewindowData> subtract(Collection<TimewindowData> windows1, Collection<TimewindowData> windows2) {
+        return apply(TimewindowAlgebra::subtractEntry, Arrays.asList(windows1, windows2));
+    }
+
+    /**
+     * Windows of the first input that are not identical to any window of the second input.
+     * Unlike {@link #subtract(Collection, Collection)}, the time ranges are not cut.
+     * @param windows1 (Collection of {@link TimewindowData}) Time windows.
+     * @param windows2 (Collection of {@link TimewindowData}) Time windows to remove.
+     * @return (<b>unmodifiable</b> Set of {@link TimewindowData}) Remaining windows, in sorted order.
+     */
+    public static Set<TimewindowData> removeIdentical(Collection<TimewindowData> windows1, Collection<TimewindowData> windows2) {
+        return apply(TimewindowAlgebra::removeIdenticalEntry, Arrays.asList(windows1, windows2));
+    }
+
+    /**
+     * Windows of all inputs, where identical windows are counted once.
+     * @param windowsList (List of Collection of {@link TimewindowData}) Time windows of each input.
+     * @param mergeOverlaps (boolean) Whether to merge overlapping windows of the same entry into one.
+     * @return (<b>unmodifiable</b> Set of {@link TimewindowData}) Union, in sorted order.
+     */
+    public static Set<TimewindowData> union(List<? extends Collection<TimewindowData>> windowsList, boolean mergeOverlaps) {
+        return apply(mergeOverlaps ? TimewindowAlgebra::mergeEntry : TimewindowAlgebra::unionEntry, windowsList);
+    }
+
+    /**
+     * Merges overlapping windows of the same entry into one window, including all their phases.
+     * @param windows (Collection of {@link TimewindowData}) Time windows.
+     * @return (<b>unmodifiable</b> Set of {@link TimewindowData}) Merged windows, in sorted order.
+     */
+    public static Set<TimewindowData> mergeOverlaps(Collection<TimewindowData> windows) {
+        return apply(TimewindowAlgebra::mergeEntry, Collections.singletonList(windows));
+    }
+
+    /**
+     * Windows of the first input which have windows of the same event and observer in the second input.
+     * The time ranges are not compared.
+     * @param windows1 (Collection of {@link TimewindowData}) Time windows to select from.
+     * @param windows2 (Collection of {@link TimewindowData}) Time windows to look for partners in.
+     * @param sameComponent (boolean) Whether the partners must also have the same component.
+     * @param samePhases (boolean) Whether the partners must also have the same set of phases.
+     * @return (<b>unmodifiable</b> Set of {@link TimewindowData}) Selected windows, in sorted order.
+     */
+    public static Set<TimewindowData> selectMatching(Collection<TimewindowData> windows1, Collection<TimewindowData> windows2,
+            boolean sameComponent, boolean samePhases) {
+        Comparator<TimewindowData> keyComparator = sameComponent ? TimewindowAlgebra::compareEntry : TimewindowAlgebra::compareRecord;
+        GroupIterator groups1 = new GroupIterator(sort(windows1).iterator(), keyComparator);
+        GroupIterator groups2 = new GroupIterator(sort(windows2).iterator(), keyComparator);
+        Set<TimewindowData> selected = new LinkedHashSet<>();
+        List<TimewindowData> group2 = Collections.emptyList();
+        while (groups1.hasNext()) {
+            List<TimewindowData> group1 = groups1.next();
+            // advance the second input up to the key of group1
+            while ((group2.isEmpty() || keyComparator.compare(group2.get(0), group1.get(0)) < 0) && groups2.hasNext())
+                group2 = groups2.next();
+            if (group2.isEmpty() || keyComparator.compare(group2.get(0), group1.get(0)) != 0) continue;
+            if (!samePhases) {
+                selected.addAll(group1);
+                continue;
+            }
+            Set<Set<Phase>> phaseSets2 = new HashSet<>();
+            for (TimewindowData window2 : group2)
+                phaseSets2.add(new HashSet<>(Arrays.asList(window2.getPhases())));
+            for (TimewindowData window1 : group1)
+                if (phaseSets2.contains(new HashSet<>(Arrays.asList(window1.getPhases())))) selected.add(window1);
+        }
+        return Collections.unmodifiableSet(selected);
+    }
+
+    /**
+     * {@link #intersect(Collection, Collection)} of time window files.
+     * @param inputPath1 (Path) {@link TimewindowDataFile} of time windows.
+     * @param inputPath2 (Path) {@link TimewindowDataFile} of time windows to intersect with.
+     * @param outputPath (Path) Output {@link TimewindowDataFile}.
+     * @return (int) Number of time windows written.
+     * @throws IOException if an I/O error occurs
+     */
+    public static int intersect(Path inputPath1, Path inputPath2, Path outputPath) throws IOException {
+        return apply(TimewindowAlgebra::intersectEntry, Arrays.asList(inputPath1, inputPath2), outputPath);
+    }
+
+    /**
+     * {@link #subtract(Collection, Collection)} of time window files.
+     * @param inputPath1 (Path) {@link TimewindowDataFile} of time windows.
+     * @param inputPath2 (Path) {@link TimewindowDataFile} of time windows to subtract.
+     * @param outputPath (Path) Output {@link TimewindowDataFile}.
+     * @return (int) Number of time windows written.
+     * @throws IOException if an I/O error occurs
+     */
+    public static int subtract(Path inputPath1, Path inputPath2, Path outputPath) throws IOException {
+        return apply(TimewindowAlgebra::subtractEntry, Arrays.asList(inputPath1, inputPath2), outputPath);
+    }
+
+    /**
+     * {@link #removeIdentical(Collection, Collection)} of time window files.
+     * @param inputPath1 (Path) {@link TimewindowDataFile} of time windows.
+     * @param inputPath2 (Path) {@link TimewindowDataFile} of time windows to remove.
+     * @param outputPath (Path) Output {@link TimewindowDataFile}.
+     * @return (int) Number of time windows written.
+     * @throws IOException if an I/O error occurs
+     */
+    public static int removeIdentical(Path inputPath1, Path inputPath2, Path outputPath) throws IOException {
+        return apply(TimewindowAlgebra::removeIdenticalEntry, Arrays.asList(inputPath1, inputPath2), outputPath);
+    }
+
+    /**
+     * {@link #union(List, boolean)} of time window files.
+     * @param inputPaths (List of Path) {@link TimewindowDataFile}s of time windows.
+     * @param mergeOverlaps (boolean) Whether to merge overlapping windows of the same entry into one.
+     * @param outputPath (Path) Output {@link TimewindowDataFile}.
+     * @return (int) Number of time windows written.
+     * @throws IOException if an I/O error occurs
+     */
+    public static int union(List<Path> inputPaths, boolean mergeOverlaps, Path outputPath) throws IOException {
+        return apply(mergeOverlaps ? TimewindowAlgebra::mergeEntry : TimewindowAlgebra::unionEntry, inputPaths, outputPath);
+    }
+
+    private static Set<TimewindowData> apply(EntryOperator operator, List<? extends Collection<TimewindowData>> windowsList) {
+        List<Iterator<TimewindowData>> inputs = new ArrayList<>();
+        for (Collection<TimewindowData> windows : windowsList)
+            inputs.add(sort(windows).iterator());
+        Set<TimewindowData> result = new LinkedHashSet<>();
+        scan(operator, inputs, result::add);
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static int apply(EntryOperator operator, List<Path> inputPaths, Path outputPath) throws IOException {
+        List<SortedReader> readers = new ArrayList<>();
+        try (WindowWriter writer = new WindowWriter(outputPath)) {
+            Path tempFolder = outputPath.toAbsolutePath().getParent();
+            for (Path inputPath : inputPaths)
+                readers.add(new SortedReader(inputPath, tempFolder));
+            try {
+                scan(operator, new ArrayList<>(readers), writer);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+            return writer.getNumWindow();
+        } finally {
+            for (SortedReader reader : readers)
+                reader.close();
+        }
+    }
+
+    /**
+     * Feeds the windows of each entry of the sorted inputs to an operator.
+     * @param operator (EntryOperator) Operation for each entry.
+     * @param inputs (List of Iterator of {@link TimewindowData}) Sorted inputs.
+     * @param output (Consumer of {@link TimewindowData}) Where to put the resulting windows, in sorted order.
+     */
+    private static void scan(EntryOperator operator, List<Iterator<TimewindowData>> inputs, Consumer<TimewindowData> output) {
+        List<GroupIterator> groupIterators = new ArrayList<>();
+        for (Iterator<TimewindowData> input : inputs)
+            groupIterators.add(new GroupIterator(input, TimewindowAlgebra::compareEntry));
+        while (true) {
+            // the smallest entry among the heads of all inputs
+            TimewindowData head = null;
+            for (GroupIterator groupIterator : groupIterators)
+                if (groupIterator.peek() != null && (head == null || compareEntry(groupIterator.peek(), head) < 0))
+                    head = groupIterator.peek();
+            if (head == null) return;
+            List<List<TimewindowData>> groups = new ArrayList<>();
+            for (GroupIterator groupIterator : groupIterators)
+                groups.add(groupIterator.peek() != null && compareEntry(groupIterator.peek(), head) == 0
+                        ? groupIterator.next() : Collections.<TimewindowData>emptyList());
+            operator.apply(groups, output);
+        }
+    }
+
+    private static List<TimewindowData> sort(Collection<TimewindowData> windows) {
+        List<TimewindowData> sorted = new ArrayList<>(windows);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Compares (observer, event, component) in the same order as {@link TimewindowData#compareTo(Timewindow)}.
+     */
+    private static int compareEntry(TimewindowData window1, TimewindowData window2) {
+        int record = compareRecord(window1, window2);
+        return record != 0 ? record : window1.getComponent().compareTo(window2.getComponent());
+    }
+
+    /**
+     * Compares (observer, event) in the same order as {@link TimewindowData#compareTo(Timewindow)}.
+     */
+    private static int compareRecord(TimewindowData window1, TimewindowData window2) {
+        int sta = window1.getObserver().compareTo(window2.getObserver());
+        return sta != 0 ? sta : window1.getGlobalCMTID().compareTo(window2.getGlobalCMTID());
+    }
+
+    //////////////////////////////////////// operations for each entry ////////////////////////////////////////
+
+    /**
+     * Operation on the windows of one entry.
+     * Each group is sorted and belongs to the same entry; it is empty when the input has no window of the entry.
+     */
+    private interface EntryOperator {
+        void apply(List<List<TimewindowData>> groups, Consumer<TimewindowData> output);
+    }
+
+    private static void intersectEntry(List<List<TimewindowData>> groups, Consumer<TimewindowData> output) {
+        List<TimewindowData> group1 = merge(groups.get(0));
+        List<TimewindowData> group2 = merge(groups.get(1));
+        int i = 0;
+        int j = 0;
+        while (i < group1.size() && j < group2.size()) {
+            TimewindowData window1 = group1.get(i);
+            TimewindowData window2 = group2.get(j);
+            double start = Math.max(window1.startTime, window2.startTime);
+            double end = Math.min(window1.endTime, window2.endTime);
+            if (start < end) output.accept(cut(window1, start, end));
+            // the window that ends first cannot overlap with later windows of the other input
+            if (window1.endTime < window2.endTime) i++;
+            else j++;
+        }
+    }
+
+    private static void subtractEntry(List<List<TimewindowData>> groups, Consumer<TimewindowData> output) {
+        List<TimewindowData> group1 = groups.get(0);
+        List<TimewindowData> group2 = merge(groups.get(1));
+        int first = 0;
+        for (TimewindowData window1 : group1) {
+            // windows of group2 are disjoint and sorted, so their end times increase, as do the start times of group1
+            while (first < group2.size() && group2.get(first).endTime <= window1.startTime) first++;
+            double start = window1.startTime;
+            for (int j = first; j < group2.size() && group2.get(j).startTime < window1.endTime; j++) {
+                TimewindowData window2 = group2.get(j);
+                if (start < window2.startTime) output.accept(cut(window1, start, window2.startTime));
+                start = Math.max(start, window2.endTime);
+            }
+            if (start == window1.startTime) output.accept(window1);
+            else if (start < window1.endTime) output.accept(cut(window1, start, window1.endTime));
+        }
+    }
+
+    private static void removeIdenticalEntry(List<List<TimewindowData>> groups, Consumer<TimewindowData> output) {
+        Set<TimewindowData> removed = new HashSet<>(groups.get(1));
+        for (TimewindowData window : groups.get(0))
+            if (!removed.contains(window)) output.accept(window);
+    }
+
+    private static void unionEntry(List<List<TimewindowData>> groups, Consumer<TimewindowData> output) {
+        for (TimewindowData window : union(groups))
+            output.accept(window);
+    }
+
+    private static void mergeEntry(List<List<TimewindowData>> groups, Consumer<TimewindowData> output) {
+        for (TimewindowData window : merge(union(groups)))
+            output.accept(window);
+    }
+
+    /**
+     * @param groups (List of List of {@link TimewindowData}) Sorted windows of the same entry.
+     * @return (List of {@link TimewindowData}) Sorted windows of all groups, identical ones (same time range) counted once.
+     */
+    private static List<TimewindowData> union(List<List<TimewindowData>> groups) {
+        List<TimewindowData> all = new ArrayList<>();
+        for (List<TimewindowData> group : groups)
+            all.addAll(group);
+        // groups are sorted, so this is a merge of sorted runs
+        Collections.sort(all);
+        List<TimewindowData> distinct = new ArrayList<>();
+        for (TimewindowData window : all)
+            if (distinct.isEmpty() || distinct.get(distinct.size() - 1).compareTo(window) != 0) distinct.add(window);
+        return distinct;
+    }
+
+    /**
+     * @param group (List of {@link TimewindowData}) Sorted windows of the same entry.
+     * @return (List of {@link TimewindowData}) Sorted, disjoint windows, where overlapping windows are merged.
+     */
+    private static List<TimewindowData> merge(List<TimewindowData> group) {
+        List<TimewindowData> merged = new ArrayList<>();
+        int i = 0;
+        while (i < group.size()) {
+            TimewindowData window = group.get(i);
+            double end = window.endTime;
+            int j = i + 1;
+            while (j < group.size() && group.get(j).startTime <= end) {
+                end = Math.max(end, group.get(j).endTime);
+                j++;
+            }
+            if (j == i + 1) {
+                merged.add(window);
+            } else {
+                Set<Phase> phases = new LinkedHashSet<>();
+                for (int k = i; k < j; k++)
+                    phases.addAll(Arrays.asList(group.get(k).getPhases()));
+                merged.add(new TimewindowData(window.startTime, end, window.getObserver(), window.getGlobalCMTID(),
+                        window.getComponent(), phases.toArray(new Phase[0])));
+            }
+            i = j;
+        }
+        return merged;
+    }
+
+    private static TimewindowData cut(TimewindowData window, double start, double end) {
+        return new TimewindowData(start, end, window.getObserver(), window.getGlobalCMTID(), window.getComponent(),
+                window.getPhases());
+    }
+
+    //////////////////////////////////////// iterators ////////////////////////////////////////
+
+    /**
+     * Splits a sorted iterator into lists of consecutive windows with the same key.
+     */
+    private static final class GroupIterator implements Iterator<List<TimewindowData>> {
+        private final Iterator<TimewindowData> iterator;
+        private final Comparator<TimewindowData> keyComparator;
+        private TimewindowData head;
+
+        private GroupIterator(Iterator<TimewindowData> iterator, Comparator<TimewindowData> keyComparator) {
+            this.iterator = iterator;
+            this.keyComparator = keyComparator;
+            head = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        /**
+         * @return ({@link TimewindowData}) First window of the next group, or null if there is none.
+         */
+        private TimewindowData peek() {
+            return head;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return head != null;
+        }
+
+        @Override
+        public List<TimewindowData> next() {
+            if (head == null) throw new NoSuchElementException();
+            List<TimewindowData> group = new ArrayList<>();
+            group.add(head);
+            head = null;
+            while (iterator.hasNext()) {
+                TimewindowData window = iterator.next();
+                if (keyComparator.compare(window, group.get(0)) != 0) {
+                    head = window;
+                    break;
+                }
+                group.add(window);
+            }
+            return group;
+        }
+    }
+
+    /**
+     * Reads the windows of a {@link TimewindowDataFile} in sorted order.
+     * Windows are sorted in chunks of {@value #CHUNK_WINDOWS}, written to temporary files if there is more than one chunk,
+     * and then merged.
+     */
+    private static final class SortedReader implements Iterator<TimewindowData>, Closeable {
+        private final TimewindowDataFile.Header header;
+        private final List<Path> runPaths = new ArrayList<>();
+        private final List<DataInputStream> runStreams = new ArrayList<>();
+        private final PriorityQueue<RunHead> heads = new PriorityQueue<>();
+        private final Path tempFolder;
+        private Iterator<TimewindowData> memoryIterator;
+
+        private SortedReader(Path inputPath, Path tempFolder) throws IOException {
+            this.tempFolder = tempFolder;
+            try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(inputPath)))) {
+                header = TimewindowDataFile.Header.read(dis, Files.size(inputPath), inputPath);
+                long nWindow = header.getNumWindow();
+                byte[] bytes = new byte[TimewindowDataFile.ONE_WINDOW_BYTE];
+                for (long done = 0; done < nWindow; done += CHUNK_WINDOWS) {
+                    int n = (int) Math.min(CHUNK_WINDOWS, nWindow - done);
+                    List<TimewindowData> chunk = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        dis.readFully(bytes);
+                        chunk.add(header.createWindow(bytes));
+                    }
+                    Collections.sort(chunk);
+                    if (nWindow <= CHUNK_WINDOWS) {
+                        memoryIterator = chunk.iterator();
+                        return;
+                    }
+                    writeRun(chunk);
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+            if (runPaths.isEmpty()) {
+                memoryIterator = Collections.emptyIterator();
+                return;
+            }
+            for (Path runPath : runPaths) {
+                DataInputStream runStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(runPath)));
+                runStreams.add(runStream);
+                RunHead head = new RunHead(runStream);
+                if (head.advance()) heads.add(head);
+            }
+        }
+
+        private void writeRun(List<TimewindowData> chunk) throws IOException {
+            Path runPath = Files.createTempFile(tempFolder, "timewindow", ".tmp");
+            runPaths.add(runPath);
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runPath)))) {
+                for (TimewindowData window : chunk)
+                    header.writeWindow(dos, window);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return memoryIterator != null ? memoryIterator.hasNext() : !heads.isEmpty();
+        }
+
+        @Override
+        public TimewindowData next() {
+            if (memoryIterator != null) return memoryIterator.next();
+            RunHead head = heads.poll();
+            if (head == null) throw new NoSuchElementException();
+            TimewindowData window = head.window;
+            try {
+                if (head.advance()) heads.add(head);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return window;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (InputStream runStream : runStreams)
+                runStream.close();
+            for (Path runPath : runPaths)
+                Files.deleteIfExists(runPath);
+        }
+
+        private final class RunHead implements Comparable<RunHead> {
+            private final DataInputStream stream;
+            private final byte[] bytes = new byte[TimewindowDataFile.ONE_WINDOW_BYTE];
+            private TimewindowData window;
+
+            private RunHead(DataInputStream stream) {
+                this.stream = stream;
+            }
+
+            /**
+             * @return (boolean) Whether a next window was read.
+             */
+            private boolean advance() throws IOException {
+                if (stream.read(bytes, 0, 1) < 0) return false;
+                stream.readFully(bytes, 1, bytes.length - 1);
+                window = header.createWindow(bytes);
+                return true;
+            }
+
+            @Override
+            public int compareTo(RunHead o) {
+                return window.compareTo(o.window);
+            }
+        }
+    }
+
+    /**
+     * Writes windows one by one to a {@link TimewindowDataFile}.
+     * Since the header must come first, the windows are kept in a temporary file until {@link #finish()} is called.
+     * The temporary file is deleted when the writer is closed.
+     */
+    private static final class WindowWriter implements Consumer<TimewindowData>, Closeable {
+        private final Path outputPath;
+        private final Path bodyPath;
+        private final DataOutputStream body;
+        private final Map<Observer, Integer> observerMap = new LinkedHashMap<>();
+        private final Map<GlobalCMTID, Integer> eventMap = new LinkedHashMap<>();
+        private final Map<Phase, Integer> phaseMap = new LinkedHashMap<>();
+        private int nWindow;
+        /**
+         * Number of windows whose phases were truncated to {@link TimewindowDataFile#MAX_PHASE}.
+         */
+        private int nTruncated;
+
+        private WindowWriter(Path outputPath) throws IOException {
+            this.outputPath = outputPath;
+            bodyPath = Files.createTempFile(outputPath.toAbsolutePath().getParent(), "timewindow", ".tmp");
+            body = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(bodyPath)));
+        }
+
+        @Override
+        public void accept(TimewindowData window) {
+            try {
+                body.writeShort(indexOf(observerMap, window.getObserver()));
+                body.writeShort(indexOf(eventMap, window.getGlobalCMTID()));
+                Phase[] phases = window.getPhases();
+                if (TimewindowDataFile.checkTruncation(window, nTruncated)) nTruncated++;
+                for (int i = 0; i < TimewindowDataFile.MAX_PHASE; i++)
+                    body.writeShort(i < phases.length ? indexOf(phaseMap, phases[i]) : -1);
+                body.writeByte(window.getComponent().getNumber());
+                body.writeFloat((float) window.startTime);
+                body.writeFloat((float) window.endTime);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            nWindow++;
+        }
+
+        private static <T> int indexOf(Map<T, Integer> map, T key) {
+            Integer index = map.get(key);
+            if (index == null) {
+                index = map.size();
+                map.put(key, index);
+            }
+            return index;
+        }
+
+        private int getNumWindow() {
+            return nWindow;
+        }
+
+        /**
+         * Writes the output file. Nothing is written if there are no windows.
+         */
+        private void finish() throws IOException {
+            body.close();
+            TimewindowDataFile.printTruncation(nTruncated);
+            if (nWindow == 0) {
+                System.err.println("!! No time windows to output.");
+                return;
+            }
+            DatasetAid.printNumOutput(nWindow, "time window", "time windows", outputPath);
+            TimewindowDataFile.Header header = new TimewindowDataFile.Header(
+                    observerMap.keySet().toArray(new Observer[0]), eventMap.keySet().toArray(new GlobalCMTID[0]),
+                    phaseMap.keySet().toArray(new Phase[0]));
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputPath)))) {
+                header.write(dos);
+                Files.copy(bodyPath, dos);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                body.close();
+            } finally {
+                Files.deleteIfExists(bodyPath);
+            }
+        }
+    }
+
+}
@@ -11,13 +11,15 @@ import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import org.apache.commons.cli.CommandLine;
@@ -82,6 +84,10 @@ public final class TimewindowDataFile {
      * Number of bytes used for information of one time window.
      */
     public static final int ONE_WINDOW_BYTE = 33;
+    /**
+     * Maximum number of phases that can be recorded for one time window.
+     */
+    public static final int MAX_PHASE = 10;
 
     /**
      * Output {@link TimewindowData} in binary format.
@@ -106,52 +112,42 @@ public final class TimewindowDataFile {
         Phase[] phases = timewindowSet.stream().map(TimewindowData::getPhases).flatMap(p -> Stream.of(p))
             .distinct().toArray(Phase[]::new);
 
-        Map<Observer, Integer> observerMap = new HashMap<>();
-        Map<GlobalCMTID, Integer> eventMap = new HashMap<>();
-        Map<Phase, Integer> phaseMap = new HashMap<>();
-
         try (DataOutputStream dos = new DataOutputStream(
                 new BufferedOutputStream(Files.newOutputStream(outputPath, options)))) {
-            dos.writeShort(observers.length);
-            dos.writeShort(events.length);
-            dos.writeShort(phases.length);
-            for (int i = 0; i < observers.length; i++) {
-                observerMap.put(observers[i], i);
-                dos.writeBytes(StringUtils.rightPad(observers[i].toString(), Observer.MAX_LENGTH));
-                HorizontalPosition pos = observers[i].getPosition();
-                dos.writeDouble(pos.getLatitude());
-                dos.writeDouble(pos.getLongitude());
-            }
-            for (int i = 0; i < events.length; i++) {
-                eventMap.put(events[i], i);
-                dos.writeBytes(StringUtils.rightPad(events[i].toString(), GlobalCMTID.MAX_LENGTH));
-            }
-            for (int i = 0; i < phases.length; i++) {
-                phaseMap.put(phases[i], i);
-                if (phases[i] == null)
-                    throw new NullPointerException(i + " " + "phase is null");
-                dos.writeBytes(StringUtils.rightPad(phases[i].toString(), 16));
-            }
+            Header header = new Header(observers, events, phases);
+            header.write(dos);
+            int nTruncated = 0;
             for (TimewindowData info : timewindowSet) {
-                dos.writeShort(observerMap.get(info.getObserver()));
-                dos.writeShort(eventMap.get(info.getGlobalCMTID()));
-                Phase[] infophases = info.getPhases();
-                for (int i = 0; i < 10; i++) {
-                    if (i < infophases.length) {
-                        dos.writeShort(phaseMap.get(infophases[i]));
-                    }
-                    else
-                        dos.writeShort(-1);
-                }
-                dos.writeByte(info.getComponent().getNumber());
-                float startTime = (float) info.startTime;
-                float endTime = (float) info.endTime;
-                dos.writeFloat(startTime);
-                dos.writeFloat(endTime);
+                if (checkTruncation(info, nTruncated)) nTruncated++;
+                header.writeWindow(dos, info);
             }
+            printTruncation(nTruncated);
         }
     }
 
+    /**
+     * Checks whether all phases of a time window can be written. Only the first {@link #MAX_PHASE} phases are written.
+     * A warning is printed for the first time window whose phases are truncated.
+     * @param window ({@link TimewindowData}) Time window to be written.
+     * @param nTruncated (int) Number of time windows found so far whose phases are truncated.
+     * @return (boolean) Whether the phases of this time window are truncated.
+     */
+    static boolean checkTruncation(TimewindowData window, int nTruncated) {
+        Phase[] phases = window.getPhases();
+        if (phases.length <= MAX_PHASE) return false;
+        if (nTruncated == 0) System.err.println("!! Only the first " + MAX_PHASE + " phases can be written; "
+                + Arrays.toString(phases) + " in " + window + " are truncated.");
+        return true;
+    }
+
+    /**
+     * Prints the number of time windows whose phases were truncated, if there are any.
+     * @param nTruncated (int) Number of time windows whose phases were truncated.
+     */
+    static void printTruncation(int nTruncated) {
+        if (nTruncated > 0) System.err.println("!! Phases were truncated to " + MAX_PHASE + " in " + nTruncated + " time windows.");
+    }
+
     /**
      * Read time window data from a binary format {@link TimewindowDataFile}
      * and select those to use based on {@link DataEntry}s and {@link SACComponent}s.
@@ -166,23 +162,16 @@ public final class TimewindowDataFile {
      * @since 2023/4/8
      */
     public static Set<TimewindowData> readAndSelect(Path inputPath, Path dataEntryPath, Set<SACComponent> components) throws IOException {
-        Set<TimewindowData> timewindowSet;
+        Filter filter = Filter.all().components(components::contains);
         if (dataEntryPath != null) {
             // read entry set to be used for selection
             Set<DataEntry> entrySet = DataEntryListFile.readAsSet(dataEntryPath);
-
-            // read time windows and select based on component and entries
-            timewindowSet = TimewindowDataFile.read(inputPath).stream()
-                    .filter(window -> components.contains(window.getComponent()) && entrySet.contains(window.toDataEntry()))
-                    .collect(Collectors.toSet());
-        } else {
-            // read time windows and select based on component
-            timewindowSet = TimewindowDataFile.read(inputPath).stream()
-                    .filter(window -> components.contains(window.getComponent()))
-                    .collect(Collectors.toSet());
+            filter = filter.entries(entrySet::contains);
         }
+        // read time windows and select based on component and entries
+        Set<TimewindowData> timewindowSet = read(inputPath, filter);
         System.err.println("Selected " + MathAid.switchSingularPlural(timewindowSet.size(), "time window.", "time windows."));
-        return Collections.unmodifiableSet(timewindowSet);
+        return timewindowSet;
     }
 
     /**
@@ -194,10 +183,261 @@ public final class TimewindowDataFile {
      * @author Kensuke Konishi
      */
     public static Set<TimewindowData> read(Path inputPath) throws IOException {
+        return read(inputPath, Filter.all());
+    }
+
+    /**
+     * Read time window data that satisfy a {@link Filter} from a binary format {@link TimewindowDataFile}.
+     * Time windows that do not satisfy the filter are skipped before being decoded.
+     *
+     * @param inputPath (Path) The {@link TimewindowDataFile} to read.
+     * @param filter ({@link Filter}) Conditions of time windows to read.
+     * @return (<b>unmodifiable</b> Set of {@link TimewindowData}) Time windows that are read.
+     * @throws IOException if an I/O error occurs
+     *
+     * @since 2026/10/18
+     */
+    public static Set<TimewindowData> read(Path inputPath, Filter filter) throws IOException {
+        Set<TimewindowData> timewindowSet = new HashSet<>();
+        for (List<TimewindowData> windows : readSelected(inputPath, filter).values())
+            timewindowSet.addAll(windows);
+        return Collections.unmodifiableSet(timewindowSet);
+    }
+
+    /**
+     * Read time window data that satisfy a {@link Filter} from a binary format {@link TimewindowDataFile},
+     * grouped by event.
+     * Time windows that do not satisfy the filter are skipped before being decoded.
+     *
+     * @param inputPath (Path) The {@link TimewindowDataFile} to read.
+     * @param filter ({@link Filter}) Conditions of time windows to read.
+     * @return (<b>unmodifiable</b> Map of {@link GlobalCMTID} to <b>unmodifiable</b> Set of {@link TimewindowData})
+     *          Time windows that are read, for each event that has any.
+     * @throws IOException if an I/O error occurs
+     *
+     * @since 2026/10/18
+     */
+    public static Map<GlobalCMTID, Set<TimewindowData>> readByEvent(Path inputPath, Filter filter) throws IOException {
+        Map<GlobalCMTID, Set<TimewindowData>> timewindowMap = new HashMap<>();
+        for (Map.Entry<GlobalCMTID, List<TimewindowData>> entry : readSelected(inputPath, filter).entrySet())
+            timewindowMap.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<>(entry.getValue())));
+        return Collections.unmodifiableMap(timewindowMap);
+    }
+
+    private static Map<GlobalCMTID, List<TimewindowData>> readSelected(Path inputPath, Filter filter) throws IOException {
         try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(inputPath)));) {
-            long fileSize = Files.size(inputPath);
+            Header header = Header.read(dis, Files.size(inputPath), inputPath);
+            RecordFilter recordFilter = new RecordFilter(header, filter);
+
+            List<List<TimewindowData>> windowsForEvent = new ArrayList<>();
+            for (int i = 0; i < header.events.length; i++)
+                windowsForEvent.add(new ArrayList<>());
+            byte[] bytes = new byte[ONE_WINDOW_BYTE];
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            int num = 0;
+            for (long i = 0; i < header.getNumWindow(); i++) {
+                dis.readFully(bytes);
+                if (!recordFilter.test(bb)) continue;
+                windowsForEvent.get(bb.getShort(2)).add(header.createWindow(bytes));
+                num++;
+            }
+
+            Map<GlobalCMTID, List<TimewindowData>> timewindowMap = new HashMap<>();
+            for (int i = 0; i < header.events.length; i++) {
+                if (windowsForEvent.get(i).isEmpty()) continue;
+                // the same event may appear more than once in the header
+                timewindowMap.computeIfAbsent(header.events[i], event -> new ArrayList<>()).addAll(windowsForEvent.get(i));
+            }
+            DatasetAid.printNumInput(num, "time window", "time windows", inputPath);
+            return timewindowMap;
+        }
+    }
+
+    /**
+     * Conditions to select time windows when reading a {@link TimewindowDataFile}.
+     * <p>
+     * The conditions on events, observers, components, and phases are evaluated once for each entry in the file header,
+     * and the condition on data entries once for each (event, observer, component) combination.
+     * Each time window is then checked by looking up the results with the indices in its {@value #ONE_WINDOW_BYTE} bytes,
+     * so that {@link TimewindowData} instances are created only for those selected.
+     * <p>
+     * Conditions set by several methods must all be satisfied.
+     * This class is <b>IMMUTABLE</b>.
+     *
+     * @since 2026/10/18
+     */
+    public static final class Filter {
+        private static final Filter ALL = new Filter(null, null, null, null, null);
+
+        private final Predicate<GlobalCMTID> eventPredicate;
+        private final Predicate<Observer> observerPredicate;
+        private final Predicate<SACComponent> componentPredicate;
+        private final Predicate<Phase> phasePredicate;
+        private final Predicate<DataEntry> entryPredicate;
 
-            // Read header
+        private Filter(Predicate<GlobalCMTID> eventPredicate, Predicate<Observer> observerPredicate,
+                Predicate<SACComponent> componentPredicate, Predicate<Phase> phasePredicate, Predicate<DataEntry> entryPredicate) {
+            this.eventPredicate = eventPredicate;
+            this.observerPredicate = observerPredicate;
+            this.componentPredicate = componentPredicate;
+            this.phasePredicate = phasePredicate;
+            this.entryPredicate = entryPredicate;
+        }
+
+        /**
+         * @return ({@link Filter}) Filter that selects all time windows.
+         */
+        public static Filter all() {
+            return ALL;
+        }
+
+        /**
+         * @param predicate (Predicate of {@link GlobalCMTID}) Condition on the event.
+         * @return ({@link Filter}) Filter with the condition added.
+         */
+        public Filter events(Predicate<GlobalCMTID> predicate) {
+            return new Filter(and(eventPredicate, predicate), observerPredicate, componentPredicate, phasePredicate, entryPredicate);
+        }
+
+        /**
+         * @param predicate (Predicate of {@link Observer}) Condition on the observer.
+         * @return ({@link Filter}) Filter with the condition added.
+         */
+        public Filter observers(Predicate<Observer> predicate) {
+            return new Filter(eventPredicate, and(observerPredicate, predicate), componentPredicate, phasePredicate, entryPredicate);
+        }
+
+        /**
+         * @param predicate (Predicate of {@link SACComponent}) Condition on the component.
+         * @return ({@link Filter}) Filter with the condition added.
+         */
+        public Filter components(Predicate<SACComponent> predicate) {
+            return new Filter(eventPredicate, observerPredicate, and(componentPredicate, predicate), phasePredicate, entryPredicate);
+        }
+
+        /**
+         * @param predicate (Predicate of {@link Phase}) Condition on phases. Time windows including at least one phase
+         *          that satisfies all such conditions are selected.
+         * @return ({@link Filter}) Filter with the condition added.
+         */
+        public Filter phases(Predicate<Phase> predicate) {
+            return new Filter(eventPredicate, observerPredicate, componentPredicate, and(phasePredicate, predicate), entryPredicate);
+        }
+
+        /**
+         * @param predicate (Predicate of {@link DataEntry}) Condition on the (event, observer, component) data entry.
+         * @return ({@link Filter}) Filter with the condition added.
+         */
+        public Filter entries(Predicate<DataEntry> predicate) {
+            return new Filter(eventPredicate, observerPredicate, componentPredicate, phasePredicate, and(entryPredicate, predicate));
+        }
+
+        private static <T> Predicate<T> and(Predicate<T> original, Predicate<T> added) {
+            return original == null ? added : original.and(added);
+        }
+    }
+
+    /**
+     * {@link Filter} evaluated for the header of a file.
+     */
+    private static final class RecordFilter {
+        private final Header header;
+        private final Filter filter;
+        private final boolean[] observerSelected;
+        private final boolean[] eventSelected;
+        private final boolean[] componentSelected;
+        private final boolean[] phaseSelected;
+        private final Map<Long, Boolean> entrySelected = new HashMap<>();
+
+        private RecordFilter(Header header, Filter filter) {
+            this.header = header;
+            this.filter = filter;
+            observerSelected = evaluate(header.observers, filter.observerPredicate);
+            eventSelected = evaluate(header.events, filter.eventPredicate);
+            componentSelected = new boolean[SACComponent.values().length + 1];
+            for (SACComponent component : SACComponent.values())
+                componentSelected[component.getNumber()] = filter.componentPredicate == null || filter.componentPredicate.test(component);
+            phaseSelected = evaluate(header.phases, filter.phasePredicate);
+        }
+
+        private static <T> boolean[] evaluate(T[] values, Predicate<T> predicate) {
+            boolean[] selected = new boolean[values.length];
+            for (int i = 0; i < values.length; i++)
+                selected[i] = predicate == null || predicate.test(values[i]);
+            return selected;
+        }
+
+        /**
+         * @param bb (ByteBuffer) {@value #ONE_WINDOW_BYTE} bytes of a time window.
+         * @return (boolean) Whether the time window satisfies the filter.
+         */
+        private boolean test(ByteBuffer bb) {
+            short observerIndex = bb.getShort(0);
+            short eventIndex = bb.getShort(2);
+            byte componentNumber = bb.get(24);
+            if (!observerSelected[observerIndex] || !eventSelected[eventIndex] || !componentSelected[componentNumber])
+                return false;
+            if (filter.phasePredicate != null) {
+                boolean phaseFound = false;
+                for (int i = 0; i < MAX_PHASE && !phaseFound; i++) {
+                    short phaseIndex = bb.getShort(4 + 2 * i);
+                    phaseFound = phaseIndex != -1 && phaseSelected[phaseIndex];
+                }
+                if (!phaseFound) return false;
+            }
+            if (filter.entryPredicate != null) {
+                long key = ((long) observerIndex << 24) | (eventIndex << 8) | componentNumber;
+                Boolean selected = entrySelected.get(key);
+                if (selected == null) {
+                    selected = filter.entryPredicate.test(new DataEntry(header.events[eventIndex], header.observers[observerIndex],
+                            SACComponent.ofNumber(componentNumber)));
+                    entrySelected.put(key, selected);
+                }
+                return selected;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Header of a time window file: the observers, events, and phases referred to by the time windows.
+     * Also used by {@link TimewindowAlgebra} to read and write the windows one by one.
+     *
+     * @since 2026/10/18
+     */
+    static final class Header {
+        private final Observer[] observers;
+        private final GlobalCMTID[] events;
+        private final Phase[] phases;
+        private final Map<Observer, Integer> observerMap = new HashMap<>();
+        private final Map<GlobalCMTID, Integer> eventMap = new HashMap<>();
+        private final Map<Phase, Integer> phaseMap = new HashMap<>();
+        private long nWindow;
+
+        Header(Observer[] observers, GlobalCMTID[] events, Phase[] phases) {
+            this.observers = observers;
+            this.events = events;
+            this.phases = phases;
+            for (int i = 0; i < observers.length; i++)
+                observerMap.put(observers[i], i);
+            for (int i = 0; i < events.length; i++)
+                eventMap.put(events[i], i);
+            for (int i = 0; i < phases.length; i++) {
+                if (phases[i] == null)
+                    throw new NullPointerException(i + " " + "phase is null");
+                phaseMap.put(phases[i], i);
+            }
+        }
+
+        /**
+         * Reads the header, leaving the stream at the first time window.
+         * @param dis (DataInputStream) Stream at the beginning of a time window file.
+         * @param fileSize (long) Size of the file [byte].
+         * @param inputPath (Path) The file, used for error messages.
+         * @return ({@link Header}) Header that is read.
+         * @throws IOException if an I/O error occurs
+         */
+        static Header read(DataInputStream dis, long fileSize, Path inputPath) throws IOException {
             // short * 3
             Observer[] observers = new Observer[dis.readShort()];
             GlobalCMTID[] events = new GlobalCMTID[dis.readShort()];
@@ -210,59 +450,97 @@ public final class TimewindowDataFile {
 
             byte[] observerBytes = new byte[Observer.MAX_LENGTH + Double.BYTES * 2];
             for (int i = 0; i < observers.length; i++) {
-                dis.read(observerBytes);
+                dis.readFully(observerBytes);
                 observers[i] = Observer.createObserver(observerBytes);
             }
             byte[] eventBytes = new byte[GlobalCMTID.MAX_LENGTH];
             for (int i = 0; i < events.length; i++) {
-                dis.read(eventBytes);
+                dis.readFully(eventBytes);
                 events[i] = new GlobalCMTID(new String(eventBytes).trim());
             }
             byte[] phaseBytes = new byte[16];
             for (int i = 0; i < phases.length; i++) {
-                dis.read(phaseBytes);
+                dis.readFully(phaseBytes);
                 phases[i] = Phase.create(new String(phaseBytes).trim());
             }
+            Header header = new Header(observers, events, phases);
+            header.nWindow = windowParts / ONE_WINDOW_BYTE;
+            return header;
+        }
 
-            int nWindow = (int) (windowParts / ONE_WINDOW_BYTE);
-            byte[][] bytes = new byte[nWindow][ONE_WINDOW_BYTE];
-            for (int i = 0; i < nWindow; i++)
-                dis.read(bytes[i]);
+        /**
+         * @return (long) Number of time windows following the header, when the header was read from a file.
+         */
+        long getNumWindow() {
+            return nWindow;
+        }
 
-            Set<TimewindowData> timewindowSet = Arrays.stream(bytes).map(b -> create(b, observers, events, phases))
-                    .collect(Collectors.toSet());
-            DatasetAid.printNumInput(timewindowSet.size(), "time window", "time windows", inputPath);
-            return Collections.unmodifiableSet(timewindowSet);
+        void write(DataOutputStream dos) throws IOException {
+            dos.writeShort(observers.length);
+            dos.writeShort(events.length);
+            dos.writeShort(phases.length);
+            for (Observer observer : observers) {
+                dos.writeBytes(StringUtils.rightPad(observer.toString(), Observer.MAX_LENGTH));
+                HorizontalPosition pos = observer.getPosition();
+                dos.writeDouble(pos.getLatitude());
+                dos.writeDouble(pos.getLongitude());
+            }
+            for (GlobalCMTID event : events)
+                dos.writeBytes(StringUtils.rightPad(event.toString(), GlobalCMTID.MAX_LENGTH));
+            for (Phase phase : phases)
+                dos.writeBytes(StringUtils.rightPad(phase.toString(), 16));
         }
-    }
 
-    /**
-     * Create an instance for 1 time window.
-     *
-     * @param bytes    byte array
-     * @param observers station array
-     * @param events      id array
-     * @return TimewindowInformation
-     * @author anselme add phase information
-     */
-    private static TimewindowData create(byte[] bytes, Observer[] observers, GlobalCMTID[] events, Phase[] phases) {
-        ByteBuffer bb = ByteBuffer.wrap(bytes);
-        Observer observer = observers[bb.getShort()];
-        GlobalCMTID event = events[bb.getShort()];
-        Set<Phase> tmpset = new HashSet<>();
-        for (int i = 0; i < 10; i++) {
-            short iphase = bb.getShort();
-            if (iphase != -1)
-                tmpset.add(phases[iphase]);
+        /**
+         * Writes {@value #ONE_WINDOW_BYTE} bytes for 1 time window.
+         * Its observer, event, and phases must be in this header.
+         * @param dos (DataOutputStream) Stream to write to.
+         * @param info ({@link TimewindowData}) Time window to write.
+         * @throws IOException if an I/O error occurs
+         */
+        void writeWindow(DataOutputStream dos, TimewindowData info) throws IOException {
+            dos.writeShort(observerMap.get(info.getObserver()));
+            dos.writeShort(eventMap.get(info.getGlobalCMTID()));
+            Phase[] infophases = info.getPhases();
+            for (int i = 0; i < MAX_PHASE; i++) {
+                if (i < infophases.length) {
+                    dos.writeShort(phaseMap.get(infophases[i]));
+                }
+                else
+                    dos.writeShort(-1);
+            }
+            dos.writeByte(info.getComponent().getNumber());
+            float startTime = (float) info.startTime;
+            float endTime = (float) info.endTime;
+            dos.writeFloat(startTime);
+            dos.writeFloat(endTime);
         }
-        Phase[] usablephases = new Phase[tmpset.size()];
-        usablephases = tmpset.toArray(usablephases);
-        SACComponent component = SACComponent.ofNumber(bb.get());
-        double startTime = bb.getFloat();
-        double endTime = bb.getFloat();
-        return new TimewindowData(startTime, endTime, observer, event, component, usablephases);
-    }
 
+        /**
+         * Create an instance for 1 time window.
+         *
+         * @param bytes (byte[]) {@value #ONE_WINDOW_BYTE} bytes of the time window.
+         * @return ({@link TimewindowData}) Time window.
+         * @author anselme add phase information
+         */
+        TimewindowData createWindow(byte[] bytes) {
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            Observer observer = observers[bb.getShort()];
+            GlobalCMTID event = events[bb.getShort()];
+            Set<Phase> tmpset = new HashSet<>();
+            for (int i = 0; i < MAX_PHASE; i++) {
+                short iphase = bb.getShort();
+                if (iphase != -1)
+                    tmpset.add(phases[iphase]);
+            }
+            Phase[] usablephases = new Phase[tmpset.size()];
+            usablephases = tmpset.toArray(usablephases);
+            SACComponent component = SACComponent.ofNumber(bb.get());
+            double startTime = bb.getFloat();
+            double endTime = bb.getFloat();
+            return new TimewindowData(startTime, endTime, observer, event, component, usablephases);
+        }
+    }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -3,7 +3,6 @@ package io.github.kensuke1984.kibrary.timewindow;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
@@ -83,24 +82,9 @@ public class TimewindowIntersection  {
         Set<TimewindowData> windows1 = TimewindowDataFile.read(inputPath1);
         Set<TimewindowData> windows2 = TimewindowDataFile.read(inputPath2);
 
-        Set<TimewindowData> outWindows1 = new HashSet<>();
-        Set<TimewindowData> outWindows2 = new HashSet<>();
-
         // take intersections
-        for (TimewindowData window1 : windows1) {
-            boolean exitIntersect = false;
-            for (TimewindowData window2 : windows2) {
-                if (window1.getGlobalCMTID().equals(window2.getGlobalCMTID()) && window1.getObserver().equals(window2.getObserver())) {
-                    if (phase && !window1.getPhases().equals(window2.getPhases())) continue;
-                    if (component && !window1.getComponent().equals(window2.getComponent())) continue;
-
-                    if(!outWindows2.contains(window2)) outWindows2.add(window2);
-                    exitIntersect = true;
-                }
-            }
-            if (exitIntersect)
-                outWindows1.add(window1);
-        }
+        Set<TimewindowData> outWindows1 = TimewindowAlgebra.selectMatching(windows1, windows2, component, phase);
+        Set<TimewindowData> outWindows2 = TimewindowAlgebra.selectMatching(windows2, windows1, component, phase);
         if (outWindows1.size() != outWindows2.size())
             throw new RuntimeException("Falled to make intersections");
 
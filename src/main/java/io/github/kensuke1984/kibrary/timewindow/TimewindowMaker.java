@@ -9,19 +9,22 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import edu.sc.seis.TauP.Arrival;
 import edu.sc.seis.TauP.TauModelException;
 import edu.sc.seis.TauP.TauP_Time;
 import io.github.kensuke1984.anisotime.Phase;
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable.TravelTime;
 import io.github.kensuke1984.kibrary.util.DatasetAid;
 import io.github.kensuke1984.kibrary.util.EventFolder;
 import io.github.kensuke1984.kibrary.util.GadgetAid;
@@ -61,6 +64,8 @@ import io.github.kensuke1984.kibrary.util.sac.SACFileName;
  * starting from (arrival time - avoidFrontShift) and ending at (arrival time + avoidRearShift),
  * and abandons overlapped parts between these.
  * Arrival times are computed by TauP.
+ * If travelTimeTablePath is set, they are interpolated from a {@link TauPTravelTimeTable} instead,
+ * and TauP is run only for records where the table cannot be interpolated (such as near ends of triplications).
  * <p>
  * Time window information is written in binary format in "timewindow*.dat".
  * Data entries that could not produce time windows are written in "invalidTimewindow*.txt".
@@ -152,6 +157,11 @@ public class TimewindowMaker extends Operation {
      * In case of triplication of usePhases, use only the first arrival.
      */
     private boolean useDuplicatePhases;
+    /**
+     * Path of travel time table file
+     */
+    private Path travelTimeTablePath;
+    private TauPTravelTimeTable travelTimeTable;
 
     private Set<DataEntry> entrySet;
     private Set<TimewindowData> timewindowSet = Collections.synchronizedSet(new HashSet<>());
@@ -210,6 +220,9 @@ public class TimewindowMaker extends Operation {
             pw.println("##(boolean) Whether to use duplicate arrivals of usePhases when deciding time windows (e.g. in case of triplication). (true)");
             pw.println("##  If not, only the first arrival of each usePhase will be considered.");
             pw.println("#useDuplicatePhases ");
+            pw.println("##Path of a travel time table file, if travel times are to be interpolated from a table instead of computed by TauP for each record.");
+            pw.println("##  The table is built and written there if it does not exist, is for other phases, or does not cover the events.");
+            pw.println("#travelTimeTablePath travelTimeTable.bin");
         }
         System.err.println(outPath + " is created.");
     }
@@ -243,6 +256,8 @@ public class TimewindowMaker extends Operation {
         structureName = property.parseString("structureName", "prem").toLowerCase();
         majorArc = property.parseBoolean("majorArc", "false");
         useDuplicatePhases = property.parseBoolean("useDuplicatePhases","true");
+        if (property.containsKey("travelTimeTablePath"))
+            travelTimeTablePath = property.parsePath("travelTimeTablePath", null, false, workPath);
     }
 
     private static Set<Phase> phaseSet(String arg) {
@@ -274,6 +289,17 @@ public class TimewindowMaker extends Operation {
         }
         Set<GlobalCMTID> eventSet = entrySet.stream().map(DataEntry::getEvent).collect(Collectors.toSet());
 
+        // prepare travel time table
+        if (travelTimeTablePath != null && !eventSet.isEmpty()) {
+            double[] eventDepths = eventSet.stream().mapToDouble(event -> event.getEventData().getCmtPosition().getDepth()).toArray();
+            try {
+                travelTimeTable = TauPTravelTimeTable.prepare(travelTimeTablePath, structureName, phaseNames(),
+                        Arrays.stream(eventDepths).min().getAsDouble(), Arrays.stream(eventDepths).max().getAsDouble());
+            } catch (TauModelException e) {
+                throw new IllegalStateException("Could not build travel time table for " + structureName, e);
+            }
+        }
+
         // work for each event
         ExecutorService es = ThreadAid.createFixedThreadPool();
         eventSet.stream().map(this::process).forEach(es::execute);
@@ -296,19 +322,28 @@ public class TimewindowMaker extends Operation {
     private Runnable process(GlobalCMTID event) {
         return () -> {
             try {
-                // set up taup_time tool
+                // taup_time tool is set up only when needed
                 // This is done per event (not reusing a single tool) because each thread needs its own instance.
                 // This is done per event (not at each observer) because computation takes time when changing source depth (see TauP manual).
-                String[] phaseNames = Stream.concat(usePhases.stream(), avoidPhases.stream()).map(Phase::toString).toArray(String[]::new);
-                TauP_Time timeTool = new TauP_Time(structureName);
-                timeTool.setPhaseNames(phaseNames);
-                timeTool.setSourceDepth(event.getEventData().getCmtPosition().getDepth());
+                double depth = event.getEventData().getCmtPosition().getDepth();
+                TauP_Time timeTool = null;
 
                 Set<DataEntry> correspondingEntrySet = entrySet.stream()
                         .filter(entry -> entry.getEvent().equals(event) && components.contains(entry.getComponent()))
                         .collect(Collectors.toSet());
                 for (DataEntry entry: correspondingEntrySet) {
-                    makeTimeWindows(entry, timeTool);
+                    double epicentralDistanceDeg = event.getEventData().getCmtPosition().computeEpicentralDistanceDeg(entry.getObserver().getPosition());
+                    List<TravelTime> arrivals = (travelTimeTable != null) ? travelTimeTable.arrivals(depth, epicentralDistanceDeg) : null;
+                    if (arrivals == null) {
+                        if (timeTool == null) {
+                            timeTool = new TauP_Time(structureName);
+                            timeTool.setPhaseNames(phaseNames());
+                            timeTool.setSourceDepth(depth);
+                        }
+                        timeTool.calculate(epicentralDistanceDeg);
+                        arrivals = timeTool.getArrivals().stream().map(TravelTime::of).collect(Collectors.toList());
+                    }
+                    makeTimeWindows(entry, arrivals);
                 }
                 System.err.print(".");
             } catch (Exception e) {
@@ -318,35 +353,34 @@ public class TimewindowMaker extends Operation {
         };
     }
 
+    private String[] phaseNames() {
+        return Stream.concat(usePhases.stream(), avoidPhases.stream()).map(Phase::toString).toArray(String[]::new);
+    }
+
     /**
      * Make time window for the input data entry.
      * @param entry ({@link DataEntry}) Data entry to work for.
-     * @param timeTool (TauP_Time) Time tool, with structure, phases, and event already set.
+     * @param arrivals (List of {@link TravelTime}) Phase arrivals at the observer, in the order of time.
      * @throws IOException
-     * @throws TauModelException
      */
-    private void makeTimeWindows(DataEntry entry, TauP_Time timeTool) throws IOException, TauModelException {
+    private void makeTimeWindows(DataEntry entry, List<TravelTime> arrivals) throws IOException {
         GlobalCMTID event = entry.getEvent();
         Observer observer = entry.getObserver();
         SACComponent component = entry.getComponent();
 
-        // Compute phase arrivals
-        double epicentralDistanceDeg = event.getEventData().getCmtPosition().computeEpicentralDistanceDeg(observer.getPosition());
-        timeTool.calculate(epicentralDistanceDeg);
-        List<Arrival> arrivals = timeTool.getArrivals();
-        List<Arrival> useArrivals = new ArrayList<>();
-        List<Arrival> avoidArrivals = new ArrayList<>();
+        List<TravelTime> useArrivals = new ArrayList<>();
+        List<TravelTime> avoidArrivals = new ArrayList<>();
         if (useDuplicatePhases) {
             // use all arrivals for usePhases
-            arrivals.stream().filter(arrival -> usePhases.contains(Phase.create(arrival.getPhase().getName()))).forEach(useArrivals::add);
+            arrivals.stream().filter(arrival -> usePhases.contains(Phase.create(arrival.getPhaseName()))).forEach(useArrivals::add);
         } else {
             // use only the first arrival of each usePhase
             for (Phase phase : usePhases) {
-                arrivals.stream().filter(arrival -> Phase.create(arrival.getPhase().getName()).equals(phase)).findFirst().ifPresent(useArrivals::add);
+                arrivals.stream().filter(arrival -> Phase.create(arrival.getPhaseName()).equals(phase)).findFirst().ifPresent(useArrivals::add);
             }
         }
         // for avoidPhases, use all arrivals
-        arrivals.stream().filter(arrival -> avoidPhases.contains(Phase.create(arrival.getPhase().getName()))).forEach(avoidArrivals::add);
+        arrivals.stream().filter(arrival -> avoidPhases.contains(Phase.create(arrival.getPhaseName()))).forEach(avoidArrivals::add);
 
         // refine useArrivals
         if (!majorArc) {
@@ -358,8 +392,8 @@ public class TimewindowMaker extends Operation {
         }
 
         // extract arrival times
-        double[] usePhaseTimes = useArrivals.stream().mapToDouble(Arrival::getTime).toArray();
-        double[] avoidPhaseTimes = avoidArrivals.stream().mapToDouble(Arrival::getTime).toArray();
+        double[] usePhaseTimes = useArrivals.stream().mapToDouble(TravelTime::getTime).toArray();
+        double[] avoidPhaseTimes = avoidArrivals.stream().mapToDouble(TravelTime::getTime).toArray();
 
         // create windows
         Timewindow[] windows;
@@ -371,10 +405,10 @@ public class TimewindowMaker extends Operation {
             double firstUseTime = Arrays.stream(usePhaseTimes).min().getAsDouble();
             double lastUseTime = Arrays.stream(usePhaseTimes).max().getAsDouble();
             // skip if an avoidPhase is between or near usePhases
-            for (Arrival avoidArrival : avoidArrivals) {
+            for (TravelTime avoidArrival : avoidArrivals) {
                 double avoidTime = avoidArrival.getTime();
                 if (firstUseTime <= (avoidTime + avoidRearShift) && (avoidTime - avoidFrontShift) <= lastUseTime) {
-                    writeInvalid(entry, avoidArrival.getPhase().getName() + " arrives between or near usePhases");
+                    writeInvalid(entry, avoidArrival.getPhaseName() + " arrives between or near usePhases");
                     return;
                 }
             }
@@ -398,7 +432,7 @@ public class TimewindowMaker extends Operation {
 
         // add final result
         timewindowSet.addAll(windowList);
-        travelTimeSet.add(new TravelTimeInformation(event, observer, useArrivals, avoidArrivals));
+        travelTimeSet.add(new TravelTimeInformation(event, observer, toTimeMap(useArrivals), toTimeMap(avoidArrivals)));
 
     }
 
@@ -514,18 +548,33 @@ public class TimewindowMaker extends Operation {
         }
     }
 
+    /**
+     * @param arrivals (List of {@link TravelTime}) Arrivals.
+     * @return (Map of {@link Phase} to Double) Travel time of each phase.
+     * If there are arrivals with the same phase, the faster one is kept, in the same way as {@link TravelTimeInformation}.
+     */
+    private static Map<Phase, Double> toTimeMap(List<TravelTime> arrivals) {
+        Map<Phase, Double> phaseTimes = new HashMap<>();
+        for (TravelTime arrival : arrivals) {
+            Phase phase = Phase.create(arrival.getPhaseName());
+            if (phaseTimes.containsKey(phase) && phaseTimes.get(phase) < arrival.getTime()) continue;
+            phaseTimes.put(phase, arrival.getTime());
+        }
+        return phaseTimes;
+    }
+
     /**
      * @param window
      * @param usePhases
      * @return
      * @author anselme
      */
-    private Phase[] findContainedPhases(Timewindow window, List<Arrival> useArrivals) {
+    private Phase[] findContainedPhases(Timewindow window, List<TravelTime> useArrivals) {
         Set<Phase> phases = new HashSet<>();
-        for (Arrival arrival : useArrivals) {
+        for (TravelTime arrival : useArrivals) {
             double time = arrival.getTime();
             if (time <= window.endTime && time >= window.startTime)
-                phases.add(Phase.create(arrival.getPhase().getName()));
+                phases.add(Phase.create(arrival.getPhaseName()));
         }
         return phases.toArray(new Phase[phases.size()]);
     }
@@ -7,9 +7,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
@@ -18,8 +16,9 @@ import io.github.kensuke1984.kibrary.util.MathAid;
 
 /**
  * Merges {@link TimewindowDataFile}s.
- *
- * TODO merge windows of same entry
+ * <p>
+ * Identical time windows are output only once.
+ * When mergeOverlaps is true, overlapping time windows of the same entry are also merged into one.
  *
  * @author otsuru
  * @since 2022/12/13
@@ -41,6 +40,10 @@ public class TimewindowMerge extends Operation {
      * Whether to append date string at end of output file names.
      */
     private boolean appendFileDate;
+    /**
+     * Whether to merge overlapping time windows of the same entry.
+     */
+    private boolean mergeOverlaps;
 
     /**
      * Paths of input time window files.
@@ -67,6 +70,8 @@ public class TimewindowMerge extends Operation {
             pw.println("#fileTag ");
             pw.println("##(boolean) Whether to append date string at end of output file names. (true)");
             pw.println("#appendFileDate false");
+            pw.println("##(boolean) Whether to merge overlapping time windows of the same (event, observer, component) into one. (false)");
+            pw.println("#mergeOverlaps true");
             pw.println("##########From here on, list up paths of time window files.");
             pw.println("##########  Up to " + MAX_NUM + " files can be managed. Any index may be left blank.");
             for (int i = 1; i <= MAX_NUM; i++) {
@@ -86,6 +91,7 @@ public class TimewindowMerge extends Operation {
         workPath = property.parsePath("workPath", ".", true, Paths.get(""));
         if (property.containsKey("fileTag")) fileTag = property.parseStringSingle("fileTag", null);
         appendFileDate = property.parseBoolean("appendFileDate", "true");
+        mergeOverlaps = property.parseBoolean("mergeOverlaps", "false");
 
         for (int i = 1; i <= MAX_NUM; i++) {
             String timewindowKey = "timewindowPath" + i;
@@ -106,16 +112,9 @@ public class TimewindowMerge extends Operation {
             return;
         }
 
-        // read time windows from all input files
-        Set<TimewindowData> timewindows = new HashSet<>();
-        for (Path timewindowPath : timewindowPaths) {
-            Set<TimewindowData> srcTimewindows = TimewindowDataFile.read(timewindowPath);
-            timewindows.addAll(srcTimewindows);
-        }
-
-        // output merged file
+        // merge time windows of all input files, reading them one by one
         Path outputPath = DatasetAid.generateOutputFilePath(workPath, "timewindow", fileTag, appendFileDate, null, ".dat");
-        TimewindowDataFile.write(timewindows, outputPath);
+        TimewindowAlgebra.union(timewindowPaths, mergeOverlaps, outputPath);
     }
 
 }
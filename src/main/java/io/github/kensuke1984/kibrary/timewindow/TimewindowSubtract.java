@@ -3,8 +3,6 @@ package io.github.kensuke1984.kibrary.timewindow;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
@@ -16,6 +14,10 @@ import io.github.kensuke1984.kibrary.util.DatasetAid;
 
 /**
  * Removes time windows of a time window file from those of another.
+ * <p>
+ * By default, only time windows identical to those in the other file are removed.
+ * With option -r, overlapping time ranges are cut off from the time windows.
+ * See {@link TimewindowAlgebra}.
  *
  * @author ?
  * @since a long time ago
@@ -48,6 +50,9 @@ public class TimewindowSubtract {
                 .desc("Path of original time window file.").build());
         options.addOption(Option.builder("b").longOpt("subtract").hasArg().argName("subtractTimewindowFile").required()
                 .desc("Path of time window file to be subtracted.").build());
+        // settings
+        options.addOption(Option.builder("r").longOpt("range")
+                .desc("Subtract overlapping time ranges, instead of removing only identical time windows.").build());
         // output
         options.addOption(Option.builder("T").longOpt("tag").hasArg().argName("fileTag")
                 .desc("A tag to include in output file name.").build());
@@ -68,15 +73,8 @@ public class TimewindowSubtract {
         boolean appendFileDate = !cmdLine.hasOption("O");
         Path outputPath = DatasetAid.generateOutputFilePath(Paths.get(""), "timewindow", fileTag, appendFileDate, null, ".dat");
 
-        Set<TimewindowData> originalWindows = TimewindowDataFile.read(originalPath);
-        Set<TimewindowData> subtractWindows = TimewindowDataFile.read(subtractPath);
-
-        Set<TimewindowData> outWindows = new HashSet<>();
-        for (TimewindowData window : originalWindows) {
-            if (!subtractWindows.contains(window))
-                outWindows.add(window);
-        }
-        TimewindowDataFile.write(outWindows, outputPath);
+        if (cmdLine.hasOption("r")) TimewindowAlgebra.subtract(originalPath, subtractPath, outputPath);
+        else TimewindowAlgebra.removeIdentical(originalPath, subtractPath, outputPath);
     }
 
 }
@@ -7,6 +7,7 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -14,10 +15,12 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
+import io.github.kensuke1984.kibrary.timewindow.TimewindowDataFile;
 import io.github.kensuke1984.kibrary.util.data.DataEntry;
 import io.github.kensuke1984.kibrary.util.data.DataEntryListFile;
 import io.github.kensuke1984.kibrary.util.data.Observer;
 import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTID;
+import io.github.kensuke1984.kibrary.util.sac.SACCache;
 import io.github.kensuke1984.kibrary.util.sac.SACComponent;
 import io.github.kensuke1984.kibrary.util.sac.SACExtension;
 import io.github.kensuke1984.kibrary.util.sac.SACFileAccess;
@@ -286,6 +289,9 @@ public final class DatasetAid {
 
     /**
      * An abstract class that can be used to execute tasks in filtered datasets for a set of timewindows.
+     * <p>
+     * Timewindows are grouped by SAC file, and SAC files are read through {@link SACCache},
+     * so each file is decoded once even when it has several timewindows or is used in several operations.
      * @author otsuru
      * @since 2022/6/20
      */
@@ -294,14 +300,23 @@ public final class DatasetAid {
         private Path obsEventPath;
         private Path synEventPath;
         private boolean convolved;
-        private Set<TimewindowData> sourceTimewindowSet;
+        private Set<TimewindowData> timewindows;
 
-        public FilteredDatasetWorker(GlobalCMTID eventID, Path obsPath, Path synPath, boolean convolved, Set<TimewindowData> sourceTimewindowSet) {
+        /**
+         * @param eventID ({@link GlobalCMTID}) Event to work for.
+         * @param obsPath (Path) Folder containing observed event folders.
+         * @param synPath (Path) Folder containing synthetic event folders.
+         * @param convolved (boolean) Whether the synthetics are convolved.
+         * @param timewindows (Set of {@link TimewindowData}) Time windows. Those of other events are ignored,
+         *          but giving only those of this event, such as those given by
+         *          {@link TimewindowDataFile#readByEvent(Path, TimewindowDataFile.Filter)}, saves looking through all of them.
+         */
+        public FilteredDatasetWorker(GlobalCMTID eventID, Path obsPath, Path synPath, boolean convolved, Set<TimewindowData> timewindows) {
             this.eventID = eventID;
             obsEventPath = obsPath.resolve(eventID.toString());
             synEventPath = synPath.resolve(eventID.toString());
             this.convolved = convolved;
-            this.sourceTimewindowSet = sourceTimewindowSet;
+            this.timewindows = timewindows;
         }
 
         /**
@@ -323,13 +338,14 @@ public final class DatasetAid {
                 return;
             }
 
-            // pick out time windows of this event
-            Set<TimewindowData> timewindows = sourceTimewindowSet.stream()
-                    .filter(info -> info.getGlobalCMTID().equals(eventID)).collect(Collectors.toSet());
+            // group time windows by SAC file, so that each file is read once
+            Map<String, List<TimewindowData>> timewindowsForFile = timewindows.stream()
+                    .filter(window -> window.getGlobalCMTID().equals(eventID)).collect(Collectors.groupingBy(
+                    window -> SACFileName.generate(window.getObserver(), eventID, SACExtension.valueOfObserved(window.getComponent()))));
 
-            for (TimewindowData timewindow : timewindows) {
-                Observer observer = timewindow.getObserver();
-                SACComponent component = timewindow.getComponent();
+            for (List<TimewindowData> windowsForFile : timewindowsForFile.values()) {
+                Observer observer = windowsForFile.get(0).getObserver();
+                SACComponent component = windowsForFile.get(0).getComponent();
 
                 // get observed data
                 SACExtension obsExt = SACExtension.valueOfObserved(component);
@@ -341,7 +357,7 @@ public final class DatasetAid {
                 }
                 SACFileAccess obsSac;
                 try {
-                    obsSac = obsName.read();
+                    obsSac = SACCache.read(obsName);
                 } catch (Exception e) {
                     System.err.println();
                     System.err.println("!! Could not read " + obsName + " , skipping.");
@@ -360,7 +376,7 @@ public final class DatasetAid {
                 }
                 SACFileAccess synSac;
                 try {
-                    synSac = synName.read();
+                    synSac = SACCache.read(synName);
                 } catch (Exception e) {
                     System.err.println();
                     System.err.println("!! Could not read " + synName + " , skipping.");
@@ -368,7 +384,9 @@ public final class DatasetAid {
                     continue;
                 }
 
-                actualWork(timewindow, obsSac, synSac);
+                for (TimewindowData timewindow : windowsForFile) {
+                    actualWork(timewindow, obsSac, synSac);
+                }
             }
 
             System.err.print(".");
@@ -12,11 +12,13 @@ import java.util.Set;
 
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.util.sac.SACBundle;
 import io.github.kensuke1984.kibrary.util.sac.SACFileName;
 
 /**
  * Operation for merging datasets of SAC files.
  * Event directories are created in outPath, and symbolic links to each SAC file is created in the event directories.
+ * SAC files in a {@link SACBundle} are copied out into the event directories instead.
  *
  * @author otsuru
  * @since 2022/4/18
@@ -130,8 +132,11 @@ public class DatasetMerge extends Operation {
                     Path outSacPath = outEventPath.resolve(sacFile.getName());
                     if (Files.exists(outSacPath)) {
                         System.err.println("!! Duplication of " + sacFile.getName() + " , skipping.");
-                    } else {
+                    } else if (Files.exists(sacFile.toPath())) {
                         Files.createSymbolicLink(outSacPath, Paths.get("..", "..").resolve(sacFile.toPath()));
+                    } else {
+                        // files in a bundle cannot be linked, so they are copied out
+                        SACBundle.copyRecord(sacFile, outSacPath);
                     }
                 }
             }
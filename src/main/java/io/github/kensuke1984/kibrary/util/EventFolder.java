@@ -4,11 +4,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTID;
+import io.github.kensuke1984.kibrary.util.sac.SACBundle;
 import io.github.kensuke1984.kibrary.util.sac.SACFileName;
 
 /**
@@ -57,15 +59,24 @@ public class EventFolder extends File {
     }
 
     /**
-     * Collect SAC files in this folder.
+     * Collect SAC files in this folder, including those in its {@link SACBundle}.
      * @return (Set of {@link SACFileName}) All SAC file names in this folder, including observed, synthetic, and partial derivatives.
      * @throws IOException
      */
     public Set<SACFileName> sacFileSet() throws IOException {
+        Set<SACFileName> sacNameSet;
+        boolean hasBundle;
         // CAUTION: Files.list() must be in try-with-resources.
         try (Stream<Path> stream = Files.list(toPath())) {
-            return stream.filter(SACFileName::isSacFileName).map(SACFileName::new).collect(Collectors.toSet());
+            List<Path> paths = stream.collect(Collectors.toList());
+            sacNameSet = paths.stream().filter(SACFileName::isSacFileName).map(SACFileName::new).collect(Collectors.toSet());
+            hasBundle = paths.stream().anyMatch(path -> path.getFileName().toString().equals(SACBundle.FILE_NAME));
         }
+        if (hasBundle) {
+            for (String name : SACBundle.entryNames(toPath()))
+                sacNameSet.add(new SACFileName(this, name));
+        }
+        return sacNameSet;
     }
 
 }
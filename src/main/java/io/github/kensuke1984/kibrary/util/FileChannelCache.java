@@ -0,0 +1,118 @@
+package io.github.kensuke1984.kibrary.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only file channels kept open for repeated positional reads, with a limit on the number of open channels.
+ * <p>
+ * When the limit is exceeded, the channel that has been used least recently is closed.
+ * A channel is opened again when its file is read next time,
+ * so the number of files that can be read is not limited by the number of file descriptors available.
+ * <p>
+ * Positional reads do not change the state of a channel, so a file can be read from multiple threads at once.
+ * If a channel is closed by another thread during a read, the read is retried on a newly opened channel.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 2026/10/18
+ */
+public final class FileChannelCache {
+
+    private final int maxOpen;
+    /**
+     * Open channels, in the order of access.
+     */
+    private final LinkedHashMap<Path, FileChannel> channels;
+
+    /**
+     * @param maxOpen (int) Maximum number of channels to keep open.
+     */
+    public FileChannelCache(int maxOpen) {
+        if (maxOpen <= 0) throw new IllegalArgumentException("maxOpen must be positive: " + maxOpen);
+        this.maxOpen = maxOpen;
+        channels = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private FileChannel channel(Path path) throws IOException {
+        synchronized (channels) {
+            FileChannel channel = channels.get(path);
+            if (channel != null && channel.isOpen()) return channel;
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            channels.put(path, channel);
+            if (channels.size() > maxOpen) {
+                Iterator<Map.Entry<Path, FileChannel>> iterator = channels.entrySet().iterator();
+                FileChannel eldest = iterator.next().getValue();
+                iterator.remove();
+                eldest.close();
+            }
+            return channel;
+        }
+    }
+
+    /**
+     * Reads bytes of a file from a position until the buffer is filled.
+     * @param path (Path) File to read.
+     * @param position (long) Position in the file to start reading from.
+     * @param buffer (ByteBuffer) Buffer to fill from its position to its limit.
+     * @throws EOFException if the file ends before the buffer is filled
+     * @throws IOException if an I/O error occurs
+     */
+    public void readFully(Path path, long position, ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        while (true) {
+            FileChannel channel = channel(path);
+            try {
+                while (buffer.hasRemaining()) {
+                    int n = channel.read(buffer, position + buffer.position() - start);
+                    if (n < 0) throw new EOFException(path + " ended at " + (position + buffer.position() - start) + " bytes.");
+                }
+                return;
+            } catch (ClosedByInterruptException e) {
+                throw e;
+            } catch (ClosedChannelException e) {
+                // closed by another thread; read again on a new channel
+                buffer.position(start);
+            }
+        }
+    }
+
+    /**
+     * Closes the channel of a file, if it is open. It is opened again when the file is read next time.
+     * This must be called when the file is replaced.
+     * @param path (Path) File to close.
+     * @throws IOException if an I/O error occurs
+     */
+    public void close(Path path) throws IOException {
+        FileChannel channel;
+        synchronized (channels) {
+            channel = channels.remove(path);
+        }
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * Closes all channels.
+     * @throws IOException if an I/O error occurs
+     */
+    public void closeAll() throws IOException {
+        List<FileChannel> closing;
+        synchronized (channels) {
+            closing = new ArrayList<>(channels.values());
+            channels.clear();
+        }
+        for (FileChannel channel : closing) channel.close();
+    }
+
+}
@@ -0,0 +1,316 @@
+package io.github.kensuke1984.kibrary.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * A single file that holds many small files as entries, together with an index of them.
+ * This is the common format of containers such as {@link io.github.kensuke1984.kibrary.util.spc.SPCContainer}
+ * and {@link io.github.kensuke1984.kibrary.util.sac.SACBundle}, which are told apart by their magic numbers.
+ * <p>
+ * The index of each container is read once and kept in memory.
+ * Each time a container is looked up, its attributes (last modified time, size, and file key) are compared with those
+ * when the index was read, and the index is read again if the container has been replaced.
+ * Folders without containers are not remembered, so a container created later is found on the next lookup.
+ * <p>
+ * Entries are read with positional reads on channels in a {@link FileChannelCache},
+ * which keeps at most {@value #MAX_OPEN_CHANNELS} containers open at once.
+ * <p>
+ * The file is written in big-endian as follows:
+ * <ul>
+ * <li> int magic number, int version, int number of entries </li>
+ * <li> for each entry: UTF name, long length of data </li>
+ * <li> binary data of each entry (unchanged file contents), concatenated in the order of the index </li>
+ * </ul>
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 2026/10/18
+ */
+public final class FileContainer {
+
+    private static final int VERSION = 1;
+    /**
+     * Maximum number of containers whose channels are kept open.
+     */
+    private static final int MAX_OPEN_CHANNELS = 64;
+
+    /**
+     * Indices of containers that have been read, with absolute normalized paths of containers as keys.
+     */
+    private static final Map<Path, FileContainer> CACHE = new ConcurrentHashMap<>();
+    private static final FileChannelCache CHANNELS = new FileChannelCache(MAX_OPEN_CHANNELS);
+
+    private final Path path;
+    private final int magic;
+    private final long lastModified;
+    private final long size;
+    private final Object fileKey;
+    /**
+     * Map of entry name to {offset from start of file, length}.
+     */
+    private final Map<String, long[]> index;
+
+    private FileContainer(Path path, int magic, BasicFileAttributes attributes, Map<String, long[]> index) {
+        this.path = path;
+        this.magic = magic;
+        this.lastModified = attributes.lastModifiedTime().toMillis();
+        this.size = attributes.size();
+        this.fileKey = attributes.fileKey();
+        this.index = index;
+    }
+
+    /**
+     * Returns a container, reading its index if it has not been read or if the file has been replaced since.
+     * @param containerPath (Path) Container file.
+     * @param magic (int) Magic number of the kind of container.
+     * @return ({@link FileContainer}) Container. null if the file does not exist.
+     * @throws IOException if the file is not a container of the kind, is broken, or an I/O error occurs
+     */
+    public static FileContainer open(Path containerPath, int magic) throws IOException {
+        Path key = containerPath.toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            invalidate(key);
+            return null;
+        }
+        FileContainer container = CACHE.get(key);
+        if (container != null && container.magic == magic && container.isReadFrom(attributes)) return container;
+        synchronized (CACHE) {
+            container = CACHE.get(key);
+            if (container != null && container.magic == magic && container.isReadFrom(attributes)) return container;
+            // the channel may be on the file that has been replaced
+            CHANNELS.close(key);
+            container = readIndex(key, magic, attributes);
+            CACHE.put(key, container);
+            return container;
+        }
+    }
+
+    private boolean isReadFrom(BasicFileAttributes attributes) {
+        return lastModified == attributes.lastModifiedTime().toMillis() && size == attributes.size()
+                && Objects.equals(fileKey, attributes.fileKey());
+    }
+
+    private static FileContainer readIndex(Path containerPath, int magic, BasicFileAttributes attributes) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(containerPath)))) {
+            if (dis.readInt() != magic) throw new IOException(containerPath + " is not a container of this kind.");
+            int version = dis.readInt();
+            if (version != VERSION) throw new IOException("Unsupported version " + version + " of " + containerPath);
+            int nEntries = dis.readInt();
+            String[] names = new String[nEntries];
+            long[] lengths = new long[nEntries];
+            // header size: magic, version, nEntries, then each entry (UTF has 2 bytes of length)
+            long offset = 12;
+            for (int i = 0; i < nEntries; i++) {
+                names[i] = dis.readUTF();
+                lengths[i] = dis.readLong();
+                offset += 2 + names[i].getBytes(StandardCharsets.UTF_8).length + 8;
+            }
+            Map<String, long[]> index = new LinkedHashMap<>();
+            for (int i = 0; i < nEntries; i++) {
+                index.put(names[i], new long[] {offset, lengths[i]});
+                offset += lengths[i];
+            }
+            if (offset != attributes.size())
+                throw new IOException(containerPath + " is broken; size does not match its index.");
+            return new FileContainer(containerPath, magic, attributes, Collections.unmodifiableMap(index));
+        }
+    }
+
+    /**
+     * Forgets the index of a container and closes its channel.
+     * @param containerPath (Path) Container file.
+     * @throws IOException if an I/O error occurs
+     */
+    public static void invalidate(Path containerPath) throws IOException {
+        Path key = containerPath.toAbsolutePath().normalize();
+        synchronized (CACHE) {
+            CACHE.remove(key);
+            CHANNELS.close(key);
+        }
+    }
+
+    /**
+     * @return (Path) Path of the container file.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return (Set of String) Names of entries in this container, in the order they are stored.
+     */
+    public Set<String> entryNames() {
+        return index.keySet();
+    }
+
+    /**
+     * @param name (String) Name of entry.
+     * @return (boolean) Whether this container has an entry of the name.
+     */
+    public boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * @param name (String) Name of entry.
+     * @return (long) Length of the entry [byte].
+     * @throws NoSuchFileException if this container does not have the entry
+     */
+    public long lengthOf(String name) throws NoSuchFileException {
+        return entry(name)[1];
+    }
+
+    private long[] entry(String name) throws NoSuchFileException {
+        long[] entry = index.get(name);
+        if (entry == null) throw new NoSuchFileException(name + " is not in " + path);
+        return entry;
+    }
+
+    /**
+     * Reads the head of an entry with a single positional read. This method can be called from multiple threads.
+     * @param name (String) Name of entry.
+     * @param maxLength (int) Maximum number of bytes to read.
+     * @return (ByteBuffer) Head of the entry, of the length of the entry or maxLength, whichever is smaller,
+     * from position 0 to the limit.
+     * @throws NoSuchFileException if this container does not have the entry
+     * @throws IOException if an I/O error occurs
+     */
+    public ByteBuffer read(String name, int maxLength) throws IOException {
+        long[] entry = entry(name);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(entry[1], maxLength));
+        CHANNELS.readFully(path, entry[0], buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads the contents of an entry with a single positional read. This method can be called from multiple threads.
+     * @param name (String) Name of entry.
+     * @return (byte[]) Contents of the entry.
+     * @throws NoSuchFileException if this container does not have the entry
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] readEntry(String name) throws IOException {
+        if (Integer.MAX_VALUE < lengthOf(name)) throw new IOException(name + " is too large.");
+        return read(name, Integer.MAX_VALUE).array();
+    }
+
+    /**
+     * Writes out an entry as a file, as it was before it was packed.
+     * @param name (String) Name of entry.
+     * @param outPath (Path) File to write. It must not exist.
+     * @throws NoSuchFileException if this container does not have the entry
+     * @throws IOException if the output file exists or an I/O error occurs
+     */
+    public void copyEntry(String name, Path outPath) throws IOException {
+        long[] entry = entry(name);
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(outPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            transfer(in, entry[0], entry[1], out);
+        }
+    }
+
+    /**
+     * Packs files into a container.
+     * If the container already exists, its entries are kept, and those with the same name as the files are replaced.
+     * The container is written in a temporary file, which then replaces the container atomically,
+     * so readers see either the old or the new container.
+     * @param containerPath (Path) Container file.
+     * @param magic (int) Magic number of the kind of container.
+     * @param files (List of Path) Files to pack. Their file names are used as the names of entries.
+     * @return (int) Number of entries in the container.
+     * @throws IOException if an existing container is not of the kind, or an I/O error occurs
+     */
+    public static int pack(Path containerPath, int magic, List<Path> files) throws IOException {
+        FileContainer old = open(containerPath, magic);
+        Set<String> newNames = files.stream().map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+        List<String> keptNames = new ArrayList<>();
+        if (old != null) old.entryNames().stream().filter(name -> !newNames.contains(name)).forEach(keptNames::add);
+
+        Path tmpPath = Files.createTempFile(containerPath.toAbsolutePath().getParent(), containerPath.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+                dos.writeInt(magic);
+                dos.writeInt(VERSION);
+                dos.writeInt(keptNames.size() + files.size());
+                for (String name : keptNames) {
+                    dos.writeUTF(name);
+                    dos.writeLong(old.index.get(name)[1]);
+                }
+                for (Path file : files) {
+                    dos.writeUTF(file.getFileName().toString());
+                    dos.writeLong(Files.size(file));
+                }
+            }
+            try (FileChannel out = FileChannel.open(tmpPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                if (!keptNames.isEmpty()) {
+                    try (FileChannel in = FileChannel.open(old.path, StandardOpenOption.READ)) {
+                        for (String name : keptNames) {
+                            long[] entry = old.index.get(name);
+                            transfer(in, entry[0], entry[1], out);
+                        }
+                    }
+                }
+                for (Path file : files) {
+                    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                        transfer(in, 0, in.size(), out);
+                    }
+                }
+            }
+            Files.move(tmpPath, containerPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmpPath);
+            throw e;
+        }
+        // after the move, so that the old container is not cached again by concurrent readers
+        invalidate(containerPath);
+        return keptNames.size() + files.size();
+    }
+
+    private static void transfer(FileChannel in, long position, long length, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < length) {
+            long n = in.transferTo(position + done, length - done, out);
+            if (n <= 0) throw new EOFException("Unexpected end of file while copying.");
+            done += n;
+        }
+    }
+
+    /**
+     * Closes all containers that are open, and forgets their indices.
+     * @throws IOException if an I/O error occurs
+     */
+    public static void clearCache() throws IOException {
+        synchronized (CACHE) {
+            CHANNELS.closeAll();
+            CACHE.clear();
+        }
+    }
+
+}
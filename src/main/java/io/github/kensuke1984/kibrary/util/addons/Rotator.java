@@ -1,8 +1,7 @@
 package io.github.kensuke1984.kibrary.util.addons;
 
-import org.apache.commons.math3.linear.RealVector;
-
 import io.github.kensuke1984.kibrary.math.Trace;
+import io.github.kensuke1984.kibrary.util.sac.SACUtil;
 
 public class Rotator {
 	private Trace trace1;
@@ -16,10 +15,9 @@ public class Rotator {
 	public Trace rotate(double thetaDeg) {
 		double[] xs = trace1.getX();
 		
-		double thetaRad = Math.toRadians(thetaDeg);
-		
-		RealVector yvec = trace1.getYVector().mapMultiply(Math.cos(thetaRad)).add(trace2.getYVector().mapMultiply(Math.sin(thetaRad)));
+		// trace1*cos(theta) + trace2*sin(theta), computed on primitive arrays
+		double[] ys = SACUtil.projectHorizontal(trace1.getY(), 0, trace2.getY(), 90, thetaDeg);
 		
-		return new Trace(xs, yvec.toArray());
+		return new Trace(xs, ys);
 	}
 }
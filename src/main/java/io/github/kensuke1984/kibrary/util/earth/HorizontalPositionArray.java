@@ -0,0 +1,210 @@
+package io.github.kensuke1984.kibrary.util.earth;
+
+import java.util.Collection;
+
+import org.apache.commons.math3.util.FastMath;
+
+import io.github.kensuke1984.kibrary.util.MathAid;
+
+/**
+ * Array of positions on the sphere, for computing epicentral distances and azimuths
+ * between one position and many positions, or between two sets of positions, at once.
+ * <p>
+ * For each position, the sine and cosine of the geocentric colatitude and the longitude are computed once and stored in primitive arrays.
+ * (sin&theta;cos&phi;, sin&theta;sin&phi;, cos&theta;) is the unit vector of the position.
+ * Compared to {@link Earth#computeEpicentralDistanceRad(HorizontalPosition, HorizontalPosition)}
+ * and {@link Earth#computeAzimuthRad(HorizontalPosition, HorizontalPosition)},
+ * which compute the geocentric colatitudes and their trigonometric functions for every pair,
+ * only one inverse trigonometric function is computed for each pair.
+ * The formulae are the same as those methods, so the results agree with them up to rounding errors.
+ * <p>
+ * This class is IMMUTABLE.
+ *
+ * @since 2026/10/18
+ */
+public final class HorizontalPositionArray {
+
+    private final double[] sinTheta;
+    private final double[] cosTheta;
+    private final double[] sinPhi;
+    private final double[] cosPhi;
+
+    /**
+     * @param positions (Collection of {@link HorizontalPosition}) Positions, in the order of iteration.
+     */
+    public HorizontalPositionArray(Collection<? extends HorizontalPosition> positions) {
+        this(positions.toArray(new HorizontalPosition[0]));
+    }
+
+    /**
+     * @param positions ({@link HorizontalPosition}...) Positions.
+     */
+    public HorizontalPositionArray(HorizontalPosition... positions) {
+        int n = positions.length;
+        sinTheta = new double[n];
+        cosTheta = new double[n];
+        sinPhi = new double[n];
+        cosPhi = new double[n];
+        for (int i = 0; i < n; i++) {
+            double theta = positions[i].getTheta();
+            double phi = positions[i].getPhi();
+            sinTheta[i] = Math.sin(theta);
+            cosTheta[i] = Math.cos(theta);
+            sinPhi[i] = Math.sin(phi);
+            cosPhi[i] = Math.cos(phi);
+        }
+    }
+
+    /**
+     * @return (int) Number of positions.
+     */
+    public int size() {
+        return sinTheta.length;
+    }
+
+    /**
+     * Cartesian coordinates of the positions at a radius, as in {@link HorizontalPosition#toXYZ(double)}.
+     * @param r (double) Radius.
+     * @return (double[][]) {x[], y[], z[]}, each with the coordinates of all positions.
+     */
+    public double[][] toXYZ(double r) {
+        int n = size();
+        double[][] xyz = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            double rSinTheta = r * sinTheta[i];
+            xyz[0][i] = rSinTheta * cosPhi[i];
+            xyz[1][i] = rSinTheta * sinPhi[i];
+            xyz[2][i] = r * cosTheta[i];
+        }
+        return xyz;
+    }
+
+    /**
+     * Compute epicentral distances between a position and each position in this array.
+     * @param position ({@link HorizontalPosition}) Position to compute distances from.
+     * @return (double[]) Epicentral distance to each position [rad]. [0:pi]
+     */
+    public double[] computeEpicentralDistanceRad(HorizontalPosition position) {
+        double[] distances = new double[size()];
+        computeEpicentralDistanceRad(position, distances);
+        return distances;
+    }
+
+    /**
+     * Compute epicentral distances between a position and each position in this array, without creating a new array.
+     * @param position ({@link HorizontalPosition}) Position to compute distances from.
+     * @param distances (double[]) Array to store the epicentral distance to each position [rad]. Its length must be {@link #size()}.
+     */
+    public void computeEpicentralDistanceRad(HorizontalPosition position, double[] distances) {
+        checkLength(distances);
+        double theta = position.getTheta();
+        double phi = position.getPhi();
+        fillDistances(Math.sin(theta), Math.cos(theta), Math.sin(phi), Math.cos(phi), distances);
+    }
+
+    /**
+     * Compute epicentral distances between each pair of positions in this array and another.
+     * @param positions ({@link HorizontalPositionArray}) Positions to compute distances from.
+     * @return (double[][]) Epicentral distances [rad], where [i][j] is between positions[i] and this[j]. [0:pi]
+     */
+    public double[][] computeEpicentralDistanceRad(HorizontalPositionArray positions) {
+        double[][] distances = new double[positions.size()][size()];
+        for (int i = 0; i < positions.size(); i++)
+            fillDistances(positions.sinTheta[i], positions.cosTheta[i], positions.sinPhi[i], positions.cosPhi[i], distances[i]);
+        return distances;
+    }
+
+    private void fillDistances(double sinTheta0, double cosTheta0, double sinPhi0, double cosPhi0, double[] distances) {
+        for (int j = 0; j < distances.length; j++) {
+            // cos(phi0 - phi) = cos(phi0)cos(phi) + sin(phi0)sin(phi)
+            double cosDeltaPhi = cosPhi0 * cosPhi[j] + sinPhi0 * sinPhi[j];
+            double cosAlpha = sinTheta0 * sinTheta[j] * cosDeltaPhi + cosTheta0 * cosTheta[j];
+            if (1.0 < cosAlpha) cosAlpha = 1.0;
+            else if (cosAlpha < -1.0) cosAlpha = -1.0;
+            distances[j] = FastMath.acos(cosAlpha);
+        }
+    }
+
+    /**
+     * Compute azimuths of each position in this array from a source.
+     * @param sourcePos ({@link HorizontalPosition}) Position of source.
+     * @return (double[]) Azimuth of each position from the source [rad]. [0:2pi)
+     */
+    public double[] computeAzimuthRad(HorizontalPosition sourcePos) {
+        double[] azimuths = new double[size()];
+        computeAzimuthRad(sourcePos, azimuths);
+        return azimuths;
+    }
+
+    /**
+     * Compute azimuths of each position in this array from a source, without creating a new array.
+     * @param sourcePos ({@link HorizontalPosition}) Position of source.
+     * @param azimuths (double[]) Array to store the azimuth of each position from the source [rad]. Its length must be {@link #size()}.
+     */
+    public void computeAzimuthRad(HorizontalPosition sourcePos, double[] azimuths) {
+        checkLength(azimuths);
+        double theta = sourcePos.getTheta();
+        double phi = sourcePos.getPhi();
+        fillAzimuths(Math.sin(theta), Math.cos(theta), Math.sin(phi), Math.cos(phi), azimuths);
+    }
+
+    /**
+     * Compute azimuths of each position in this array from each source.
+     * @param sourcePositions ({@link HorizontalPositionArray}) Positions of sources.
+     * @return (double[][]) Azimuths [rad], where [i][j] is that of this[j] from sourcePositions[i]. [0:2pi)
+     */
+    public double[][] computeAzimuthRad(HorizontalPositionArray sourcePositions) {
+        double[][] azimuths = new double[sourcePositions.size()][size()];
+        for (int i = 0; i < sourcePositions.size(); i++)
+            fillAzimuths(sourcePositions.sinTheta[i], sourcePositions.cosTheta[i],
+                    sourcePositions.sinPhi[i], sourcePositions.cosPhi[i], azimuths[i]);
+        return azimuths;
+    }
+
+    /**
+     * Compute azimuths of a source from each position in this array.
+     * @param sourcePos ({@link HorizontalPosition}) Position of source.
+     * @return (double[]) Back azimuth of the source from each position [rad]. [0:2pi)
+     */
+    public double[] computeBackAzimuthRad(HorizontalPosition sourcePos) {
+        double theta = sourcePos.getTheta();
+        double phi = sourcePos.getPhi();
+        double sinThetaR = Math.sin(theta);
+        double cosThetaR = Math.cos(theta);
+        double sinPhiR = Math.sin(phi);
+        double cosPhiR = Math.cos(phi);
+        double[] backAzimuths = new double[size()];
+        for (int j = 0; j < backAzimuths.length; j++)
+            backAzimuths[j] = computeAzimuth(sinTheta[j], cosTheta[j], sinPhi[j], cosPhi[j], sinThetaR, cosThetaR, sinPhiR, cosPhiR);
+        return backAzimuths;
+    }
+
+    private void fillAzimuths(double sinThetaS, double cosThetaS, double sinPhiS, double cosPhiS, double[] azimuths) {
+        for (int j = 0; j < azimuths.length; j++)
+            azimuths[j] = computeAzimuth(sinThetaS, cosThetaS, sinPhiS, cosPhiS, sinTheta[j], cosTheta[j], sinPhi[j], cosPhi[j]);
+    }
+
+    private static double computeAzimuth(double sinThetaS, double cosThetaS, double sinPhiS, double cosPhiS,
+            double sinThetaR, double cosThetaR, double sinPhiR, double cosPhiR) {
+        // deltaPhi = phiR - phiS
+        double cosDeltaPhi = cosPhiR * cosPhiS + sinPhiR * sinPhiS;
+        double sinDeltaPhi = sinPhiR * cosPhiS - cosPhiR * sinPhiS;
+        // the numerators of cos(azimuth) and sin(azimuth); their norm is the sine of the epicentral distance
+        double cos = cosThetaR * sinThetaS - sinThetaR * cosThetaS * cosDeltaPhi;
+        double sin = sinThetaR * sinDeltaPhi;
+        double sinDistance = Math.sqrt(cos * cos + sin * sin);
+
+        // Set azimuth as 0 when source and receiver are at same position or at antipodes.
+        if (sinDistance <= MathAid.PRECISION_EPSILON) return 0.0;
+        double az = FastMath.atan2(sin, cos);
+        if (0.0 <= az) return az;
+        az += 2.0 * Math.PI;
+        return az < 2.0 * Math.PI ? az : 0.0;
+    }
+
+    private void checkLength(double[] array) {
+        if (array.length != size())
+            throw new IllegalArgumentException("Array length " + array.length + " differs from the number of positions " + size());
+    }
+
+}
@@ -0,0 +1,326 @@
+package io.github.kensuke1984.kibrary.util.sac;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Information in the header parts of a SAC file, held in primitive arrays.
+ * <p>
+ * The 632 bytes of the header are read in a single operation,
+ * and values are kept as they are in the file: 70 floats, 40 ints (including logicals), and 192 bytes of strings.
+ * Byte order is detected from NVHDR, so both little endian and big endian files can be read.
+ * <p>
+ * This class is <b>IMMUTABLE</b>. Use {@link Builder} to change several values at once.
+ *
+ * @since 2026/10/18
+ * @see <a href=https://ds.iris.edu/files/sac-manual/manual/file_format.html>SAC data format</a>
+ */
+final class CompactSACHeader implements SACHeaderAccess {
+
+    /**
+     * Size of header [byte]. 4* 70 + 4* 40 + 8* 22 +16 = 632
+     */
+    static final int HEADER_SIZE = 632;
+    private static final int N_FLOAT = 70;
+    private static final int N_INT = 40;
+    private static final int STRING_SIZE = HEADER_SIZE - 4 * (N_FLOAT + N_INT);
+    private static final int FIRST_INT = SACHeaderEnum.NZYEAR.ordinal();
+    private static final int FIRST_ENUMERATED = SACHeaderEnum.IFTYPE.ordinal();
+    private static final int FIRST_BOOLEAN = SACHeaderEnum.LEVEN.ordinal();
+    private static final int FIRST_STRING = SACHeaderEnum.KSTNM.ordinal();
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocate(HEADER_SIZE));
+
+    private final float[] floats;
+    private final int[] ints;
+    private final byte[] strings;
+
+    private CompactSACHeader(float[] floats, int[] ints, byte[] strings) {
+        this.floats = floats;
+        this.ints = ints;
+        this.strings = strings;
+    }
+
+    /**
+     * Reads the header of a SAC file.
+     *
+     * @param sacPath (Path) SAC file to read.
+     * @return ({@link CompactSACHeader}) Header of the file.
+     * @throws IOException if an I/O error occurs, or if the file is shorter than the header.
+     */
+    static CompactSACHeader read(Path sacPath) throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(sacPath, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0) throw new EOFException(sacPath + " is shorter than a SAC header.");
+        }
+        buffer.flip();
+        return read(buffer);
+    }
+
+    /**
+     * Reads a header from the current position of a buffer.
+     * The position of the buffer is advanced by {@link #HEADER_SIZE}.
+     *
+     * @param buffer (ByteBuffer) Buffer holding a SAC header.
+     * @return ({@link CompactSACHeader}) Header in the buffer.
+     */
+    static CompactSACHeader read(ByteBuffer buffer) {
+        buffer.order(detectOrder(buffer));
+        float[] floats = new float[N_FLOAT];
+        int[] ints = new int[N_INT];
+        byte[] strings = new byte[STRING_SIZE];
+        buffer.asFloatBuffer().get(floats);
+        buffer.position(buffer.position() + 4 * N_FLOAT);
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + 4 * N_INT);
+        buffer.get(strings);
+        return new CompactSACHeader(floats, ints, strings);
+    }
+
+    /**
+     * SAC files written in this library are little endian, but those written on other machines may be big endian.
+     * NVHDR, which is a small positive number, tells the order.
+     *
+     * @param buffer (ByteBuffer) Buffer with a SAC header from its position.
+     * @return (ByteOrder) Byte order of the header.
+     */
+    static ByteOrder detectOrder(ByteBuffer buffer) {
+        int nvhdrOffset = buffer.position() + 4 * SACHeaderEnum.NVHDR.ordinal();
+        int nvhdr = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(nvhdrOffset);
+        return 0 < nvhdr && nvhdr < 100 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+    }
+
+    /**
+     * Writes this header in little endian from the current position of a buffer.
+     *
+     * @param buffer (ByteBuffer) Buffer to write in.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(floats);
+        buffer.position(buffer.position() + 4 * N_FLOAT);
+        buffer.asIntBuffer().put(ints);
+        buffer.position(buffer.position() + 4 * N_INT);
+        buffer.put(strings);
+    }
+
+    /**
+     * @return (Map of {@link SACHeaderEnum}, String) Header values in the same form as {@link SACUtil#readHeader(Path)}.
+     */
+    Map<SACHeaderEnum, String> toMap() {
+        Map<SACHeaderEnum, String> headerMap = new EnumMap<>(SACHeaderEnum.class);
+        for (SACHeaderEnum sacHeaderEnum : SACHeaderEnum.values()) {
+            int ordinal = sacHeaderEnum.ordinal();
+            if (ordinal < FIRST_INT) headerMap.put(sacHeaderEnum, Float.toString(floats[ordinal]));
+            else if (ordinal < FIRST_BOOLEAN) headerMap.put(sacHeaderEnum, Integer.toString(ints[ordinal - FIRST_INT]));
+            else if (ordinal < FIRST_STRING) headerMap.put(sacHeaderEnum, Boolean.toString(ints[ordinal - FIRST_INT] == 1));
+            else headerMap.put(sacHeaderEnum, readString(sacHeaderEnum));
+        }
+        return headerMap;
+    }
+
+    /**
+     * @return ({@link Builder}) Builder initialized with the values of this header.
+     */
+    Builder toBuilder() {
+        return new Builder(floats.clone(), ints.clone(), strings.clone());
+    }
+
+    @Override
+    public boolean getBoolean(SACHeaderEnum sacHeaderEnum) {
+        return ints[checkBoolean(sacHeaderEnum)] == 1;
+    }
+
+    @Override
+    public int getInt(SACHeaderEnum sacHeaderEnum) {
+        return ints[checkInt(sacHeaderEnum)];
+    }
+
+    @Override
+    public int getSACEnumerated(SACHeaderEnum sacHeaderEnum) {
+        return ints[checkEnumerated(sacHeaderEnum)];
+    }
+
+    @Override
+    public double getValue(SACHeaderEnum sacHeaderEnum) {
+        // Prevents value from becoming nasty by first changing to String, and then to double, as in SACHeader.
+        return Double.parseDouble(Float.toString(floats[checkFloat(sacHeaderEnum)]));
+    }
+
+    @Override
+    public String getSACString(SACHeaderEnum sacHeaderEnum) {
+        checkString(sacHeaderEnum);
+        return readString(sacHeaderEnum);
+    }
+
+    @Override
+    public CompactSACHeader withBoolean(SACHeaderEnum sacHeaderEnum, boolean bool) {
+        return toBuilder().setBoolean(sacHeaderEnum, bool).build();
+    }
+
+    @Override
+    public CompactSACHeader withInt(SACHeaderEnum sacHeaderEnum, int value) {
+        return toBuilder().setInt(sacHeaderEnum, value).build();
+    }
+
+    @Override
+    public CompactSACHeader withSACEnumerated(SACHeaderEnum sacHeaderEnum, int value) {
+        return toBuilder().setSACEnumerated(sacHeaderEnum, value).build();
+    }
+
+    @Override
+    public CompactSACHeader withValue(SACHeaderEnum sacHeaderEnum, double value) {
+        return toBuilder().setValue(sacHeaderEnum, value).build();
+    }
+
+    @Override
+    public CompactSACHeader withSACString(SACHeaderEnum sacHeaderEnum, String string) {
+        return toBuilder().setSACString(sacHeaderEnum, string).build();
+    }
+
+    private String readString(SACHeaderEnum sacHeaderEnum) {
+        return new String(strings, stringOffset(sacHeaderEnum), sacHeaderEnum.getType() == 16 ? 16 : 8).trim();
+    }
+
+    /**
+     * @param sacHeaderEnum ({@link SACHeaderEnum}) A key to a String value.
+     * @return (int) Offset of the value in the string part [byte]. KEVNM is the only one with 16 letters.
+     */
+    private static int stringOffset(SACHeaderEnum sacHeaderEnum) {
+        int index = sacHeaderEnum.ordinal() - FIRST_STRING;
+        return index < 2 ? 8 * index : 8 * (index + 1);
+    }
+
+    private static int checkFloat(SACHeaderEnum sacHeaderEnum) {
+        if (FIRST_INT <= sacHeaderEnum.ordinal()) throw new IllegalArgumentException(sacHeaderEnum + " is not float.");
+        return sacHeaderEnum.ordinal();
+    }
+
+    private static int checkInt(SACHeaderEnum sacHeaderEnum) {
+        int ordinal = sacHeaderEnum.ordinal();
+        if (ordinal < FIRST_INT || FIRST_ENUMERATED <= ordinal)
+            throw new IllegalArgumentException(sacHeaderEnum + " is not integer.");
+        return ordinal - FIRST_INT;
+    }
+
+    private static int checkEnumerated(SACHeaderEnum sacHeaderEnum) {
+        int ordinal = sacHeaderEnum.ordinal();
+        if (ordinal < FIRST_ENUMERATED || FIRST_BOOLEAN <= ordinal)
+            throw new IllegalArgumentException(sacHeaderEnum + " is not enumerated.");
+        return ordinal - FIRST_INT;
+    }
+
+    private static int checkBoolean(SACHeaderEnum sacHeaderEnum) {
+        int ordinal = sacHeaderEnum.ordinal();
+        if (ordinal < FIRST_BOOLEAN || FIRST_STRING <= ordinal)
+            throw new IllegalArgumentException(sacHeaderEnum + " is not boolean.");
+        return ordinal - FIRST_INT;
+    }
+
+    private static void checkString(SACHeaderEnum sacHeaderEnum) {
+        if (sacHeaderEnum.ordinal() < FIRST_STRING) throw new IllegalArgumentException(sacHeaderEnum + " is not String.");
+    }
+
+    /**
+     * Mutable builder of {@link CompactSACHeader}, to change several values without copying the whole header each time.
+     * A new builder has all values undefined (-12345), except for NVHDR=6, IFTYPE=ITIME, IDEP=IUNKN, LEVEN=true,
+     * LOVROK=true, and LCALDA=true, as in {@link SACHeader}.
+     */
+    static final class Builder {
+        private final float[] floats;
+        private final int[] ints;
+        private final byte[] strings;
+
+        Builder() {
+            floats = new float[N_FLOAT];
+            ints = new int[N_INT];
+            strings = new byte[STRING_SIZE];
+            Arrays.fill(floats, -12345);
+            Arrays.fill(ints, -12345);
+            for (SACHeaderEnum sacHeaderEnum : SACHeaderEnum.values())
+                if (FIRST_STRING <= sacHeaderEnum.ordinal()) setSACString(sacHeaderEnum, "-12345");
+            setInt(SACHeaderEnum.NVHDR, 6);
+            // timeseries
+            setSACEnumerated(SACHeaderEnum.IFTYPE, 1);
+            // Unknown
+            setSACEnumerated(SACHeaderEnum.IDEP, 5);
+            setBoolean(SACHeaderEnum.LEVEN, true);
+            setBoolean(SACHeaderEnum.LPSPOL, false);
+            setBoolean(SACHeaderEnum.LOVROK, true);
+            setBoolean(SACHeaderEnum.LCALDA, true);
+            setBoolean(SACHeaderEnum.num109, false);
+        }
+
+        private Builder(float[] floats, int[] ints, byte[] strings) {
+            this.floats = floats;
+            this.ints = ints;
+            this.strings = strings;
+        }
+
+        Builder setBoolean(SACHeaderEnum sacHeaderEnum, boolean bool) {
+            ints[checkBoolean(sacHeaderEnum)] = bool ? 1 : 0;
+            return this;
+        }
+
+        Builder setInt(SACHeaderEnum sacHeaderEnum, int value) {
+            ints[checkInt(sacHeaderEnum)] = value;
+            return this;
+        }
+
+        Builder setSACEnumerated(SACHeaderEnum sacHeaderEnum, int value) {
+            ints[checkEnumerated(sacHeaderEnum)] = value;
+            return this;
+        }
+
+        Builder setValue(SACHeaderEnum sacHeaderEnum, double value) {
+            floats[checkFloat(sacHeaderEnum)] = (float) value;
+            return this;
+        }
+
+        Builder setSACString(SACHeaderEnum sacHeaderEnum, String string) {
+            checkString(sacHeaderEnum);
+            int length = sacHeaderEnum.getType() == 16 ? 16 : 8;
+            if (length < string.length()) throw new IllegalArgumentException(string + " is too long for " + sacHeaderEnum);
+            int offset = stringOffset(sacHeaderEnum);
+            for (int i = 0; i < length; i++)
+                strings[offset + i] = i < string.length() ? (byte) string.charAt(i) : (byte) ' ';
+            return this;
+        }
+
+        /**
+         * Sets all values of a header.
+         *
+         * @param header ({@link SACHeaderAccess}) Header to copy values from.
+         * @return ({@link Builder}) This builder.
+         */
+        Builder setAll(SACHeaderAccess header) {
+            for (SACHeaderEnum sacHeaderEnum : SACHeaderEnum.values()) {
+                int ordinal = sacHeaderEnum.ordinal();
+                if (ordinal < FIRST_INT) floats[ordinal] = (float) header.getValue(sacHeaderEnum);
+                else if (ordinal < FIRST_ENUMERATED) ints[ordinal - FIRST_INT] = header.getInt(sacHeaderEnum);
+                else if (ordinal < FIRST_BOOLEAN) ints[ordinal - FIRST_INT] = header.getSACEnumerated(sacHeaderEnum);
+                else if (ordinal < FIRST_STRING) ints[ordinal - FIRST_INT] = header.getBoolean(sacHeaderEnum) ? 1 : 0;
+                else setSACString(sacHeaderEnum, header.getSACString(sacHeaderEnum));
+            }
+            return this;
+        }
+
+        /**
+         * @return ({@link CompactSACHeader}) Header with the values set in this builder.
+         */
+        CompactSACHeader build() {
+            return new CompactSACHeader(floats.clone(), ints.clone(), strings.clone());
+        }
+    }
+
+}
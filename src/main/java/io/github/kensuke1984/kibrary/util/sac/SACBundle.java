@@ -0,0 +1,251 @@
+package io.github.kensuke1984.kibrary.util.sac;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import io.github.kensuke1984.kibrary.Summon;
+import io.github.kensuke1984.kibrary.util.DatasetAid;
+import io.github.kensuke1984.kibrary.util.EventFolder;
+import io.github.kensuke1984.kibrary.util.FileContainer;
+import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTID;
+
+/**
+ * A single file holding all SAC files of an event folder, to reduce the number of files in a dataset.
+ * <p>
+ * The bundle is placed in the event folder with the name {@link #FILE_NAME}.
+ * SAC files in the bundle can be accessed through {@link SACFileName} in the same way as files in the folder:
+ * {@link SACFileName#exists()}, {@link SACFileName#read()}, and {@link SACFileName#readHeader()} look in the bundle
+ * when the file itself does not exist, and {@link EventFolder#sacFileSet()} includes the names in the bundle.
+ * When a file with the same name exists in the folder, the file is used instead of the one in the bundle.
+ * <p>
+ * The bundle is a {@link FileContainer}; its format, the cache of indices, and the reading of records are shared with
+ * {@link io.github.kensuke1984.kibrary.util.spc.SPCContainer}.
+ * <p>
+ * This class can also be run to pack event folders into bundles, or to unpack them.
+ *
+ * @since 2026/10/18
+ */
+public final class SACBundle {
+
+    /**
+     * Name of the bundle file in each event folder.
+     */
+    public static final String FILE_NAME = "sacBundle.bin";
+    private static final int MAGIC = 0x53414342;
+
+    private SACBundle() {
+    }
+
+    /**
+     * @param folder (Path) Event folder.
+     * @return ({@link FileContainer}) Bundle in the folder. null if there is none.
+     * @throws IOException if the bundle is broken or an I/O error occurs
+     */
+    private static FileContainer of(Path folder) throws IOException {
+        return FileContainer.open(folder.resolve(FILE_NAME), MAGIC);
+    }
+
+    /**
+     * Closes all bundles that are open, and forgets their indices.
+     * Bundles replaced while the program runs are read again without calling this.
+     * @throws IOException if an I/O error occurs
+     */
+    public static void clearCache() throws IOException {
+        FileContainer.clearCache();
+    }
+
+    /**
+     * @param sacFileName ({@link SACFileName}) Name of SAC file.
+     * @return (boolean) Whether the SAC file is in the bundle of its folder.
+     * @throws IOException if the bundle is broken or an I/O error occurs
+     */
+    static boolean contains(SACFileName sacFileName) throws IOException {
+        FileContainer bundle = of(parentOf(sacFileName));
+        return bundle != null && bundle.contains(sacFileName.getName());
+    }
+
+    /**
+     * @param sacFileName ({@link SACFileName}) Name of SAC file.
+     * @return (ByteBuffer) Record of the SAC file in the bundle of its folder.
+     * @throws NoSuchFileException if the bundle does not exist or does not include the SAC file
+     * @throws IOException if the bundle is broken or an I/O error occurs
+     */
+    static ByteBuffer readRecord(SACFileName sacFileName) throws IOException {
+        return ByteBuffer.wrap(bundleOf(sacFileName).readEntry(sacFileName.getName()));
+    }
+
+    /**
+     * Reads only the header part of the record of a SAC file, with a single positional read.
+     * @param sacFileName ({@link SACFileName}) Name of SAC file.
+     * @return (ByteBuffer) First {@link CompactSACHeader#HEADER_SIZE} bytes of the record of the SAC file.
+     * @throws NoSuchFileException if the bundle does not exist or does not include the SAC file
+     * @throws EOFException if the record is shorter than a SAC header
+     * @throws IOException if the bundle is broken or an I/O error occurs
+     */
+    static ByteBuffer readHeader(SACFileName sacFileName) throws IOException {
+        ByteBuffer header = bundleOf(sacFileName).read(sacFileName.getName(), CompactSACHeader.HEADER_SIZE);
+        if (header.remaining() < CompactSACHeader.HEADER_SIZE)
+            throw new EOFException(sacFileName + " is shorter than a SAC header.");
+        return header;
+    }
+
+    /**
+     * Writes out the record of a SAC file in the bundle of its folder as a file, as it was before it was packed.
+     * @param sacFileName ({@link SACFileName}) Name of SAC file in the bundle.
+     * @param outPath (Path) File to write. It must not exist.
+     * @throws NoSuchFileException if the bundle does not exist or does not include the SAC file
+     * @throws IOException if the bundle is broken or an I/O error occurs
+     */
+    public static void copyRecord(SACFileName sacFileName, Path outPath) throws IOException {
+        bundleOf(sacFileName).copyEntry(sacFileName.getName(), outPath);
+    }
+
+    private static FileContainer bundleOf(SACFileName sacFileName) throws IOException {
+        FileContainer bundle = of(parentOf(sacFileName));
+        if (bundle == null) throw new NoSuchFileException(sacFileName.getPath());
+        return bundle;
+    }
+
+    private static Path parentOf(SACFileName sacFileName) {
+        return sacFileName.toPath().toAbsolutePath().getParent();
+    }
+
+    /**
+     * Names of SAC files in the bundle of a folder.
+     * @param folder (Path) Event folder.
+     * @return (Set of String) Names of SAC files in the bundle. Empty if there is no bundle.
+     * @throws IOException if the bundle is broken or an I/O error occurs
+     */
+    public static Set<String> entryNames(Path folder) throws IOException {
+        FileContainer bundle = of(folder);
+        return bundle == null ? Collections.emptySet() : bundle.entryNames();
+    }
+
+    /**
+     * Packs SAC files in an event folder into its bundle.
+     * Entries already in the bundle are kept unless a file with the same name exists in the folder.
+     * @param folder (Path) Event folder.
+     * @param removeFiles (boolean) Whether to delete the SAC files after they are packed.
+     * @return (int) Number of SAC files packed from the folder.
+     * @throws IOException if an I/O error occurs
+     */
+    public static int pack(Path folder, boolean removeFiles) throws IOException {
+        List<Path> files;
+        // CAUTION: Files.list() must be in try-with-resources.
+        try (Stream<Path> stream = Files.list(folder)) {
+            files = stream.filter(path -> Files.isRegularFile(path) && SACFileName.isSacFileName(path)).sorted()
+                    .collect(Collectors.toList());
+        }
+        if (files.isEmpty()) return 0;
+        FileContainer.pack(folder.resolve(FILE_NAME), MAGIC, files);
+
+        if (removeFiles) for (Path file : files) Files.delete(file);
+        return files.size();
+    }
+
+    /**
+     * Writes out SAC files in the bundle of an event folder.
+     * Files that already exist in the folder are not overwritten.
+     * @param folder (Path) Event folder.
+     * @param removeBundle (boolean) Whether to delete the bundle after it is unpacked.
+     * @return (int) Number of SAC files written out.
+     * @throws IOException if an I/O error occurs
+     */
+    public static int unpack(Path folder, boolean removeBundle) throws IOException {
+        FileContainer bundle = of(folder);
+        if (bundle == null) return 0;
+        int n = 0;
+        for (String name : bundle.entryNames()) {
+            Path file = folder.resolve(name);
+            if (Files.exists(file)) continue;
+            bundle.copyEntry(name, file);
+            n++;
+        }
+        if (removeBundle) {
+            Files.delete(bundle.getPath());
+            FileContainer.invalidate(bundle.getPath());
+        }
+        return n;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Packs SAC files in event folders into bundles, or unpacks them.
+     * @param args Options.
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        Options options = defineOptions();
+        try {
+            run(Summon.parseArgs(options, args));
+        } catch (ParseException e) {
+            Summon.showUsage(options);
+        }
+    }
+
+    /**
+     * To be called from {@link Summon}.
+     * @return options
+     */
+    public static Options defineOptions() {
+        Options options = Summon.defaultOptions();
+
+        OptionGroup modeOption = new OptionGroup();
+        modeOption.addOption(Option.builder("p").longOpt("pack")
+                .desc("Pack SAC files in each event folder into a bundle.").build());
+        modeOption.addOption(Option.builder("u").longOpt("unpack")
+                .desc("Write out SAC files in the bundle of each event folder.").build());
+        modeOption.setRequired(true);
+        options.addOptionGroup(modeOption);
+
+        options.addOption(Option.builder("d").longOpt("dataset").hasArg().argName("datasetFolder")
+                .desc("Path of dataset folder containing event folders, or of a single event folder. (.)").build());
+        options.addOption(Option.builder("r").longOpt("remove")
+                .desc("Delete SAC files after packing, or bundles after unpacking.").build());
+
+        return options;
+    }
+
+    /**
+     * To be called from {@link Summon}.
+     * @param cmdLine options
+     * @throws IOException
+     */
+    public static void run(CommandLine cmdLine) throws IOException {
+        Path datasetPath = cmdLine.hasOption("d") ? Paths.get(cmdLine.getOptionValue("d")) : Paths.get("");
+        boolean remove = cmdLine.hasOption("r");
+
+        Set<Path> eventPaths;
+        Path fileName = datasetPath.toAbsolutePath().normalize().getFileName();
+        if (fileName != null && GlobalCMTID.isGlobalCMTID(fileName.toString())) {
+            eventPaths = Collections.singleton(datasetPath);
+        } else {
+            eventPaths = DatasetAid.eventFolderSet(datasetPath).stream().map(EventFolder::toPath).collect(Collectors.toSet());
+        }
+
+        int nFile = 0;
+        for (Path eventPath : eventPaths) {
+            nFile += cmdLine.hasOption("p") ? pack(eventPath, remove) : unpack(eventPath, remove);
+        }
+        System.err.println((cmdLine.hasOption("p") ? "Packed " : "Unpacked ") + nFile + " SAC files in "
+                + eventPaths.size() + " event folders.");
+    }
+
+}
@@ -0,0 +1,110 @@
+package io.github.kensuke1984.kibrary.util.sac;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Cache of decoded SAC files, shared in the JVM.
+ * <p>
+ * Entries are keyed by the absolute path and the modification time of the file
+ * (or of the {@link SACBundle} holding it), so a file rewritten by another operation is decoded again.
+ * The total size of cached waveforms is bounded, and the least recently used entries are evicted first.
+ * By default, 1/8 of the maximum heap size is used; this can be changed by the system property "kibrary.sacCacheMB".
+ * <p>
+ * {@link SACFileAccess} is immutable, so cached instances can be shared between threads.
+ * This class is thread-safe.
+ *
+ * @since 2026/10/18
+ */
+public final class SACCache {
+
+    /**
+     * Rough size of an entry other than the waveform [byte].
+     */
+    private static final long ENTRY_OVERHEAD = 2048;
+
+    private static final long CAPACITY = Long.getLong("kibrary.sacCacheMB", Runtime.getRuntime().maxMemory() / 8 / 1024 / 1024)
+            * 1024 * 1024;
+
+    /**
+     * Entries in the order of access.
+     */
+    private static final LinkedHashMap<Key, SACFileAccess> ENTRIES = new LinkedHashMap<>(1024, 0.75f, true);
+    private static long size;
+
+    private SACCache() {
+    }
+
+    /**
+     * Reads a SAC file, or returns the cached one if the file has not been changed since it was cached.
+     * @param sacFileName ({@link SACFileName}) SAC file to read.
+     * @return ({@link SACFileAccess}) Decoded SAC file.
+     * @throws IOException if an I/O error occurs
+     */
+    public static SACFileAccess read(SACFileName sacFileName) throws IOException {
+        Key key = new Key(sacFileName);
+        synchronized (ENTRIES) {
+            SACFileAccess sacData = ENTRIES.get(key);
+            if (sacData != null) return sacData;
+        }
+        // decode outside the lock so that different files can be read in parallel
+        SACFileAccess sacData = sacFileName.read();
+        long entrySize = sizeOf(sacData);
+        if (CAPACITY < entrySize) return sacData;
+        synchronized (ENTRIES) {
+            SACFileAccess previous = ENTRIES.put(key, sacData);
+            if (previous != null) size -= sizeOf(previous);
+            size += entrySize;
+            Iterator<SACFileAccess> iterator = ENTRIES.values().iterator();
+            while (CAPACITY < size && iterator.hasNext()) {
+                size -= sizeOf(iterator.next());
+                iterator.remove();
+            }
+        }
+        return sacData;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+            size = 0;
+        }
+    }
+
+    private static long sizeOf(SACFileAccess sacData) {
+        return 8L * sacData.getInt(SACHeaderEnum.NPTS) + ENTRY_OVERHEAD;
+    }
+
+    private static final class Key {
+        private final String path;
+        private final long modified;
+
+        private Key(SACFileName sacFileName) {
+            path = sacFileName.getAbsolutePath();
+            long fileModified = sacFileName.lastModified();
+            // 0 is returned when the file does not exist, in which case it is in the bundle
+            modified = fileModified != 0 ? fileModified
+                    : new File(sacFileName.getAbsoluteFile().getParentFile(), SACBundle.FILE_NAME).lastModified();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + Long.hashCode(modified);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return modified == other.modified && Objects.equals(path, other.path);
+        }
+    }
+
+}
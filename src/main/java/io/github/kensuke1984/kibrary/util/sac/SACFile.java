@@ -1,6 +1,11 @@
 package io.github.kensuke1984.kibrary.util.sac;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import io.github.kensuke1984.kibrary.filter.BandPassFilter;
 import io.github.kensuke1984.kibrary.filter.BandStopFilter;
@@ -20,7 +25,11 @@ import io.github.kensuke1984.kibrary.filter.LowPassFilter;
 class SACFile extends SACHeader implements SACFileAccess {
 
     /**
-     * waveform data in the sacfile
+     * Waveform as read, converted to double only when it is asked for. null once waveData is set.
+     */
+    private SACRecord record;
+    /**
+     * waveform data set by {@link #setSACData(double[])}. null until then.
      */
     private double[] waveData;
 
@@ -30,8 +39,28 @@ class SACFile extends SACHeader implements SACFileAccess {
      *                     sacFileName is broken.
      */
     SACFile(SACFileName sacFileName) throws IOException {
-        super(sacFileName);
-        read(sacFileName);
+        this(sacFileName, ByteBuffer.wrap(Files.readAllBytes(sacFileName.toPath())));
+    }
+
+    /**
+     * Creates an instance from a SAC record held in a buffer, such as a part of a {@link SACBundle}.
+     *
+     * @param sacFileName ({@link SACFileName}) Name of the record, used in error messages.
+     * @param record (ByteBuffer) Buffer holding the whole SAC record from its position. The position is not changed.
+     * @throws IOException if the record is broken.
+     */
+    SACFile(SACFileName sacFileName, ByteBuffer record) throws IOException {
+        super(new SACInputStream(new ByteArrayInputStream(headerBytes(record))));
+        this.record = SACRecord.of(record.duplicate(), sacFileName.toString());
+        if (this.record.getNPTS() != getInt(SACHeaderEnum.NPTS))
+            throw new IOException(sacFileName + " is broken.");
+    }
+
+    private static byte[] headerBytes(ByteBuffer record) throws IOException {
+        if (record.remaining() < CompactSACHeader.HEADER_SIZE) throw new EOFException("Record is shorter than a SAC header.");
+        byte[] header = new byte[CompactSACHeader.HEADER_SIZE];
+        record.duplicate().get(header);
+        return header;
     }
 
     /**
@@ -61,26 +90,12 @@ class SACFile extends SACHeader implements SACFileAccess {
             double periodMax = 2 * Math.PI * getValue(SACHeaderEnum.DELTA) / bsf.getOmegaH();
             sd = sd.withValue(SACHeaderEnum.USER0, periodMax).withValue(SACHeaderEnum.USER1, periodMin);
         }
-        double[] sacdata = filter.applyFilter(waveData.clone());
+        double[] sacdata = getData();
+        filter.applyFilterInPlace(sacdata);
         sd = sd.setSACData(sacdata);
         return sd;
     }
 
-    /**
-     * Sacの波形部分を読み込む read sacdata from this.sacFile
-     */
-    private void read(SACFileName sacFileName) throws IOException {
-        try (SACInputStream stream = new SACInputStream(sacFileName.toPath())) {
-            stream.skipBytes(632);
-            int npts = getInt(SACHeaderEnum.NPTS);
-            waveData = new double[npts];
-            // float(4) * 70, int(4) * 40, String (8) * 22 + (16)
-            // 4* 70 + 4* 40 + 8* 22 +16 = 632
-            for (int i = 0; i < npts; i++)
-                waveData[i] = stream.readFloat();
-        }
-    }
-
     @Override
     public SACFile setSACData(double[] sacData) {
         // setInt(SacHeaderEnum.NPTS, npts);
@@ -88,6 +103,7 @@ class SACFile extends SACHeader implements SACFileAccess {
         if (npts != sacData.length)
             throw new IllegalStateException("input npts is invalid. SAC npts" + npts + " input npts:" + npts);
         SACFile sf = clone();
+        sf.record = null;
         sf.waveData = sacData.clone();
         return sf;
     }
@@ -96,7 +112,8 @@ class SACFile extends SACHeader implements SACFileAccess {
     public SACFile clone() {
         try {
             SACFile sf = (SACFile) super.clone();
-            sf.waveData = waveData.clone();
+            // the record is read-only, so it is shared
+            if (waveData != null) sf.waveData = waveData.clone();
             return sf;
         } catch (Exception e) {
             throw new RuntimeException("UNExPECTed");
@@ -130,7 +147,21 @@ class SACFile extends SACHeader implements SACFileAccess {
 
     @Override
     public double[] getData() {
-        return waveData.clone();
+        return waveData == null ? record.toDoubleArray() : waveData.clone();
+    }
+
+    @Override
+    public double[] getData(int from, int to) {
+        if (waveData == null) return record.getData(from, to);
+        SACRecord.checkRange(from, to, waveData.length);
+        return Arrays.copyOfRange(waveData, from, to);
+    }
+
+    @Override
+    public double[] getZeroPaddedData(int from, int to) {
+        if (waveData == null) return record.getZeroPaddedData(from, to);
+        SACRecord.checkRange(from, Math.min(to, waveData.length), waveData.length);
+        return Arrays.copyOfRange(waveData, from, to);
     }
 
 }
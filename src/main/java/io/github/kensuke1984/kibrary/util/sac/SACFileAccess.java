@@ -1,6 +1,5 @@
 package io.github.kensuke1984.kibrary.util.sac;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Files;
@@ -8,6 +7,9 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.stream.IntStream;
 
 import org.apache.commons.cli.CommandLine;
@@ -19,6 +21,8 @@ import org.apache.commons.math3.util.Precision;
 import io.github.kensuke1984.kibrary.Summon;
 import io.github.kensuke1984.kibrary.filter.ButterworthFilter;
 import io.github.kensuke1984.kibrary.math.Trace;
+import io.github.kensuke1984.kibrary.timewindow.Timewindow;
+import io.github.kensuke1984.kibrary.util.MathAid;
 import io.github.kensuke1984.kibrary.util.data.Observer;
 import io.github.kensuke1984.kibrary.util.earth.FullPosition;
 
@@ -46,8 +50,9 @@ public interface SACFileAccess extends SACHeaderAccess {
      * @throws IOException if an I/O error occurs
      */
     default void writeSAC(Path outPath, OpenOption... options) throws IOException {
-        try (SACOutputStream stream = new SACOutputStream(
-                new BufferedOutputStream(Files.newOutputStream(outPath, options)))) {
+        double[] waveData = getData();
+        SACOutputBuffer buffer = SACOutputBuffer.forThread(waveData.length);
+        try (SACOutputStream stream = new SACOutputStream(buffer)) {
             stream.writeSACDouble(getValue(SACHeaderEnum.DELTA)); // 0
             stream.writeSACDouble(getValue(SACHeaderEnum.DEPMIN)); // 1
             stream.writeSACDouble(getValue(SACHeaderEnum.DEPMAX)); // 2
@@ -185,9 +190,9 @@ public interface SACFileAccess extends SACHeaderAccess {
             stream.writeSACString(getSACString(SACHeaderEnum.KNETWK), 8); // 152-153
             stream.writeSACString(getSACString(SACHeaderEnum.KDATRD), 8); // 154-155
             stream.writeSACString(getSACString(SACHeaderEnum.KINST), 8); // 156-157
-            double[] waveData = getData();
-            for (double data : waveData) stream.writeSACDouble(data);
+            buffer.writeData(waveData);
         }
+        buffer.writeTo(outPath, options);
     }
 
     /**
@@ -208,6 +213,94 @@ public interface SACFileAccess extends SACHeaderAccess {
         return new Trace(timeAxis, getData());
     }
 
+    /**
+     * Index of the point closest in time to the target, in the time axis of {@link #createTrace()}.
+     * The result is the same as createTrace().findNearestXIndex(time), but the whole Trace is not created.
+     *
+     * @param time (double) Time to look for.
+     * @return (int) Index of the closest point.
+     */
+    default int findNearestIndex(double time) {
+        return SACRecord.nearestIndex(getValue(SACHeaderEnum.B), getValue(SACHeaderEnum.DELTA),
+                getInt(SACHeaderEnum.NPTS), time);
+    }
+
+    /**
+     * Cuts out the waveform in a time range.
+     * The result is the same as createTrace().cutWindow(startTime, endTime, samplingHz) (see {@link Trace#cutWindow(double, double, double)}),
+     * but only the points in the range are copied.
+     *
+     * @param startTime (double) Start time of window (closest point will be chosen).
+     * @param endTime (double) End time of window (used to decide number of points).
+     * @param samplingHz (double) Sampling rate of this waveform (used to decide number of points).
+     * @return ({@link Trace}) Trace of time and waveform in the window.
+     */
+    default Trace cutWindow(double startTime, double endTime, double samplingHz) {
+        double b = getValue(SACHeaderEnum.B);
+        double delta = getValue(SACHeaderEnum.DELTA);
+        int iStart = SACRecord.windowStart(b, delta, getInt(SACHeaderEnum.NPTS), startTime, endTime);
+        int npts = (int) Math.round((endTime - startTime) * samplingHz) + 1;
+        // points beyond NPTS are padded with 0, as in Trace#cutWindow(double, double, double)
+        return new Trace(SACRecord.timeAxis(b, delta, iStart, npts), getZeroPaddedData(iStart, iStart + npts));
+    }
+
+    /**
+     * Cuts out the waveform in a time window, without creating the time axis.
+     * The result is the same as cutWindow(timewindow, samplingHz).getY() (see {@link #cutWindow(Timewindow, double)}).
+     *
+     * @param timewindow ({@link Timewindow}) Time window of cut range.
+     * @param samplingHz (double) Sampling rate of this waveform (used to decide number of points).
+     * @return (double[]) Waveform in the window.
+     */
+    default double[] cutWindowData(Timewindow timewindow, double samplingHz) {
+        int iStart = SACRecord.windowStart(getValue(SACHeaderEnum.B), getValue(SACHeaderEnum.DELTA), getInt(SACHeaderEnum.NPTS),
+                timewindow.getStartTime(), timewindow.getEndTime());
+        int npts = (int) Math.round((timewindow.getEndTime() - timewindow.getStartTime()) * samplingHz) + 1;
+        return getZeroPaddedData(iStart, iStart + npts);
+    }
+
+    /**
+     * Cuts out the waveform in a time window. See {@link #cutWindow(double, double, double)}.
+     *
+     * @param timewindow ({@link Timewindow}) Time window of cut range.
+     * @param samplingHz (double) Sampling rate of this waveform (used to decide number of points).
+     * @return ({@link Trace}) Trace of time and waveform in the window.
+     */
+    default Trace cutWindow(Timewindow timewindow, double samplingHz) {
+        return cutWindow(timewindow.getStartTime(), timewindow.getEndTime(), samplingHz);
+    }
+
+    /**
+     * Cuts out the waveform in a time window and resamples it at a lower sampling rate.
+     * The result is the same as createTrace().resampleInWindow(timewindow, originalSamplingHz, finalSamplingHz)
+     * (see {@link Trace#resampleInWindow(double, double, double, double)}), but only the points in the window are copied.
+     *
+     * @param timewindow ({@link Timewindow}) Time window of cut range.
+     * @param originalSamplingHz (double) Sampling rate of this waveform.
+     * @param finalSamplingHz (double) Sampling rate to resample the waveform. This must be able to divide originalSamplingHz.
+     * @return ({@link Trace}) Resampled trace of time and waveform in the window.
+     */
+    default Trace resampleInWindow(Timewindow timewindow, double originalSamplingHz, double finalSamplingHz) {
+        double startTime = timewindow.getStartTime();
+        double endTime = timewindow.getEndTime();
+        if (!MathAid.isInteger(originalSamplingHz / finalSamplingHz))
+            throw new IllegalArgumentException("originalSamplingHz/finalSamplingHz must be integer: " + originalSamplingHz + ", " + finalSamplingHz);
+        double b = getValue(SACHeaderEnum.B);
+        double delta = getValue(SACHeaderEnum.DELTA);
+        int iStart = SACRecord.windowStart(b, delta, getInt(SACHeaderEnum.NPTS), startTime, endTime);
+        int npts = (int) MathAid.floor((endTime - startTime) * finalSamplingHz) + 1;
+        int step = (int) Math.round(originalSamplingHz / finalSamplingHz);
+        double[] time = SACRecord.timeAxis(b, delta, iStart, (npts - 1) * step + 1);
+        double[] data = getData(iStart, iStart + (npts - 1) * step + 1);
+        double[] sampledX = new double[npts];
+        double[] sampledY = new double[npts];
+        for (int i = 0; i < npts; i++) {
+            sampledX[i] = time[i * step];
+            sampledY[i] = data[i * step];
+        }
+        return new Trace(sampledX, sampledY);
+    }
+
     @Override
     default SACFileAccess withEventLocation(FullPosition eventLocation) {
         return (SACFileAccess) SACHeaderAccess.super.withEventLocation(eventLocation);
@@ -245,8 +338,115 @@ public interface SACFileAccess extends SACHeaderAccess {
 
     SACFileAccess applyButterworthFilter(ButterworthFilter filter);
 
+    /**
+     * Removes the linear trend and then the mean, in the same way as "rtrend" and "rmean" in SAC.
+     *
+     * @return ({@link SACFileAccess}) SAC file with the trend removed. DEPMIN, DEPMAX, and DEPMEN are updated.
+     */
+    default SACFileAccess removeTrend() {
+        double[] data = getData();
+        SACUtil.removeTrend(data);
+        SACUtil.removeMean(data);
+        return withUpdatedData(data, getValue(SACHeaderEnum.B), getValue(SACHeaderEnum.DELTA));
+    }
+
+    /**
+     * Removes the mean, in the same way as "rmean" in SAC.
+     *
+     * @return ({@link SACFileAccess}) SAC file with the mean removed. DEPMIN, DEPMAX, and DEPMEN are updated.
+     */
+    default SACFileAccess removeMean() {
+        double[] data = getData();
+        SACUtil.removeMean(data);
+        return withUpdatedData(data, getValue(SACHeaderEnum.B), getValue(SACHeaderEnum.DELTA));
+    }
+
+    /**
+     * Resamples the waveform, in the same way as "interpolate delta newDelta begin newB" in SAC.
+     * See {@link SACUtil#interpolate(double[], double, double, double, double)}.
+     *
+     * @param newB (double) New begin time [s]. Must not be before the current begin time.
+     * @param newDelta (double) New sampling interval [s].
+     * @return ({@link SACFileAccess}) Interpolated SAC file.
+     */
+    default SACFileAccess interpolate(double newB, double newDelta) {
+        double[] data = SACUtil.interpolate(getData(), getValue(SACHeaderEnum.B), getValue(SACHeaderEnum.DELTA), newB, newDelta);
+        return withUpdatedData(data, newB, newDelta);
+    }
+
+    /**
+     * Cuts the waveform to npts points from the begin time, in the same way as "cut b n npts" in SAC.
+     * If this has less points, the whole waveform is kept.
+     *
+     * @param npts (int) Number of points to keep.
+     * @return ({@link SACFileAccess}) Cut SAC file.
+     */
+    default SACFileAccess cut(int npts) {
+        double[] data = getData();
+        if (npts < data.length) data = Arrays.copyOf(data, npts);
+        return withUpdatedData(data, getValue(SACHeaderEnum.B), getValue(SACHeaderEnum.DELTA));
+    }
+
+    /**
+     * Sets new waveform data with B and DELTA,
+     * and updates the headers that depend on the data in the same way as {@link SACUtil#updateHeader(java.util.Map, double[])}.
+     *
+     * @param data (double[]) New waveform data.
+     * @param b (double) Begin time of data [s].
+     * @param delta (double) Sampling interval of data [s].
+     * @return ({@link SACFileAccess}) SAC file with the data.
+     */
+    default SACFileAccess withUpdatedData(double[] data, double b, double delta) {
+        Map<SACHeaderEnum, String> headerMap = new EnumMap<>(SACHeaderEnum.class);
+        headerMap.put(SACHeaderEnum.B, String.valueOf(b));
+        headerMap.put(SACHeaderEnum.DELTA, String.valueOf(delta));
+        headerMap.put(SACHeaderEnum.LCALDA, String.valueOf(getBoolean(SACHeaderEnum.LCALDA)));
+        headerMap.put(SACHeaderEnum.EVLA, String.valueOf(getValue(SACHeaderEnum.EVLA)));
+        headerMap.put(SACHeaderEnum.EVLO, String.valueOf(getValue(SACHeaderEnum.EVLO)));
+        headerMap.put(SACHeaderEnum.STLA, String.valueOf(getValue(SACHeaderEnum.STLA)));
+        headerMap.put(SACHeaderEnum.STLO, String.valueOf(getValue(SACHeaderEnum.STLO)));
+        SACUtil.updateHeader(headerMap, data);
+
+        SACFileAccess sd = withValue(SACHeaderEnum.B, b).withValue(SACHeaderEnum.DELTA, delta)
+                .withInt(SACHeaderEnum.NPTS, data.length);
+        for (Map.Entry<SACHeaderEnum, String> entry : headerMap.entrySet()) {
+            SACHeaderEnum key = entry.getKey();
+            if (key.getType() == 0 && key != SACHeaderEnum.B && key != SACHeaderEnum.DELTA)
+                sd = sd.withValue(key, Double.parseDouble(entry.getValue()));
+        }
+        return sd.setSACData(data);
+    }
+
     double[] getData();
 
+    /**
+     * Copies part of the waveform.
+     *
+     * @param from (int) Start index, inclusive.
+     * @param to (int) End index, exclusive.
+     * @return (double[]) Waveform in the range.
+     * @throws IndexOutOfBoundsException if the range is not within [0, NPTS]
+     */
+    default double[] getData(int from, int to) {
+        SACRecord.checkRange(from, to, getInt(SACHeaderEnum.NPTS));
+        return Arrays.copyOfRange(getData(), from, to);
+    }
+
+    /**
+     * Copies part of the waveform, filling points beyond NPTS with 0
+     * in the same way as {@link Arrays#copyOfRange(double[], int, int)}.
+     * This is for when padding is intended; use {@link #getData(int, int)} otherwise.
+     *
+     * @param from (int) Start index, inclusive.
+     * @param to (int) End index, exclusive.
+     * @return (double[]) Waveform in the range, padded with 0.
+     * @throws IndexOutOfBoundsException if from is not within [0, NPTS] or to is smaller than from
+     */
+    default double[] getZeroPaddedData(int from, int to) {
+        SACRecord.checkRange(from, Math.min(to, getInt(SACHeaderEnum.NPTS)), getInt(SACHeaderEnum.NPTS));
+        return Arrays.copyOfRange(getData(), from, to);
+    }
+
     /**
      * DEEP copy input sacData on the sacData of this.
      *
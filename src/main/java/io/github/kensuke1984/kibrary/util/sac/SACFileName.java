@@ -3,6 +3,7 @@ package io.github.kensuke1984.kibrary.util.sac;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 
 import io.github.kensuke1984.kibrary.util.data.Observer;
@@ -255,7 +256,12 @@ public class SACFileName extends File {
      * @throws IOException if an I/O error occurs
      */
     public SACHeaderAccess readHeader() throws IOException {
-        return new SACHeader(this);
+        try {
+            return CompactSACHeader.read(toPath());
+        } catch (NoSuchFileException e) {
+            // look in the bundle of the folder
+            return CompactSACHeader.read(SACBundle.readHeader(this));
+        }
     }
 
     /**
@@ -279,7 +285,26 @@ public class SACFileName extends File {
      * @throws IOException if an I/O error occurs
      */
     public SACFileAccess read() throws IOException {
-        return new SACFile(this);
+        try {
+            return new SACFile(this);
+        } catch (NoSuchFileException e) {
+            // look in the bundle of the folder
+            return new SACFile(this, SACBundle.readRecord(this));
+        }
+    }
+
+    /**
+     * Files in the {@link SACBundle} of the folder are also regarded as existing.
+     * @return (boolean) Whether this file exists, either as a file or in the bundle of its folder.
+     */
+    @Override
+    public boolean exists() {
+        if (super.exists()) return true;
+        try {
+            return SACBundle.contains(this);
+        } catch (IOException e) {
+            return false;
+        }
     }
 
 }
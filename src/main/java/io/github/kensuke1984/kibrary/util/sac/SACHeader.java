@@ -166,7 +166,16 @@ class SACHeader implements SACHeaderAccess, Cloneable {
      * @throws IOException if an I/O error occurs.
      */
     SACHeader(SACFileName sacFileName) throws IOException {
-        try (SACInputStream stream = new SACInputStream(sacFileName.toPath())) {
+        this(new SACInputStream(sacFileName.toPath()));
+    }
+
+    /**
+     * Creates an instance by reading header values from a stream. The stream is closed afterwards.
+     * @param sacStream ({@link SACInputStream}) Stream positioned at the head of a SAC record.
+     * @throws IOException if an I/O error occurs.
+     */
+    SACHeader(SACInputStream sacStream) throws IOException {
+        try (SACInputStream stream = sacStream) {
             delta = toDouble(stream.readFloat()); // 0
             depmin = toDouble(stream.readFloat()); // 1
             depmax = toDouble(stream.readFloat()); // 2
@@ -4,6 +4,7 @@ import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
@@ -23,6 +24,10 @@ final class SACInputStream extends FilterInputStream {
         super(new BufferedInputStream(Files.newInputStream(sacPath, options)));
     }
 
+    SACInputStream(InputStream in) {
+        super(new BufferedInputStream(in));
+    }
+
     final float readFloat() throws IOException {
         return Float.intBitsToFloat(readInt());
     }
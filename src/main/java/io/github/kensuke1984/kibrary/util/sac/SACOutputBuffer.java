@@ -0,0 +1,106 @@
+package io.github.kensuke1984.kibrary.util.sac;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Buffer holding a whole SAC file, so that the file can be written in a single write operation.
+ * The buffer is kept for each thread and reused.
+ * <p>
+ * The header is written through {@link SACOutputStream} wrapping this buffer,
+ * and then the waveform is put in bulk by {@link #writeData(double[])}.
+ *
+ * @since 2026/10/18
+ */
+final class SACOutputBuffer extends OutputStream {
+
+    /**
+     * Size of header [byte]. 4* 70 + 4* 40 + 8* 22 +16 = 632
+     */
+    static final int HEADER_SIZE = 632;
+
+    private static final ThreadLocal<SACOutputBuffer> BUFFERS = ThreadLocal.withInitial(SACOutputBuffer::new);
+
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+
+    private SACOutputBuffer() {
+    }
+
+    /**
+     * Returns the buffer of the current thread, emptied and with enough capacity for a SAC file.
+     * @param npts (int) Number of data points in SAC file.
+     * @return ({@link SACOutputBuffer}) Buffer for current thread.
+     */
+    static SACOutputBuffer forThread(int npts) {
+        SACOutputBuffer sacBuffer = BUFFERS.get();
+        int size = HEADER_SIZE + 4 * npts;
+        if (sacBuffer.buffer.capacity() < size) sacBuffer.buffer = ByteBuffer.allocateDirect(size);
+        sacBuffer.buffer.clear();
+        // SAC files are little endian
+        sacBuffer.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return sacBuffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffer.put(b, off, len);
+    }
+
+    /**
+     * Puts a header in the buffer, instead of writing it through {@link SACOutputStream}.
+     * @param header ({@link CompactSACHeader}) Header to put.
+     */
+    void writeHeader(CompactSACHeader header) {
+        header.writeTo(buffer);
+    }
+
+    /**
+     * Puts waveform data in the buffer, in the same format as {@link SACOutputStream#writeSACDouble(double)}.
+     * @param data (double[]) Waveform data.
+     */
+    void writeData(double[] data) {
+        float[] floats = new float[data.length];
+        for (int i = 0; i < data.length; i++)
+            floats[i] = (float) data[i];
+        // the view keeps the byte order of the buffer
+        buffer.asFloatBuffer().put(floats);
+        buffer.position(buffer.position() + 4 * floats.length);
+    }
+
+    /**
+     * Writes the contents of the buffer to a file.
+     * @param outPath (Path) File to write in.
+     * @param options (OpenOption...) Options in the same manner as {@link Files#newOutputStream(Path, OpenOption...)}.
+     * @throws IOException
+     */
+    void writeTo(Path outPath, OpenOption... options) throws IOException {
+        Set<OpenOption> optionSet = new HashSet<>();
+        if (options.length == 0) {
+            optionSet.add(StandardOpenOption.CREATE);
+            optionSet.add(StandardOpenOption.TRUNCATE_EXISTING);
+        } else {
+            optionSet.addAll(Arrays.asList(options));
+        }
+        optionSet.add(StandardOpenOption.WRITE);
+        buffer.flip();
+        try (SeekableByteChannel channel = Files.newByteChannel(outPath, optionSet)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package io.github.kensuke1984.kibrary.util.sac;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.math3.util.Precision;
+
+import io.github.kensuke1984.kibrary.math.Trace;
+
+/**
+ * Waveform of a SAC record held in a buffer.
+ * <p>
+ * The whole record is read in a single operation, and the waveform is kept as a {@link FloatBuffer} view of it.
+ * Values are converted to double only when they are asked for,
+ * so when only a time window is needed, the rest of the record is never converted.
+ * Files are read rather than mapped on memory,
+ * since SAC files are small and a mapping would stay until garbage collection.
+ * <p>
+ * Time of each point is the same as in {@link SACFileAccess#createTrace()},
+ * so the windows cut with the methods here are the same as those cut from the {@link Trace}.
+ *
+ * @since 2026/10/18
+ */
+final class SACRecord {
+
+    /**
+     * Read-only view of the waveform, from position 0 to NPTS.
+     */
+    private final FloatBuffer data;
+
+    private SACRecord(FloatBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Reads a SAC file.
+     *
+     * @param sacPath (Path) SAC file to read.
+     * @return ({@link SACRecord}) Record in the file.
+     * @throws IOException if an I/O error occurs, or if the file is shorter than NPTS.
+     */
+    static SACRecord read(Path sacPath) throws IOException {
+        return of(ByteBuffer.wrap(Files.readAllBytes(sacPath)), sacPath.toString());
+    }
+
+    /**
+     * Views a SAC record held in a buffer, such as a part of a {@link SACBundle}.
+     *
+     * @param record (ByteBuffer) Buffer holding a whole SAC record from its position. The position is advanced.
+     * @param source (String) Name of the record, used in error messages.
+     * @return ({@link SACRecord}) Record in the buffer.
+     * @throws IOException if the record is shorter than NPTS.
+     */
+    static SACRecord of(ByteBuffer record, String source) throws IOException {
+        if (record.remaining() < CompactSACHeader.HEADER_SIZE)
+            throw new EOFException(source + " is shorter than a SAC header.");
+        CompactSACHeader header = CompactSACHeader.read(record);
+        int npts = header.getInt(SACHeaderEnum.NPTS);
+        if (npts < 0 || record.remaining() / 4 < npts)
+            throw new EOFException(source + " is shorter than NPTS " + npts + ".");
+        // the order detected from the header is kept by asFloatBuffer()
+        FloatBuffer data = record.asFloatBuffer();
+        data.limit(npts);
+        return new SACRecord(data.asReadOnlyBuffer());
+    }
+
+    /**
+     * @return (int) Number of data points.
+     */
+    int getNPTS() {
+        return data.limit();
+    }
+
+    /**
+     * @return (double[]) Whole waveform converted to double.
+     */
+    double[] toDoubleArray() {
+        return toDoubleArray(data, 0, data.limit(), false);
+    }
+
+    /**
+     * @param from (int) Start index, inclusive.
+     * @param to (int) End index, exclusive.
+     * @return (double[]) Part of the waveform converted to double.
+     * @throws IndexOutOfBoundsException if the range is not within [0, NPTS]
+     */
+    double[] getData(int from, int to) {
+        return toDoubleArray(data, from, to, false);
+    }
+
+    /**
+     * @param from (int) Start index, inclusive.
+     * @param to (int) End index, exclusive. Points beyond NPTS are filled with 0, in the same way as {@link java.util.Arrays#copyOfRange(double[], int, int)}.
+     * @return (double[]) Part of the waveform converted to double.
+     * @throws IndexOutOfBoundsException if from is not within [0, NPTS] or to is smaller than from
+     */
+    double[] getZeroPaddedData(int from, int to) {
+        return toDoubleArray(data, from, to, true);
+    }
+
+    /**
+     * Converts floats in a range of a buffer to doubles in bulk.
+     * The position of the buffer is not changed.
+     *
+     * @param buffer (FloatBuffer) Buffer to read.
+     * @param from (int) Start index, inclusive.
+     * @param to (int) End index, exclusive.
+     * @param zeroPad (boolean) Whether to fill indices beyond the limit of the buffer with 0. If false, such indices are not allowed.
+     * @return (double[]) Converted values.
+     * @throws IndexOutOfBoundsException if the range is invalid
+     */
+    static double[] toDoubleArray(FloatBuffer buffer, int from, int to, boolean zeroPad) {
+        checkRange(from, zeroPad ? Math.min(to, buffer.limit()) : to, buffer.limit());
+        float[] floats = new float[Math.min(to, buffer.limit()) - from];
+        FloatBuffer view = buffer.duplicate();
+        view.position(from);
+        view.get(floats);
+        double[] doubles = new double[to - from];
+        for (int i = 0; i < floats.length; i++)
+            doubles[i] = floats[i];
+        return doubles;
+    }
+
+    /**
+     * @param from (int) Start index, inclusive.
+     * @param to (int) End index, exclusive.
+     * @param npts (int) Number of points.
+     * @throws IndexOutOfBoundsException if the range is not within [0, npts]
+     */
+    static void checkRange(int from, int to, int npts) {
+        if (from < 0 || npts < to || to < from)
+            throw new IndexOutOfBoundsException("Invalid range [" + from + ", " + to + ") for " + npts + " points.");
+    }
+
+    /**
+     * Time of each point, in the same way as {@link SACFileAccess#createTrace()}.
+     *
+     * @param b (double) Value of B in the header.
+     * @param delta (double) Value of DELTA in the header.
+     * @param from (int) Index of the first point.
+     * @param n (int) Number of points.
+     * @return (double[]) Time of points from index from to from+n-1.
+     */
+    static double[] timeAxis(double b, double delta, int from, int n) {
+        double b0 = (int) (b / delta) * delta;
+        double[] time = new double[n];
+        for (int i = 0; i < n; i++)
+            time[i] = Precision.round((from + i) * delta + b0, 4);
+        return time;
+    }
+
+    /**
+     * Index of the point closest in time to the target,
+     * giving the same result as {@link Trace#findNearestXIndex(double)} on {@link SACFileAccess#createTrace()}
+     * without scanning the whole time axis.
+     *
+     * @param b (double) Value of B in the header.
+     * @param delta (double) Value of DELTA in the header.
+     * @param npts (int) Number of points.
+     * @param target (double) Time to look for.
+     * @return (int) Index of the closest point.
+     */
+    static int nearestIndex(double b, double delta, int npts, double target) {
+        if (npts <= 0) throw new IllegalArgumentException("n is invalid");
+        double b0 = (int) (b / delta) * delta;
+        long guess = Math.round((target - b0) / delta);
+        int from = (int) Math.max(0, Math.min(npts - 1, guess - 2));
+        int to = (int) Math.max(0, Math.min(npts - 1, guess + 2));
+        int nearest = from;
+        double minResidual = -1;
+        // ties are given to the later point, as in Trace
+        for (int i = from; i <= to; i++) {
+            double residual = Math.abs(Precision.round(i * delta + b0, 4) - target);
+            if (minResidual < 0 || residual <= minResidual) {
+                minResidual = residual;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Start index of a window in the manner of {@link Trace#cutWindow(double, double, double)}.
+     *
+     * @param b (double) Value of B in the header.
+     * @param delta (double) Value of DELTA in the header.
+     * @param npts (int) Number of points.
+     * @param startTime (double) Start time of window.
+     * @param endTime (double) End time of window.
+     * @return (int) Index of the point closest to the start time.
+     * @throws IllegalArgumentException if the window is not included in the time range of the waveform.
+     */
+    static int windowStart(double b, double delta, int npts, double startTime, double endTime) {
+        double b0 = (int) (b / delta) * delta;
+        if (npts <= 0 || startTime < Precision.round(b0, 4) || Precision.round((npts - 1) * delta + b0, 4) < endTime)
+            throw new IllegalArgumentException("Specified time range exceeds x range.");
+        return nearestIndex(b, delta, npts, startTime);
+    }
+
+}
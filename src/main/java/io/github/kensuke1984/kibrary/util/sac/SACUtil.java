@@ -1,20 +1,24 @@
 package io.github.kensuke1984.kibrary.util.sac;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.EnumMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
-import io.github.kensuke1984.kibrary.external.SAC;
 import io.github.kensuke1984.kibrary.math.Trace;
 import io.github.kensuke1984.kibrary.util.EventFolder;
+import io.github.kensuke1984.kibrary.util.earth.Earth;
+import io.github.kensuke1984.kibrary.util.earth.HorizontalPosition;
 
 /**
  * Read/Write of a SAC file. (SAC: seismic analysis code)
@@ -30,7 +34,7 @@ public final class SACUtil {
      * <p>
      * Rotates the azimuth of two input SAC files hoge.E and hoge.N (or hoge.1 and hoge.2),
      * and writes the result in hoge.R and hoge.T.
-     * The rotation is done by SAC (rotate r).
+     * The result is the same as "rotate r" in SAC, but this is done in process, without calling the external SAC.
      * <p>
      * The input SAC file pair must:
      * <ul>
@@ -48,7 +52,10 @@ public final class SACUtil {
      * <p>
      * As for the outputs, the R component will be in the direction opposite of the event when viewed from the station
      * (i.e. opposite of BAZ),
-     * and the T component will be in the direction 90 degrees counter-clockwise from the R component.
+     * and the T component will be in the direction 90 degrees clockwise from the R component (i.e. BAZ + 270),
+     * as with "rotate to gcp" (NORMAL) in SAC.
+     * CMPAZ and KCMPNM of the outputs are set accordingly.
+     * The headers of the R and T files are based on those of the first and second input files, respectively.
      *
      * @param sacEPath (Path)   SAC file which component is E. must exist.
      * @param sacNPath (Path)   SAC file which component is N. must exist.
@@ -59,39 +66,344 @@ public final class SACUtil {
      *                     exist, if write Paths already exist.
      */
     public static boolean rotate(Path sacAPath, Path sacBPath, Path outputRPath, Path outputTPath) throws IOException {
-        if (Files.exists(outputRPath)) throw new FileAlreadyExistsException(outputRPath.toString());
-        if (Files.exists(outputTPath)) throw new FileAlreadyExistsException(outputTPath.toString());
+        return rotate(Collections.singletonList(new Path[] {sacAPath, sacBPath}),
+                Collections.singletonList(new Path[] {outputRPath, outputTPath}))[0];
+    }
 
-        // read headers of the input files
-        Map<SACHeaderEnum, String> mapA = readHeader(sacAPath);
-        Map<SACHeaderEnum, String> mapB = readHeader(sacBPath);
+    /**
+     * Rotates many pairs of horizontal components to R and T, in the same way as {@link #rotate(Path, Path, Path, Path)}.
+     * Pairs are processed in parallel. Each pair is checked from the headers alone,
+     * and waveforms are read only for pairs that can be rotated.
+     *
+     * @param inputPairs (List of Path[2]) Pairs of input SAC files.
+     * @param outputPairs (List of Path[2]) Pairs of output SAC files (R, T), in the same order as inputPairs.
+     * @return (boolean[]) Whether each pair was rotated.
+     * @throws IOException if an I/O error occurs, or if an output file already exists.
+     */
+    public static boolean[] rotate(List<Path[]> inputPairs, List<Path[]> outputPairs) throws IOException {
+        if (inputPairs.size() != outputPairs.size())
+            throw new IllegalArgumentException("Numbers of input and output pairs differ: " + inputPairs.size() + ", " + outputPairs.size());
+        for (Path[] outputs : outputPairs)
+            for (Path outputPath : outputs)
+                if (Files.exists(outputPath)) throw new FileAlreadyExistsException(outputPath.toString());
 
-        int npts = Integer.parseInt(mapA.get(SACHeaderEnum.NPTS));
-        if (npts != Integer.parseInt(mapB.get(SACHeaderEnum.NPTS))) return false;
+        boolean[] rotated = new boolean[inputPairs.size()];
+        try {
+            IntStream.range(0, rotated.length).parallel().forEach(i -> {
+                try {
+                    rotated[i] = rotatePair(inputPairs.get(i), outputPairs.get(i));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rotated;
+    }
+
+    private static boolean rotatePair(Path[] inputs, Path[] outputs) throws IOException {
+        CompactSACHeader headerA = CompactSACHeader.read(inputs[0]);
+        CompactSACHeader headerB = CompactSACHeader.read(inputs[1]);
+
+        int npts = headerA.getInt(SACHeaderEnum.NPTS);
+        if (npts != headerB.getInt(SACHeaderEnum.NPTS)) return false;
+        if (headerA.getValue(SACHeaderEnum.DELTA) != headerB.getValue(SACHeaderEnum.DELTA)) return false;
+        if (headerA.getValue(SACHeaderEnum.CMPINC) != 90 || headerB.getValue(SACHeaderEnum.CMPINC) != 90) return false;
 
-        double cmpazA = Double.parseDouble(mapA.get(SACHeaderEnum.CMPAZ));
-        double cmpazB = Double.parseDouble(mapB.get(SACHeaderEnum.CMPAZ));
+        double cmpazA = headerA.getValue(SACHeaderEnum.CMPAZ);
+        double cmpazB = headerB.getValue(SACHeaderEnum.CMPAZ);
         double dCmpaz = Math.abs(cmpazA - cmpazB);
         if (dCmpaz != 90 && dCmpaz != 270) return false;
 
-        // sacを開く
-        try (SAC sacProcess = SAC.createProcess()) {
-            Path rPath = outputRPath.getFileName();
-            Path tPath = outputTPath.getFileName();
-            sacProcess.inputCMD("cd " + sacAPath.toAbsolutePath().getParent());
-            sacProcess.inputCMD("r " + sacAPath.getFileName() + " " + sacBPath.getFileName());
-            sacProcess.inputCMD("rotate r");
-            sacProcess.inputCMD("w " + rPath + " " + tPath);
-            sacProcess.inputCMD("r " + rPath);
-            sacProcess.inputCMD("chnhdr kcmpnm \"R\"");
-            sacProcess.inputCMD("write over");
-            sacProcess.inputCMD("r " + tPath);
-            sacProcess.inputCMD("chnhdr kcmpnm \"T\"");
-            sacProcess.inputCMD("write over");
-        }
+        double baz = computeBackAzimuth(headerA);
+        if (Double.isNaN(baz)) return false;
+        // R is opposite of BAZ, and T is 90 degrees clockwise from R, as in "rotate to gcp" of SAC
+        double azimuthR = (baz + 180) % 360;
+        double azimuthT = (baz + 270) % 360;
+
+        double[] dataA = SACRecord.read(inputs[0]).toDoubleArray();
+        double[] dataB = SACRecord.read(inputs[1]).toDoubleArray();
+        writeRotated(outputs[0], headerA, projectHorizontal(dataA, cmpazA, dataB, cmpazB, azimuthR), azimuthR, SACComponent.R);
+        writeRotated(outputs[1], headerB, projectHorizontal(dataA, cmpazA, dataB, cmpazB, azimuthT), azimuthT, SACComponent.T);
         return true;
     }
 
+    /**
+     * BAZ computed in the same way as {@link #updateHeader(Map, double[])} when LCALDA is true,
+     * or else the value in the header.
+     * @return (double) Back azimuth [deg], or NaN if it is undefined.
+     */
+    private static double computeBackAzimuth(SACHeaderAccess header) {
+        double evla = header.getValue(SACHeaderEnum.EVLA);
+        double evlo = header.getValue(SACHeaderEnum.EVLO);
+        double stla = header.getValue(SACHeaderEnum.STLA);
+        double stlo = header.getValue(SACHeaderEnum.STLO);
+        if (header.getBoolean(SACHeaderEnum.LCALDA) && evla != -12345 && evlo != -12345 && stla != -12345 && stlo != -12345)
+            return new HorizontalPosition(evla, evlo).computeBackAzimuthDeg(new HorizontalPosition(stla, stlo));
+        double baz = header.getValue(SACHeaderEnum.BAZ);
+        return baz == -12345 ? Double.NaN : baz;
+    }
+
+    private static void writeRotated(Path outPath, CompactSACHeader header, double[] data, double azimuth,
+            SACComponent component) throws IOException {
+        CompactSACHeader.Builder builder = header.toBuilder();
+        builder.setValue(SACHeaderEnum.CMPAZ, azimuth);
+        builder.setSACString(SACHeaderEnum.KCMPNM, component.toString());
+        if (data.length > 0) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            double sum = 0;
+            for (double d : data) {
+                min = Math.min(min, d);
+                max = Math.max(max, d);
+                sum += d;
+            }
+            builder.setValue(SACHeaderEnum.DEPMIN, min);
+            builder.setValue(SACHeaderEnum.DEPMAX, max);
+            builder.setValue(SACHeaderEnum.DEPMEN, sum / data.length);
+        }
+        SACOutputBuffer buffer = SACOutputBuffer.forThread(data.length);
+        buffer.writeHeader(builder.build());
+        buffer.writeData(data);
+        buffer.writeTo(outPath, StandardOpenOption.CREATE_NEW);
+    }
+
+    /**
+     * Computes the horizontal motion in a given direction from two orthogonal horizontal components.
+     *
+     * @param data1 (double[]) Waveform of the first component.
+     * @param azimuth1 (double) Azimuth of the first component, clockwise from north [deg].
+     * @param data2 (double[]) Waveform of the second component. Must have the same length as data1.
+     * @param azimuth2 (double) Azimuth of the second component, clockwise from north [deg].
+     * @param azimuth (double) Azimuth of the direction to compute, clockwise from north [deg].
+     * @return (double[]) Waveform in the direction.
+     */
+    public static double[] projectHorizontal(double[] data1, double azimuth1, double[] data2, double azimuth2, double azimuth) {
+        if (data1.length != data2.length) throw new IllegalArgumentException("Input arrays have different lengths");
+        double c1 = Math.cos(Math.toRadians(azimuth - azimuth1));
+        double c2 = Math.cos(Math.toRadians(azimuth - azimuth2));
+        double[] projected = new double[data1.length];
+        for (int i = 0; i < projected.length; i++)
+            projected[i] = c1 * data1[i] + c2 * data2[i];
+        return projected;
+    }
+
+    /**
+     * Removes the linear trend and then the mean from a SAC file, in the same way as "rtrend" and "rmean" in SAC.
+     * LOVROK is set true.
+     * This is done in process, without calling the external SAC.
+     *
+     * @param sacPath (Path) SAC file to read.
+     * @param outPath (Path) SAC file to write. If it exists, it will be overwritten. It may be the same as sacPath.
+     * @throws IOException if an I/O error occurs
+     */
+    public static void removeTrend(Path sacPath, Path outPath) throws IOException {
+        Map<SACHeaderEnum, String> headerMap = readHeader(sacPath);
+        double[] data = readSACData(sacPath);
+        removeTrend(data);
+        removeMean(data);
+        headerMap.put(SACHeaderEnum.LOVROK, String.valueOf(true));
+        updateHeader(headerMap, data);
+        writeSAC(outPath, headerMap, data);
+    }
+
+    /**
+     * Interpolates a SAC file, in the same way as "interpolate delta newDelta begin newB" in SAC (Wiggins method).
+     * The end time is kept as long as possible, and NPTS is changed accordingly.
+     * The file is overwritten.
+     * This is done in process, without calling the external SAC.
+     *
+     * @param sacPath (Path) SAC file to interpolate.
+     * @param newB (double) New begin time [s]. Must not be before the current begin time.
+     * @param newDelta (double) New sampling interval [s].
+     * @throws IOException if an I/O error occurs
+     */
+    public static void interpolate(Path sacPath, double newB, double newDelta) throws IOException {
+        Map<SACHeaderEnum, String> headerMap = readHeader(sacPath);
+        double b = Double.parseDouble(headerMap.get(SACHeaderEnum.B));
+        double delta = Double.parseDouble(headerMap.get(SACHeaderEnum.DELTA));
+        double[] data = interpolate(readSACData(sacPath), b, delta, newB, newDelta);
+        headerMap.put(SACHeaderEnum.B, String.valueOf(newB));
+        headerMap.put(SACHeaderEnum.DELTA, String.valueOf(newDelta));
+        updateHeader(headerMap, data);
+        writeSAC(sacPath, headerMap, data);
+    }
+
+    /**
+     * Interpolates a SAC file with a new sampling interval, in the same way as "interpolate delta newDelta" in SAC.
+     * The begin time is kept. See {@link #interpolate(Path, double, double)}.
+     *
+     * @param sacPath (Path) SAC file to interpolate.
+     * @param newDelta (double) New sampling interval [s].
+     * @throws IOException if an I/O error occurs
+     */
+    public static void interpolate(Path sacPath, double newDelta) throws IOException {
+        interpolate(sacPath, Double.parseDouble(readHeader(sacPath).get(SACHeaderEnum.B)), newDelta);
+    }
+
+    /**
+     * Cuts a SAC file to npts points from its begin time, in the same way as "cut b n npts" in SAC.
+     * If the file has less points, the whole file is kept.
+     * The file is overwritten.
+     * This is done in process, without calling the external SAC.
+     *
+     * @param sacPath (Path) SAC file to cut.
+     * @param npts (int) Number of points to keep.
+     * @throws IOException if an I/O error occurs
+     */
+    public static void cut(Path sacPath, int npts) throws IOException {
+        Map<SACHeaderEnum, String> headerMap = readHeader(sacPath);
+        double[] data = readSACData(sacPath);
+        if (npts < data.length) data = Arrays.copyOf(data, npts);
+        updateHeader(headerMap, data);
+        writeSAC(sacPath, headerMap, data);
+    }
+
+    /**
+     * Subtracts the least-squares line from evenly sampled data, as "rtrend" in SAC.
+     *
+     * @param data (double[]) Data to be modified in place.
+     */
+    public static void removeTrend(double[] data) {
+        int n = data.length;
+        if (n < 2) return;
+        // fit y = a + b * (i - c), where c is the center, so that the two parameters are independent
+        double c = (n - 1) / 2.0;
+        double sumY = 0;
+        double sumXY = 0;
+        double sumXX = 0;
+        for (int i = 0; i < n; i++) {
+            double x = i - c;
+            sumY += data[i];
+            sumXY += x * data[i];
+            sumXX += x * x;
+        }
+        double a = sumY / n;
+        double slope = sumXY / sumXX;
+        for (int i = 0; i < n; i++)
+            data[i] -= a + slope * (i - c);
+    }
+
+    /**
+     * Subtracts the mean value from data, as "rmean" in SAC.
+     *
+     * @param data (double[]) Data to be modified in place.
+     */
+    public static void removeMean(double[] data) {
+        if (data.length == 0) return;
+        double sum = 0;
+        for (double d : data) sum += d;
+        double mean = sum / data.length;
+        for (int i = 0; i < data.length; i++)
+            data[i] -= mean;
+    }
+
+    /**
+     * Resamples evenly sampled data by the weighted average-slope method of Wiggins (1976, BSSA),
+     * which is the default method of "interpolate" in SAC.
+     * The slope at each point is the average of the slopes of the adjacent intervals weighted by the inverse of their absolute values,
+     * and a cubic Hermite polynomial is used in each interval.
+     * <p>
+     * The new time series starts at newB and ends at the last point not exceeding the end of the original data.
+     *
+     * @param data (double[]) Original data.
+     * @param b (double) Begin time of original data [s].
+     * @param delta (double) Sampling interval of original data [s].
+     * @param newB (double) Begin time of new data [s]. Must not be before b.
+     * @param newDelta (double) Sampling interval of new data [s].
+     * @return (double[]) Interpolated data.
+     */
+    public static double[] interpolate(double[] data, double b, double delta, double newB, double newDelta) {
+        int n = data.length;
+        double e = b + (n - 1) * delta;
+        // tolerance for rounding errors in time [s]
+        double eps = 1e-6 * Math.min(delta, newDelta);
+        if (newB < b - eps || e + eps < newB)
+            throw new IllegalArgumentException("New begin time " + newB + " is out of data range [" + b + ", " + e + "]");
+        int newNpts = (int) Math.floor((e - newB) / newDelta + 1e-6) + 1;
+        if (n < 2) return Arrays.copyOf(data, newNpts);
+
+        // slopes of intervals
+        double[] intervalSlopes = new double[n - 1];
+        double maxSlope = 0;
+        for (int i = 0; i < n - 1; i++) {
+            intervalSlopes[i] = (data[i + 1] - data[i]) / delta;
+            maxSlope = Math.max(maxSlope, Math.abs(intervalSlopes[i]));
+        }
+        // slopes at points; the weights are bounded to avoid division by zero
+        double minWeightedSlope = maxSlope == 0 ? 1 : 1e-4 * maxSlope;
+        double[] slopes = new double[n];
+        slopes[0] = intervalSlopes[0];
+        slopes[n - 1] = intervalSlopes[n - 2];
+        for (int i = 1; i < n - 1; i++) {
+            double w0 = 1 / Math.max(Math.abs(intervalSlopes[i - 1]), minWeightedSlope);
+            double w1 = 1 / Math.max(Math.abs(intervalSlopes[i]), minWeightedSlope);
+            slopes[i] = (w0 * intervalSlopes[i - 1] + w1 * intervalSlopes[i]) / (w0 + w1);
+        }
+
+        double[] newData = new double[newNpts];
+        for (int j = 0; j < newNpts; j++) {
+            double x = (newB + j * newDelta - b) / delta;
+            int i = (int) Math.floor(x);
+            if (i < 0) i = 0;
+            else if (n - 2 < i) i = n - 2;
+            double t = Math.min(Math.max(x - i, 0), 1);
+            double t2 = t * t;
+            double t3 = t2 * t;
+            newData[j] = (2 * t3 - 3 * t2 + 1) * data[i] + (t3 - 2 * t2 + t) * delta * slopes[i]
+                    + (-2 * t3 + 3 * t2) * data[i + 1] + (t3 - t2) * delta * slopes[i + 1];
+        }
+        return newData;
+    }
+
+    /**
+     * Updates headers that depend on the data, as SAC does when writing a file:
+     * NPTS, E, DEPMIN, DEPMAX, DEPMEN, and if LCALDA is true, DIST, AZ, BAZ, and GCARC.
+     * B and DELTA must be set beforehand.
+     * <p>
+     * DIST, AZ, BAZ, and GCARC are computed on a sphere with geocentric latitudes,
+     * so they may differ slightly from the values SAC computes on an ellipsoid.
+     *
+     * @param headerMap (Map of {@link SACHeaderEnum}, String) Header to update.
+     * @param data (double[]) Data of the SAC file.
+     */
+    static void updateHeader(Map<SACHeaderEnum, String> headerMap, double[] data) {
+        int npts = data.length;
+        double b = Double.parseDouble(headerMap.get(SACHeaderEnum.B));
+        double delta = Double.parseDouble(headerMap.get(SACHeaderEnum.DELTA));
+        headerMap.put(SACHeaderEnum.NPTS, String.valueOf(npts));
+        headerMap.put(SACHeaderEnum.E, String.valueOf(b + (npts - 1) * delta));
+        if (npts > 0) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            double sum = 0;
+            for (double d : data) {
+                min = Math.min(min, d);
+                max = Math.max(max, d);
+                sum += d;
+            }
+            headerMap.put(SACHeaderEnum.DEPMIN, String.valueOf(min));
+            headerMap.put(SACHeaderEnum.DEPMAX, String.valueOf(max));
+            headerMap.put(SACHeaderEnum.DEPMEN, String.valueOf(sum / npts));
+        }
+
+        if (!Boolean.parseBoolean(headerMap.get(SACHeaderEnum.LCALDA))) return;
+        double evla = Double.parseDouble(headerMap.get(SACHeaderEnum.EVLA));
+        double evlo = Double.parseDouble(headerMap.get(SACHeaderEnum.EVLO));
+        double stla = Double.parseDouble(headerMap.get(SACHeaderEnum.STLA));
+        double stlo = Double.parseDouble(headerMap.get(SACHeaderEnum.STLO));
+        // skip if positions are undefined
+        if (evla == -12345 || evlo == -12345 || stla == -12345 || stlo == -12345) return;
+        HorizontalPosition eventPosition = new HorizontalPosition(evla, evlo);
+        HorizontalPosition stationPosition = new HorizontalPosition(stla, stlo);
+        double gcarc = eventPosition.computeEpicentralDistanceRad(stationPosition);
+        headerMap.put(SACHeaderEnum.GCARC, String.valueOf(Math.toDegrees(gcarc)));
+        headerMap.put(SACHeaderEnum.DIST, String.valueOf(gcarc * Earth.EARTH_RADIUS));
+        headerMap.put(SACHeaderEnum.AZ, String.valueOf(eventPosition.computeAzimuthDeg(stationPosition)));
+        headerMap.put(SACHeaderEnum.BAZ, String.valueOf(eventPosition.computeBackAzimuthDeg(stationPosition)));
+    }
+
     /**
      * @param outPath   for write (If the file exists, it will be overwritten)
      * @param headerMap of write SAC
@@ -103,8 +415,8 @@ public final class SACUtil {
                                 OpenOption... options) throws IOException {
         if (Integer.parseInt(headerMap.get(SACHeaderEnum.NPTS)) != data.length)
             throw new IllegalArgumentException("NPTS is invalid");
-        try (SACOutputStream stream = new SACOutputStream(
-                new BufferedOutputStream(Files.newOutputStream(outPath, options)))) {
+        SACOutputBuffer buffer = SACOutputBuffer.forThread(data.length);
+        try (SACOutputStream stream = new SACOutputStream(buffer)) {
             stream.writeSACDouble(Double.parseDouble(headerMap.get(SACHeaderEnum.DELTA))); // 0
             stream.writeSACDouble(Double.parseDouble(headerMap.get(SACHeaderEnum.DEPMIN))); // 1
             stream.writeSACDouble(Double.parseDouble(headerMap.get(SACHeaderEnum.DEPMAX))); // 2
@@ -243,8 +555,9 @@ public final class SACUtil {
             stream.writeSACString(headerMap.get(SACHeaderEnum.KDATRD), 8); // 154-155
             stream.writeSACString(headerMap.get(SACHeaderEnum.KINST), 8); // 156-157
 
-            for (double d : data) stream.writeSACDouble(d);
+            buffer.writeData(data);
         }
+        buffer.writeTo(outPath, options);
 
     }
 
@@ -272,143 +585,7 @@ public final class SACUtil {
      * @throws IOException If sacFile does not exist, if an I/O error occurs.
      */
     public static Map<SACHeaderEnum, String> readHeader(Path sacPath) throws IOException {
-        Map<SACHeaderEnum, String> headerMap = new EnumMap<>(SACHeaderEnum.class);
-        try (SACInputStream stream = new SACInputStream(sacPath)) {
-            headerMap.put(SACHeaderEnum.DELTA, Float.toString(stream.readFloat())); // 0
-            headerMap.put(SACHeaderEnum.DEPMIN, Float.toString(stream.readFloat())); // 1
-            headerMap.put(SACHeaderEnum.DEPMAX, Float.toString(stream.readFloat())); // 2
-            headerMap.put(SACHeaderEnum.SCALE, Float.toString(stream.readFloat())); // 3
-            headerMap.put(SACHeaderEnum.ODELTA, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.B, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.E, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.O, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.A, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num9, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T0, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T1, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T2, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T3, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T4, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T5, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T6, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T7, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T8, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.T9, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.F, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP0, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP1, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP2, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP3, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP4, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP5, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP6, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP7, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP8, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.RESP9, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.STLA, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.STLO, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.STEL, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.STDP, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.EVLA, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.EVLO, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.EVEL, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.EVDP, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.MAG, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER0, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER1, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER2, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER3, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER4, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER5, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER6, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER7, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER8, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.USER9, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.DIST, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.AZ, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.BAZ, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.GCARC, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num54, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num55, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.DEPMEN, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.CMPAZ, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.CMPINC, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.XMINIMUM, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.XMAXIMUM, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.YMINIMUM, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.YMAXIMUM, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num63, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num64, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num65, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num66, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num67, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num68, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.num69, Float.toString(stream.readFloat()));
-            headerMap.put(SACHeaderEnum.NZYEAR, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NZJDAY, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NZHOUR, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NZMIN, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NZSEC, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NZMSEC, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NVHDR, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NORID, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NEVID, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NPTS, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num80, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NWFID, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NXSIZE, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.NYSIZE, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num84, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IFTYPE, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IDEP, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IZTYPE, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num88, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IINST, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.ISTREG, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IEVREG, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IEVTYP, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IQUAL, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.ISYNTH, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IMAGTYP, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.IMAGSRC, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num97, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num98, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num99, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num100, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num101, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num102, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num103, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.num104, Integer.toString(stream.readInt()));
-            headerMap.put(SACHeaderEnum.LEVEN, Boolean.toString(stream.readSACBoolean()));
-            headerMap.put(SACHeaderEnum.LPSPOL, Boolean.toString(stream.readSACBoolean()));
-            headerMap.put(SACHeaderEnum.LOVROK, Boolean.toString(stream.readSACBoolean()));
-            headerMap.put(SACHeaderEnum.LCALDA, Boolean.toString(stream.readSACBoolean()));
-            headerMap.put(SACHeaderEnum.num109, Boolean.toString(stream.readSACBoolean()));
-            headerMap.put(SACHeaderEnum.KSTNM, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KEVNM, stream.readString(16));
-            headerMap.put(SACHeaderEnum.KHOLE, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KO, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KA, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT0, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT1, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT2, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT3, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT4, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT5, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT6, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT7, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT8, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KT9, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KF, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KUSER0, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KUSER1, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KUSER2, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KCMPNM, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KNETWK, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KDATRD, stream.readString(8));
-            headerMap.put(SACHeaderEnum.KINST, stream.readString(8));
-        }
-        return headerMap;
+        return CompactSACHeader.read(sacPath).toMap();
     }
 
     /**
@@ -419,18 +596,7 @@ public final class SACUtil {
      * @throws IOException if sacPath does not exist or if an I/O error occurs
      */
     public static double[] readSACData(Path sacPath) throws IOException {
-        try (SACInputStream stream = new SACInputStream(sacPath)) {
-            stream.skipBytes(79 * 4);
-            int npts = stream.readInt();
-            double[] data = new double[npts];
-            stream.skipBytes(632 - 80 * 4);
-            // stream.skipBytes(632);
-            // float(4) * 70, int(4) * 40, String (8) * 22 + (16)
-            // 4* 70 + 4* 40 + 8* 22 +16 = 632
-            for (int i = 0; i < npts; i++)
-                data[i] = stream.readFloat();
-            return data;
-        }
+        return SACRecord.read(sacPath).toDoubleArray();
     }
 
     /**
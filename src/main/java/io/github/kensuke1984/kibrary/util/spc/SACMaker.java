@@ -10,7 +10,12 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
+import org.apache.commons.math3.complex.Complex;
+
+import io.github.kensuke1984.kibrary.filter.BandPassFilter;
 import io.github.kensuke1984.kibrary.filter.ButterworthFilter;
+import io.github.kensuke1984.kibrary.filter.HighPassFilter;
+import io.github.kensuke1984.kibrary.filter.LowPassFilter;
 import io.github.kensuke1984.kibrary.math.Trace;
 import io.github.kensuke1984.kibrary.source.SourceTimeFunction;
 import io.github.kensuke1984.kibrary.util.MathAid;
@@ -193,6 +198,14 @@ public class SACMaker implements Runnable {
      * Whether to set SAC extension of output files as observed ones.
      */
     private boolean asObserved;
+    /**
+     * Filter to apply in frequency domain. null when no filter is to be applied.
+     */
+    private ButterworthFilter filter;
+    /**
+     * Whether to conduct the conversion with buffers reused within each thread, see {@link TimeDomainConverter}.
+     */
+    private boolean reuseBuffers;
 
     /**
      * @param primarySPC ({@link SPCFileAccess}) First spectrum file.
@@ -273,11 +286,16 @@ public class SACMaker implements Runnable {
     public void run() {
         SAC sac = new SAC();
         setHeaderOn(sac);
+        if (reuseBuffers) {
+            runWithReusedBuffers(sac);
+            return;
+        }
         SPCBody body = primarySPC.getSpcBodyList().get(0).copy();
         if (secondarySPC != null)
             body.addBody(secondarySPC.getSpcBodyList().get(0));
 
         if (sourceTimeFunction != null) body.applySourceTimeFunction(sourceTimeFunction);
+        if (filter != null) body.applyFilter(filterResponse());
         body.convertToTimeDomain(npts, samplingHz, primarySPC.omegai());
 
         for (SACComponent component : components) {
@@ -301,6 +319,7 @@ public class SACMaker implements Runnable {
             SPCBody bodyT = body.copy();
             bodyT.differentiate(primarySPC.tlen());
             if (sourceTimeFunction != null) bodyT.applySourceTimeFunction(sourceTimeFunction);
+            // the filter is not applied again, since body is already filtered
             bodyT.convertToTimeDomain(npts, samplingHz, primarySPC.omegai());
 
             for (SACComponent component : components) {
@@ -317,6 +336,57 @@ public class SACMaker implements Runnable {
         }
     }
 
+    /**
+     * Does the same as {@link #run()} without creating {@link SPCBody} copies or {@link Complex} arrays,
+     * using a {@link TimeDomainConverter} of the current thread.
+     * @param sac ({@link SAC}) SAC with headers set.
+     */
+    private void runWithReusedBuffers(SAC sac) {
+        TimeDomainConverter converter = TimeDomainConverter.forThread(npts, samplingHz);
+        SPCBody primaryBody = primarySPC.getSpcBodyList().get(0);
+        SPCBody secondaryBody = (secondarySPC != null) ? secondarySPC.getSpcBodyList().get(0) : null;
+        Complex[] stf = (sourceTimeFunction != null) ? sourceTimeFunction.getSourceTimeFunctionInFrequencyDomain() : null;
+        Complex[] response = (filter != null) ? filterResponse() : null;
+        double[] timeseries = new double[npts];
+
+        for (SACComponent component : components) {
+            converter.load(primaryBody.getSpcElement(component).getValueInFrequencyDomain(), primarySPC.np());
+            if (secondaryBody != null) converter.add(secondaryBody.getSpcElement(component).getValueInFrequencyDomain());
+            if (stf != null) converter.multiply(stf, 1);
+            if (response != null) converter.multiply(response, 0);
+
+            SACExtension ext;
+            if (asObserved) {
+                ext = SACExtension.valueOfObserved(component);
+            } else if (sourceTimeFunction != null) {
+                ext = SACExtension.valueOfConvolutedSynthetic(component);
+            } else {
+                ext = SACExtension.valueOfSynthetic(component);
+            }
+            try {
+                sac.of(component).setSACData(converter.toTimeseries(primarySPC.omegai(), timeseries))
+                        .writeSAC(outPath.resolve(SACFileName.generate(observer, globalCMTID, ext)));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            if (temporalDifferentiation) {
+                // same operations as in run()
+                converter.differentiate(primarySPC.tlen());
+                if (stf != null) converter.multiply(stf, 1);
+                SACExtension extT = sourceTimeFunction != null
+                        ? SACExtension.valueOfConvolutedTemporalPartial(component)
+                        : SACExtension.valueOfTemporalPartial(component);
+                try {
+                    sac.of(component).setSACData(converter.toTimeseries(primarySPC.omegai(), timeseries))
+                            .writeSAC(outPath.resolve(SACFileName.generate(observer, globalCMTID, extT)));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
     /**
      * Set headers of a SAC file.
      * @param sac ({@link SAC}) SAC to set headers.
@@ -337,6 +407,27 @@ public class SACMaker implements Runnable {
         sac.withInt(SACHeaderEnum.NPTS, npts);
         sac.withValue(SACHeaderEnum.E, MathAid.roundForPrecision((npts - 1) / samplingHz));
         sac.withValue(SACHeaderEnum.DELTA, MathAid.roundForPrecision(1.0 / samplingHz));
+
+        // USER0 and USER1 are set in the same way as in SACFileAccess#applyButterworthFilter()
+        // Values are put directly in the map, since they are already in INITIAL_MAP.
+        if (filter instanceof BandPassFilter) {
+            BandPassFilter bp = (BandPassFilter) filter;
+            sac.headerMap.put(SACHeaderEnum.USER0, String.valueOf(2.0 * Math.PI / samplingHz / bp.getOmegaH()));
+            sac.headerMap.put(SACHeaderEnum.USER1, String.valueOf(2.0 * Math.PI / samplingHz / bp.getOmegaL()));
+        } else if (filter instanceof LowPassFilter) {
+            LowPassFilter lp = (LowPassFilter) filter;
+            sac.headerMap.put(SACHeaderEnum.USER0, String.valueOf(2.0 * Math.PI / samplingHz / lp.getOmegaP()));
+        } else if (filter instanceof HighPassFilter) {
+            HighPassFilter hp = (HighPassFilter) filter;
+            sac.headerMap.put(SACHeaderEnum.USER1, String.valueOf(2.0 * Math.PI / samplingHz / hp.getOmegaP()));
+        }
+    }
+
+    /**
+     * @return (Complex[]) Frequency response of {@link #filter} for the spectrum files.
+     */
+    private Complex[] filterResponse() {
+        return filter.getFrequencyResponseTable(primarySPC.np(), primarySPC.tlen(), samplingHz, primarySPC.omegai());
     }
 
     public void setComponents(Set<SACComponent> components) {
@@ -358,6 +449,24 @@ public class SACMaker implements Runnable {
         this.asObserved = asObserved;
     }
 
+    /**
+     * Set a filter to be applied in frequency domain, before the spectra are converted to time domain.
+     * This gives the same result as filtering the resulting time series by the filter,
+     * but skips the recursion in time domain.
+     * @param filter ({@link ButterworthFilter}) Filter designed for {@link #samplingHz}. Set null when none is to be applied.
+     */
+    public void setFilter(ButterworthFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @param reuseBuffers (boolean) Whether to conduct the conversion with buffers reused within each thread.
+     *          The results are the same except for rounding errors.
+     */
+    public void setReuseBuffers(boolean reuseBuffers) {
+        this.reuseBuffers = reuseBuffers;
+    }
+
     /**
      * @param outPath ({@link Path}) The folder where SAC files should be created.
      */
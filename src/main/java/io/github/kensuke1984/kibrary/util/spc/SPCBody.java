@@ -5,6 +5,7 @@ import java.util.stream.IntStream;
 
 import org.apache.commons.math3.complex.Complex;
 
+import io.github.kensuke1984.kibrary.filter.ButterworthFilter;
 import io.github.kensuke1984.kibrary.source.SourceTimeFunction;
 import io.github.kensuke1984.kibrary.util.sac.SACComponent;
 
@@ -174,6 +175,16 @@ public class SPCBody {
         Arrays.stream(spcElements).forEach(element -> element.applySourceTimeFunction(sourceTimeFunction));
     }
 
+    /**
+     * Apply a filter in the frequency domain for all elements.
+     * To be conducted before {@link #convertToTimeDomain(int, double, double)}.
+     * @param response (Complex[]) Frequency response for ip=[0, np],
+     *          see {@link ButterworthFilter#getFrequencyResponseTable(int, double, double, double)}.
+     */
+    public void applyFilter(Complex[] response) {
+        Arrays.stream(spcElements).forEach(element -> element.applyFilter(response));
+    }
+
     /**
      * Differentiate the data for all elements (in frequency domain) by time.
      * To be conducted before {@link #convertToTimeDomain(int, double, double)}.
@@ -0,0 +1,225 @@
+package io.github.kensuke1984.kibrary.util.spc;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import io.github.kensuke1984.kibrary.Summon;
+import io.github.kensuke1984.kibrary.util.FileContainer;
+
+/**
+ * A single file that packs all SPC files in a folder (typically eventFolder/modelName) together with an index.
+ * <p>
+ * DSM writes one SPC file for each (observer or voxel, type, mode), so a folder may hold hundreds of thousands of small files.
+ * Packing them into one container lets readers access them with a single directory entry.
+ * <p>
+ * The container is placed in the folder of the original SPC files with the name {@value #FILE_NAME}.
+ * When an {@link SPCFileName} that does not exist as a file is read,
+ * the entry of the same name in the container of its parent folder is read instead.
+ * Therefore, {@link SPCFile}, {@link SPC_SAC}, and the partial builders can read packed folders without any change in settings.
+ * <p>
+ * The format, the cache of indices, and the reading of entries are those of {@link FileContainer}.
+ *
+ * @since 2026/10/18
+ */
+public final class SPCContainer {
+
+    /**
+     * Name of container file.
+     */
+    public static final String FILE_NAME = "spc.pack";
+    private static final int MAGIC = 0x53504350;
+
+    private final FileContainer container;
+
+    private SPCContainer(FileContainer container) {
+        this.container = container;
+    }
+
+    /**
+     * Returns the container in a folder.
+     * @param folder (Path) Folder to look for container in.
+     * @return ({@link SPCContainer}) Container in the folder. null if it does not exist.
+     * @throws IOException
+     */
+    public static SPCContainer of(Path folder) throws IOException {
+        FileContainer container = FileContainer.open(folder.resolve(FILE_NAME), MAGIC);
+        return container == null ? null : new SPCContainer(container);
+    }
+
+    /**
+     * @param spcFile (File) SPC file to look for.
+     * @return (boolean) Whether the file is stored in the container of its parent folder.
+     */
+    static boolean contains(File spcFile) {
+        File parent = spcFile.getAbsoluteFile().getParentFile();
+        if (parent == null) return false;
+        try {
+            SPCContainer container = of(parent.toPath());
+            return container != null && container.contains(spcFile.getName());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens an input stream of an SPC file.
+     * If the file itself exists, it is read. Otherwise, the entry in the container of its parent folder is read.
+     * @param spcFile (File) SPC file to read.
+     * @return (InputStream) Stream of the SPC file.
+     * @throws IOException If the file is in neither the folder nor the container, or an I/O error occurs.
+     */
+    static InputStream openInputStream(File spcFile) throws IOException {
+        if (spcFile.isFile()) return new FileInputStream(spcFile);
+        File parent = spcFile.getAbsoluteFile().getParentFile();
+        SPCContainer container = (parent == null) ? null : of(parent.toPath());
+        if (container == null || !container.contains(spcFile.getName()))
+            throw new FileNotFoundException(spcFile + " (neither the file nor its entry in " + FILE_NAME + " exists)");
+        return new ByteArrayInputStream(container.readEntry(spcFile.getName()));
+    }
+
+    /**
+     * @return (Path) Path of the container file.
+     */
+    public Path getPath() {
+        return container.getPath();
+    }
+
+    /**
+     * @return (Set of String) Names of SPC files in this container, in the order they are stored.
+     */
+    public Set<String> entryNames() {
+        return container.entryNames();
+    }
+
+    /**
+     * @param name (String) Name of SPC file.
+     * @return (boolean) Whether this container has an entry of the name.
+     */
+    public boolean contains(String name) {
+        return container.contains(name);
+    }
+
+    /**
+     * Reads the contents of an entry with a single positional read. This method can be called from multiple threads.
+     * @param name (String) Name of SPC file.
+     * @return (byte[]) Contents of the SPC file.
+     * @throws IOException
+     */
+    public byte[] readEntry(String name) throws IOException {
+        return container.readEntry(name);
+    }
+
+    /**
+     * Packs all SPC files in a folder into a container in the same folder.
+     * If a container already exists, its entries are kept, and those with the same name as existing SPC files are replaced.
+     * @param folder (Path) Folder containing SPC files.
+     * @param deleteOriginals (boolean) Whether to delete the packed SPC files after the container has been written.
+     * @return (int) Number of entries in the container. 0 if there were no SPC files, in which case no container is written.
+     * @throws IOException
+     */
+    public static int pack(Path folder, boolean deleteOriginals) throws IOException {
+        List<Path> spcPaths;
+        // CAUTION: Files.list() must be in try-with-resources.
+        try (Stream<Path> stream = Files.list(folder)) {
+            spcPaths = stream.filter(p -> p.getFileName().toString().endsWith(".spc")).filter(SPCFileName::isFormatted)
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString())).collect(Collectors.toList());
+        }
+        if (spcPaths.isEmpty()) return 0;
+        int nEntries = FileContainer.pack(folder.resolve(FILE_NAME), MAGIC, spcPaths);
+
+        if (deleteOriginals) {
+            for (Path spcPath : spcPaths) Files.delete(spcPath);
+        }
+        return nEntries;
+    }
+
+    /**
+     * Writes all entries in the container of a folder out as SPC files in the same folder. The container is kept.
+     * @param folder (Path) Folder containing a container.
+     * @return (int) Number of SPC files written.
+     * @throws IOException
+     */
+    public static int unpack(Path folder) throws IOException {
+        SPCContainer container = of(folder);
+        if (container == null) return 0;
+        for (String name : container.entryNames()) {
+            Files.write(folder.resolve(name), container.readEntry(name));
+        }
+        return container.entryNames().size();
+    }
+
+    //-------------------- tool --------------------//
+
+    /**
+     * Packs SPC files in folders into containers.
+     * @param args Options.
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        Options options = defineOptions();
+        try {
+            run(Summon.parseArgs(options, args));
+        } catch (ParseException e) {
+            Summon.showUsage(options);
+        }
+    }
+
+    /**
+     * To be called from {@link Summon}.
+     * @return options
+     */
+    public static Options defineOptions() {
+        Options options = Summon.defaultOptions();
+        options.addOption(Option.builder("f").longOpt("folder").hasArg().argName("folder").required()
+                .desc("Root folder to search for folders with SPC files, such as a synthetic or FP/BP pool folder.").build());
+        options.addOption(Option.builder("u").longOpt("unpack")
+                .desc("Unpack containers to SPC files instead of packing.").build());
+        options.addOption(Option.builder("d").longOpt("delete")
+                .desc("Delete the original SPC files after packing.").build());
+        return options;
+    }
+
+    /**
+     * To be called from {@link Summon}.
+     * @param cmdLine options
+     * @throws IOException
+     */
+    public static void run(CommandLine cmdLine) throws IOException {
+        Path rootPath = Paths.get(cmdLine.getOptionValue("f"));
+        boolean unpack = cmdLine.hasOption("u");
+        boolean delete = cmdLine.hasOption("d");
+
+        List<Path> folders;
+        // CAUTION: Files.walk() must be in try-with-resources.
+        try (Stream<Path> stream = Files.walk(rootPath)) {
+            folders = stream.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        int nFolders = 0;
+        int nFiles = 0;
+        for (Path folder : folders) {
+            int n = unpack ? unpack(folder) : pack(folder, delete);
+            if (n == 0) continue;
+            nFolders++;
+            nFiles += n;
+        }
+        System.err.println((unpack ? "Unpacked " : "Packed ") + nFiles + " SPC files in " + nFolders + " folders.");
+    }
+
+}
@@ -4,6 +4,7 @@ import java.util.Arrays;
 
 import org.apache.commons.math3.complex.Complex;
 
+import io.github.kensuke1984.kibrary.filter.ButterworthFilter;
 import io.github.kensuke1984.kibrary.source.SourceTimeFunction;
 
 /**
@@ -73,7 +74,21 @@ public class SPCElement {
      * @param sourceTimeFunction ({@link SourceTimeFunction}) Source time function to be applied.
      */
     public void applySourceTimeFunction(SourceTimeFunction sourceTimeFunction) {
-        uFreq = sourceTimeFunction.convolve(uFreq, false);
+        sourceTimeFunction.convolveInPlace(uFreq);
+    }
+
+    /**
+     * Apply a filter in the frequency domain by multiplying its frequency response.
+     * <p>
+     * To be conducted before {@link #convertToTimeDomain(int, double, double)}.
+     * @param response (Complex[]) Frequency response for ip=[0, np],
+     *          see {@link ButterworthFilter#getFrequencyResponseTable(int, double, double, double)}.
+     */
+    public void applyFilter(Complex[] response) {
+        if (response.length != np + 1)
+            throw new IllegalArgumentException("Length of frequency response is invalid: " + response.length + " " + (np + 1));
+        for (int i = 0; i < np + 1; i++)
+            uFreq[i] = uFreq[i].multiply(response[i]);
     }
 
     /**
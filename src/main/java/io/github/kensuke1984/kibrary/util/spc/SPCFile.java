@@ -2,7 +2,6 @@ package io.github.kensuke1984.kibrary.util.spc;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -93,7 +92,7 @@ public class SPCFile implements SPCFileAccess {
         specFile.sourceID = spcFileName.getSourceID();
         specFile.receiverID = spcFileName.getReceiverID();
 
-        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(spcFileName)))) {
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(SPCContainer.openInputStream(spcFileName)))) {
             // read header PF
             // tlen
             double tlen = dis.readDouble();
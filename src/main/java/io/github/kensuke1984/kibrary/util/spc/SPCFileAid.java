@@ -5,6 +5,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -32,16 +33,12 @@ public final class SPCFileAid {
      * @throws IOException
      */
     public static Set<SPCFileName> collectSpcFileName(Path path) throws IOException {
-        // CAUTION: Files.list() must be in try-with-resources.
-        try (Stream<Path> stream = Files.list(path)) {
-            return stream.filter(SPCFileName::isFormatted).map(FormattedSPCFileName::new).collect(Collectors.toSet());
-        }
+        return listSpcPaths(path).stream().filter(SPCFileName::isFormatted).map(FormattedSPCFileName::new).collect(Collectors.toSet());
     }
 
     public static List<SPCFileName> collectOrderedSpcFileNamePFPB(Path path, SPCMode spcMode) throws IOException {
         List<SPCFileName> fileNameList;
-        // CAUTION: Files.list() must be in try-with-resources.
-        try (Stream<Path> stream = Files.list(path)) {
+        try (Stream<Path> stream = listSpcPaths(path).stream()) {
             fileNameList = stream.filter(p -> (p.getFileName().toString().endsWith("PF..." + spcMode + ".spc")
                             || p.getFileName().toString().endsWith("PB..." + spcMode + ".spc")))
                     .sorted(Comparator.comparing(filePath -> filePath.getFileName().toString()))
@@ -55,8 +52,7 @@ public final class SPCFileAid {
 
     public static List<SPCFileName> collectOrderedSpcFileNameUFUB(Path path, SPCMode spcMode) throws IOException {
         List<SPCFileName> fileNameList;
-        // CAUTION: Files.list() must be in try-with-resources.
-        try (Stream<Path> stream = Files.list(path)) {
+        try (Stream<Path> stream = listSpcPaths(path).stream()) {
             fileNameList = stream.filter(p -> (p.getFileName().toString().endsWith("UF..." + spcMode + ".spc")
                             || p.getFileName().toString().endsWith("UB..." + spcMode + ".spc")))
                     .sorted(Comparator.comparing(filePath -> filePath.getFileName().toString()))
@@ -68,6 +64,24 @@ public final class SPCFileAid {
         return fileNameList;
     }
 
+    /**
+     * Lists files in a folder, together with SPC files packed in its {@link SPCContainer}.
+     * Files that exist both in the folder and in the container are listed only once.
+     * @param path ({@link Path}) Folder to look in.
+     * @return (Set of {@link Path}) Paths of files in the folder.
+     * @throws IOException
+     */
+    private static Set<Path> listSpcPaths(Path path) throws IOException {
+        Set<Path> paths;
+        // CAUTION: Files.list() must be in try-with-resources.
+        try (Stream<Path> stream = Files.list(path)) {
+            paths = stream.collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+        SPCContainer container = SPCContainer.of(path);
+        if (container != null) container.entryNames().stream().map(path::resolve).forEach(paths::add);
+        return paths;
+    }
+
     /**
      * Compute npts = tlen * samplingHz, ensuring it is a power of 2.
      * @param tlen (double) Time length [s].
@@ -136,6 +136,14 @@ public abstract class SPCFileName extends File {
      */
     public abstract String pairFileName();
 
+    /**
+     * @return (boolean) Whether this file exists, either as a file or as an entry in the {@link SPCContainer} of its parent folder.
+     */
+    @Override
+    public boolean exists() {
+        return super.exists() || SPCContainer.contains(this);
+    }
+
 
     //-------------------- read data of this name --------------------//
 
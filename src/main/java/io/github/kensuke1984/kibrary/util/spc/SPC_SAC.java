@@ -9,15 +9,20 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.filter.BandPassFilter;
+import io.github.kensuke1984.kibrary.filter.ButterworthFilter;
 import io.github.kensuke1984.kibrary.source.SourceTimeFunction;
 import io.github.kensuke1984.kibrary.source.SourceTimeFunctionHandler;
 import io.github.kensuke1984.kibrary.source.SourceTimeFunctionType;
@@ -49,6 +54,14 @@ import io.github.kensuke1984.kibrary.util.sac.SACFileAccess;
  * <p>
  * The waveform in time domain will be sampled in {@link #samplingHz},
  * so the number of data points will become [time length x samplingHz].
+ * <p>
+ * If a frequency band is set, a bandpass filter is applied to the spectra before they are converted to time domain.
+ * The result is the same as applying the filter to the exported SAC files, e.g. by FilterDivider.
+ * <p>
+ * In streaming mode, SPC files are read in the worker threads, and only a limited number of them are held in memory at a time.
+ * The conversion is done with buffers reused within each thread (see {@link TimeDomainConverter}),
+ * and each SAC file is written in a single write operation.
+ * This is suited for converting a large number of SPC files.
  *
  * @author Kensuke Konishi
  * @since a long time ago
@@ -114,6 +127,34 @@ public final class SPC_SAC extends Operation {
      * If this is true, the SACExtension of computed files will be that of observed SAC files.
      */
     private boolean computeAsObserved;
+    /**
+     * Lower frequency of bandpass [Hz].
+     */
+    private double lowFreq;
+    /**
+     * Upper frequency of bandpass [Hz].
+     */
+    private double highFreq;
+    /**
+     * see Saito, n
+     */
+    private int filterNp;
+    /**
+     * Whether to apply causal filter. {true: causal, false: zero-phase}
+     */
+    private boolean causal;
+    /**
+     * Filter to apply in frequency domain. null when no filter is to be applied.
+     */
+    private ButterworthFilter filter;
+    /**
+     * Whether to convert in streaming mode.
+     */
+    private boolean streaming;
+    /**
+     * Maximum number of SPC files (or pairs) that are read and waiting to be converted in streaming mode.
+     */
+    private int maxInFlight;
 
     private Set<SPCFileName> shSPCs;
     private Set<SPCFileName> psvSPCs;
@@ -169,6 +210,18 @@ public final class SPC_SAC extends Operation {
             pw.println("##(boolean) If this is true, the SACExtension of computed files will be that of observed. (false)");
             pw.println("##  This is only valid when computeTimePartial is false.");
             pw.println("#computeAsObserved ");
+            pw.println("##(double) Lower limit of the frequency band [Hz]. If this and highFreq are set, the bandpass filter is applied.");
+            pw.println("#lowFreq 0.005");
+            pw.println("##(double) Higher limit of the frequency band [Hz]. If this and lowFreq are set, the bandpass filter is applied.");
+            pw.println("#highFreq 0.08");
+            pw.println("##(int) The value of NP for the filter. (4)");
+            pw.println("#filterNp ");
+            pw.println("##(boolean) Whether to apply causal filter. When false, zero-phase filter is applied. (false)");
+            pw.println("#causal ");
+            pw.println("##(boolean) Whether to convert in streaming mode, reading SPC files in worker threads with bounded memory. (false)");
+            pw.println("#streaming ");
+            pw.println("##(int) Maximum number of SPC files held in memory at a time in streaming mode. (2 * number of processors)");
+            pw.println("#maxInFlight ");
         }
         System.err.println(outPath + " is created.");
     }
@@ -208,6 +261,22 @@ public final class SPC_SAC extends Operation {
             throw new IllegalArgumentException("Reciprocal of samplingHz must be a terminating decimal.");
         computeTimePartial = property.parseBoolean("computeTimePartial", "false");
         computeAsObserved = property.parseBoolean("computeAsObserved", "false");
+
+        if (property.containsKey("lowFreq") && property.containsKey("highFreq")) {
+            lowFreq = property.parseDouble("lowFreq", null);
+            highFreq = property.parseDouble("highFreq", null);
+            if (highFreq <= lowFreq) throw new IllegalArgumentException("highFreq must be larger than lowFreq.");
+            filterNp = property.parseInt("filterNp", "4");
+            causal = property.parseBoolean("causal", "false");
+        }
+
+        streaming = property.parseBoolean("streaming", "false");
+        if (property.containsKey("maxInFlight")) {
+            maxInFlight = property.parseInt("maxInFlight", null);
+            if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive.");
+        } else {
+            maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        }
     }
 
     private String searchModelName() throws IOException {
@@ -238,6 +307,9 @@ public final class SPC_SAC extends Operation {
         stfHandler = new SourceTimeFunctionHandler(sourceTimeFunctionType,
                 sourceTimeFunctionCatalogPath, userSourceTimeFunctionPath, DatasetAid.globalCMTIDSet(workPath));
 
+        // design bandpass filter
+        if (highFreq > 0) filter = designBandPassFilter();
+
         if (usableSPCMode != SPCFileAid.UsableSPCMode.PSV && (shSPCs = collectSPCsFromAllEvents(SPCMode.SH, shPath)).isEmpty()) {
             throw new FileNotFoundException("No SH spectrum files are found.");
         }
@@ -251,6 +323,11 @@ public final class SPC_SAC extends Operation {
         outPath = DatasetAid.createOutputFolder(workPath, "spcsac", folderTag, appendFolderDate, null);
         property.write(outPath.resolve("_" + this.getClass().getSimpleName() + ".properties"));
 
+        if (streaming) {
+            convertStreaming();
+            return;
+        }
+
         ExecutorService es = ThreadAid.createFixedThreadPool();
 
         int nSAC = 0;
@@ -295,6 +372,84 @@ public final class SPC_SAC extends Operation {
         System.err.println("\rConverting finished.");
     }
 
+    /**
+     * Converts SPC files, reading them in the worker threads.
+     * The number of SPC files that are read but not yet converted is limited to {@link #maxInFlight}.
+     * @throws IOException
+     */
+    private void convertStreaming() throws IOException {
+        List<SPCFileName> primarySPCs = new ArrayList<>(usableSPCMode == SPCFileAid.UsableSPCMode.PSV ? psvSPCs : shSPCs);
+        int nSPC = primarySPCs.size();
+        System.err.println("Converting " + nSPC + (usableSPCMode == SPCFileAid.UsableSPCMode.BOTH ? " pairs" : " files")
+                + " in streaming mode, with at most " + maxInFlight + " in memory.");
+
+        // create event folders under outPath
+        for (String sourceID : primarySPCs.stream().map(SPCFileName::getSourceID).collect(Collectors.toSet()))
+            Files.createDirectories(outPath.resolve(sourceID));
+
+        ExecutorService es = ThreadAid.createFixedThreadPool();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger nFailed = new AtomicInteger();
+        long startTime = System.nanoTime();
+        int nSubmitted = 0;
+        for (SPCFileName primarySPC : primarySPCs) {
+            SPCFileName secondarySPC = null;
+            if (usableSPCMode == SPCFileAid.UsableSPCMode.BOTH) {
+                secondarySPC = pairPSVFile(primarySPC);
+                if (secondarySPC == null || !secondarySPC.exists()) {
+                    throw new NoSuchFileException(secondarySPC + " does not exist");
+                }
+            }
+            SPCFileName secondary = secondarySPC;
+            // wait until there is room in memory
+            inFlight.acquireUninterruptibly();
+            es.execute(() -> {
+                try {
+                    SPCFile primaryFile = SPCFile.getInstance(primarySPC);
+                    SPCFile secondaryFile = (secondary != null) ? SPCFile.getInstance(secondary) : null;
+                    SACMaker sm = createSACMaker(primaryFile, secondaryFile);
+                    sm.setReuseBuffers(true);
+                    sm.run();
+                } catch (Exception e) {
+                    nFailed.incrementAndGet();
+                    System.err.println();
+                    System.err.println("!! " + primarySPC + " failed:");
+                    e.printStackTrace();
+                } finally {
+                    inFlight.release();
+                }
+            });
+            if (++nSubmitted % 100 == 0) printThroughput(startTime, nSPC);
+        }
+
+        es.shutdown();
+        while (!es.isTerminated()) {
+            printThroughput(startTime, nSPC);
+            ThreadAid.sleep(100);
+        }
+        double seconds = (System.nanoTime() - startTime) * 1e-9;
+        System.err.println("\rConverting finished. " + numberOfCreatedSAC.get() + " converted in "
+                + MathAid.roundToString(seconds, 1) + " s ("
+                + MathAid.roundToString(numberOfCreatedSAC.get() / seconds, 1) + " files/s" + ").");
+        if (nFailed.get() > 0) System.err.println("!! " + nFailed.get() + " failed.");
+    }
+
+    private void printThroughput(long startTime, int nSPC) {
+        double seconds = (System.nanoTime() - startTime) * 1e-9;
+        int nDone = numberOfCreatedSAC.get();
+        System.err.print("\rConverting " + MathAid.ceil(100.0 * nDone / nSPC) + "% ("
+                + MathAid.roundToString(nDone / seconds, 1) + " files/s" + ")");
+    }
+
+    private ButterworthFilter designBandPassFilter() {
+        System.err.println("Designing filter. " + lowFreq + " - " + highFreq);
+        double omegaH = highFreq * 2 * Math.PI / samplingHz;
+        double omegaL = lowFreq * 2 * Math.PI / samplingHz;
+        ButterworthFilter filter = new BandPassFilter(omegaH, omegaL, filterNp);
+        filter.setCausal(causal);
+        return filter;
+    }
+
     /**
      * Creates {@link SACMaker} from two SPC files (sh, psv).
      *
@@ -323,6 +478,7 @@ public final class SPC_SAC extends Operation {
         sm.setComponents(components);
         sm.setTemporalDifferentiation(computeTimePartial);
         sm.setAsObserved(computeAsObserved);
+        sm.setFilter(filter);
         sm.setOutPath(outPath.resolve(primarySPC.getSourceID()));
         return sm;
     }
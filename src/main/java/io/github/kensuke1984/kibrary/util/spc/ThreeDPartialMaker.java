@@ -9,6 +9,7 @@ import java.util.Set;
 import org.apache.commons.math3.complex.Complex;
 
 import io.github.kensuke1984.kibrary.elastic.VariableType;
+import io.github.kensuke1984.kibrary.filter.ButterworthFilter;
 import io.github.kensuke1984.kibrary.source.SourceTimeFunction;
 import io.github.kensuke1984.kibrary.util.earth.DefaultStructure;
 import io.github.kensuke1984.kibrary.util.earth.Earth;
@@ -65,6 +66,10 @@ public class ThreeDPartialMaker {
     private double angleForVector;
     private FujiConversion fujiConversion;
     private SourceTimeFunction sourceTimeFunction;
+    /**
+     * Frequency response of filter to apply in frequency domain. null when no filter is to be applied.
+     */
+    private Complex[] filterResponse;
     Set<Double> ignoreBodyR;
 
      /**
@@ -472,8 +477,13 @@ public class ThreeDPartialMaker {
         Complex[] partial_frequency = (variable == VariableType.Qmu) ? computeQpartial(component, iBody) :
                 computeTensorCulculus(component, iBody, iBody, variable, parallel);
 
+        // partial_frequency is a newly created array, so it can be overwritten
         if (sourceTimeFunction != null)
-            partial_frequency = sourceTimeFunction.convolve(partial_frequency, parallel);
+            sourceTimeFunction.convolveInPlace(partial_frequency);
+        if (filterResponse != null) {
+            for (int i = 0; i < partial_frequency.length; i++)
+                partial_frequency[i] = partial_frequency[i].multiply(filterResponse[i]);
+        }
 
         Complex[] partial_time = SPCFileAid.convertToTimeDomain(partial_frequency, fp.np(), npts, samplingHz, fp.omegai());
         return Arrays.stream(partial_time).mapToDouble(Complex::getReal).toArray();
@@ -665,4 +675,13 @@ public class ThreeDPartialMaker {
         this.sourceTimeFunction = sourceTimeFunction;
     }
 
+    /**
+     * Set a filter to be applied in the frequency domain, before partials are converted to time domain.
+     * The filter must be designed for the sampling frequency of this instance.
+     * @param filter ({@link ButterworthFilter}) Filter to use. Set this null when none is to be applied.
+     */
+    public void setFilter(ButterworthFilter filter) {
+        filterResponse = (filter != null) ? filter.getFrequencyResponseTable(fp.np(), fp.tlen(), samplingHz, fp.omegai()) : null;
+    }
+
 }
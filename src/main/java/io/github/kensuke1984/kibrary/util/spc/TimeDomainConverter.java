@@ -0,0 +1,219 @@
+package io.github.kensuke1984.kibrary.util.spc;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.complex.Complex;
+
+/**
+ * Converter of spectra to time series, working on primitive buffers that are reused between conversions.
+ * <p>
+ * A spectrum is loaded with {@link #load(Complex[], int)} (and {@link #add(Complex[])}),
+ * operations in the frequency domain (convolution of source time function, filtering, differentiation) are applied in place,
+ * and then {@link #toTimeseries(double, double[])} conducts the same conversion as
+ * {@link SPCFileAid#convertToTimeDomain(Complex[], int, int, double, double)}.
+ * Since no {@link Complex} instances are created during these steps, this is suited for converting a large number of spectra.
+ * <p>
+ * This class is <b>NOT</b> thread-safe. Use {@link #forThread(int, double)} to get an instance for the current thread.
+ *
+ * @since 2026/10/18
+ */
+public final class TimeDomainConverter {
+
+    private static final ThreadLocal<TimeDomainConverter> CONVERTERS = new ThreadLocal<>();
+
+    /**
+     * Number of data points in time domain.
+     */
+    private final int npts;
+    /**
+     * Sampling frequency [Hz].
+     */
+    private final double samplingHz;
+    /**
+     * Number of steps in frequency domain of loaded spectrum.
+     */
+    private int np;
+    /**
+     * Loaded spectrum for ip=[0, npts/2].
+     */
+    private final double[] specRe;
+    private final double[] specIm;
+    /**
+     * Work arrays for FFT.
+     */
+    private final double[] re;
+    private final double[] im;
+    /**
+     * cos and sin of 2&pi;k/npts for k=[0, npts/2).
+     */
+    private final double[] cos;
+    private final double[] sin;
+    private final int[] bitReversed;
+    /**
+     * exp(&omega;<sub>I</sub>t) * 1000 * samplingHz / npts for the last used &omega;<sub>I</sub>.
+     */
+    private final double[] amplification;
+    private double amplificationOmegaI = Double.NaN;
+
+    /**
+     * Returns a converter for the current thread, which is reused as long as npts and samplingHz are the same.
+     * @param npts (int) Number of data points in time domain. Must be a power of 2.
+     * @param samplingHz (double) Sampling frequency [Hz].
+     * @return ({@link TimeDomainConverter}) Converter for the current thread.
+     */
+    public static TimeDomainConverter forThread(int npts, double samplingHz) {
+        TimeDomainConverter converter = CONVERTERS.get();
+        if (converter == null || converter.npts != npts || converter.samplingHz != samplingHz) {
+            converter = new TimeDomainConverter(npts, samplingHz);
+            CONVERTERS.set(converter);
+        }
+        return converter;
+    }
+
+    /**
+     * @param npts (int) Number of data points in time domain. Must be a power of 2.
+     * @param samplingHz (double) Sampling frequency [Hz].
+     */
+    public TimeDomainConverter(int npts, double samplingHz) {
+        if (npts < 2 || npts != Integer.highestOneBit(npts)) throw new IllegalArgumentException("npts must be a power of 2.");
+        this.npts = npts;
+        this.samplingHz = samplingHz;
+        int nnp = npts / 2;
+        specRe = new double[nnp + 1];
+        specIm = new double[nnp + 1];
+        re = new double[npts];
+        im = new double[npts];
+        cos = new double[nnp];
+        sin = new double[nnp];
+        for (int k = 0; k < nnp; k++) {
+            cos[k] = Math.cos(2 * Math.PI * k / npts);
+            sin[k] = Math.sin(2 * Math.PI * k / npts);
+        }
+        bitReversed = new int[npts];
+        int bits = Integer.numberOfTrailingZeros(npts);
+        for (int i = 0; i < npts; i++) bitReversed[i] = Integer.reverse(i) >>> (32 - bits);
+        amplification = new double[npts];
+    }
+
+    /**
+     * Loads a spectrum, replacing the one loaded before.
+     * @param uFreq (Complex[]) Spectrum for ip=[0, np].
+     * @param np (int) Number of steps in frequency domain. Should not exceed npts/2; points above that will be ignored.
+     */
+    public void load(Complex[] uFreq, int np) {
+        int nnp = npts / 2;
+        if (np > nnp) System.err.println("!CAUTION: np=" + np + " is larger than npts/2=" + nnp + ", using only points up to " + nnp + ".");
+        this.np = Math.min(np, nnp);
+        for (int i = 0; i <= this.np; i++) {
+            specRe[i] = uFreq[i].getReal();
+            specIm[i] = uFreq[i].getImaginary();
+        }
+        Arrays.fill(specRe, this.np + 1, nnp + 1, 0);
+        Arrays.fill(specIm, this.np + 1, nnp + 1, 0);
+    }
+
+    /**
+     * Adds a spectrum to the loaded one.
+     * @param uFreq (Complex[]) Spectrum for ip=[0, np], with the same np as the loaded one.
+     */
+    public void add(Complex[] uFreq) {
+        for (int i = 0; i <= np; i++) {
+            specRe[i] += uFreq[i].getReal();
+            specIm[i] += uFreq[i].getImaginary();
+        }
+    }
+
+    /**
+     * Multiplies factors to the loaded spectrum for ip=[start, np]. The spectrum at ip is multiplied by factors[ip - start].
+     * <p>
+     * For source time functions, which are held for ip=[1, np], set start=1.
+     * For filter responses, which are held for ip=[0, np], set start=0.
+     * @param factors (Complex[]) Factors to multiply.
+     * @param start (int) Step number at which factors[0] is multiplied.
+     */
+    public void multiply(Complex[] factors, int start) {
+        for (int i = start; i <= np; i++) {
+            Complex factor = factors[i - start];
+            double fr = factor.getReal();
+            double fi = factor.getImaginary();
+            double r = specRe[i];
+            specRe[i] = r * fr - specIm[i] * fi;
+            specIm[i] = r * fi + specIm[i] * fr;
+        }
+    }
+
+    /**
+     * Differentiates the loaded spectrum by time, in the same way as {@link SPCElement#differentiate(double)}.
+     * @param tlen (double) Time length [s].
+     */
+    public void differentiate(double tlen) {
+        double constant = 2 * Math.PI / tlen;
+        for (int i = 1; i <= np; i++) {
+            double c = constant * i;
+            double r = specRe[i];
+            specRe[i] = specIm[i] * c;
+            specIm[i] = -r * c;
+        }
+    }
+
+    /**
+     * Converts the loaded spectrum to time domain.
+     * The loaded spectrum is kept, so further operations and conversions can follow.
+     * @param omegaI (double) &omega;<sub>i</sub>.
+     * @param timeseries (double[]) Array of length npts to write the result in. If null, a new array is created.
+     * @return (double[]) Time series [m/s]. The same instance as timeseries, if it is given.
+     */
+    public double[] toTimeseries(double omegaI, double[] timeseries) {
+        if (timeseries == null) timeseries = new double[npts];
+        else if (timeseries.length != npts) throw new IllegalArgumentException("Length of timeseries must be npts=" + npts);
+        int nnp = npts / 2;
+
+        // set values in bit-reversed order; F[i] = F[N-i]* for the negative frequencies
+        for (int i = 0; i <= nnp; i++) {
+            re[bitReversed[i]] = specRe[i];
+            im[bitReversed[i]] = specIm[i];
+        }
+        for (int i = nnp + 1; i < npts; i++) {
+            re[bitReversed[i]] = specRe[npts - i];
+            im[bitReversed[i]] = -specIm[npts - i];
+        }
+
+        // inverse FFT (radix 2, decimation in time)
+        for (int size = 2; size <= npts; size <<= 1) {
+            int half = size >> 1;
+            int step = npts / size;
+            for (int start = 0; start < npts; start += size) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sin[k * step];
+                    int j = start + k;
+                    int l = j + half;
+                    double tr = re[l] * wr - im[l] * wi;
+                    double ti = re[l] * wi + im[l] * wr;
+                    re[l] = re[j] - tr;
+                    im[l] = im[j] - ti;
+                    re[j] += tr;
+                    im[j] += ti;
+                }
+            }
+        }
+
+        // apply growing exponential, correct amplitude, and normalize inverse FFT
+        if (omegaI != amplificationOmegaI) {
+            double constant = omegaI / samplingHz;
+            double coef = 1000 * samplingHz / npts;
+            for (int i = 0; i < npts; i++) amplification[i] = Math.exp(constant * i) * coef;
+            amplificationOmegaI = omegaI;
+        }
+        for (int i = 0; i < npts; i++) timeseries[i] = re[i] * amplification[i];
+        return timeseries;
+    }
+
+    /**
+     * @return (int) Number of data points in time domain.
+     */
+    public int getNpts() {
+        return npts;
+    }
+
+}
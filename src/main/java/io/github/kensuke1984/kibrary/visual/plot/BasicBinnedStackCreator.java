@@ -12,7 +12,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.DoubleStream;
 
 import org.apache.commons.math3.linear.ArrayRealVector;
 
@@ -20,10 +19,14 @@ import edu.sc.seis.TauP.TauModelException;
 import edu.sc.seis.TauP.TauP_Time;
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable.TravelTime;
 import io.github.kensuke1984.kibrary.external.gnuplot.GnuplotFile;
 import io.github.kensuke1984.kibrary.math.CircularRange;
 import io.github.kensuke1984.kibrary.math.LinearRange;
 import io.github.kensuke1984.kibrary.math.Trace;
+import io.github.kensuke1984.kibrary.math.TraceBuffer;
+import io.github.kensuke1984.kibrary.math.TraceView;
 import io.github.kensuke1984.kibrary.util.DatasetAid;
 import io.github.kensuke1984.kibrary.util.MathAid;
 import io.github.kensuke1984.kibrary.util.globalcmt.GlobalCMTID;
@@ -130,6 +133,11 @@ public class BasicBinnedStackCreator extends Operation {
      * Name of structure to compute travel times.
      */
     private String structureName;
+    /**
+     * Path of travel time table file
+     */
+    private Path travelTimeTablePath;
+    private TauPTravelTimeTable travelTimeTable;
 
     private LinearRange distanceRange;
     private CircularRange azimuthRange;
@@ -202,6 +210,9 @@ public class BasicBinnedStackCreator extends Operation {
             pw.println("#reductionSlowness ");
             pw.println("##(String) Name of structure to compute travel times using TauP. (prem)");
             pw.println("#structureName ");
+            pw.println("##Path of a travel time table file, if alignment times are to be interpolated from a table instead of computed by TauP for each record.");
+            pw.println("##  The table is built and written there if it does not exist, is for other phases, or does not cover the events.");
+            pw.println("#travelTimeTablePath travelTimeTable.bin");
             pw.println("##(double) Lower limit of range of epicentral distance to be used [deg], inclusive; [0:upperDistance). (0)");
             pw.println("#lowerDistance ");
             pw.println("##(double) Upper limit of range of epicentral distance to be used [deg], exclusive; (lowerDistance:180] .(180)");
@@ -263,6 +274,8 @@ public class BasicBinnedStackCreator extends Operation {
             alignPhases = property.parseStringArray("alignPhases", null);
         reductionSlowness = property.parseDouble("reductionSlowness", "0");
         structureName = property.parseString("structureName", "prem").toLowerCase();
+        if (property.containsKey("travelTimeTablePath"))
+            travelTimeTablePath = property.parsePath("travelTimeTablePath", null, false, workPath);
 
         double lowerDistance = property.parseDouble("lowerDistance", "0");
         double upperDistance = property.parseDouble("upperDistance", "180");
@@ -330,6 +343,11 @@ public class BasicBinnedStackCreator extends Operation {
            if (alignPhases != null || displayPhases != null) {
                timeTool = new TauP_Time(structureName);
            }
+           if (alignPhases != null && travelTimeTablePath != null && !events.isEmpty()) {
+               double[] eventDepths = events.stream().mapToDouble(event -> event.getEventData().getCmtPosition().getDepth()).toArray();
+               travelTimeTable = TauPTravelTimeTable.prepare(travelTimeTablePath, structureName, alignPhases,
+                       Arrays.stream(eventDepths).min().getAsDouble(), Arrays.stream(eventDepths).max().getAsDouble());
+           }
 
            for (GlobalCMTID event : events) {
 
@@ -399,20 +417,20 @@ public class BasicBinnedStackCreator extends Operation {
             synMeanMax = mainSynList.stream().collect(Collectors.averagingDouble(id -> new ArrayRealVector(id.getData()).getLInfNorm()));
 
             // create array to insert stacked waveforms
-            Trace[] obsStacks;
-            Trace[] mainSynStacks;
-            Trace[] refSynStacks1;
-            Trace[] refSynStacks2;
+            TraceBuffer[] obsStacks;
+            TraceBuffer[] mainSynStacks;
+            TraceBuffer[] refSynStacks1;
+            TraceBuffer[] refSynStacks2;
             if (!byAzimuth) {
-                obsStacks = new Trace[(int) MathAid.ceil(180 / binWidth)];
-                mainSynStacks = new Trace[(int) MathAid.ceil(180 / binWidth)];
-                refSynStacks1 = new Trace[(int) MathAid.ceil(180 / binWidth)];
-                refSynStacks2 = new Trace[(int) MathAid.ceil(180 / binWidth)];
+                obsStacks = new TraceBuffer[(int) MathAid.ceil(180 / binWidth)];
+                mainSynStacks = new TraceBuffer[(int) MathAid.ceil(180 / binWidth)];
+                refSynStacks1 = new TraceBuffer[(int) MathAid.ceil(180 / binWidth)];
+                refSynStacks2 = new TraceBuffer[(int) MathAid.ceil(180 / binWidth)];
             } else {
-                obsStacks = new Trace[(int) MathAid.ceil(360 / binWidth)];
-                mainSynStacks = new Trace[(int) MathAid.ceil(360 / binWidth)];
-                refSynStacks1 = new Trace[(int) MathAid.ceil(360 / binWidth)];
-                refSynStacks2 = new Trace[(int) MathAid.ceil(360 / binWidth)];
+                obsStacks = new TraceBuffer[(int) MathAid.ceil(360 / binWidth)];
+                mainSynStacks = new TraceBuffer[(int) MathAid.ceil(360 / binWidth)];
+                refSynStacks1 = new TraceBuffer[(int) MathAid.ceil(360 / binWidth)];
+                refSynStacks2 = new TraceBuffer[(int) MathAid.ceil(360 / binWidth)];
             }
 
             // variables to find the minimum and maximum distance for this event
@@ -439,13 +457,18 @@ public class BasicBinnedStackCreator extends Operation {
                 // compute reduce time by distance or phase travel time
                 double reduceTime = 0;
                 if (alignPhases != null) {
-                    timeTool.setPhaseNames(alignPhases);
-                    timeTool.calculate(distance);
-                    if (timeTool.getNumArrivals() < 1) {
+                    List<TravelTime> arrivals = (travelTimeTable != null)
+                            ? travelTimeTable.arrivals(timeTool.getSourceDepth(), distance) : null;
+                    if (arrivals == null) {
+                        timeTool.setPhaseNames(alignPhases);
+                        timeTool.calculate(distance);
+                        arrivals = timeTool.getArrivals().stream().map(TravelTime::of).collect(Collectors.toList());
+                    }
+                    if (arrivals.isEmpty()) {
                         System.err.println("Could not get arrival time of " + String.join(",", alignPhases) + " for " + obsID + " , skipping.");
                         return;
                     }
-                    reduceTime = timeTool.getArrival(0).getTime();
+                    reduceTime = arrivals.get(0).getTime();
                 } else {
                     reduceTime = reductionSlowness * distance;
                 }
@@ -469,10 +492,10 @@ public class BasicBinnedStackCreator extends Operation {
                 //~add waveform
                 // observed
                 // Time shift of static correction shall be applied to the observed waveform.
-                Trace obsTrace = obsID.toTrace().withXAs(mainSynID.toTrace().getX());
+                TraceView obsTrace = obsID.toTraceView().shiftX(mainSynID.getStartTime() - obsID.getStartTime());
                 obsStacks[k] = addUponShift(obsStacks[k], obsTrace, reduceTime);
                 // main synthetic
-                mainSynStacks[k] = addUponShift(mainSynStacks[k], mainSynID.toTrace(), reduceTime);
+                mainSynStacks[k] = addUponShift(mainSynStacks[k], mainSynID.toTraceView(), reduceTime);
                 // reference synthetic 1
                 if (refSynBasicIDs1 != null) {
                     List<BasicID> refSynIDCandidates1 = refSynBasicIDs1.stream()
@@ -480,7 +503,7 @@ public class BasicBinnedStackCreator extends Operation {
                     if (refSynIDCandidates1.size() != 1)
                         throw new IllegalStateException("0 or more than 1 refSynID1 matching obsID" + obsID.toString());
                     BasicID refSynID1 = refSynIDCandidates1.get(0);
-                    refSynStacks1[k] = addUponShift(refSynStacks1[k], refSynID1.toTrace(), reduceTime);
+                    refSynStacks1[k] = addUponShift(refSynStacks1[k], refSynID1.toTraceView(), reduceTime);
                 }
                 // reference synthetic 2
                 if (refSynBasicIDs2 != null) {
@@ -489,7 +512,7 @@ public class BasicBinnedStackCreator extends Operation {
                     if (refSynIDCandidates2.size() != 1)
                         throw new IllegalStateException("0 or more than 1 refSynID2 matching obsID" + obsID.toString());
                     BasicID refSynID2 = refSynIDCandidates2.get(0);
-                    refSynStacks2[k] = addUponShift(refSynStacks2[k], refSynID2.toTrace(), reduceTime);
+                    refSynStacks2[k] = addUponShift(refSynStacks2[k], refSynID2.toTraceView(), reduceTime);
                 }
             }
 
@@ -498,7 +521,9 @@ public class BasicBinnedStackCreator extends Operation {
             // plot for each bin
             for (int j = 0; j < obsStacks.length; j++) {
                 if (obsStacks[j] != null && mainSynStacks[j] != null) {
-                    binStackPlotContent(obsStacks[j], mainSynStacks[j], refSynStacks1[j], refSynStacks2[j], (j + 0.5) * binWidth);
+                    binStackPlotContent(obsStacks[j].toTrace(), mainSynStacks[j].toTrace(),
+                            refSynStacks1[j] != null ? refSynStacks1[j].toTrace() : null,
+                            refSynStacks2[j] != null ? refSynStacks2[j].toTrace() : null, (j + 0.5) * binWidth);
                 }
             }
 
@@ -615,42 +640,23 @@ public class BasicBinnedStackCreator extends Operation {
         }
 
         /**
-         * Shifts time of dataTrace by reductionTime, then adds the waveform onto sumTrace.
-         * @param sumTrace ({@link Trace}) Summing-up waveform. X axis is reduced time.
+         * Shifts time of dataTrace by reductionTime, then adds the waveform onto sumTrace in place.
+         * @param sumTrace ({@link TraceBuffer}) Summing-up waveform. X axis is reduced time.
          *                                 May be null when calling this method with the first data waveform.
-         * @param dataTrace ({@link Trace}) Data waveform. X axis is time from event.
+         * @param dataTrace ({@link TraceView}) Data waveform. X axis is time from event.
          * @param reductionTime (double) Time to reduce from the time of data waveform
-         * @return ({@link Trace}) New Trace instance with added waveform values. X axis is reduced time.
+         * @return ({@link TraceBuffer}) sumTrace, or a new one if it was null, with added waveform values. X axis is reduced time.
          */
-        private Trace addUponShift(Trace sumTrace, Trace dataTrace, double reductionTime) {
+        private TraceBuffer addUponShift(TraceBuffer sumTrace, TraceView dataTrace, double reductionTime) {
             // shift x values by approximately the reduction time so that x values become multiples of samplingStep
-            double startTime = dataTrace.getXAt(0);
+            double startTime = dataTrace.getMinX();
             double shiftedTime = startTime - reductionTime;
             double roundedTime = Math.round(shiftedTime / samplingStep) * samplingStep;
-            Trace shiftedTrace = dataTrace.shiftX(roundedTime - startTime);
-
-            if (sumTrace == null) {
-                return shiftedTrace;
+            TraceView shiftedTrace = dataTrace.shiftX(roundedTime - startTime);
 
-            } else {
-                // gather all x values that are contained in at least one of the traces
-                double[] newX = DoubleStream.concat(Arrays.stream(sumTrace.getX()), Arrays.stream(shiftedTrace.getX()))
-                        .distinct().sorted().toArray();
-                double[] newY = new double[newX.length];
-
-                for (int i = 0; i < newX.length; i++) {
-                    double x = newX[i];
-                    double sum = 0;
-                    if (sumTrace.getMinX() <= x && x <= sumTrace.getMaxX()) {
-                        sum += sumTrace.getYAt(sumTrace.findNearestXIndex(x));
-                    }
-                    if (shiftedTrace.getMinX() <= x && x <= shiftedTrace.getMaxX()) {
-                        sum += shiftedTrace.getYAt(shiftedTrace.findNearestXIndex(x));
-                    }
-                    newY[i] = sum;
-                }
-                return new Trace(newX, newY);
-            }
+            // the range is extended to cover all x values that are contained in at least one of the traces
+            if (sumTrace == null) sumTrace = new TraceBuffer(0, roundedTime, samplingStep);
+            return sumTrace.stack(shiftedTrace);
         }
     }
 
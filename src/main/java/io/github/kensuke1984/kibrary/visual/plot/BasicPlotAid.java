@@ -126,6 +126,8 @@ class BasicPlotAid {
                     // calculate time to reduce
                     double reduceTime;
                     if (alignPhases != null) {
+                        // This is evaluated once per event for the sampled distances of the curve, not for each record,
+                        // and only interpolates the phases depth-corrected above, so a travel time table would save nothing here.
                         Arrival relativeArrival = SeismicPhase.getEarliestArrival(alignPhaseList, distance);
                         if (relativeArrival == null) {
                             // no relative arrival at this dist, skip
@@ -20,6 +20,8 @@ import edu.sc.seis.TauP.TauModelException;
 import edu.sc.seis.TauP.TauP_Time;
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable.TravelTime;
 import io.github.kensuke1984.kibrary.external.gnuplot.GnuplotFile;
 import io.github.kensuke1984.kibrary.math.CircularRange;
 import io.github.kensuke1984.kibrary.math.LinearRange;
@@ -125,6 +127,11 @@ public class BasicRecordSectionCreator extends Operation {
      * Name of structure to compute travel times.
      */
     private String structureName;
+    /**
+     * Path of travel time table file
+     */
+    private Path travelTimeTablePath;
+    private TauPTravelTimeTable travelTimeTable;
 
     private LinearRange distanceRange;
     private CircularRange azimuthRange;
@@ -194,6 +201,9 @@ public class BasicRecordSectionCreator extends Operation {
             pw.println("#reductionSlowness ");
             pw.println("##(String) Name of structure to compute travel times using TauP. (prem)");
             pw.println("#structureName ");
+            pw.println("##Path of a travel time table file, if alignment times are to be interpolated from a table instead of computed by TauP for each record.");
+            pw.println("##  The table is built and written there if it does not exist, is for other phases, or does not cover the events.");
+            pw.println("#travelTimeTablePath travelTimeTable.bin");
             pw.println("##(double) Lower limit of range of epicentral distance to be used [deg], inclusive; [0:upperDistance). (0)");
             pw.println("#lowerDistance ");
             pw.println("##(double) Upper limit of range of epicentral distance to be used [deg], exclusive; (lowerDistance:180]. (180)");
@@ -261,6 +271,8 @@ public class BasicRecordSectionCreator extends Operation {
             alignPhases = property.parseStringArray("alignPhases", null);
         reductionSlowness = property.parseDouble("reductionSlowness", "0");
         structureName = property.parseString("structureName", "prem").toLowerCase();
+        if (property.containsKey("travelTimeTablePath"))
+            travelTimeTablePath = property.parsePath("travelTimeTablePath", null, false, workPath);
 
         double lowerDistance = property.parseDouble("lowerDistance", "0");
         double upperDistance = property.parseDouble("upperDistance", "180");
@@ -323,6 +335,11 @@ public class BasicRecordSectionCreator extends Operation {
            if (alignPhases != null || displayPhases != null) {
                timeTool = new TauP_Time(structureName);
            }
+           if (alignPhases != null && travelTimeTablePath != null && !events.isEmpty()) {
+               double[] eventDepths = events.stream().mapToDouble(event -> event.getEventData().getCmtPosition().getDepth()).toArray();
+               travelTimeTable = TauPTravelTimeTable.prepare(travelTimeTablePath, structureName, alignPhases,
+                       Arrays.stream(eventDepths).min().getAsDouble(), Arrays.stream(eventDepths).max().getAsDouble());
+           }
 
            for (GlobalCMTID event : events) {
 
@@ -413,13 +430,18 @@ public class BasicRecordSectionCreator extends Operation {
                 // compute reduce time by distance or phase travel time
                 double reduceTime = 0;
                 if (alignPhases != null) {
-                    timeTool.setPhaseNames(alignPhases);
-                    timeTool.calculate(distance);
-                    if (timeTool.getNumArrivals() < 1) {
+                    List<TravelTime> arrivals = (travelTimeTable != null) ? travelTimeTable.arrivals(
+                            obsID.getGlobalCMTID().getEventData().getCmtPosition().getDepth(), distance) : null;
+                    if (arrivals == null) {
+                        timeTool.setPhaseNames(alignPhases);
+                        timeTool.calculate(distance);
+                        arrivals = timeTool.getArrivals().stream().map(TravelTime::of).collect(Collectors.toList());
+                    }
+                    if (arrivals.isEmpty()) {
                         System.err.println("Could not get arrival time of " + String.join(",", alignPhases) + " for " + obsID + " , skipping.");
                         return;
                     }
-                    reduceTime = timeTool.getArrival(0).getTime();
+                    reduceTime = arrivals.get(0).getTime();
                 } else {
                     reduceTime = reductionSlowness * distance;
                 }
@@ -12,14 +12,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.apache.commons.math3.linear.ArrayRealVector;
-import org.apache.commons.math3.linear.RealVector;
 import org.apache.commons.math3.util.Precision;
 
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
 import io.github.kensuke1984.kibrary.external.gnuplot.GnuplotFile;
 import io.github.kensuke1984.kibrary.math.LinearRange;
+import io.github.kensuke1984.kibrary.math.Trace;
 import io.github.kensuke1984.kibrary.selection.DataFeature;
 import io.github.kensuke1984.kibrary.selection.DataFeatureListFile;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
@@ -397,8 +396,8 @@ public class DataFeatureHistogram extends Operation {
 
            if (improvementWindowSet == null) {
                // if improvement window does not exist, use the whole window
-               RealVector obsU = new ArrayRealVector(obsID.getData(), false);
-               RealVector synU = new ArrayRealVector(synID.getData(), false);
+               double[] obsU = obsID.getData();
+               double[] synU = synID.getData();
                // Start time of synthetic waveform must be used, since it is the correct one when time shift is applied.
                double startTime = synID.getStartTime();
                double endTime = synID.computeEndTime();
@@ -417,12 +416,13 @@ public class DataFeatureHistogram extends Operation {
                }
                for (TimewindowData improvementWindow : improvementWindows) {
                    // Time frame of synthetic waveform must be used, since it is the correct one when time shift is applied.
-                   double[] cutX = synID.toTrace().cutWindow(improvementWindow).getX();
+                   Trace synTrace = synID.toTrace();
+                   double[] cutX = synTrace.cutWindow(improvementWindow).getX();
                    double startTime = cutX[0];
                    double endTime = cutX[cutX.length - 1];
                    // observed waveform must be shifted before cutting
-                   RealVector obsU = obsID.toTrace().withXAs(synID.toTrace().getX()).cutWindow(startTime, endTime).getYVector();
-                   RealVector synU = synID.toTrace().cutWindow(startTime, endTime).getYVector();
+                   double[] obsU = obsID.toTrace().withXAs(synTrace.getX()).cutWindow(startTime, endTime).getY();
+                   double[] synU = synTrace.cutWindow(startTime, endTime).getY();
                    TimewindowData timewindow = new TimewindowData(startTime, endTime,
                            synID.getObserver(), synID.getGlobalCMTID(), synID.getSacComponent(), synID.getPhases());
                    // snRatio cannot be decided, so set 0
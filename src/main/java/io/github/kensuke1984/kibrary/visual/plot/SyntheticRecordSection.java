@@ -8,6 +8,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -15,6 +16,8 @@ import edu.sc.seis.TauP.TauModelException;
 import edu.sc.seis.TauP.TauP_Time;
 import io.github.kensuke1984.kibrary.Operation;
 import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable.TravelTime;
 import io.github.kensuke1984.kibrary.external.gnuplot.GnuplotFile;
 import io.github.kensuke1984.kibrary.math.CircularRange;
 import io.github.kensuke1984.kibrary.math.LinearRange;
@@ -115,6 +118,11 @@ public class SyntheticRecordSection extends Operation {
      * Name of structure to compute travel times.
      */
     private String structureName;
+    /**
+     * Path of travel time table file
+     */
+    private Path travelTimeTablePath;
+    private TauPTravelTimeTable travelTimeTable;
 
     private double lowerTime;
     private double upperTime;
@@ -183,6 +191,9 @@ public class SyntheticRecordSection extends Operation {
             pw.println("#reductionSlowness ");
             pw.println("##(String) Name of structure to compute travel times using TauP. (prem)");
             pw.println("#structureName ");
+            pw.println("##Path of a travel time table file, if alignment times are to be interpolated from a table instead of computed by TauP for each record.");
+            pw.println("##  The table is built and written there if it does not exist, is for other phases, or does not cover the events.");
+            pw.println("#travelTimeTablePath travelTimeTable.bin");
             pw.println("##(double) Lower limit of time range to plot [sec]. To use whole range, leave this unset.");
             pw.println("#lowerTime ");
             pw.println("##(double) Upper limit of time range to plot [sec]. To use whole range, leave this unset.");
@@ -248,6 +259,8 @@ public class SyntheticRecordSection extends Operation {
             alignPhases = property.parseStringArray("alignPhases", null);
         reductionSlowness = property.parseDouble("reductionSlowness", "0");
         structureName = property.parseString("structureName", "prem").toLowerCase();
+        if (property.containsKey("travelTimeTablePath"))
+            travelTimeTablePath = property.parsePath("travelTimeTablePath", null, false, workPath);
 
         lowerTime = property.parseDouble("lowerTime", "NaN");
         upperTime = property.parseDouble("upperTime", "NaN");
@@ -318,6 +331,11 @@ public class SyntheticRecordSection extends Operation {
            if (alignPhases != null || displayPhases != null) {
                timeTool = new TauP_Time(structureName);
            }
+           if (alignPhases != null && travelTimeTablePath != null && !events.isEmpty()) {
+               double[] eventDepths = events.stream().mapToDouble(event -> event.getEventData().getCmtPosition().getDepth()).toArray();
+               travelTimeTable = TauPTravelTimeTable.prepare(travelTimeTablePath, structureName, alignPhases,
+                       Arrays.stream(eventDepths).min().getAsDouble(), Arrays.stream(eventDepths).max().getAsDouble());
+           }
 
            for (GlobalCMTID event : events) {
 
@@ -406,13 +424,18 @@ public class SyntheticRecordSection extends Operation {
                // compute reduce time by distance or phase travel time
                double reduceTime = 0;
                if (alignPhases != null) {
-                   timeTool.setPhaseNames(alignPhases);
-                   timeTool.calculate(distance);
-                   if (timeTool.getNumArrivals() < 1) {
+                   List<TravelTime> arrivals = (travelTimeTable != null)
+                           ? travelTimeTable.arrivals(timeTool.getSourceDepth(), distance) : null;
+                   if (arrivals == null) {
+                       timeTool.setPhaseNames(alignPhases);
+                       timeTool.calculate(distance);
+                       arrivals = timeTool.getArrivals().stream().map(TravelTime::of).collect(Collectors.toList());
+                   }
+                   if (arrivals.isEmpty()) {
                        System.err.println("Could not get arrival time of " + String.join(",", alignPhases) + " for " + sacName.toString() + " , skipping.");
                        return;
                    }
-                   reduceTime = timeTool.getArrival(0).getTime();
+                   reduceTime = arrivals.get(0).getTime();
                } else {
                    reduceTime = reductionSlowness * distance;
                }
@@ -545,13 +568,18 @@ public class SyntheticRecordSection extends Operation {
                double distance = data.getValue(SACHeaderEnum.GCARC);
                double rdTime = 0;
                if (alignPhases != null) {
-                   timeTool.setPhaseNames(alignPhases);
-                   timeTool.calculate(distance);
-                   if (timeTool.getNumArrivals() < 1) {
+                   List<TravelTime> arrivals = (travelTimeTable != null)
+                           ? travelTimeTable.arrivals(timeTool.getSourceDepth(), distance) : null;
+                   if (arrivals == null) {
+                       timeTool.setPhaseNames(alignPhases);
+                       timeTool.calculate(distance);
+                       arrivals = timeTool.getArrivals().stream().map(TravelTime::of).collect(Collectors.toList());
+                   }
+                   if (arrivals.isEmpty()) {
                        System.err.println("Could not get arrival time of " + String.join(",", alignPhases) + " for " + name.toString() + " , skipping.");
                        return;
                    }
-                   rdTime = timeTool.getArrival(0).getTime();
+                   rdTime = arrivals.get(0).getTime();
                } else {
                    rdTime = reductionSlowness * distance;
                }
@@ -34,6 +34,8 @@ import io.github.kensuke1984.kibrary.math.FourierTransform;
 import io.github.kensuke1984.kibrary.math.HilbertTransform;
 import io.github.kensuke1984.kibrary.math.Interpolation;
 import io.github.kensuke1984.kibrary.math.Trace;
+import io.github.kensuke1984.kibrary.math.TraceBuffer;
+import io.github.kensuke1984.kibrary.math.TraceView;
 import io.github.kensuke1984.kibrary.timewindow.Timewindow;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowDataFile;
@@ -167,6 +169,7 @@ public class ActualWaveformCompiler extends Operation {
 
     private int finalFreqSamplingHz;
     private Set<TimewindowData> sourceTimewindowSet;
+    private Map<GlobalCMTID, Set<TimewindowData>> sourceTimewindowMap;
     private Set<TimewindowData> refTimewindowSet;
     private Set<StaticCorrectionData> staticCorrectionSet;
     private Set<StaticCorrectionData> mantleCorrectionSet;
@@ -337,7 +340,10 @@ public class ActualWaveformCompiler extends Operation {
            refTimewindowSet = TimewindowDataFile.read(timewindowRefPath)
                    .stream().filter(window -> components.contains(window.getComponent())).collect(Collectors.toSet());
 
-       Set<GlobalCMTID> eventSet = sourceTimewindowSet.stream().map(TimewindowData::getGlobalCMTID).collect(Collectors.toSet());
+       // group time windows by event once, instead of searching them in each worker
+       sourceTimewindowMap = sourceTimewindowSet.stream()
+               .collect(Collectors.groupingBy(TimewindowData::getGlobalCMTID, Collectors.toSet()));
+       Set<GlobalCMTID> eventSet = sourceTimewindowMap.keySet();
        Set<Observer> observerSet = sourceTimewindowSet.stream().map(TimewindowData::getObserver).collect(Collectors.toSet());
        Set<DataEntry> entrySet = sourceTimewindowSet.stream().map(TimewindowData::toDataEntry).collect(Collectors.toSet());
 
@@ -404,8 +410,7 @@ public class ActualWaveformCompiler extends Operation {
     }
 
     private double[] cutDataSac(SACFileAccess sac, Timewindow window) {
-        Trace trace = sac.createTrace();
-        return trace.resampleInWindow(window, sacSamplingHz, finalSamplingHz).getY();
+        return sac.resampleInWindow(window, sacSamplingHz, finalSamplingHz).getY();
     }
 
     /**
@@ -416,10 +421,9 @@ public class ActualWaveformCompiler extends Operation {
      * @return
      */
     private double[] cutEnvelopeSac(SACFileAccess sac, double startTime, int npts) {
-        Trace trace = sac.createTrace();
         int step = (int) (sacSamplingHz / finalSamplingHz);
-        int startPoint = trace.findNearestXIndex(startTime);
-        HilbertTransform hilbert = new HilbertTransform(trace.getY());
+        int startPoint = sac.findNearestIndex(startTime);
+        HilbertTransform hilbert = new HilbertTransform(sac.getData());
         double[] waveData = hilbert.getEnvelope();
         return IntStream.range(0, npts).parallel().mapToDouble(i -> waveData[i * step + startPoint]).toArray();
     }
@@ -431,10 +435,9 @@ public class ActualWaveformCompiler extends Operation {
      * @return
      */
     private double[] cutHySac(SACFileAccess sac, double startTime, int npts) {
-        Trace trace = sac.createTrace();
         int step = (int) (sacSamplingHz / finalSamplingHz);
-        int startPoint = trace.findNearestXIndex(startTime);
-        HilbertTransform hilbert = new HilbertTransform(trace.getY());
+        int startPoint = sac.findNearestIndex(startTime);
+        HilbertTransform hilbert = new HilbertTransform(sac.getData());
         double[] waveData = hilbert.getHy();
         return IntStream.range(0, npts).parallel().mapToDouble(i -> waveData[i * step + startPoint]).toArray();
     }
@@ -446,10 +449,9 @@ public class ActualWaveformCompiler extends Operation {
      * @return
      */
     private Trace cutSpcAmpSac(SACFileAccess sac, double startTime, int npts) {
-        Trace trace = sac.createTrace();
         int step = (int) (sacSamplingHz / finalSamplingHz);
-        int startPoint = trace.findNearestXIndex(startTime);
-        double[] cutY = trace.getYVector().getSubVector(startPoint, npts * step).toArray();
+        int startPoint = sac.findNearestIndex(startTime);
+        double[] cutY = sac.getData(startPoint, startPoint + npts * step);
         FourierTransform fourier = new FourierTransform(cutY, finalFreqSamplingHz);
         double df = fourier.getFreqIncrement(sacSamplingHz);
         if (highFreq > sacSamplingHz)
@@ -468,14 +470,12 @@ public class ActualWaveformCompiler extends Operation {
      * @return
      */
     private Trace cutSpcAmpSacAddNoise(SACFileAccess sac, double startTime, int npts) {
-        Trace trace = sac.createTrace();
         int step = (int) (sacSamplingHz / finalSamplingHz);
-        int startPoint = trace.findNearestXIndex(startTime);
-        double[] cutY = trace.getYVector().getSubVector(startPoint, npts * step).toArray();
-        Trace tmp = createNoiseTrace(new ArrayRealVector(cutY).getLInfNorm());
-        Trace noiseTrace = new Trace(trace.getX(), Arrays.copyOf(tmp.getY(), trace.getLength()));
-        trace = trace.add(noiseTrace);
-        cutY = trace.getYVector().getSubVector(startPoint, npts * step).toArray();
+        int startPoint = sac.findNearestIndex(startTime);
+        TraceBuffer trace = TraceBuffer.copyOf(TraceView.of(sac.getData(), 0, 1 / sacSamplingHz));
+        double normalize = trace.view().subView(startPoint, startPoint + npts * step).getLInfNorm();
+        trace.add(createNoiseView(normalize, trace.getLength()));
+        double[] cutY = trace.view().subView(startPoint, startPoint + npts * step).toArray();
         FourierTransform fourier = new FourierTransform(cutY, finalFreqSamplingHz);
         double df = fourier.getFreqIncrement(sacSamplingHz);
         if (highFreq > sacSamplingHz)
@@ -520,10 +520,9 @@ public class ActualWaveformCompiler extends Operation {
      * @return
      */
     private Complex[] cutSpcFySac(SACFileAccess sac, double startTime, int npts) {
-        Trace trace = sac.createTrace();
         int step = (int) (sacSamplingHz / finalSamplingHz);
-        int startPoint = trace.findNearestXIndex(startTime);
-        double[] cutY = trace.getYVector().getSubVector(startPoint, npts * step).toArray();
+        int startPoint = sac.findNearestIndex(startTime);
+        double[] cutY = sac.getData(startPoint, startPoint + npts * step);
         FourierTransform fourier = new FourierTransform(cutY, finalFreqSamplingHz);
         double df = fourier.getFreqIncrement(sacSamplingHz);
         if (highFreq > sacSamplingHz)
@@ -542,22 +541,27 @@ public class ActualWaveformCompiler extends Operation {
      * @return
      */
     private double[] cutDataSacAddNoise(SACFileAccess sac, double startTime, int npts) {
-        Trace trace = sac.createTrace();
         int step = (int) (sacSamplingHz / finalSamplingHz);
-        int startPoint = trace.findNearestXIndex(startTime);
-        double[] waveData = trace.getY();
-        RealVector vector = new ArrayRealVector(IntStream.range(0, npts).parallel().mapToDouble(i -> waveData[i * step + startPoint]).toArray());
-        Trace tmp = createNoiseTrace(vector.getLInfNorm());
-        Trace noiseTrace = new Trace(trace.getX(), Arrays.copyOf(tmp.getY(), trace.getLength()));
-        trace = trace.add(noiseTrace);
-
-        double signal = trace.getYVector().getNorm() / trace.getLength();
-        double noise = noiseTrace.getYVector().getNorm() / noiseTrace.getLength();
+        int startPoint = sac.findNearestIndex(startTime);
+        TraceBuffer trace = TraceBuffer.copyOf(TraceView.of(sac.getData(), 0, 1 / sacSamplingHz));
+        TraceView noiseTrace = createNoiseView(trace.view().resampleByStep(startPoint, step, npts).getLInfNorm(), trace.getLength());
+        trace.add(noiseTrace);
+
+        double signal = trace.view().getNorm() / trace.getLength();
+        double noise = noiseTrace.getNorm() / noiseTrace.getLength();
         double snratio = signal / noise;
         System.err.println("snratio " + snratio + " noise " + noise);
 
-        double[] waveDataNoise = trace.getY();
-        return IntStream.range(0, npts).parallel().mapToDouble(i -> waveDataNoise[i * step + startPoint]).toArray();
+        return trace.view().resampleByStep(startPoint, step, npts).toArray();
+    }
+
+    /**
+     * @param normalize
+     * @param length (int) Number of points. The noise is padded with 0 or truncated to this length.
+     * @return ({@link TraceView}) Noise on the same x axis as {@link TraceView#of(double[], double, double)} with x0=0 and dx=1/sacSamplingHz.
+     */
+    private TraceView createNoiseView(double normalize, int length) {
+        return TraceView.of(Arrays.copyOf(createNoiseTrace(normalize).getY(), length), 0, 1 / sacSamplingHz);
     }
 
     /**
@@ -579,7 +583,7 @@ public class ActualWaveformCompiler extends Operation {
     private class Worker extends DatasetAid.FilteredDatasetWorker {
 
         private Worker(GlobalCMTID eventID) {
-            super(eventID, obsPath, synPath, convolved, sourceTimewindowSet);
+            super(eventID, obsPath, synPath, convolved, sourceTimewindowMap.get(eventID));
         }
 
         @Override
@@ -8,6 +8,7 @@ import org.apache.commons.math3.util.Precision;
 
 import io.github.kensuke1984.anisotime.Phase;
 import io.github.kensuke1984.kibrary.math.Trace;
+import io.github.kensuke1984.kibrary.math.TraceView;
 import io.github.kensuke1984.kibrary.timewindow.Timewindow;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
 import io.github.kensuke1984.kibrary.util.MathAid;
@@ -292,6 +293,14 @@ public class BasicID {
         return new Trace(x, data);
     }
 
+    /**
+     * @return ({@link TraceView}) Waveform data, viewed without copy.
+     * @since 2026/10/18
+     */
+    public TraceView toTraceView() {
+        return TraceView.of(data, startTime, 1 / samplingHz);
+    }
+
     /**
      * @return ({@link DataEntry}) Data entry for this ID.
      * @since 2022/12/13
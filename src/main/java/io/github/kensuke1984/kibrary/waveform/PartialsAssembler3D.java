@@ -201,6 +201,10 @@ public class PartialsAssembler3D extends Operation {
      * Whether to apply causal filter. {true: causal, false: zero-phase}
      */
     private boolean causal;
+    /**
+     * Whether to apply the filter in frequency domain before converting to time domain.
+     */
+    private boolean filterInSpectrum;
     /**
      * Structure file for Q partial.
      */
@@ -300,6 +304,9 @@ public class PartialsAssembler3D extends Operation {
             pw.println("#filterNp ");
             pw.println("##(boolean) Whether to apply causal filter. When false, zero-phase filter is applied. (false)");
             pw.println("#causal ");
+            pw.println("##(boolean) Whether to apply the filter on the spectra before converting them to time domain,");
+            pw.println("##  instead of applying the recursive filter in time domain. This is faster and gives the same results within the timewindows. (false)");
+            pw.println("#filterInSpectrum ");
             pw.println("##File for Qstructure (if no file, then PREM).");
             pw.println("#qStructurePath ");
         }
@@ -367,6 +374,7 @@ public class PartialsAssembler3D extends Operation {
         highFreq = property.parseDouble("highFreq", "0.08");
         filterNp = property.parseInt("filterNp", "4");
         causal = property.parseBoolean("causal", "false");
+        filterInSpectrum = property.parseBoolean("filterInSpectrum", "false");
 
         if (property.containsKey("qStructurePath")) {
             qStructurePath = property.parsePath("qinf", null, true, workPath);
@@ -690,6 +698,8 @@ public class PartialsAssembler3D extends Operation {
                 }
             }
             threedPartialMaker.setSourceTimeFunction(sourceTimeFunctions.get(event));
+            if (filterInSpectrum)
+                threedPartialMaker.setFilter(filter);
             if (qStructure != null)
                 threedPartialMaker.setStructure(qStructure);
 
@@ -723,12 +733,12 @@ public class PartialsAssembler3D extends Operation {
             // if cutstart < 0 (i.e. before event time), zero-pad the beginning part
             Arrays.parallelSetAll(cutPartial, i -> (i + iStart < 0 ? 0 : partial[i + iStart]));
 
-            // filter
-            double[] filteredPartial = filter.applyFilter(cutPartial);
+            // filter, unless it has already been applied in frequency domain
+            if (!filterInSpectrum) filter.applyFilterInPlace(cutPartial);
 
             // cut and resample in timewindow
             double[] xs = IntStream.range(0, iEnd - iStart).mapToDouble(i -> (i + iStart) / partialSamplingHz).toArray();
-            Trace filteredTrace = new Trace(xs, filteredPartial);
+            Trace filteredTrace = new Trace(xs, cutPartial);
             return filteredTrace.resampleInWindow(timewindow, partialSamplingHz, finalSamplingHz);
         }
 
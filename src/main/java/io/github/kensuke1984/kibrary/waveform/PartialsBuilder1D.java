@@ -167,6 +167,10 @@ public class PartialsBuilder1D extends Operation {
      * Whether to apply causal filter. {true: causal, false: zero-phase}
      */
     private boolean causal;
+    /**
+     * Whether to apply the filter in frequency domain before converting to time domain.
+     */
+    private boolean filterInSpectrum;
 
     /**
      * Timewindows to work for.
@@ -246,6 +250,9 @@ public class PartialsBuilder1D extends Operation {
             pw.println("#filterNp ");
             pw.println("##(boolean) Whether to apply causal filter. When false, zero-phase filter is applied. (false)");
             pw.println("#causal ");
+            pw.println("##(boolean) Whether to apply the filter on the spectra before converting them to time domain,");
+            pw.println("##  instead of applying the recursive filter in time domain. This is faster and gives the same results within the timewindows. (false)");
+            pw.println("#filterInSpectrum ");
         }
         System.err.println(outPath + " is created.");
     }
@@ -300,6 +307,7 @@ public class PartialsBuilder1D extends Operation {
         highFreq = property.parseDouble("highFreq", "0.08");
         filterNp = property.parseInt("filterNp", "4");
         causal = property.parseBoolean("causal", "false");
+        filterInSpectrum = property.parseBoolean("filterInSpectrum", "false");
     }
 
     @Override
@@ -430,10 +438,13 @@ public class PartialsBuilder1D extends Operation {
         }
 
         private void process(SPCFileAccess spcFile) {
+            SourceTimeFunction sourceTimeFunction = sourceTimeFunctions.get(event);
+            if (sourceTimeFunction != null) sourceTimeFunction.convolveInPlace(spcFile, components);
             for (SACComponent component : components) {
                 spcFile.getSpcBodyList().stream().map(body -> body.getSpcElement(component))
                         .forEach(spcElement -> {
-                            spcElement.applySourceTimeFunction(sourceTimeFunctions.get(event));
+                            if (filterInSpectrum)
+                                spcElement.applyFilter(filter.getFrequencyResponseTable(np, tlen, partialSamplingHz, spcFile.omegai()));
                             spcElement.convertToTimeDomain(npts, partialSamplingHz, spcFile.omegai());
                         });
             }
@@ -452,10 +463,10 @@ public class PartialsBuilder1D extends Operation {
                 }
                 double[] ut = spcFile.getSpcBodyList().get(k).getSpcElement(timewindow.getComponent()).getTimeseries();
 
-                // apply filter
-                double[] filteredUt = filter.applyFilter(ut);
+                // apply filter, unless it has already been applied in frequency domain
+                if (!filterInSpectrum) filter.applyFilterInPlace(ut);
 
-                cutAndWrite(filteredUt, timewindow, currentBodyR, variableType);
+                cutAndWrite(ut, timewindow, currentBodyR, variableType);
             }
         }
         private void buildPartialWaveform(SPCFileAccess shSPCFile, SPCFileAccess psvSPCFile, TimewindowData timewindow, VariableType variableType) {
@@ -478,12 +489,14 @@ public class PartialsBuilder1D extends Operation {
                 if (shUt.length != psvUt.length)
                     throw new RuntimeException("sh and psv timeseries do not have the same length " + shUt.length + " " + psvUt.length);
 
-                // apply filter
-                double[] filteredSHUt = filter.applyFilter(shUt);
-                double[] filteredPSVUt = filter.applyFilter(psvUt);
-                double[] summedUt = new double[filteredSHUt.length];
-                for (int it = 0; it < filteredSHUt.length; it++)
-                    summedUt[it] = filteredSHUt[it] + filteredPSVUt[it];
+                // apply filter, unless it has already been applied in frequency domain
+                if (!filterInSpectrum) {
+                    filter.applyFilterInPlace(shUt);
+                    filter.applyFilterInPlace(psvUt);
+                }
+                double[] summedUt = new double[shUt.length];
+                for (int it = 0; it < shUt.length; it++)
+                    summedUt[it] = shUt[it] + psvUt[it];
 
                 cutAndWrite(summedUt, timewindow, currentBodyR, variableType);
             }
@@ -15,9 +15,9 @@ import org.apache.commons.math3.linear.RealVector;
 import io.github.kensuke1984.kibrary.Summon;
 import io.github.kensuke1984.kibrary.inversion.WeightingHandler;
 import io.github.kensuke1984.kibrary.inversion.setup.DVectorBuilder;
+import io.github.kensuke1984.kibrary.math.WaveformComparison;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowData;
 import io.github.kensuke1984.kibrary.timewindow.TimewindowDataFile;
-import io.github.kensuke1984.kibrary.util.MathAid;
 
 /**
  * Computes variance of {@link BasicIDFile}s, with the specified weighting.
@@ -82,14 +82,12 @@ public class VarianceComputer {
         System.err.println("Setting weighting");
         RealVector[] weighting = weightingHandler.weightWaveforms(dVectorBuilder);
 
-        // assemble d
-        System.err.println("Assembling d vector");
-        RealVector d = dVectorBuilder.buildWithWeight(weighting);
-
-        // compute variance
-        RealVector obs = dVectorBuilder.fullObsVecWithWeight(weighting);
-        double normalizedVariance = MathAid.computeVariance(d, obs);
-        System.err.println("Npts of whole waveform is " + obs.getDimension());
+        // compute variance, accumulating each time window instead of assembling the whole d vector
+        WaveformComparison comparison = new WaveformComparison();
+        for (int i = 0; i < dVectorBuilder.getNTimeWindow(); i++)
+            comparison.addWeighted(dVectorBuilder.getObsVec(i).toArray(), dVectorBuilder.getSynVec(i).toArray(), weighting[i].toArray());
+        double normalizedVariance = comparison.getVariance();
+        System.err.println("Npts of whole waveform is " + comparison.getNpts());
         System.err.println("Normalized variance is " + normalizedVariance);
 
     }
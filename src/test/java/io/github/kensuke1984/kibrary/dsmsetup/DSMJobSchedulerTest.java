@@ -0,0 +1,154 @@
+package io.github.kensuke1984.kibrary.dsmsetup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.github.kensuke1984.kibrary.Property;
+import io.github.kensuke1984.kibrary.util.spc.SPCContainer;
+
+/**
+ * Runs {@link DSMJobScheduler} against stub executables instead of DSM, and checks
+ * the order of jobs, the completion markers, the check of outputs, and retries.
+ * <p>
+ * The stubs are shellscripts, so this must be run on a system with /bin/sh.
+ *
+ * @since 2026/10/18
+ */
+class DSMJobSchedulerTest {
+
+    private static final String HEADER = "PREM";
+
+    public static void main(String[] args) throws IOException {
+        Path root = Files.createTempDirectory("dsmJobScheduler");
+        Path dsmPath = root.resolve("synthetic");
+        Path orderPath = root.resolve("order.txt");
+        // the input file of 201001010000A is the largest, but it has the fewest frequencies
+        createInput(dsmPath.resolve("201001010000A"), 5, 128);
+        createInput(dsmPath.resolve("201002020000B"), 2, 1024);
+        createInput(dsmPath.resolve("201003030000C"), 3, 256);
+        Path writingStub = createStub(root.resolve("writingStub.sh"), orderPath, true);
+        Path lazyStub = createStub(root.resolve("lazyStub.sh"), orderPath, false);
+
+        // jobs run in descending order of (number of frequencies) * (number of receivers)
+        run(root, dsmPath, writingStub);
+        check(readOrder(orderPath).equals(Arrays.asList("201002020000B", "201003030000C", "201001010000A")),
+                "jobs were run in the order " + readOrder(orderPath));
+        for (String event : Arrays.asList("201001010000A", "201002020000B", "201003030000C"))
+            check(Files.exists(donePath(dsmPath, event)), event + " is not marked done.");
+
+        // completed jobs are skipped
+        Files.delete(orderPath);
+        run(root, dsmPath, writingStub);
+        check(readOrder(orderPath).isEmpty(), "completed jobs were run again: " + readOrder(orderPath));
+
+        // a job marked done whose output has been deleted is run again
+        Files.delete(dsmPath.resolve("201003030000C").resolve(HEADER).resolve("STA1_NET.201003030000C.SH.spc"));
+        run(root, dsmPath, writingStub);
+        check(readOrder(orderPath).equals(Collections.singletonList("201003030000C")),
+                "jobs run after deleting an output: " + readOrder(orderPath));
+
+        // outputs packed in a container are regarded as existing
+        Files.delete(orderPath);
+        SPCContainer.pack(dsmPath.resolve("201002020000B").resolve(HEADER), true);
+        run(root, dsmPath, writingStub);
+        check(readOrder(orderPath).isEmpty(), "jobs with packed outputs were run again: " + readOrder(orderPath));
+
+        // a job that exits normally without outputs fails, after being retried, and is not marked done
+        createInput(dsmPath.resolve("201004040000D"), 1, 64);
+        run(root, dsmPath, lazyStub);
+        check(readOrder(orderPath).equals(Arrays.asList("201004040000D", "201004040000D")),
+                "jobs run by the stub without outputs: " + readOrder(orderPath));
+        check(!Files.exists(donePath(dsmPath, "201004040000D")), "a job without outputs is marked done.");
+        try (Stream<Path> stream = Files.list(root)) {
+            check(stream.anyMatch(path -> path.getFileName().toString().startsWith("failedDSMJobs")),
+                    "the failed job is not listed.");
+        }
+
+        System.err.println("DSMJobScheduler passed all checks in " + root);
+    }
+
+    private static void run(Path root, Path dsmPath, Path stub) throws IOException {
+        Property property = new Property();
+        property.setProperty("workPath", root.toString());
+        property.setProperty("dsmPath", dsmPath.toString());
+        property.setProperty("header", HEADER);
+        property.setProperty("usableSPCMode", "SH");
+        property.setProperty("programSH", stub.toString());
+        property.setProperty("mpi", "false");
+        property.setProperty("maxCores", "1");
+        property.setProperty("nRetry", "1");
+        DSMJobScheduler scheduler = new DSMJobScheduler(property);
+        scheduler.set();
+        scheduler.run();
+    }
+
+    /**
+     * Writes an input file in the same form as {@link SyntheticDSMInputFile#writeSH(Path, java.nio.file.OpenOption...)}
+     * with a dummy structure.
+     */
+    private static void createInput(Path eventPath, int nStation, int imax) throws IOException {
+        Files.createDirectories(eventPath.resolve(HEADER));
+        String event = eventPath.getFileName().toString();
+        List<String> lines = new ArrayList<>();
+        lines.addAll(Arrays.asList(new DSMInputHeader(3276.8, 1024, 0, imax, 1e-2, 1e-10, 1e-5, 1e-2).outputDSMHeader()));
+        lines.add("1 nzone");
+        lines.add("c  - Radius (km) -    --- Density (g/cm^3) ---");
+        lines.add("3480.0 6371.0 5.0 0.0 0.0 0.0");
+        lines.add("          6.0 0.0 0.0 0.0");
+        lines.add("          6.0 0.0 0.0 0.0 600.0");
+        lines.add("c parameter for the source");
+        lines.add("6271.0 0.0 0.0 r0(km), lat, lon (deg)");
+        lines.add("1.0 0.0 0.0 0.0 0.0 0.0 Moment Tensor (1.e25 dyne cm)");
+        lines.add("c parameter for the station");
+        lines.add("c the number of stations");
+        lines.add(nStation + " nsta");
+        lines.add("c latitude longitude (deg)");
+        for (int i = 0; i < nStation; i++) lines.add("10.0 " + (30.0 + i));
+        lines.add("c parameter for the write file");
+        for (int i = 0; i < nStation; i++) lines.add(HEADER + "/STA" + i + "_NET." + event + ".SH.spc");
+        lines.add("end");
+        Files.write(eventPath.resolve(HEADER + "_SH.inf"), lines);
+    }
+
+    /**
+     * Creates a stub of DSM, which records the name of the folder it is run in,
+     * and writes the output files listed in the input file if writeOutputs is true.
+     */
+    private static Path createStub(Path stubPath, Path orderPath, boolean writeOutputs) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("#!/bin/sh");
+        lines.add("basename \"$PWD\" >> '" + orderPath + "'");
+        lines.add("writing=0");
+        lines.add("while read -r line; do");
+        lines.add("  if [ \"$line\" = \"end\" ]; then break; fi");
+        if (writeOutputs) lines.add("  if [ $writing = 1 ]; then echo stub > \"$line\"; fi");
+        lines.add("  if [ \"$line\" = \"c parameter for the write file\" ]; then writing=1; fi");
+        lines.add("done");
+        lines.add("exit 0");
+        Files.write(stubPath, lines);
+        Files.setPosixFilePermissions(stubPath, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return stubPath;
+    }
+
+    private static List<String> readOrder(Path orderPath) throws IOException {
+        if (!Files.exists(orderPath)) return Collections.emptyList();
+        return Files.readAllLines(orderPath).stream().filter(line -> !line.isEmpty()).collect(Collectors.toList());
+    }
+
+    private static Path donePath(Path dsmPath, String event) {
+        return dsmPath.resolve(event).resolve(HEADER + "_SH.inf" + DSMJobScheduler.DONE_SUFFIX);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+
+}
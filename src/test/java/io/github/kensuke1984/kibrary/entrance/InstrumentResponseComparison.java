@@ -0,0 +1,131 @@
+package io.github.kensuke1984.kibrary.entrance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import io.github.kensuke1984.kibrary.external.ExternalProcess;
+
+/**
+ * Compares the amplitude and phase of {@link InstrumentResponse} with those output by evalresp.
+ * <p>
+ * Usage: InstrumentResponseComparison responseFile network station location channel time [ampFile phaseFile]
+ * <ul>
+ * <li> responseFile: RESP file, or StationXML file if its name ends with ".xml" </li>
+ * <li> location: location code, or "--" if blank </li>
+ * <li> time: time to get the response for, such as "2014-07-21T14:44:00" </li>
+ * <li> ampFile, phaseFile: outputs of "evalresp ... -r ap -u vel" (AMP.* and PHASE.*) for the channel </li>
+ * </ul>
+ * If ampFile and phaseFile are not given, evalresp is run in a temporary folder with
+ * "-s log -r ap -u vel" for {@link #N_FREQUENCY} frequencies from {@link #MIN_FREQUENCY} to {@link #MAX_FREQUENCY} [Hz]
+ * ("-x" is added for StationXML files), which requires evalresp in your PATH.
+ * <p>
+ * The comparison should be done for at least one RESP file and one StationXML file of channels with FIR stages,
+ * since the normalization of FIR filters and the correction of their delays are where implementations tend to differ.
+ * Frequencies above 80% of the Nyquist frequency of the channel should be excluded from the files given,
+ * as the response there depends on how the final FIR stage is treated and is not used in deconvolution.
+ * <p>
+ * The amplitudes agree when their relative difference is within {@link #AMPLITUDE_TOLERANCE},
+ * and the phases agree when their difference is within {@link #PHASE_TOLERANCE} [deg].
+ *
+ * @since 2026/10/18
+ */
+class InstrumentResponseComparison {
+
+    private static final double AMPLITUDE_TOLERANCE = 1e-3;
+    private static final double PHASE_TOLERANCE = 0.1;
+    private static final double MIN_FREQUENCY = 0.001;
+    private static final double MAX_FREQUENCY = 5;
+    private static final int N_FREQUENCY = 200;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 6 && args.length != 8)
+            throw new IllegalArgumentException(
+                    "Usage: responseFile network station location channel time [ampFile phaseFile]");
+        Path responsePath = Paths.get(args[0]);
+        String network = args[1];
+        String station = args[2];
+        String location = args[3].equals("--") ? "" : args[3];
+        String channel = args[4];
+        LocalDateTime time = LocalDateTime.parse(args[5]);
+        boolean isXml = responsePath.getFileName().toString().endsWith(".xml");
+
+        Path ampPath;
+        Path phasePath;
+        if (args.length == 8) {
+            ampPath = Paths.get(args[6]);
+            phasePath = Paths.get(args[7]);
+        } else {
+            if (!ExternalProcess.isInPath("evalresp")) {
+                System.err.println("evalresp is not in PATH; give AMP and PHASE files output by evalresp.");
+                return;
+            }
+            Path workPath = Files.createTempDirectory("evalresp");
+            String command = "evalresp " + station + " " + channel + " " + time.getYear() + " " + time.getDayOfYear()
+                    + " " + MIN_FREQUENCY + " " + MAX_FREQUENCY + " " + N_FREQUENCY
+                    + " -n " + network + " -l " + (location.isEmpty() ? "--" : location)
+                    + " -t " + String.format("%02d:%02d:%02d", time.getHour(), time.getMinute(), time.getSecond())
+                    + " -f " + responsePath.toAbsolutePath()
+                    + " -s log -r ap -u vel" + (isXml ? " -x" : "");
+            if (ExternalProcess.launch(command, workPath).waitFor() != 0)
+                throw new IllegalStateException("evalresp failed: " + command);
+            String suffix = String.join(".", network, station, location, channel);
+            ampPath = workPath.resolve("AMP." + suffix);
+            phasePath = workPath.resolve("PHASE." + suffix);
+        }
+
+        InstrumentResponse response = isXml
+                ? InstrumentResponse.fromStationXml(responsePath, network, station, location, channel, time)
+                : InstrumentResponse.fromRespFile(responsePath, network, station, location, channel, time);
+        double[][] amp = readTwoColumns(ampPath);
+        double[][] phase = readTwoColumns(phasePath);
+        if (amp[0].length != phase[0].length)
+            throw new IllegalStateException("Numbers of lines differ between " + ampPath + " and " + phasePath);
+
+        double[] real = new double[amp[0].length];
+        double[] imag = new double[amp[0].length];
+        response.evaluateVelocityResponse(amp[0], real, imag);
+
+        double maxAmplitudeDiff = 0;
+        double maxPhaseDiff = 0;
+        int nFailed = 0;
+        for (int i = 0; i < amp[0].length; i++) {
+            if (Math.abs(amp[0][i] - phase[0][i]) > 1e-6 * amp[0][i])
+                throw new IllegalStateException("Frequencies differ at line " + (i + 1) + " of " + ampPath + " and " + phasePath);
+            double amplitudeDiff = Math.abs(Math.hypot(real[i], imag[i]) - amp[1][i]) / amp[1][i];
+            double phaseDiff = Math.abs(Math.toDegrees(Math.atan2(imag[i], real[i])) - phase[1][i]) % 360;
+            phaseDiff = Math.min(phaseDiff, 360 - phaseDiff);
+            maxAmplitudeDiff = Math.max(maxAmplitudeDiff, amplitudeDiff);
+            maxPhaseDiff = Math.max(maxPhaseDiff, phaseDiff);
+            if (!(amplitudeDiff <= AMPLITUDE_TOLERANCE && phaseDiff <= PHASE_TOLERANCE)) {
+                System.err.printf("!! %.6e Hz: amplitude %.6e (evalresp %.6e), phase %.4f (evalresp %.4f)%n", amp[0][i],
+                        Math.hypot(real[i], imag[i]), amp[1][i], Math.toDegrees(Math.atan2(imag[i], real[i])), phase[1][i]);
+                nFailed++;
+            }
+        }
+        System.err.printf("%s: %d frequencies, maximum relative difference of amplitude %.2e, maximum difference of phase %.2e deg%n",
+                String.join(".", network, station, location, channel), amp[0].length, maxAmplitudeDiff, maxPhaseDiff);
+        if (nFailed > 0) throw new IllegalStateException(nFailed + " frequencies differ from evalresp.");
+    }
+
+    /**
+     * @param path (Path) File with lines of "frequency value".
+     * @return (double[][]) {frequencies, values}
+     * @throws IOException
+     */
+    private static double[][] readTwoColumns(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path);
+        lines.removeIf(line -> line.trim().isEmpty());
+        double[][] columns = new double[2][lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            String[] parts = lines.get(i).trim().split("\\s+");
+            columns[0][i] = Double.parseDouble(parts[0]);
+            columns[1][i] = Double.parseDouble(parts[1]);
+        }
+        return columns;
+    }
+
+}
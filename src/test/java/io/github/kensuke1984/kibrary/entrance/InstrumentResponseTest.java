@@ -0,0 +1,162 @@
+package io.github.kensuke1984.kibrary.entrance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks {@link InstrumentResponse} with a RESP file whose response can be computed by hand,
+ * and checks that responses are cached for each file and that unsupported stages matter only for their epochs.
+ * <p>
+ * The channel has a seismometer (2 zeros at 0, 2 poles, gain 1500), a digitizer (gain 400000),
+ * and a FIR filter {0.25, 0.5, 0.25} whose delay of 1 sample is corrected.
+ * Its velocity response is thus 6e8 * s<sup>2</sup>/((s-p1)(s-p2)) * (1 + cos(2&pi;f/20)) / 2.
+ * See {@link InstrumentResponseComparison} for comparisons with evalresp.
+ *
+ * @since 2026/10/18
+ */
+class InstrumentResponseTest {
+
+    private static final double[][] POLES = {{-3.7004e-2, 3.7016e-2}, {-3.7004e-2, -3.7016e-2}};
+    private static final LocalDateTime TIME = LocalDateTime.of(2010, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws IOException {
+        Path respPath = Files.createTempDirectory("instrumentResponse").resolve("RESP.XX.TST..BHZ");
+
+        // analytic response
+        Files.write(respPath, respLines(1500, false));
+        InstrumentResponse response = InstrumentResponse.fromRespFile(respPath, "XX", "TST", "", "BHZ", TIME);
+        double[] frequencies = {0.001, 0.01, 0.1, 1, 5, 9.9};
+        double[] real = new double[frequencies.length];
+        double[] imag = new double[frequencies.length];
+        response.evaluateVelocityResponse(frequencies, real, imag);
+        for (int i = 0; i < frequencies.length; i++) {
+            double[] expected = expected(frequencies[i], 1500);
+            double scale = Math.hypot(expected[0], expected[1]);
+            check(Math.hypot(real[i] - expected[0], imag[i] - expected[1]) <= 1e-9 * scale,
+                    "response at " + frequencies[i] + " Hz is " + real[i] + "+" + imag[i] + "i, not "
+                            + expected[0] + "+" + expected[1] + "i");
+        }
+        check(InstrumentResponse.fromRespFile(respPath, "XX", "TST", "", "BHZ", TIME) == response,
+                "the response of an unmodified file is not reused.");
+
+        // a modified file is read again
+        Files.write(respPath, respLines(3000, false));
+        Files.setLastModifiedTime(respPath, FileTime.fromMillis(Files.getLastModifiedTime(respPath).toMillis() + 2000));
+        InstrumentResponse modified = InstrumentResponse.fromRespFile(respPath, "XX", "TST", "", "BHZ", TIME);
+        modified.evaluateVelocityResponse(frequencies, real, imag);
+        double[] expected = expected(frequencies[3], 3000);
+        check(Math.abs(Math.hypot(real[3], imag[3]) / Math.hypot(expected[0], expected[1]) - 1) < 1e-9,
+                "the modified file is not read again.");
+        check(modified.computeVelocityResponse(1024, 20) != response.computeVelocityResponse(1024, 20),
+                "the spectrum of the old file is used for the modified file.");
+
+        // another file of the same channel epoch is not confused with the first one
+        Path otherPath = respPath.resolveSibling("RESP.other");
+        Files.write(otherPath, respLines(1500, false));
+        InstrumentResponse other = InstrumentResponse.fromRespFile(otherPath, "XX", "TST", "", "BHZ", TIME);
+        other.evaluateVelocityResponse(frequencies, real, imag);
+        expected = expected(frequencies[3], 1500);
+        check(Math.abs(Math.hypot(real[3], imag[3]) / Math.hypot(expected[0], expected[1]) - 1) < 1e-9,
+                "the response of another file of the same channel epoch is reused.");
+
+        // an unsupported stage in an earlier epoch
+        Path mixedPath = respPath.resolveSibling("RESP.mixed");
+        Files.write(mixedPath, respLines(1500, true));
+        check(InstrumentResponse.fromRespFile(mixedPath, "XX", "TST", "", "BHZ", TIME) != null, "no response");
+        try {
+            InstrumentResponse.fromRespFile(mixedPath, "XX", "TST", "", "BHZ", LocalDateTime.of(1995, 1, 1, 0, 0));
+            throw new IllegalStateException("the epoch with a polynomial stage is used.");
+        } catch (IllegalArgumentException e) {
+            check(e.getMessage().contains("B062"), e.getMessage());
+        }
+
+        System.err.println("InstrumentResponse passed all checks in " + respPath.getParent());
+    }
+
+    /**
+     * @param f (double) Frequency [Hz].
+     * @param seismometerGain (double) Gain of stage 1.
+     * @return (double[]) {real, imaginary} of the response.
+     */
+    private static double[] expected(double f, double seismometerGain) {
+        double omega = 2 * Math.PI * f;
+        // s^2 / ((s-p1)(s-p2)), s = i*omega
+        double[] value = {-omega * omega, 0};
+        for (double[] pole : POLES) {
+            double re = -pole[0];
+            double im = omega - pole[1];
+            double norm = re * re + im * im;
+            value = new double[] {(value[0] * re + value[1] * im) / norm, (value[1] * re - value[0] * im) / norm};
+        }
+        double factor = seismometerGain * 4e5 * (1 + Math.cos(omega / 20)) / 2;
+        return new double[] {value[0] * factor, value[1] * factor};
+    }
+
+    private static List<String> respLines(double seismometerGain, boolean withPolynomialEpoch) {
+        List<String> lines = new ArrayList<>();
+        if (withPolynomialEpoch) {
+            lines.addAll(epochLines("1990,001,00:00:00.0000", "2000,001,00:00:00.0000"));
+            lines.addAll(Arrays.asList(
+                    "B062F03     Transfer function type:                P",
+                    "B062F04     Stage sequence number:                 1",
+                    "B062F05     Response in units lookup:              M/S - Velocity in Meters Per Second"));
+        }
+        lines.addAll(epochLines("2000,001,00:00:00.0000", "No Ending Time"));
+        lines.addAll(Arrays.asList(
+                "B053F03     Transfer function type:                A [Laplace Transform (Rad/sec)]",
+                "B053F04     Stage sequence number:                 1",
+                "B053F05     Response in units lookup:              M/S - Velocity in Meters Per Second",
+                "B053F06     Response out units lookup:             V - Volts",
+                "B053F07     A0 normalization factor:               1.0",
+                "B053F08     Normalization frequency:               1.0",
+                "B053F09     Number of zeroes:                      2",
+                "B053F10-13    0  0.000000E+00  0.000000E+00  0.000000E+00  0.000000E+00",
+                "B053F10-13    1  0.000000E+00  0.000000E+00  0.000000E+00  0.000000E+00",
+                "B053F14     Number of poles:                       2",
+                "B053F15-18    0 " + POLES[0][0] + " " + POLES[0][1] + "  0.000000E+00  0.000000E+00",
+                "B053F15-18    1 " + POLES[1][0] + " " + POLES[1][1] + "  0.000000E+00  0.000000E+00",
+                "B058F03     Stage sequence number:                 1",
+                "B058F04     Gain:                                  " + seismometerGain,
+                "B054F03     Transfer function type:                D",
+                "B054F04     Stage sequence number:                 2",
+                "B054F05     Response in units lookup:              V - Volts",
+                "B054F06     Response out units lookup:             COUNTS - Digital Counts",
+                "B057F03     Stage sequence number:                 2",
+                "B057F04     Input sample rate (HZ):                2.0000E+01",
+                "B057F08     Correction applied (seconds):          0.0000E+00",
+                "B058F03     Stage sequence number:                 2",
+                "B058F04     Gain:                                  4.000000E+05",
+                "B061F03     Stage sequence number:                   3",
+                "B061F05     Symmetry Code:                           B",
+                "B061F06     Response in units lookup:                COUNTS - Digital Counts",
+                "B061F09    0  2.500000E-01",
+                "B061F09    1  5.000000E-01",
+                "B057F03     Stage sequence number:                 3",
+                "B057F04     Input sample rate (HZ):                2.0000E+01",
+                "B057F08     Correction applied (seconds):          5.0000E-02",
+                "B058F03     Stage sequence number:                 3",
+                "B058F04     Gain:                                  1.000000E+00"));
+        return lines;
+    }
+
+    private static List<String> epochLines(String start, String end) {
+        return Arrays.asList(
+                "B050F03     Station:     TST",
+                "B050F16     Network:     XX",
+                "B052F03     Location:    ??",
+                "B052F04     Channel:     BHZ",
+                "B052F22     Start date:  " + start,
+                "B052F23     End date:    " + end);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+
+}
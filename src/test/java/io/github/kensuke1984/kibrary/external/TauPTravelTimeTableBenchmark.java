@@ -0,0 +1,113 @@
+package io.github.kensuke1984.kibrary.external;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.sc.seis.TauP.Arrival;
+import edu.sc.seis.TauP.TauModelException;
+import edu.sc.seis.TauP.TauP_Time;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable.TravelTime;
+
+/**
+ * Compares travel times interpolated by {@link TauPTravelTimeTable} with those computed by {@link TauP_Time}
+ * on a grid of source depth and epicentral distance placed between the nodes of the table,
+ * and measures the time of queries.
+ * <p>
+ * Usage: TauPTravelTimeTableBenchmark [structureName [phaseName ...]]
+ * <p>
+ * Each interpolated arrival is matched with the TauP arrival of the same phase and arc that is closest in time,
+ * and the numbers of arrivals of each phase and arc must agree.
+ * The maximum difference of all arrivals and of the first arrival (which is used for alignment) must be within {@link #TOLERANCE} [s].
+ * Points where the table returns null are counted; TauP is used there by callers.
+ *
+ * @since 2026/10/18
+ */
+class TauPTravelTimeTableBenchmark {
+
+    private static final double TOLERANCE = 0.01;
+    private static final double MIN_DEPTH = 0;
+    private static final double MAX_DEPTH = 700;
+    /**
+     * Intervals of the test grid, chosen so that points fall between nodes of the table.
+     */
+    private static final double DEPTH_INTERVAL = 7.3;
+    private static final double DISTANCE_INTERVAL = 0.37;
+
+    public static void main(String[] args) throws TauModelException {
+        String structureName = args.length > 0 ? args[0] : "prem";
+        String[] phaseNames = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[] {"P", "S", "ScS", "sS", "SKS"};
+
+        long startBuild = System.nanoTime();
+        TauPTravelTimeTable table = TauPTravelTimeTable.build(structureName, phaseNames, MIN_DEPTH, MAX_DEPTH,
+                TauPTravelTimeTable.DEFAULT_DEPTH_STEP, TauPTravelTimeTable.DEFAULT_DISTANCE_STEP);
+        System.err.printf("Built a table of %s for %s in %.1f s.%n", structureName, String.join(",", phaseNames),
+                (System.nanoTime() - startBuild) * 1e-9);
+
+        TauP_Time timeTool = new TauP_Time(structureName);
+        timeTool.setPhaseNames(phaseNames);
+        int nPoint = 0;
+        int nNull = 0;
+        int nMismatch = 0;
+        double maxDiff = 0;
+        double maxFirstDiff = 0;
+        String worst = "";
+        long tableNanos = 0;
+        long taupNanos = 0;
+        for (double depth = MIN_DEPTH + 1.1; depth < MAX_DEPTH; depth += DEPTH_INTERVAL) {
+            long start = System.nanoTime();
+            timeTool.setSourceDepth(depth);
+            timeTool.depthCorrect(depth, timeTool.getReceiverDepth());
+            taupNanos += System.nanoTime() - start;
+            for (double distance = 0.13; distance < 180; distance += DISTANCE_INTERVAL) {
+                nPoint++;
+                start = System.nanoTime();
+                List<TravelTime> interpolated = table.arrivals(depth, distance);
+                tableNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                timeTool.calculate(distance);
+                List<Arrival> computed = new ArrayList<>(timeTool.getArrivals());
+                taupNanos += System.nanoTime() - start;
+                if (interpolated == null) {
+                    nNull++;
+                    continue;
+                }
+                computed.removeIf(arrival -> 16 <= arcOf(arrival.getDistDeg()));
+                if (interpolated.size() != computed.size()) {
+                    nMismatch++;
+                    System.err.printf("!! depth %.1f, distance %.2f: %d arrivals (TauP %d)%n", depth, distance,
+                            interpolated.size(), computed.size());
+                    continue;
+                }
+                if (!computed.isEmpty()) {
+                    double firstDiff = Math.abs(interpolated.get(0).getTime() - computed.get(0).getTime());
+                    maxFirstDiff = Math.max(maxFirstDiff, firstDiff);
+                }
+                for (TravelTime travelTime : interpolated) {
+                    double diff = Double.POSITIVE_INFINITY;
+                    for (Arrival arrival : computed)
+                        if (arrival.getPhase().getName().equals(travelTime.getPhaseName())
+                                && arcOf(arrival.getDistDeg()) == arcOf(travelTime.getDistDeg()))
+                            diff = Math.min(diff, Math.abs(arrival.getTime() - travelTime.getTime()));
+                    if (diff > maxDiff) {
+                        maxDiff = diff;
+                        worst = String.format("%s at depth %.1f, distance %.2f", travelTime.getPhaseName(), depth, distance);
+                    }
+                }
+            }
+        }
+        System.err.printf("%d points: %d interpolated (%d with different numbers of arrivals), %d left to TauP%n",
+                nPoint, nPoint - nNull, nMismatch, nNull);
+        System.err.printf("Maximum difference: %.2e s for all arrivals (%s), %.2e s for the first arrival%n",
+                maxDiff, worst, maxFirstDiff);
+        System.err.printf("Time per point: table %.2f us, TauP %.2f us (including depth corrections)%n",
+                tableNanos * 1e-3 / nPoint, taupNanos * 1e-3 / nPoint);
+        if (nMismatch > 0 || !(maxDiff <= TOLERANCE) || !(maxFirstDiff <= TOLERANCE))
+            throw new IllegalStateException("Interpolated travel times differ from TauP.");
+    }
+
+    private static int arcOf(double distDeg) {
+        return (int) Math.floor(distDeg / 180);
+    }
+
+}
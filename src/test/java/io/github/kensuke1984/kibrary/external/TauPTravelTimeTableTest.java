@@ -0,0 +1,52 @@
+package io.github.kensuke1984.kibrary.external;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.sc.seis.TauP.TauModelException;
+import io.github.kensuke1984.kibrary.external.TauPTravelTimeTable.TravelTime;
+
+/**
+ * Checks that {@link TauPTravelTimeTable#prepare(Path, String, String[], double, double)} does not reuse
+ * a table file built for other phases, since the first arrival of the table is used for alignment.
+ *
+ * @since 2026/10/18
+ */
+class TauPTravelTimeTableTest {
+
+    public static void main(String[] args) throws IOException, TauModelException {
+        Path tablePath = Files.createTempDirectory("travelTimeTable").resolve("travelTimeTable.bin");
+
+        // a table for more phases is not reused
+        TauPTravelTimeTable sScS = TauPTravelTimeTable.prepare(tablePath, "prem", new String[] {"S", "ScS"}, 10, 20);
+        check(firstPhase(sScS).equals("S"), "first arrival of the table for S,ScS is " + firstPhase(sScS));
+        TauPTravelTimeTable scs = TauPTravelTimeTable.prepare(tablePath, "prem", new String[] {"ScS"}, 10, 20);
+        check(firstPhase(scs).equals("ScS"), "first arrival of the table for ScS is " + firstPhase(scs));
+        for (TravelTime travelTime : scs.arrivals(15, 50))
+            check(travelTime.getPhaseName().equals("ScS"), "the table for ScS gives " + travelTime.getPhaseName());
+
+        // the same set of phases, in a different order, is reused from the file
+        TauPTravelTimeTable.prepare(tablePath, "prem", new String[] {"S", "ScS"}, 10, 20);
+        long modified = Files.getLastModifiedTime(tablePath).toMillis();
+        TauPTravelTimeTable.prepare(tablePath, "prem", new String[] {"ScS", "S"}, 12, 18);
+        check(Files.getLastModifiedTime(tablePath).toMillis() == modified, "the table for the same phases was built again.");
+        check(!TauPTravelTimeTable.read(tablePath).covers("prem", Arrays.asList("ScS"), 12, 18),
+                "a table for S,ScS covers ScS only.");
+
+        System.err.println("TauPTravelTimeTable passed all checks in " + tablePath.getParent());
+    }
+
+    private static String firstPhase(TauPTravelTimeTable table) {
+        List<TravelTime> arrivals = table.arrivals(15, 50);
+        if (arrivals == null || arrivals.isEmpty()) throw new IllegalStateException("No arrivals interpolated at 15 km, 50 deg.");
+        return arrivals.get(0).getPhaseName();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+
+}
@@ -0,0 +1,61 @@
+package io.github.kensuke1984.kibrary.filter;
+
+import java.util.Random;
+
+import org.apache.commons.math3.complex.Complex;
+
+/**
+ * Compares {@link ButterworthFilter#applyFilterInPlace(double[])} with {@link ButterworthFilter#applyFilter(Complex[])}
+ * in the difference of results and the number of samples filtered per second.
+ *
+ * @since 2026/10/18
+ */
+class ButterworthFilterBenchmark {
+
+    public static void main(String[] args) {
+        int npts = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 16;
+        int nRepeat = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        double samplingHz = 20;
+        double omegaH = 2 * Math.PI / 8 / samplingHz;
+        double omegaL = 2 * Math.PI / 200 / samplingHz;
+
+        Random random = new Random(0);
+        double[] data = new double[npts];
+        for (int i = 0; i < npts; i++)
+            data[i] = random.nextGaussian();
+
+        ButterworthFilter[] filters = {new BandPassFilter(omegaH, omegaL, 4), new LowPassFilter(omegaH, 5),
+                new HighPassFilter(omegaL, 5), new BandStopFilter(omegaH, omegaL, 3)};
+        for (ButterworthFilter filter : filters) {
+            Complex[] cdata = new Complex[npts];
+            for (int i = 0; i < npts; i++)
+                cdata[i] = Complex.valueOf(data[i]);
+            Complex[] expected = filter.applyFilter(cdata);
+            double[] actual = data.clone();
+            filter.applyFilterInPlace(actual);
+            double maxDiff = 0;
+            double maxAmp = 0;
+            for (int i = 0; i < npts; i++) {
+                maxDiff = Math.max(maxDiff, Math.abs(expected[i].getReal() - actual[i]));
+                maxAmp = Math.max(maxAmp, Math.abs(expected[i].getReal()));
+            }
+
+            long t0 = System.nanoTime();
+            for (int k = 0; k < nRepeat; k++)
+                filter.applyFilter(cdata);
+            double complexRate = (double) npts * nRepeat / ((System.nanoTime() - t0) * 1e-9);
+
+            double[] buffer = new double[npts];
+            t0 = System.nanoTime();
+            for (int k = 0; k < nRepeat; k++) {
+                System.arraycopy(data, 0, buffer, 0, npts);
+                filter.applyFilterInPlace(buffer);
+            }
+            double primitiveRate = (double) npts * nRepeat / ((System.nanoTime() - t0) * 1e-9);
+
+            System.out.printf("%s: relative difference %.2e, Complex %.3e samples/s, primitive %.3e samples/s (x%.1f)%n",
+                    filter.getClass().getSimpleName(), maxDiff / maxAmp, complexRate, primitiveRate, primitiveRate / complexRate);
+        }
+    }
+
+}
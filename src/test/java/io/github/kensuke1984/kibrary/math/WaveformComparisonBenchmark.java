@@ -0,0 +1,79 @@
+package io.github.kensuke1984.kibrary.math;
+
+import java.util.Random;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+
+/**
+ * Compares {@link WaveformComparison} with the separate {@link RealVector} operations formerly used in DataFeature
+ * in the difference of results and the number of windows processed per second.
+ *
+ * @since 2026/10/18
+ */
+class WaveformComparisonBenchmark {
+
+    public static void main(String[] args) {
+        int npts = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int nWindow = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int nRepeat = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Random random = new Random(0);
+        double[][] obs = new double[nWindow][npts];
+        double[][] syn = new double[nWindow][npts];
+        for (int k = 0; k < nWindow; k++) {
+            for (int i = 0; i < npts; i++) {
+                double signal = Math.sin(2 * Math.PI * i / 50.0);
+                obs[k][i] = signal + 0.3 * random.nextGaussian();
+                syn[k][i] = 0.8 * signal + 0.1 * random.nextGaussian();
+            }
+        }
+
+        // difference of results
+        double maxDiff = 0;
+        for (int k = 0; k < nWindow; k++) {
+            double[] expected = vectorFeatures(obs[k], syn[k]);
+            double[] actual = fusedFeatures(obs[k], syn[k]);
+            for (int j = 0; j < expected.length; j++)
+                maxDiff = Math.max(maxDiff, Math.abs(expected[j] - actual[j]));
+        }
+
+        double sink = 0;
+        double vectorRate = 0;
+        double fusedRate = 0;
+        for (int r = 0; r < nRepeat; r++) {
+            long t0 = System.nanoTime();
+            for (int k = 0; k < nWindow; k++)
+                sink += vectorFeatures(obs[k], syn[k])[0];
+            vectorRate = nWindow / ((System.nanoTime() - t0) * 1e-9);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < nWindow; k++)
+                sink += fusedFeatures(obs[k], syn[k])[0];
+            fusedRate = nWindow / ((System.nanoTime() - t0) * 1e-9);
+        }
+
+        System.out.printf("%d points: maximum difference %.2e, RealVector %.3e windows/s, fused %.3e windows/s (x%.1f) [%.1f]%n",
+                npts, maxDiff, vectorRate, fusedRate, fusedRate / vectorRate, sink / nRepeat / nWindow);
+    }
+
+    private static double[] vectorFeatures(double[] obs, double[] syn) {
+        RealVector obsU = new ArrayRealVector(obs, false);
+        RealVector synU = new ArrayRealVector(syn, false);
+        RealVector resid = obsU.subtract(synU);
+        double variance = resid.dotProduct(resid) / obsU.dotProduct(obsU);
+        double posSideRatio = synU.getMaxValue() / obsU.getMaxValue();
+        double negSideRatio = synU.getMinValue() / obsU.getMinValue();
+        double absRatio = synU.getLInfNorm() / obsU.getLInfNorm();
+        double correlation = obsU.dotProduct(synU) / (synU.getNorm() * obsU.getNorm());
+        double signal = obsU.getNorm();
+        return new double[] {variance, posSideRatio, negSideRatio, absRatio, correlation, signal};
+    }
+
+    private static double[] fusedFeatures(double[] obs, double[] syn) {
+        WaveformComparison comparison = WaveformComparison.of(obs, syn);
+        return new double[] {comparison.getVariance(), comparison.getPosSideRatio(), comparison.getNegSideRatio(),
+                comparison.getAbsRatio(), comparison.getCorrelation(), comparison.getObsNorm()};
+    }
+
+}
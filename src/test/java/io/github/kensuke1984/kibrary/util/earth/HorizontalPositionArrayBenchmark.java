@@ -0,0 +1,92 @@
+package io.github.kensuke1984.kibrary.util.earth;
+
+import java.util.Random;
+
+/**
+ * Compares {@link HorizontalPositionArray} with the per-pair methods in {@link Earth}
+ * in the difference of results and the number of pairs processed per second.
+ *
+ * @since 2026/10/18
+ */
+class HorizontalPositionArrayBenchmark {
+
+    public static void main(String[] args) {
+        int nSource = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int nReceiver = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int nRepeat = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Random random = new Random(0);
+        HorizontalPosition[] sources = randomPositions(random, nSource);
+        HorizontalPosition[] receivers = randomPositions(random, nReceiver);
+        HorizontalPositionArray receiverArray = new HorizontalPositionArray(receivers);
+
+        // difference of results
+        double maxDistanceDiff = 0;
+        double maxAzimuthDiff = 0;
+        double maxBackAzimuthDiff = 0;
+        for (HorizontalPosition source : sources) {
+            double[] distances = receiverArray.computeEpicentralDistanceRad(source);
+            double[] azimuths = receiverArray.computeAzimuthRad(source);
+            double[] backAzimuths = receiverArray.computeBackAzimuthRad(source);
+            for (int j = 0; j < nReceiver; j++) {
+                maxDistanceDiff = Math.max(maxDistanceDiff,
+                        Math.abs(distances[j] - Earth.computeEpicentralDistanceRad(source, receivers[j])));
+                maxAzimuthDiff = Math.max(maxAzimuthDiff,
+                        angleDifference(azimuths[j], Earth.computeAzimuthRad(source, receivers[j])));
+                maxBackAzimuthDiff = Math.max(maxBackAzimuthDiff,
+                        angleDifference(backAzimuths[j], Earth.computeBackAzimuthRad(source, receivers[j])));
+            }
+        }
+
+        double sink = 0;
+        double[] perPairRate = new double[2];
+        double[] batchRate = new double[2];
+        double nPair = (double) nSource * nReceiver;
+        for (int r = 0; r < nRepeat; r++) {
+            long t0 = System.nanoTime();
+            for (HorizontalPosition source : sources)
+                for (HorizontalPosition receiver : receivers)
+                    sink += Earth.computeEpicentralDistanceRad(source, receiver);
+            perPairRate[0] = nPair / ((System.nanoTime() - t0) * 1e-9);
+
+            t0 = System.nanoTime();
+            HorizontalPositionArray sourceArray = new HorizontalPositionArray(sources);
+            double[][] distances = new HorizontalPositionArray(receivers).computeEpicentralDistanceRad(sourceArray);
+            batchRate[0] = nPair / ((System.nanoTime() - t0) * 1e-9);
+            sink += distances[0][0];
+
+            t0 = System.nanoTime();
+            for (HorizontalPosition source : sources)
+                for (HorizontalPosition receiver : receivers)
+                    sink += Earth.computeAzimuthRad(source, receiver);
+            perPairRate[1] = nPair / ((System.nanoTime() - t0) * 1e-9);
+
+            t0 = System.nanoTime();
+            sourceArray = new HorizontalPositionArray(sources);
+            double[][] azimuths = new HorizontalPositionArray(receivers).computeAzimuthRad(sourceArray);
+            batchRate[1] = nPair / ((System.nanoTime() - t0) * 1e-9);
+            sink += azimuths[0][0];
+        }
+
+        System.out.printf("%d x %d pairs: maximum difference distance %.2e, azimuth %.2e, back azimuth %.2e%n",
+                nSource, nReceiver, maxDistanceDiff, maxAzimuthDiff, maxBackAzimuthDiff);
+        System.out.printf("distance: per pair %.3e pairs/s, batch %.3e pairs/s (x%.1f)%n",
+                perPairRate[0], batchRate[0], batchRate[0] / perPairRate[0]);
+        System.out.printf("azimuth: per pair %.3e pairs/s, batch %.3e pairs/s (x%.1f) [%.1f]%n",
+                perPairRate[1], batchRate[1], batchRate[1] / perPairRate[1], sink / nRepeat / nPair);
+    }
+
+    private static HorizontalPosition[] randomPositions(Random random, int n) {
+        HorizontalPosition[] positions = new HorizontalPosition[n];
+        for (int i = 0; i < n; i++)
+            positions[i] = new HorizontalPosition(Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)),
+                    360 * random.nextDouble() - 180);
+        return positions;
+    }
+
+    private static double angleDifference(double angle1, double angle2) {
+        double diff = Math.abs(angle1 - angle2);
+        return Math.min(diff, 2 * Math.PI - diff);
+    }
+
+}
@@ -0,0 +1,266 @@
+package io.github.kensuke1984.kibrary.util.sac;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+
+import io.github.kensuke1984.kibrary.external.SAC;
+
+/**
+ * Compares {@link SACUtil#removeTrend(Path, Path)}, {@link SACUtil#interpolate(Path, double, double)}
+ * and {@link SACUtil#rotate(Path, Path, Path, Path)} with "rtrend; rmean", "interpolate" and "rotate to gcp" of SAC.
+ * <p>
+ * Usage: SACUtilComparison [referenceFolder]
+ * <p>
+ * The reference folder must have, for each input file X.sac, the outputs of SAC named X.sac.rtrend and X.sac.interp:
+ * <pre>
+ * r X.sac; rtrend; rmean; w X.sac.rtrend
+ * r X.sac; interpolate delta (newDelta) begin (newB); w X.sac.interp
+ * </pre>
+ * and, for each pair of horizontal components X.N.sac and X.E.sac, the outputs of rotation:
+ * <pre>
+ * r X.N.sac X.E.sac; rotate to gcp; w X.N.sac.rotate X.E.sac.rotate
+ * </pre>
+ * The new delta and begin time of interpolation are taken from the header of X.sac.interp.
+ * If no folder is given and SAC is available, random inputs and their SAC outputs are created in a temporary folder.
+ * Samples agree when the difference is within {@link #TOLERANCE} of the maximum absolute value of the SAC output,
+ * since SAC computes in single precision.
+ * <p>
+ * Checks that do not need SAC (exact results for linear data, agreement with a least-squares fit by commons-math,
+ * and R = -E sin(BAZ) - N cos(BAZ), T = -E cos(BAZ) + N sin(BAZ) for rotation) are always done.
+ *
+ * @since 2026/10/18
+ */
+class SACUtilComparison {
+
+    /**
+     * Tolerance of the difference relative to the maximum absolute value of the SAC output.
+     */
+    private static final double TOLERANCE = 1e-5;
+
+    public static void main(String[] args) throws IOException {
+        checkWithoutSAC();
+
+        Path referencePath;
+        if (args.length > 0) {
+            referencePath = Paths.get(args[0]);
+        } else {
+            try (SAC sac = SAC.createProcess()) {
+                referencePath = Files.createTempDirectory("sacReference");
+                createReferences(sac, referencePath);
+            } catch (IOException e) {
+                System.err.println("SAC is not available (" + e.getMessage() + "); give a folder of SAC outputs to compare.");
+                return;
+            }
+        }
+        compareWithReferences(referencePath);
+    }
+
+    private static void checkWithoutSAC() throws IOException {
+        Random random = new Random(0);
+        int npts = 10000;
+        double delta = 0.05;
+
+        // rtrend: a linear function is removed exactly, and the result agrees with a least-squares fit
+        double[] linear = new double[npts];
+        double[] noisy = new double[npts];
+        SimpleRegression regression = new SimpleRegression();
+        for (int i = 0; i < npts; i++) {
+            double t = 100 + i * delta;
+            linear[i] = 3.0 - 0.02 * t;
+            noisy[i] = linear[i] + Math.sin(t) + random.nextGaussian();
+            regression.addData(t, noisy[i]);
+        }
+        double[] detrended = linear.clone();
+        SACUtil.removeTrend(detrended);
+        double maxResidual = 0;
+        for (double d : detrended) maxResidual = Math.max(maxResidual, Math.abs(d));
+        double[] expected = new double[npts];
+        for (int i = 0; i < npts; i++)
+            expected[i] = noisy[i] - regression.predict(100 + i * delta);
+        double[] actual = noisy.clone();
+        SACUtil.removeTrend(actual);
+        SACUtil.removeMean(actual);
+        System.err.printf("rtrend: residual of a line %.2e, difference from least squares %.2e%n",
+                maxResidual, maxDifference(expected, actual));
+
+        // interpolate: samples are kept when delta is unchanged, and linear data is reproduced exactly
+        double[] same = SACUtil.interpolate(noisy, 100, delta, 100, delta);
+        double[] resampled = SACUtil.interpolate(linear, 100, delta, 100.01, 0.02);
+        double[] exact = new double[resampled.length];
+        for (int i = 0; i < exact.length; i++)
+            exact[i] = 3.0 - 0.02 * (100.01 + i * 0.02);
+        System.err.printf("interpolate: difference at the same delta %.2e, difference for a line %.2e%n",
+                maxDifference(noisy, same), maxDifference(exact, resampled));
+
+        // rotate: T is 90 degrees clockwise from R, which is opposite of BAZ
+        Path rotatePath = Files.createTempDirectory("sacUtilRotate");
+        double baz = 57.3;
+        writeHorizontalPair(rotatePath, "check", random, baz);
+        double[] north = SACUtil.readSACData(rotatePath.resolve("check.N.sac"));
+        double[] east = SACUtil.readSACData(rotatePath.resolve("check.E.sac"));
+        SACUtil.rotate(rotatePath.resolve("check.E.sac"), rotatePath.resolve("check.N.sac"),
+                rotatePath.resolve("check.R.sac"), rotatePath.resolve("check.T.sac"));
+        double[] expectedR = new double[north.length];
+        double[] expectedT = new double[north.length];
+        double sin = Math.sin(Math.toRadians(baz));
+        double cos = Math.cos(Math.toRadians(baz));
+        for (int i = 0; i < north.length; i++) {
+            expectedR[i] = -east[i] * sin - north[i] * cos;
+            expectedT[i] = -east[i] * cos + north[i] * sin;
+        }
+        double differenceR = maxDifference(expectedR, SACUtil.readSACData(rotatePath.resolve("check.R.sac")));
+        double differenceT = maxDifference(expectedT, SACUtil.readSACData(rotatePath.resolve("check.T.sac")));
+        System.err.printf("rotate: difference of R %.2e, difference of T %.2e%n", differenceR, differenceT);
+        if (!(differenceR < 1e-3 && differenceT < 1e-3))
+            throw new IllegalStateException("Rotated components differ from R = -E sin(BAZ) - N cos(BAZ), T = -E cos(BAZ) + N sin(BAZ).");
+    }
+
+    /**
+     * Writes random horizontal components X.N.sac and X.E.sac with the given BAZ.
+     * LCALDA is false so that BAZ is used as it is, both by SAC and by {@link SACUtil#rotate(Path, Path, Path, Path)}.
+     */
+    private static void writeHorizontalPair(Path folder, String name, Random random, double baz) throws IOException {
+        int npts = 5000;
+        double[] north = new double[npts];
+        double[] east = new double[npts];
+        for (int i = 0; i < npts; i++) {
+            north[i] = 30 * Math.sin(2 * Math.PI * i / 400.) + random.nextGaussian();
+            east[i] = 20 * Math.cos(2 * Math.PI * i / 250.) + random.nextGaussian();
+        }
+        CompactSACHeader.Builder builder = new CompactSACHeader.Builder().setValue(SACHeaderEnum.B, 0)
+                .setValue(SACHeaderEnum.DELTA, 0.05).setValue(SACHeaderEnum.EVLA, 0).setValue(SACHeaderEnum.EVLO, 0)
+                .setValue(SACHeaderEnum.STLA, 30 * Math.cos(Math.toRadians(baz + 180)))
+                .setValue(SACHeaderEnum.STLO, 30 * Math.sin(Math.toRadians(baz + 180)))
+                .setValue(SACHeaderEnum.BAZ, baz).setValue(SACHeaderEnum.CMPINC, 90).setBoolean(SACHeaderEnum.LCALDA, false);
+        Map<SACHeaderEnum, String> northMap = builder.setValue(SACHeaderEnum.CMPAZ, 0).setSACString(SACHeaderEnum.KCMPNM, "N")
+                .build().toMap();
+        SACUtil.updateHeader(northMap, north);
+        SACUtil.writeSAC(folder.resolve(name + ".N.sac"), northMap, north);
+        Map<SACHeaderEnum, String> eastMap = builder.setValue(SACHeaderEnum.CMPAZ, 90).setSACString(SACHeaderEnum.KCMPNM, "E")
+                .build().toMap();
+        SACUtil.updateHeader(eastMap, east);
+        SACUtil.writeSAC(folder.resolve(name + ".E.sac"), eastMap, east);
+    }
+
+    private static void createReferences(SAC sac, Path referencePath) throws IOException {
+        Random random = new Random(0);
+        double[] deltas = {0.01, 0.05, 0.1};
+        for (int k = 0; k < deltas.length; k++) {
+            int npts = 20000;
+            double b = -10 + 3 * k;
+            double[] data = new double[npts];
+            for (int i = 0; i < npts; i++) {
+                double t = b + i * deltas[k];
+                data[i] = 100 + 0.5 * t + 50 * Math.sin(2 * Math.PI * t / 20) + 10 * random.nextGaussian();
+            }
+            Map<SACHeaderEnum, String> headerMap = new CompactSACHeader.Builder().setValue(SACHeaderEnum.B, b)
+                    .setValue(SACHeaderEnum.DELTA, deltas[k]).build().toMap();
+            SACUtil.updateHeader(headerMap, data);
+            String name = "random" + k + ".sac";
+            SACUtil.writeSAC(referencePath.resolve(name), headerMap, data);
+        }
+        double[] bazs = {23.4, 145.0, 301.7};
+        for (int k = 0; k < bazs.length; k++)
+            writeHorizontalPair(referencePath, "pair" + k, random, bazs[k]);
+        sac.inputCMD("cd " + referencePath.toAbsolutePath());
+        for (int k = 0; k < deltas.length; k++) {
+            String name = "random" + k + ".sac";
+            sac.inputCMD("r " + name);
+            sac.inputCMD("rtrend");
+            sac.inputCMD("rmean");
+            sac.inputCMD("w " + name + ".rtrend");
+            sac.inputCMD("r " + name);
+            sac.inputCMD("interpolate delta 0.02 begin " + (-9.99 + 3 * k));
+            sac.inputCMD("w " + name + ".interp");
+        }
+        for (int k = 0; k < bazs.length; k++) {
+            String name = "pair" + k;
+            sac.inputCMD("r " + name + ".N.sac " + name + ".E.sac");
+            sac.inputCMD("rotate to gcp");
+            sac.inputCMD("w " + name + ".N.sac.rotate " + name + ".E.sac.rotate");
+        }
+    }
+
+    private static void compareWithReferences(Path referencePath) throws IOException {
+        List<Path> inputs;
+        // CAUTION: Files.list() must be in try-with-resources.
+        try (Stream<Path> stream = Files.list(referencePath)) {
+            inputs = stream.filter(path -> path.getFileName().toString().endsWith(".sac")).sorted().collect(Collectors.toList());
+        }
+        Path tmpPath = Files.createTempFile("sacUtilComparison", ".sac");
+        int nFailed = 0;
+        for (Path input : inputs) {
+            Path rtrendPath = input.resolveSibling(input.getFileName() + ".rtrend");
+            if (Files.exists(rtrendPath)) {
+                SACUtil.removeTrend(input, tmpPath);
+                if (!compare("rtrend; rmean", input, rtrendPath, tmpPath)) nFailed++;
+            }
+            Path interpPath = input.resolveSibling(input.getFileName() + ".interp");
+            if (Files.exists(interpPath)) {
+                Map<SACHeaderEnum, String> referenceHeader = SACUtil.readHeader(interpPath);
+                Files.copy(input, tmpPath, StandardCopyOption.REPLACE_EXISTING);
+                SACUtil.interpolate(tmpPath, Double.parseDouble(referenceHeader.get(SACHeaderEnum.B)),
+                        Double.parseDouble(referenceHeader.get(SACHeaderEnum.DELTA)));
+                if (!compare("interpolate", input, interpPath, tmpPath)) nFailed++;
+            }
+            String inputName = input.getFileName().toString();
+            Path rotateRPath = input.resolveSibling(inputName + ".rotate");
+            if (inputName.endsWith(".N.sac") && Files.exists(rotateRPath)) {
+                Path eastPath = input.resolveSibling(inputName.replaceFirst("\\.N\\.sac$", ".E.sac"));
+                Path rotateTPath = eastPath.resolveSibling(eastPath.getFileName() + ".rotate");
+                Path rotatedPath = Files.createTempDirectory("sacUtilComparison");
+                Path outputRPath = rotatedPath.resolve("R.sac");
+                Path outputTPath = rotatedPath.resolve("T.sac");
+                if (!SACUtil.rotate(input, eastPath, outputRPath, outputTPath))
+                    throw new IllegalStateException("Could not rotate " + input + " and " + eastPath);
+                if (!compare("rotate R", input, rotateRPath, outputRPath)) nFailed++;
+                if (!compare("rotate T", eastPath, rotateTPath, outputTPath)) nFailed++;
+                Files.delete(outputRPath);
+                Files.delete(outputTPath);
+                Files.delete(rotatedPath);
+            }
+        }
+        Files.delete(tmpPath);
+        if (nFailed > 0) throw new IllegalStateException(nFailed + " comparisons with SAC failed.");
+    }
+
+    private static boolean compare(String operation, Path input, Path referencePath, Path actualPath) throws IOException {
+        double[] reference = SACUtil.readSACData(referencePath);
+        double[] actual = SACUtil.readSACData(actualPath);
+        Map<SACHeaderEnum, String> referenceHeader = SACUtil.readHeader(referencePath);
+        Map<SACHeaderEnum, String> actualHeader = SACUtil.readHeader(actualPath);
+        double delta = Double.parseDouble(referenceHeader.get(SACHeaderEnum.DELTA));
+        double bDifference = Math.abs(Double.parseDouble(referenceHeader.get(SACHeaderEnum.B))
+                - Double.parseDouble(actualHeader.get(SACHeaderEnum.B)));
+        boolean ok = reference.length == actual.length && bDifference < 1e-3 * delta;
+        double relativeDifference = Double.NaN;
+        if (reference.length == actual.length) {
+            double maxAbs = 0;
+            for (double d : reference) maxAbs = Math.max(maxAbs, Math.abs(d));
+            relativeDifference = maxDifference(reference, actual) / maxAbs;
+            ok &= relativeDifference <= TOLERANCE;
+        }
+        System.err.printf("%s %s: NPTS %d (SAC %d), difference of B %.2e, relative difference %.2e%s%n", operation,
+                input.getFileName(), actual.length, reference.length, bDifference, relativeDifference, ok ? "" : " !! FAILED");
+        return ok;
+    }
+
+    private static double maxDifference(double[] expected, double[] actual) {
+        double max = 0;
+        for (int i = 0; i < expected.length; i++)
+            max = Math.max(max, Math.abs(expected[i] - actual[i]));
+        return max;
+    }
+
+}